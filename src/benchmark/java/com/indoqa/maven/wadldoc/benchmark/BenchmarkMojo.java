@@ -0,0 +1,60 @@
+/*
+ * Licensed to Indoqa Software Design und Beratung GmbH (Indoqa) 
+ * under one or more contributor license agreements. See the NOTICE 
+ * file distributed with this work for additional information
+ * regarding copyright ownership. Indoqa licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.indoqa.maven.wadldoc.benchmark;
+
+import java.io.File;
+import java.util.Locale;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.apache.maven.reporting.MavenReportException;
+
+import com.indoqa.maven.wadldoc.AbstractWadlDocumentationMojo;
+
+/**
+ * The mojo the benchmarks run, configured with the settings a Maven build would inject and without debug output.
+ */
+class BenchmarkMojo extends AbstractWadlDocumentationMojo {
+
+    public BenchmarkMojo(File inputDirectory, File outputDirectory, String threads) {
+        this.inputDirectory = inputDirectory;
+        this.outputDirectory = outputDirectory;
+        this.threads = threads;
+        this.escapeHtmlRepresentations = true;
+        this.setLog(new SystemStreamLog() {
+
+            @Override
+            public void debug(CharSequence content) {
+                // the debug output would distort the measurement
+            }
+        });
+    }
+
+    public void execute() throws MojoExecutionException {
+        try {
+            this.executeReport();
+        } catch (MavenReportException e) {
+            throw new MojoExecutionException(e.getMessage(), e);
+        }
+    }
+
+    public void executeReport() throws MavenReportException {
+        this.executeReport(Locale.ENGLISH);
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ * Licensed to Indoqa Software Design und Beratung GmbH (Indoqa) 
+ * under one or more contributor license agreements. See the NOTICE 
+ * file distributed with this work for additional information
+ * regarding copyright ownership. Indoqa licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.indoqa.maven.wadldoc.benchmark;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+import javax.xml.transform.Templates;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.maven.reporting.MavenReportException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.indoqa.maven.wadldoc.transformation.TemplatesCache;
+import com.indoqa.maven.wadldoc.transformation.Wadl2HtmlPipeline;
+
+/**
+ * Measures the startup of the plugin: each fork runs once in a fresh JVM, so that the loading of the XSLT
+ * processor and the compilation of the stylesheet are part of the measurement. <code>compileStylesheet</code>
+ * shows how much of the first run of the mojo over a few small WADL files, <code>executeReport</code>, is spent
+ * on the stylesheet alone.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 0)
+@Measurement(iterations = 1)
+@Fork(20)
+public class ColdStartBenchmark {
+
+    private File inputDirectory;
+    private File outputDirectory;
+    private BenchmarkMojo mojo;
+
+    @Setup(Level.Trial)
+    public void createWadls() throws Exception {
+        File baseDirectory = File.createTempFile("wadldoc-benchmark", "");
+        baseDirectory.delete();
+        this.inputDirectory = new File(baseDirectory, "wadl");
+        this.outputDirectory = new File(baseDirectory, "restapidocs");
+
+        WadlGenerator generator = WadlGenerator.Size.SMALL.createGenerator();
+        for (int i = 0; i < 4; i++) {
+            generator.write(new File(this.inputDirectory, "api" + i + ".wadl"), "API " + i);
+        }
+
+        this.mojo = new BenchmarkMojo(this.inputDirectory, this.outputDirectory, "1");
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteWadls() throws Exception {
+        FileUtils.deleteDirectory(this.inputDirectory.getParentFile());
+    }
+
+    @Benchmark
+    public Templates compileStylesheet() throws Exception {
+        return TemplatesCache.getTemplates(Wadl2HtmlPipeline.getXsltStylesheets().get(1));
+    }
+
+    @Benchmark
+    public void executeReport() throws MavenReportException {
+        this.mojo.executeReport();
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * Licensed to Indoqa Software Design und Beratung GmbH (Indoqa) 
+ * under one or more contributor license agreements. See the NOTICE 
+ * file distributed with this work for additional information
+ * regarding copyright ownership. Indoqa licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.indoqa.maven.wadldoc.benchmark;
+
+import java.io.StringReader;
+import java.util.concurrent.TimeUnit;
+
+import javax.xml.parsers.SAXParserFactory;
+
+import org.apache.cocoon.pipeline.component.sax.AbstractTransformer;
+import org.apache.cocoon.pipeline.util.NullXMLConsumer;
+import org.apache.cocoon.pipeline.util.SaxBuffer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.xml.sax.InputSource;
+import org.xml.sax.XMLReader;
+
+import com.indoqa.maven.wadldoc.transformation.EscapingTransformer;
+
+/**
+ * Compares the {@link EscapingTransformer} with the {@link LegacyEscapingTransformer}. The WADL document is
+ * parsed once and replayed from a {@link SaxBuffer}, so that only the escaping is measured. Run it with
+ * <code>-Djmh.args="EscapingTransformerBenchmark"</code> to see the allocation rates reported by the GC profiler.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EscapingTransformerBenchmark {
+
+    @Param({"SMALL", "MEDIUM", "HUGE"})
+    public WadlGenerator.Size size;
+
+    private SaxBuffer wadl;
+
+    @Setup(Level.Trial)
+    public void recordWadl() throws Exception {
+        SAXParserFactory parserFactory = SAXParserFactory.newInstance();
+        parserFactory.setNamespaceAware(true);
+        XMLReader xmlReader = parserFactory.newSAXParser().getXMLReader();
+
+        this.wadl = new SaxBuffer();
+        xmlReader.setContentHandler(this.wadl);
+        xmlReader.parse(new InputSource(new StringReader(this.size.createGenerator().generate("Benchmark"))));
+    }
+
+    @Benchmark
+    public AbstractTransformer legacy() throws Exception {
+        return this.escape(new LegacyEscapingTransformer());
+    }
+
+    @Benchmark
+    public AbstractTransformer streaming() throws Exception {
+        return this.escape(new EscapingTransformer());
+    }
+
+    private AbstractTransformer escape(AbstractTransformer transformer) throws Exception {
+        transformer.setConsumer(new NullXMLConsumer());
+        this.wadl.toSAX(transformer);
+        return transformer;
+    }
+}
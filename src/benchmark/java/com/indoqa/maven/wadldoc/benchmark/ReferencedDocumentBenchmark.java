@@ -0,0 +1,130 @@
+/*
+ * Licensed to Indoqa Software Design und Beratung GmbH (Indoqa) 
+ * under one or more contributor license agreements. See the NOTICE 
+ * file distributed with this work for additional information
+ * regarding copyright ownership. Indoqa licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.indoqa.maven.wadldoc.benchmark;
+
+import java.io.File;
+import java.net.URL;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.output.NullOutputStream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.indoqa.maven.wadldoc.transformation.ReferencedDocumentCache;
+import com.indoqa.maven.wadldoc.transformation.Wadl2HtmlPipeline;
+import com.indoqa.maven.wadldoc.transformation.WadlMetadata;
+import com.indoqa.maven.wadldoc.transformation.WadlRenderer;
+
+/**
+ * Measures the transformation of a small WADL document that references a large, shared types document, with and
+ * without the {@link ReferencedDocumentCache}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ReferencedDocumentBenchmark {
+
+    @Param({"0", "64"})
+    public int referenceCacheSize;
+
+    @Param({Wadl2HtmlPipeline.RENDERER_XSLT, Wadl2HtmlPipeline.RENDERER_STAX})
+    public String renderer;
+
+    @Param({"2000"})
+    public int types;
+
+    private File directory;
+    private URL wadl;
+    private WadlRenderer wadlRenderer;
+
+    @Setup(Level.Trial)
+    public void createWadl() throws Exception {
+        this.directory = File.createTempFile("wadldoc-benchmark", "");
+        this.directory.delete();
+        this.directory.mkdirs();
+
+        FileUtils.writeStringToFile(new File(this.directory, "types.wadl"), this.generateTypes(), "UTF-8");
+        File wadlFile = new File(this.directory, "api.wadl");
+        FileUtils.writeStringToFile(wadlFile, this.generateWadl(), "UTF-8");
+        this.wadl = wadlFile.toURI().toURL();
+
+        this.wadlRenderer = Wadl2HtmlPipeline.createRenderer(this.renderer);
+        ReferencedDocumentCache.clear();
+        ReferencedDocumentCache.setMemoryBudget(this.referenceCacheSize * 1024L * 1024L);
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteWadl() {
+        FileUtils.deleteQuietly(this.directory);
+        ReferencedDocumentCache.setMemoryBudget(ReferencedDocumentCache.DEFAULT_MEMORY_BUDGET);
+    }
+
+    @Benchmark
+    public WadlMetadata transform() {
+        return new Wadl2HtmlPipeline(this.wadl, null, true, this.wadlRenderer).execute(new NullOutputStream());
+    }
+
+    private String generateTypes() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+        sb.append("<w:application xmlns:w=\"http://research.sun.com/wadl/2006/10\">\n");
+        for (int i = 0; i < this.types; i++) {
+            sb.append("  <w:representation id=\"type").append(i).append("\" mediaType=\"application/json\">\n");
+            sb.append("    <w:doc title=\"Type ").append(i).append("\">The representation of type ").append(i);
+            sb.append(".</w:doc>\n");
+            sb.append("    <w:param name=\"field").append(i).append("\" style=\"plain\" path=\"/type/field\"/>\n");
+            sb.append("  </w:representation>\n");
+        }
+        sb.append("</w:application>\n");
+        return sb.toString();
+    }
+
+    private String generateWadl() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+        sb.append("<w:application xmlns:w=\"http://research.sun.com/wadl/2006/10\">\n");
+        sb.append("  <w:doc title=\"Benchmark\"/>\n");
+        sb.append("  <w:resources base=\"http://localhost:8888/rest/v1\">\n");
+        for (int i = 0; i < 5; i++) {
+            sb.append("    <w:resource path=\"resource").append(i).append("\">\n");
+            sb.append("      <w:method name=\"GET\"><w:response>");
+            sb.append("<w:representation href=\"types.wadl#type").append(i * 7).append("\"/>");
+            sb.append("</w:response></w:method>\n");
+            sb.append("    </w:resource>\n");
+        }
+        sb.append("  </w:resources>\n");
+        sb.append("</w:application>\n");
+        return sb.toString();
+    }
+}
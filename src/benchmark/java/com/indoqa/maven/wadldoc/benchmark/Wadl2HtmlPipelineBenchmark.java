@@ -0,0 +1,89 @@
+/*
+ * Licensed to Indoqa Software Design und Beratung GmbH (Indoqa) 
+ * under one or more contributor license agreements. See the NOTICE 
+ * file distributed with this work for additional information
+ * regarding copyright ownership. Indoqa licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.indoqa.maven.wadldoc.benchmark;
+
+import java.io.File;
+import java.net.URL;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.output.NullOutputStream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.indoqa.maven.wadldoc.transformation.Wadl2HtmlPipeline;
+import com.indoqa.maven.wadldoc.transformation.WadlMetadata;
+import com.indoqa.maven.wadldoc.transformation.WadlRenderer;
+
+/**
+ * Measures a single WADL to HTML transformation with a warm stylesheet cache.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class Wadl2HtmlPipelineBenchmark {
+
+    @Param({"SMALL", "MEDIUM", "HUGE"})
+    public WadlGenerator.Size size;
+
+    @Param({"true", "false"})
+    public boolean escapeHtmlRepresentations;
+
+    @Param({"", "style.css"})
+    public String stylesheet;
+
+    @Param({Wadl2HtmlPipeline.RENDERER_XSLT, Wadl2HtmlPipeline.RENDERER_STAX})
+    public String renderer;
+
+    private File wadlFile;
+    private URL wadl;
+    private WadlRenderer wadlRenderer;
+
+    @Setup(Level.Trial)
+    public void createWadl() throws Exception {
+        this.wadlFile = File.createTempFile("wadldoc-benchmark", ".wadl");
+        this.size.createGenerator().write(this.wadlFile, "Benchmark");
+        this.wadl = this.wadlFile.toURI().toURL();
+        this.wadlRenderer = Wadl2HtmlPipeline.createRenderer(this.renderer);
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteWadl() {
+        this.wadlFile.delete();
+    }
+
+    @Benchmark
+    public WadlMetadata transform() {
+        return new Wadl2HtmlPipeline(this.wadl, this.stylesheet, this.escapeHtmlRepresentations,
+                this.wadlRenderer).execute(new NullOutputStream());
+    }
+}
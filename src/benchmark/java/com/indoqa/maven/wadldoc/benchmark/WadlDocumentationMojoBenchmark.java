@@ -0,0 +1,89 @@
+/*
+ * Licensed to Indoqa Software Design und Beratung GmbH (Indoqa) 
+ * under one or more contributor license agreements. See the NOTICE 
+ * file distributed with this work for additional information
+ * regarding copyright ownership. Indoqa licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.indoqa.maven.wadldoc.benchmark;
+
+import java.io.File;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.maven.reporting.MavenReportException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.indoqa.maven.wadldoc.AbstractWadlDocumentationMojo;
+
+/**
+ * Measures a complete run of {@link AbstractWadlDocumentationMojo#executeReport(Locale)} over a directory of
+ * medium sized WADL files.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(1)
+public class WadlDocumentationMojoBenchmark {
+
+    @Param({"10", "100"})
+    public int files;
+
+    @Param({"1", "1C"})
+    public String threads;
+
+    private File inputDirectory;
+    private File outputDirectory;
+    private BenchmarkMojo mojo;
+
+    @Setup(Level.Trial)
+    public void createWadls() throws Exception {
+        File baseDirectory = File.createTempFile("wadldoc-benchmark", "");
+        baseDirectory.delete();
+        this.inputDirectory = new File(baseDirectory, "wadl");
+        this.outputDirectory = new File(baseDirectory, "restapidocs");
+
+        WadlGenerator generator = WadlGenerator.Size.MEDIUM.createGenerator();
+        for (int i = 0; i < this.files; i++) {
+            generator.write(new File(this.inputDirectory, "api" + i + ".wadl"), "API " + i);
+        }
+
+        this.mojo = new BenchmarkMojo(this.inputDirectory, this.outputDirectory, this.threads);
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteWadls() throws Exception {
+        FileUtils.deleteDirectory(this.inputDirectory.getParentFile());
+    }
+
+    @Benchmark
+    public void executeReport() throws MavenReportException {
+        this.mojo.executeReport();
+    }
+}
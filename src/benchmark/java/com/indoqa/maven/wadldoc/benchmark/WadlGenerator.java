@@ -0,0 +1,109 @@
+/*
+ * Licensed to Indoqa Software Design und Beratung GmbH (Indoqa) 
+ * under one or more contributor license agreements. See the NOTICE 
+ * file distributed with this work for additional information
+ * regarding copyright ownership. Indoqa licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.indoqa.maven.wadldoc.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.apache.commons.io.FileUtils;
+
+/**
+ * Generates synthetic WADL documents with a configurable number of resources, methods per resource and params per
+ * method. Every method has an HTML response representation, so that the escaping of HTML representations is
+ * exercised too.
+ */
+public class WadlGenerator {
+
+    public enum Size {
+        SMALL(5, 2, 2), MEDIUM(50, 4, 4), HUGE(500, 4, 8);
+
+        private final int resources;
+        private final int methods;
+        private final int params;
+
+        private Size(int resources, int methods, int params) {
+            this.resources = resources;
+            this.methods = methods;
+            this.params = params;
+        }
+
+        public WadlGenerator createGenerator() {
+            return new WadlGenerator(this.resources, this.methods, this.params);
+        }
+    }
+
+    private static final String[] METHOD_NAMES = {"GET", "PUT", "POST", "DELETE"};
+
+    private final int resources;
+    private final int methods;
+    private final int params;
+
+    public WadlGenerator(int resources, int methods, int params) {
+        this.resources = resources;
+        this.methods = methods;
+        this.params = params;
+    }
+
+    public String generate(String title) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+        sb.append("<w:application xmlns:w=\"http://research.sun.com/wadl/2006/10\"");
+        sb.append(" xmlns:xsd=\"http://www.w3.org/2001/XMLSchema\" xmlns=\"http://www.w3.org/1999/xhtml\">\n");
+        sb.append("  <w:doc title=\"").append(title).append("\"/>\n");
+        sb.append("  <w:resources base=\"http://localhost:8888/rest/v1\">\n");
+
+        for (int r = 0; r < this.resources; r++) {
+            sb.append("    <w:resource path=\"resource").append(r).append("/{id}\">\n");
+            sb.append("      <w:param name=\"id\" type=\"xsd:string\" style=\"template\" required=\"true\">");
+            sb.append("<w:doc>The id of the resource ").append(r).append(".</w:doc></w:param>\n");
+
+            for (int m = 0; m < this.methods; m++) {
+                sb.append("      <w:method name=\"").append(METHOD_NAMES[m % METHOD_NAMES.length]);
+                sb.append("\" id=\"method").append(r).append('-').append(m).append("\">\n");
+                sb.append("        <w:doc>Method ").append(m).append(" of resource ").append(r).append(".</w:doc>\n");
+                sb.append("        <w:request>\n");
+                for (int p = 0; p < this.params; p++) {
+                    sb.append("          <w:param name=\"param").append(p).append("\" type=\"xsd:string\"");
+                    sb.append(" style=\"query\" required=\"").append(p % 2 == 0).append("\">");
+                    sb.append("<w:doc>Query parameter ").append(p).append(".</w:doc></w:param>\n");
+                }
+                sb.append("        </w:request>\n");
+                sb.append("        <w:response>\n");
+                sb.append("          <w:representation mediaType=\"text/html\">\n");
+                sb.append("            <w:doc title=\"HTML representation ").append(r).append('-').append(m);
+                sb.append("\"><html><body class=\"result\">An <b>example</b> with <a href=\"/x?a=1&amp;b=2\">");
+                sb.append("a link</a>.</body></html></w:doc>\n");
+                sb.append("          </w:representation>\n");
+                sb.append("        </w:response>\n");
+                sb.append("      </w:method>\n");
+            }
+
+            sb.append("    </w:resource>\n");
+        }
+
+        sb.append("  </w:resources>\n");
+        sb.append("</w:application>\n");
+        return sb.toString();
+    }
+
+    public File write(File file, String title) throws IOException {
+        FileUtils.writeStringToFile(file, this.generate(title), "UTF-8");
+        return file;
+    }
+}
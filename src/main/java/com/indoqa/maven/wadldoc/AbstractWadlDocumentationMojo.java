@@ -18,37 +18,60 @@
  */
 package com.indoqa.maven.wadldoc;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileNotFoundException;
-import java.io.FileOutputStream;
-import java.io.FileWriter;
 import java.io.IOException;
 import java.io.OutputStream;
-import java.net.MalformedURLException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.URL;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
-import java.util.Iterator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
-import javax.xml.XMLConstants;
-import javax.xml.namespace.NamespaceContext;
-import javax.xml.xpath.XPath;
-import javax.xml.xpath.XPathExpression;
-import javax.xml.xpath.XPathFactory;
-
+import org.antlr.stringtemplate.AutoIndentWriter;
 import org.antlr.stringtemplate.StringTemplate;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.FilenameUtils;
 import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.output.TeeOutputStream;
+import org.apache.commons.lang.StringUtils;
+import org.apache.maven.artifact.Artifact;
 import org.apache.maven.plugin.AbstractMojo;
 import org.apache.maven.reporting.MavenReportException;
-import org.xml.sax.InputSource;
+import org.xml.sax.SAXParseException;
 
+import com.indoqa.maven.wadldoc.PageCache.CachedPage;
+import com.indoqa.maven.wadldoc.PageWriter.PageOutputStream;
+import com.indoqa.maven.wadldoc.transformation.ReferencedDocumentCache;
+import com.indoqa.maven.wadldoc.transformation.ResourcePagesRenderer;
+import com.indoqa.maven.wadldoc.transformation.ResourcePagesRenderer.PageHandler;
+import com.indoqa.maven.wadldoc.transformation.SearchEntry;
+import com.indoqa.maven.wadldoc.transformation.StaxWadlRenderer;
+import com.indoqa.maven.wadldoc.transformation.TemplatesCache;
 import com.indoqa.maven.wadldoc.transformation.Wadl2HtmlPipeline;
+import com.indoqa.maven.wadldoc.transformation.WadlMetadata;
+import com.indoqa.maven.wadldoc.transformation.WadlRenderer;
 
 /**
  * @requiresDependencyResolution runtime
@@ -56,6 +79,10 @@ import com.indoqa.maven.wadldoc.transformation.Wadl2HtmlPipeline;
  */
 public abstract class AbstractWadlDocumentationMojo extends AbstractMojo {
 
+    private static final String LAYOUT_PER_RESOURCE = "per-resource";
+    private static final String DEFAULT_STYLESHEET = "style.css";
+    private static final String LAYOUT_SINGLE = "single";
+
     /**
      * Specifies whether HTML representations should be escaped.
      * 
@@ -63,6 +90,56 @@ public abstract class AbstractWadlDocumentationMojo extends AbstractMojo {
      */
     protected boolean escapeHtmlRepresentations;
 
+    /**
+     * Specifies whether the CSS file should be written as a fingerprinted asset, whose name contains a hash of
+     * its content, e.g. <code>style.3fa9c1d2.css</code>, so that web servers can let browsers cache it forever.
+     * Without a configured <code>stylesheet</code>, the default styles, which are otherwise inlined into every
+     * page, are written into the asset, so that the pages shrink. Assets of earlier builds are deleted.
+     * 
+     * @parameter expression="${maven.restapidocs.fingerprint}" default-value="false"
+     */
+    protected boolean fingerprint;
+
+    /**
+     * Specifies whether the fingerprinted CSS file should be minified.
+     * 
+     * @parameter expression="${maven.restapidocs.minify}" default-value="false"
+     */
+    protected boolean minify;
+
+    /**
+     * Specifies whether only those WADL files should be transformed that have changed since the last build. The
+     * state of the last build is kept in the output directory.
+     * 
+     * @parameter expression="${maven.restapidocs.incremental}" default-value="false"
+     */
+    protected boolean incremental;
+
+    /**
+     * The runtime classpath of the project, searched by <code>classpath</code> sources.
+     * 
+     * @parameter expression="${project.runtimeClasspathElements}"
+     * @readonly
+     */
+    protected List<String> classpathElements;
+
+    /**
+     * Specifies Ant-style patterns of WADL files that shouldn't be transformed, relative to the input directory,
+     * e.g. <code>drafts&#47;**</code>.
+     * 
+     * @parameter
+     */
+    protected String[] excludes;
+
+    /**
+     * Specifies Ant-style patterns of the WADL files to be transformed, relative to the input directory. By
+     * default, all <code>.xml</code> and <code>.wadl</code> files in the input directory and its subdirectories
+     * are transformed. The generated pages mirror the directory tree of the WADL files.
+     * 
+     * @parameter
+     */
+    protected String[] includes;
+
     /**
      * Specifies the input directory where the WADL files are located.
      * 
@@ -81,6 +158,120 @@ public abstract class AbstractWadlDocumentationMojo extends AbstractMojo {
      */
     protected File outputDirectory;
 
+    /**
+     * Specifies the size in megabytes from which on WADL files are processed resource by resource, so that even
+     * very large files can be rendered with a bounded amount of memory. Such files are rendered by the
+     * <code>streaming</code> renderer, unless another renderer has been configured explicitly. Since that renderer
+     * can't render them with a bounded amount of memory, the build fails then. <code>0</code> disables the
+     * large-file mode.
+     * 
+     * @parameter expression="${maven.restapidocs.largeFileThreshold}" default-value="0"
+     */
+    protected int largeFileThreshold;
+
+    /**
+     * Specifies the layout of the generated documentation: <code>single</code> writes one page per WADL file,
+     * <code>per-resource</code> a directory per WADL file with a table of contents page and one page for each
+     * top-level resource. The per-resource layout is always rendered resource by resource, like by the
+     * <code>streaming</code> renderer, and the configured threads render the pages of a WADL file in parallel.
+     * 
+     * @parameter expression="${maven.restapidocs.layout}" default-value="single"
+     */
+    protected String layout;
+
+    /**
+     * Specifies whether a gzip-compressed copy of each page should be written next to it, e.g.
+     * <code>index.html.gz</code>, which static web servers can deliver to clients that accept compressed content
+     * without compressing the page on every request.
+     * 
+     * @parameter expression="${maven.restapidocs.compress}" default-value="false"
+     */
+    protected boolean compress;
+
+    /**
+     * Specifies whether the rendered pages should be kept in a persistent cache. The cache is keyed by the content
+     * of the WADL files, the renderer and the stylesheets, so that unchanged WADL files are taken from the cache
+     * even after <code>mvn clean</code> and identical WADL files published by several modules are rendered only
+     * once. Only the <code>single</code> layout is cached.
+     * 
+     * @parameter expression="${maven.restapidocs.cache}" default-value="false"
+     */
+    protected boolean cache;
+
+    /**
+     * Specifies the timeout in milliseconds for connecting to the servers of the WADL documents fetched from
+     * <code>urls</code> sources, see {@link WadlSource}.
+     * 
+     * @parameter expression="${maven.restapidocs.connectTimeout}" default-value="5000"
+     */
+    protected int connectTimeout;
+
+    /**
+     * Specifies the directory the WADL documents of <code>urls</code> sources are fetched into, see
+     * {@link WadlSource}. The copies stay there between builds, so that unchanged documents aren't downloaded
+     * again and, in an incremental build, aren't rendered again.
+     * 
+     * @parameter expression="${maven.restapidocs.fetchDirectory}"
+     *            default-value="${project.build.directory}/wadldoc-fetch"
+     */
+    protected File fetchDirectory;
+
+    /**
+     * Specifies the timeout in milliseconds for reading the WADL documents fetched from <code>urls</code> sources,
+     * see {@link WadlSource}.
+     * 
+     * @parameter expression="${maven.restapidocs.readTimeout}" default-value="30000"
+     */
+    protected int readTimeout;
+
+    /**
+     * Specifies the directory of the page cache. Point several modules or, e.g. on a CI agent, several builds at
+     * the same directory to share the cached pages.
+     * 
+     * @parameter expression="${maven.restapidocs.cacheDirectory}"
+     *            default-value="${project.build.directory}/wadldoc-cache"
+     */
+    protected File cacheDirectory;
+
+    /**
+     * Specifies whether the time of each phase of the build and the time, the bytes read and written and the SAX
+     * events of each stage of each transformation should be recorded. A summary is logged and the details are
+     * written to <code>build-metrics.json</code> in the output directory. Counting the SAX events slows down the
+     * transformations a little.
+     * 
+     * @parameter expression="${maven.restapidocs.metrics}" default-value="false"
+     */
+    protected boolean metrics;
+
+    /**
+     * Specifies the memory budget in megabytes for the documents the WADL files reference (e.g. a common types
+     * WADL). Each of them is parsed only once and then shared by all WADL files until the budget is exhausted and
+     * the least recently used documents are evicted. <code>0</code> disables the cache.
+     * 
+     * @parameter expression="${maven.restapidocs.referenceCacheSize}" default-value="64"
+     */
+    protected int referenceCacheSize;
+
+    /**
+     * Specifies how the WADL files are rendered to HTML: <code>xslt</code> uses the XSLT stylesheet,
+     * <code>stax</code> a pure-Java renderer that produces the same pages considerably faster and
+     * <code>streaming</code> the same renderer in its large-file mode. Alternatively the class name of a
+     * {@link WadlRenderer} implementation can be passed. The default is <code>xslt</code>.
+     * 
+     * @parameter expression="${maven.restapidocs.renderer}"
+     */
+    protected String renderer;
+
+    /**
+     * Specifies whether a search index of the resource paths, methods, parameters, media types and the
+     * documentation should be written and a search box added to the index page. The index is collected while the
+     * WADL files are transformed and split into one small file per WADL file, of which the browser only loads
+     * those that can match a query.
+     * 
+     * @parameter expression="${maven.restapidocs.search}" default-value="false"
+     */
+    protected boolean search;
+
     /**
      * Specifies whether the REST API docs generation should be skipped.
      * 
@@ -88,6 +279,22 @@ public abstract class AbstractWadlDocumentationMojo extends AbstractMojo {
      */
     protected boolean skip;
 
+    /**
+     * The dependencies of the project, searched by <code>dependency</code> sources.
+     * 
+     * @parameter expression="${project.artifacts}"
+     * @readonly
+     */
+    protected Set<Artifact> projectArtifacts;
+
+    /**
+     * The version of the plugin, which is part of the keys of the page cache.
+     * 
+     * @parameter expression="${plugin.version}"
+     * @readonly
+     */
+    protected String pluginVersion;
+
     /**
      * Specifies the CSS file.
      * 
@@ -95,6 +302,34 @@ public abstract class AbstractWadlDocumentationMojo extends AbstractMojo {
      */
     protected File stylesheet;
 
+    /**
+     * Specifies the number of threads used to transform the WADL files. Either an absolute number or a multiple of
+     * the available processor cores, e.g. <code>1C</code> or <code>0.5C</code> (like Maven's <code>-T</code>
+     * option).
+     * 
+     * @parameter expression="${maven.restapidocs.threads}" default-value="1"
+     */
+    protected String threads;
+
+    /**
+     * Specifies whether the WADL files should be validated against the schema of WADL and the XSD grammars they
+     * include before they are transformed. All errors are reported with their file and line. Invalid WADL files
+     * fail the build, unless errors are tolerated (see <code>failOnError</code>), then they are transformed
+     * anyway. The <code>validate</code> goal validates the WADL files without transforming them.
+     * 
+     * @parameter expression="${maven.restapidocs.validate}" default-value="false"
+     */
+    protected boolean validate;
+
+    /**
+     * Specifies additional sources of WADL files: further directories, the classpath of the project or WADL files
+     * packaged in dependencies of the project, which are read directly from the archives. All WADL files are
+     * rendered in one run and listed on one index page. See {@link WadlSource} for the configuration of a source.
+     * 
+     * @parameter
+     */
+    protected WadlSource[] wadlSources;
+
     /**
      * Specifies the title.
      * 
@@ -102,210 +337,1167 @@ public abstract class AbstractWadlDocumentationMojo extends AbstractMojo {
      */
     private String title;
 
+    private WadlRenderer wadlRenderer;
+    private WadlRenderer largeFileRenderer;
+    private boolean perResourceLayout;
+    private BuildMetrics buildMetrics;
+    private BuildState lastBuildState;
+    private PageWriter pageWriter;
+    private PageCache pageCache;
+    private StylesheetAsset stylesheetAsset;
+
     protected void executeReport(Locale unusedLocale) throws MavenReportException {
         if (this.skip) {
             this.getLog().info("Skipping javadoc generation");
             return;
         }
 
+        this.initialize();
+
+        this.buildMetrics = this.metrics ? new BuildMetrics() : null;
+        try {
+            this.generateDocumentation();
+        } finally {
+            // the metrics are written even if the build stops early, that's when they are needed most
+            this.writeBuildMetrics();
+            // the thread of Maven outlives the build
+            Wadl2HtmlPipeline.releaseThreadResources(this.wadlRenderer);
+        }
+    }
+
+    /**
+     * Discover, transform and index the WADL files and record each stage in the build metrics.
+     */
+    private void generateDocumentation() throws MavenReportException {
+        long time = System.nanoTime();
+
         // make sure that the output directory exists
         this.outputDirectory.mkdirs();
 
-        // fix for some Maven classloading problems in conjunction with JAXP that
-        // relies on a set thread context classloader ...
-        Thread.currentThread().setContextClassLoader(this.getClass().getClassLoader());
+        // WADL files of running services
+        if (this.fetchWadlFiles()) {
+            time = this.recordPhase("fetch", time);
+        }
 
-        this.getLog().debug("Reading WADL files from: " + this.inputDirectory);
-        @SuppressWarnings("unchecked")
-        Collection<File> wadlFiles = FileUtils.listFiles(this.inputDirectory, new String[] {"xml", "wadl"}, false);
+        List<WadlFile> wadlFiles = this.scanWadlFiles();
 
         if (wadlFiles.size() <= 0) {
             this.getLog().info("No WADL files. Nothing to do.");
+            return;
+        }
+        time = this.recordPhase("discovery", time);
+        this.checkLargeFiles(wadlFiles);
+
+        // validation
+        if (this.validate) {
+            Map<WadlFile, List<SAXParseException>> invalidFiles = this.validateWadlFiles(wadlFiles);
+            time = this.recordPhase("validation", time);
+            if (!invalidFiles.isEmpty() && this.isFailOnError()) {
+                throw new MavenReportException(invalidFiles.size() + " of " + wadlFiles.size()
+                        + " WADL files are invalid.");
+            }
         }
 
+        // incremental build
+        BuildState buildState = this.loadBuildState();
+        this.lastBuildState = buildState;
+        List<WadlFile> outdatedFiles = this.getOutdatedFiles(wadlFiles, buildState);
+        time = this.recordPhase("build state", time);
+
         // WADL to HTML transformation
-        this.transformWadlDocuments2HTMLDocuments(wadlFiles);
+        Map<WadlFile, WadlMetadata> metadata = new HashMap<WadlFile, WadlMetadata>();
+        Collection<WadlFile> failedFiles = this.transformWadlDocuments2HTMLDocuments(outdatedFiles, metadata,
+                buildState);
+        time = this.recordPhase("transformation", time);
+        wadlFiles.removeAll(failedFiles);
+        if (wadlFiles.isEmpty()) {
+            this.getLog().warn("None of the WADL files could be transformed.");
+            return;
+        }
+        this.getLog().debug(
+                "Compiled stylesheet cache: " + TemplatesCache.getHits() + " hits, " + TemplatesCache.getMisses()
+                        + " misses, " + TemplatesCache.getSize() + " stylesheets cached");
+        if (this.pageCache != null) {
+            this.getLog().info("Page cache: " + this.pageCache.getHits() + " hits, " + this.pageCache.getMisses()
+                    + " misses");
+        }
+        if (this.getLog().isDebugEnabled()) {
+            this.getLog().debug(ReferencedDocumentCache.getReport());
+        }
+
+        if (buildState != null) {
+            List<String> wadlKeys = new ArrayList<String>();
+            for (WadlFile wadlFile : wadlFiles) {
+                wadlKeys.add(wadlFile.getKey());
+            }
+            for (Entry<WadlFile, WadlMetadata> each : metadata.entrySet()) {
+                updateBuildState(buildState, each.getKey(), each.getValue());
+            }
+            buildState.retainWadls(wadlKeys);
+        }
+        time = this.recordPhase("build state update", time);
 
         // copy stylesheet
         this.copyStylesheet();
+        time = this.recordPhase("stylesheet", time);
+
+        // search index
+        if (this.search) {
+            this.writeSearchIndex(wadlFiles, metadata, buildState);
+            time = this.recordPhase("search index", time);
+        }
 
         // index page
-        HtmlDocument startPage = this.writeIndexPage(wadlFiles);
+        HtmlDocument startPage = this.writeIndexPage(wadlFiles, metadata, buildState);
+        time = this.recordPhase("index page", time);
 
         // frameset
-        this.writeFrameset(wadlFiles, startPage);
-    }
-
-    protected void setOutputDirectory(File outputDirectory) {
-        this.outputDirectory = outputDirectory;
-    }
-
-    private void copyStylesheet() throws MavenReportException {
-        if (this.stylesheet != null) {
-            if (!this.stylesheet.exists()) {
-                throw new MavenReportException("The referred stylesheet " + this.stylesheet + " doesn't exist.");
-            }
+        this.writeFrameset(startPage);
+        time = this.recordPhase("frameset", time);
 
+        if (buildState != null) {
             try {
-                FileUtils.copyFile(this.stylesheet, new File(this.outputDirectory, this.stylesheet.getName()));
+                buildState.store();
             } catch (IOException e) {
-                throw new MavenReportException("Can't copy stylesheet " + this.stylesheet, e);
+                throw new MavenReportException("Can't store the build state in " + this.outputDirectory, e);
             }
+            this.recordPhase("build state store", time);
         }
     }
 
-    private String createIndexFileContent(List<HtmlDocument> htmlDocuments) throws MavenReportException {
-        try {
-            StringTemplate stringTemplate = new StringTemplate(IOUtils.toString(this.getClass().getResourceAsStream(
-                    "resources.html")));
-            if (this.stylesheet != null) {
-                stringTemplate.setAttribute("stylesheet", this.stylesheet.getName());
-            }
-            stringTemplate.setAttribute("title", this.title);
-            stringTemplate.setAttribute("resources", htmlDocuments);
-            return stringTemplate.toString();
-        } catch (IOException e) {
-            throw new MavenReportException("Can't create file resources.html", e);
+    /**
+     * Create the frameset page that shows the index page next to the page of the first of the passed WADL files.
+     */
+    protected String createFrameset(Collection<WadlFile> wadlFiles, Map<WadlFile, String> titles)
+            throws MavenReportException {
+        return this.createFramesetTemplate(this.createHtmlDocuments(wadlFiles, titles).get(0)).toString();
+    }
+
+    /**
+     * Create the index page that lists the passed WADL files by their titles.
+     */
+    protected String createIndexPage(Collection<WadlFile> wadlFiles, Map<WadlFile, String> titles)
+            throws MavenReportException {
+        return this.createIndexTemplate(this.createHtmlDocuments(wadlFiles, titles), false).toString();
+    }
+
+    /**
+     * Get the path of the page a WADL file is transformed to, relative to the output directory. The path mirrors
+     * the path of the WADL file relative to the input directory. In the per-resource layout, this is the table of
+     * contents in the directory of the WADL file.
+     */
+    protected String createOutFileName(WadlFile wadlFile) {
+        String baseName = FilenameUtils.removeExtension(wadlFile.getPath());
+        if (this.perResourceLayout) {
+            return baseName + "/" + ResourcePagesRenderer.TABLE_OF_CONTENTS;
         }
+        return baseName + ".html";
     }
 
-    private File createOutFile(File wadlFile) {
-        return new File(this.outputDirectory, createOutFileName(wadlFile));
+    /**
+     * Create a factory for the threads of the executors. The threads release the resources they keep for reuse
+     * when they finish.
+     */
+    protected ThreadFactory createThreadFactory() {
+        return new TransformationThreadFactory(this.getClass().getClassLoader(), this.wadlRenderer);
     }
 
-    private void transformWadl2Html(File wadlFile) throws MavenReportException {
-        OutputStream outputStream;
-        try {
-            File outFile = this.createOutFile(wadlFile);
-            outputStream = new FileOutputStream(outFile);
+    /**
+     * Get the state of the last incremental build or <code>null</code> if the last build wasn't incremental.
+     */
+    protected BuildState getLastBuildState() {
+        return this.lastBuildState;
+    }
 
-            this.getLog().debug("Transforming " + wadlFile + " to " + outFile);
-        } catch (FileNotFoundException e) {
-            throw new MavenReportException("Can't create file.", e);
-        }
+    /**
+     * Fetch the WADL documents of all <code>urls</code> sources into the fetch directory, see
+     * {@link WadlSources#fetch(int, int, boolean, ThreadFactory)}.
+     * 
+     * @return <code>false</code> if there are no documents to fetch.
+     */
+    protected boolean fetchWadlFiles() throws MavenReportException {
+        return this.createWadlSources().fetch(this.connectTimeout, this.readTimeout, this.isFailOnError(),
+                this.createThreadFactory());
+    }
 
-        Wadl2HtmlPipeline pipeline;
-        try {
-            String stylesheetName = null;
-            if (this.stylesheet != null) {
-                stylesheetName = this.stylesheet.getName();
-            }
-            pipeline = new Wadl2HtmlPipeline(wadlFile.toURI().toURL(), stylesheetName, this.escapeHtmlRepresentations);
-        } catch (MalformedURLException e) {
-            throw new MavenReportException("Can't create URL object from " + wadlFile + ".", e);
+    /**
+     * Get the files a page depends on: the WADL file and the local documents it references or the archive the WADL
+     * file has been read from.
+     */
+    protected static Collection<File> getDependencies(WadlFile wadlFile, WadlMetadata metadata) {
+        if (wadlFile.getFile() == null) {
+            return Collections.singleton(wadlFile.getArchive());
         }
 
-        pipeline.execute(outputStream);
+        List<File> files = new ArrayList<File>();
+        files.add(wadlFile.getFile());
+        files.addAll(WadlDependencies.collect(wadlFile.getFile(), metadata.getReferences()));
+        return files;
     }
 
-    private void transformWadlDocuments2HTMLDocuments(Collection<File> wadlFiles) throws MavenReportException {
-        for (File wadlFile : wadlFiles) {
-            this.transformWadl2Html(wadlFile);
+    protected int getThreadCount() throws MavenReportException {
+        String value = StringUtils.trimToEmpty(this.threads);
+        if (value.length() == 0) {
+            return 1;
         }
-    }
 
-    private void writeFrameset(Collection<File> wadlFiles, HtmlDocument startPage) throws MavenReportException {
-        FileWriter fw = null;
         try {
-            StringTemplate stringTemplate = new StringTemplate(IOUtils.toString(this.getClass().getResourceAsStream(
-                    "index.html")));
-            stringTemplate.setAttribute("title", this.title);
-            stringTemplate.setAttribute("startPagePath", startPage.getPath());
-            fw = new FileWriter(new File(this.outputDirectory, "index.html"));
-            fw.write(stringTemplate.toString());
-        } catch (Exception e) {
-            throw new MavenReportException("Can't create frameset.html", e);
-        } finally {
-            IOUtils.closeQuietly(fw);
+            if (StringUtils.endsWithIgnoreCase(value, "C")) {
+                float multiplier = Float.parseFloat(value.substring(0, value.length() - 1));
+                return Math.max(1, (int) (multiplier * Runtime.getRuntime().availableProcessors()));
+            }
+            return Math.max(1, Integer.parseInt(value));
+        } catch (NumberFormatException e) {
+            throw new MavenReportException("Invalid number of threads '" + this.threads
+                    + "'. Use an absolute number (e.g. 4) or a multiple of the processor cores (e.g. 1C).");
         }
     }
 
-    private HtmlDocument writeIndexPage(Collection<File> wadlFiles) throws MavenReportException {
-        // XPath factory and namespace context
-        XPathExpression expression;
+    /**
+     * Validate the configuration and set up the renderer and the caches shared by all transformations.
+     */
+    protected void initialize() throws MavenReportException {
         try {
-            XPath xpath = XPathFactory.newInstance(XPathFactory.DEFAULT_OBJECT_MODEL_URI).newXPath();
-            xpath.setNamespaceContext(new WadlNamespaceContext());
-            expression = xpath.compile("/w:application/w:doc/@title");
-        } catch (Exception e) {
-            throw new MavenReportException("Can't create xpath factory.", e);
+            this.wadlRenderer = Wadl2HtmlPipeline.createRenderer(StringUtils.defaultIfEmpty(
+                    StringUtils.trimToEmpty(this.renderer), Wadl2HtmlPipeline.RENDERER_XSLT));
+        } catch (IllegalArgumentException e) {
+            throw new MavenReportException(e.getMessage(), e);
         }
-        List<HtmlDocument> htmlDocuments = new ArrayList<HtmlDocument>();
-        for (File wadlFile : wadlFiles) {
-            htmlDocuments.add(new HtmlDocument(getWadlDocumentName(expression, wadlFile), createOutFileName(wadlFile)));
+
+        String layoutName = StringUtils.defaultIfEmpty(StringUtils.trimToEmpty(this.layout), LAYOUT_SINGLE);
+        if (!LAYOUT_SINGLE.equalsIgnoreCase(layoutName) && !LAYOUT_PER_RESOURCE.equalsIgnoreCase(layoutName)) {
+            throw new MavenReportException("Invalid layout '" + this.layout + "'. Use '" + LAYOUT_SINGLE + "' or '"
+                    + LAYOUT_PER_RESOURCE + "'.");
         }
-        Collections.sort(htmlDocuments, new Comparator<HtmlDocument>() {
+        this.perResourceLayout = LAYOUT_PER_RESOURCE.equalsIgnoreCase(layoutName);
 
-            public int compare(HtmlDocument d1, HtmlDocument d2) {
-                return d1.getName().compareTo(d2.getName());
+        if (this.largeFileThreshold < 0) {
+            throw new MavenReportException("Invalid large-file threshold " + this.largeFileThreshold
+                    + ". Use a number of megabytes or 0 to disable the large-file mode.");
+        }
+        // an explicitly configured renderer is kept, large files are checked against it after the discovery
+        this.largeFileRenderer = StringUtils.isBlank(this.renderer) ? new StaxWadlRenderer(true) : this.wadlRenderer;
+
+        if (this.referenceCacheSize < 0) {
+            throw new MavenReportException("Invalid reference cache size " + this.referenceCacheSize
+                    + ". Use a number of megabytes or 0 to disable the cache.");
+        }
+        ReferencedDocumentCache.setMemoryBudget(this.referenceCacheSize * 1024L * 1024L);
+        ReferencedDocumentCache.checkForUpdates();
+        ReferencedDocumentCache.resetStatistics();
+
+        this.pageWriter = new PageWriter(this.compress);
+        this.stylesheetAsset = this.fingerprint ? this.createStylesheetAsset() : null;
+        this.pageCache = this.cache ? new PageCache(this.cacheDirectory, this.createCacheSettings()) : null;
+
+        // fix for some Maven classloading problems in conjunction with JAXP that
+        // relies on a set thread context classloader ...
+        Thread.currentThread().setContextClassLoader(this.getClass().getClassLoader());
+
+        this.getLog().debug("Reading WADL files from: " + this.inputDirectory);
+        if (this.wadlSources != null) {
+            for (WadlSource source : this.wadlSources) {
+                this.getLog().debug("Reading WADL files from " + source);
             }
-        });
-        File f = new File(this.outputDirectory, "resources.html");
-        FileWriter fw = null;
-        try {
-            fw = new FileWriter(f);
-            fw.write(this.createIndexFileContent(htmlDocuments));
-        } catch (IOException e) {
-            throw new MavenReportException("Can't create index.html", e);
-        } finally {
-            IOUtils.closeQuietly(fw);
         }
+    }
 
-        return htmlDocuments.get(0);
+    /**
+     * Specifies whether the transformation should stop at the first WADL file that can't be transformed.
+     */
+    protected boolean isFailOnError() {
+        return true;
     }
 
-    private static String createOutFileName(File wadlFile) {
-        return FilenameUtils.getBaseName(wadlFile.getName()) + ".html";
+    /**
+     * Render a WADL file into a single page.
+     */
+    protected WadlMetadata renderWadl(WadlFile wadlFile, OutputStream outputStream) throws MavenReportException {
+        return this.createPipeline(wadlFile).execute(outputStream);
     }
 
-    private static String getWadlDocumentName(XPathExpression expression, File wadlFile) throws MavenReportException {
-        try {
-            return expression.evaluate(new InputSource(new FileInputStream(wadlFile)));
-        } catch (Exception e) {
-            throw new MavenReportException("Can't evaluate XPath expression on " + wadlFile, e);
-        }
+    protected void setOutputDirectory(File outputDirectory) {
+        this.outputDirectory = outputDirectory;
     }
 
-    private static class HtmlDocument {
+    /**
+     * Validate the passed WADL files in parallel, using the configured number of threads, and report all errors
+     * at the end, in the order of the WADL files.
+     * 
+     * @return The invalid WADL files and their problems.
+     */
+    protected Map<WadlFile, List<SAXParseException>> validateWadlFiles(List<WadlFile> wadlFiles)
+            throws MavenReportException {
+        int threadCount = Math.min(this.getThreadCount(), wadlFiles.size());
+        this.getLog().debug("Validating " + wadlFiles.size() + " WADL files using " + threadCount + " thread(s).");
 
-        private String name;
-        private String path;
+        List<Callable<List<SAXParseException>>> tasks = new ArrayList<Callable<List<SAXParseException>>>();
+        for (final WadlFile wadlFile : wadlFiles) {
+            tasks.add(new Callable<List<SAXParseException>>() {
 
-        public HtmlDocument(String name, String path) {
-            super();
-            this.name = name;
-            this.path = path;
+                public List<SAXParseException> call() {
+                    return WadlValidator.validate(wadlFile.getUrl());
+                }
+            });
         }
 
-        public String getName() {
-            return this.name;
+        Map<WadlFile, List<SAXParseException>> invalidFiles = new TreeMap<WadlFile, List<SAXParseException>>();
+        ExecutorService executor = Executors.newFixedThreadPool(threadCount, this.createThreadFactory());
+        try {
+            List<Future<List<SAXParseException>>> futures = executor.invokeAll(tasks);
+            for (int i = 0; i < wadlFiles.size(); i++) {
+                try {
+                    List<SAXParseException> problems = futures.get(i).get();
+                    if (!problems.isEmpty()) {
+                        invalidFiles.put(wadlFiles.get(i), problems);
+                    }
+                } catch (ExecutionException e) {
+                    throw new MavenReportException("Can't validate " + wadlFiles.get(i) + ": "
+                            + e.getCause().getMessage());
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MavenReportException("The validation of the WADL files was interrupted.");
+        } finally {
+            executor.shutdownNow();
+            awaitTermination(executor);
         }
 
-        public String getPath() {
-            return this.path;
+        // the problems of a grammar are reported only once, even if several WADL files include it
+        Set<String> messages = new LinkedHashSet<String>();
+        for (List<SAXParseException> problems : invalidFiles.values()) {
+            for (SAXParseException problem : problems) {
+                messages.add(WadlValidator.format(problem));
+            }
+        }
+        for (String message : messages) {
+            this.getLog().error(message);
         }
+        if (!invalidFiles.isEmpty()) {
+            this.getLog().error(invalidFiles.size() + " of " + wadlFiles.size() + " WADL files are invalid.");
+        }
+
+        return invalidFiles;
     }
 
-    private static class WadlNamespaceContext implements NamespaceContext {
+    /**
+     * Fail fast if WADL files reach the large-file threshold, but a renderer has been configured explicitly that
+     * can't render them resource by resource.
+     */
+    private void checkLargeFiles(List<WadlFile> wadlFiles) throws MavenReportException {
+        if (this.largeFileRenderer instanceof StaxWadlRenderer
+                && ((StaxWadlRenderer) this.largeFileRenderer).isStreaming()) {
+            return;
+        }
 
-        public String getNamespaceURI(String prefix) {
-            if ("w".equals(prefix)) {
-                return "http://research.sun.com/wadl/2006/10";
+        int largeFiles = 0;
+        for (WadlFile wadlFile : wadlFiles) {
+            if (this.isLargeFile(wadlFile)) {
+                this.getLog().warn(wadlFile + " has at least " + this.largeFileThreshold + " MB, but the renderer '"
+                        + this.renderer + "' can't render it resource by resource.");
+                largeFiles++;
             }
+        }
 
-            return XMLConstants.NULL_NS_URI;
+        if (largeFiles > 0) {
+            throw new MavenReportException(largeFiles + " WADL file(s) reach the large-file threshold of "
+                    + this.largeFileThreshold + " MB. Use the '" + Wadl2HtmlPipeline.RENDERER_STREAMING
+                    + "' renderer, remove the renderer setting or raise the threshold.");
         }
+    }
 
-        public String getPrefix(String namespace) {
-            if ("http://research.sun.com/wadl/2006/10".equals(namespace)) {
-                return "w";
+    private void copyStylesheet() throws MavenReportException {
+        if (this.stylesheetAsset != null) {
+            this.writeStylesheetAsset();
+        } else if (this.stylesheet != null) {
+            if (!this.stylesheet.exists()) {
+                throw new MavenReportException("The referred stylesheet " + this.stylesheet + " doesn't exist.");
             }
 
-            return null;
+            try {
+                this.pageWriter.write(new File(this.outputDirectory, this.stylesheet.getName()), FileUtils
+                        .readFileToByteArray(this.stylesheet));
+            } catch (IOException e) {
+                throw new MavenReportException("Can't copy stylesheet " + this.stylesheet, e);
+            }
         }
+    }
 
-        public Iterator<String> getPrefixes(String namespaceURI) {
-            return null;
+    private String createBuildSettings() throws MavenReportException {
+        List<String> settings = new ArrayList<String>();
+        settings.add(this.title);
+        settings.add(String.valueOf(this.escapeHtmlRepresentations));
+        settings.add(this.wadlRenderer.getClass().getName());
+        settings.add(this.renderer);
+        settings.add(String.valueOf(this.largeFileThreshold));
+        settings.add(String.valueOf(this.perResourceLayout));
+        settings.add(String.valueOf(this.compress));
+        settings.add(String.valueOf(this.search));
+        if (this.getStylesheetName() != null) {
+            settings.add(this.getStylesheetName());
+        }
+
+        settings.addAll(getXsltHashes());
+
+        return BuildState.hash(settings.toArray(new String[settings.size()]));
+    }
+
+    /**
+     * Create a hash of the settings that influence the rendered pages, but not their location, for the keys of the
+     * page cache.
+     */
+    private String createCacheSettings() throws MavenReportException {
+        List<String> settings = new ArrayList<String>();
+        settings.add(this.pluginVersion);
+        settings.add(String.valueOf(this.escapeHtmlRepresentations));
+        settings.add(this.wadlRenderer.getClass().getName());
+        settings.add(this.renderer);
+        settings.addAll(getXsltHashes());
+        return BuildState.hash(settings.toArray(new String[settings.size()]));
+    }
+
+    private StringTemplate createFramesetTemplate(HtmlDocument startPage) throws MavenReportException {
+        try {
+            StringTemplate stringTemplate = PageTemplates.getInstanceOf(PageTemplates.FRAMESET);
+            stringTemplate.setAttribute("title", this.title);
+            stringTemplate.setAttribute("startPagePath", startPage.getPath());
+            return stringTemplate;
+        } catch (IOException e) {
+            throw new MavenReportException("Can't create frameset.html", e);
+        }
+    }
+
+    /**
+     * Create the entries of the index page, sorted by their titles.
+     */
+    private List<HtmlDocument> createHtmlDocuments(Collection<WadlFile> wadlFiles, Map<WadlFile, String> titles) {
+        List<HtmlDocument> htmlDocuments = new ArrayList<HtmlDocument>();
+        for (WadlFile wadlFile : wadlFiles) {
+            htmlDocuments.add(new HtmlDocument(StringUtils.defaultString(titles.get(wadlFile)), this
+                    .createOutFileName(wadlFile)));
+        }
+        Collections.sort(htmlDocuments, new Comparator<HtmlDocument>() {
+
+            public int compare(HtmlDocument d1, HtmlDocument d2) {
+                return d1.getName().compareTo(d2.getName());
+            }
+        });
+        return htmlDocuments;
+    }
+
+    private WadlSources createWadlSources() {
+        return new WadlSources(this.wadlSources, this.fetchDirectory, this.getLog());
+    }
+
+    private StringTemplate createIndexTemplate(List<HtmlDocument> htmlDocuments, boolean searchBox)
+            throws MavenReportException {
+        try {
+            StringTemplate stringTemplate = PageTemplates.getInstanceOf(PageTemplates.INDEX);
+            // the index page doesn't need the default styles of the pages
+            if (this.stylesheet != null) {
+                stringTemplate.setAttribute("stylesheet", this.getStylesheetName());
+            }
+            if (searchBox) {
+                stringTemplate.setAttribute("search", SearchIndex.DIRECTORY);
+            }
+            stringTemplate.setAttribute("title", this.title);
+            stringTemplate.setAttribute("resources", htmlDocuments);
+            return stringTemplate;
+        } catch (IOException e) {
+            throw new MavenReportException("Can't create file resources.html", e);
+        }
+    }
+
+    private File createOutFile(WadlFile wadlFile) {
+        return new File(this.outputDirectory, this.createOutFileName(wadlFile));
+    }
+
+    /**
+     * Create the pipeline that renders a WADL file into a single page.
+     */
+    private Wadl2HtmlPipeline createPipeline(WadlFile wadlFile) {
+        WadlRenderer pipelineRenderer = this.isLargeFile(wadlFile) ? this.largeFileRenderer : this.wadlRenderer;
+        Wadl2HtmlPipeline pipeline = new Wadl2HtmlPipeline(wadlFile.getUrl(), this.createStylesheetPath(wadlFile),
+                this.escapeHtmlRepresentations, pipelineRenderer);
+        if (this.buildMetrics != null) {
+            pipeline.setMetrics(this.buildMetrics.createFileMetrics(wadlFile.getPath()));
+        }
+
+        pipeline.setLargeFileThreshold(this.largeFileThreshold * 1024L * 1024L);
+        if (pipeline.isLargeFileMode()) {
+            this.getLog().info("Rendering " + wadlFile + " resource by resource because it has at least "
+                    + this.largeFileThreshold + " MB.");
+        }
+
+        return pipeline;
+    }
+
+    /**
+     * Get the path of the stylesheet relative to the page a WADL file is transformed to.
+     */
+    private String createStylesheetPath(WadlFile wadlFile) {
+        if (this.getStylesheetName() == null) {
+            return null;
+        }
+
+        int depth = StringUtils.countMatches(this.createOutFileName(wadlFile), "/");
+        return StringUtils.repeat("../", depth) + this.getStylesheetName();
+    }
+
+    /**
+     * Create the fingerprinted asset of the configured stylesheet or, if there is none, of the default styles.
+     */
+    private StylesheetAsset createStylesheetAsset() throws MavenReportException {
+        if (this.stylesheet == null) {
+            try {
+                return StylesheetAsset.create(DEFAULT_STYLESHEET, StylesheetAsset.unindent(StaxWadlRenderer
+                        .getStyle()), this.minify);
+            } catch (Exception e) {
+                throw new MavenReportException("Can't read the default styles.", e);
+            }
+        }
+
+        if (!this.stylesheet.exists()) {
+            throw new MavenReportException("The referred stylesheet " + this.stylesheet + " doesn't exist.");
+        }
+        try {
+            return StylesheetAsset.create(this.stylesheet.getName(), FileUtils.readFileToString(this.stylesheet,
+                    "UTF-8"), this.minify);
+        } catch (IOException e) {
+            throw new MavenReportException("Can't read stylesheet " + this.stylesheet, e);
+        }
+    }
+
+    /**
+     * Delete the pages of resources that don't exist anymore.
+     */
+    private void deleteObsoletePages(File pageDirectory, Collection<String> pageNames, BuildState buildState) {
+        Set<String> names = new HashSet<String>(pageNames);
+        names.add(ResourcePagesRenderer.TABLE_OF_CONTENTS);
+
+        File[] files = pageDirectory.listFiles();
+        if (files == null) {
+            return;
+        }
+
+        for (File file : files) {
+            if (!file.isFile() || !file.getName().endsWith(".html") || names.contains(file.getName())) {
+                continue;
+            }
+
+            this.getLog().debug("Deleting obsolete page " + file);
+            if (!this.pageWriter.delete(file)) {
+                this.getLog().warn("Can't delete obsolete page " + file);
+            }
+            if (buildState != null) {
+                buildState.removePage(file);
+            }
+        }
+    }
+
+    private List<WadlFile> getOutdatedFiles(List<WadlFile> wadlFiles, BuildState buildState) {
+        if (buildState == null) {
+            return new ArrayList<WadlFile>(wadlFiles);
+        }
+
+        List<WadlFile> outdatedFiles = new ArrayList<WadlFile>();
+        for (WadlFile wadlFile : wadlFiles) {
+            if (!buildState.isUpToDate(wadlFile, this.createOutFile(wadlFile))) {
+                outdatedFiles.add(wadlFile);
+            }
+        }
+
+        this.getLog().info(
+                (wadlFiles.size() - outdatedFiles.size()) + " of " + wadlFiles.size()
+                        + " WADL files are up to date, transforming " + outdatedFiles.size() + ".");
+        return outdatedFiles;
+    }
+
+    /**
+     * Find the artifact of a dependency, given as <code>groupId:artifactId</code> or <code>artifactId</code>.
+     */
+    private Artifact findArtifact(String dependency) throws MavenReportException {
+        if (this.projectArtifacts != null) {
+            for (Artifact artifact : this.projectArtifacts) {
+                String id = artifact.getGroupId() + ":" + artifact.getArtifactId();
+                if (dependency.equals(id) || dependency.equals(artifact.getArtifactId())) {
+                    return artifact;
+                }
+            }
+        }
+        throw new MavenReportException("The WADL source " + dependency + " isn't a dependency of the project.");
+    }
+
+    private WadlMetadata transformWadl2Html(WadlFile wadlFile, BuildState buildState) throws MavenReportException {
+        if (this.perResourceLayout) {
+            return this.transformWadl2Pages(wadlFile, buildState);
+        }
+
+        File outFile = this.createOutFile(wadlFile);
+        PageOutputStream outputStream;
+        try {
+            outputStream = this.pageWriter.open(outFile);
+
+            this.getLog().debug("Transforming " + wadlFile + " to " + outFile);
+        } catch (IOException e) {
+            throw new MavenReportException("Can't create file " + outFile, e);
+        }
+
+        try {
+            WadlMetadata metadata;
+            if (this.pageCache == null) {
+                metadata = this.renderWadl(wadlFile, outputStream);
+            } else {
+                metadata = this.renderCachedWadl(wadlFile, outputStream);
+            }
+            if (!outputStream.commit()) {
+                this.getLog().debug(outFile + " is unchanged.");
+            }
+            return metadata;
+        } catch (IOException e) {
+            throw new MavenReportException("Can't write file " + outFile, e);
+        } finally {
+            IOUtils.closeQuietly(outputStream);
+        }
+    }
+
+    /**
+     * Transform a WADL file into the per-resource layout. The resource pages are rendered by as many threads as
+     * configured, each of them rendering every n-th page.
+     */
+    private WadlMetadata transformWadl2Pages(WadlFile wadlFile, final BuildState buildState)
+            throws MavenReportException {
+        File tableOfContents = this.createOutFile(wadlFile);
+        final File pageDirectory = tableOfContents.getParentFile();
+        pageDirectory.mkdirs();
+        this.getLog().debug("Transforming " + wadlFile + " to " + pageDirectory);
+
+        final ResourcePagesRenderer pagesRenderer = new ResourcePagesRenderer(wadlFile.getUrl(), this
+                .createStylesheetPath(wadlFile), this.escapeHtmlRepresentations);
+        if (this.buildMetrics != null) {
+            pagesRenderer.setMetrics(this.buildMetrics.createFileMetrics(wadlFile.getPath()));
+        }
+
+        ByteArrayOutputStream content = new ByteArrayOutputStream();
+        WadlMetadata metadata = pagesRenderer.renderTableOfContents(content);
+        try {
+            this.writePage(tableOfContents, content.toByteArray(), buildState);
+        } catch (IOException e) {
+            throw new MavenReportException("Can't create file " + tableOfContents, e);
+        }
+
+        final PageHandler pageHandler = new PageHandler() {
+
+            public void page(String name, byte[] pageContent) throws IOException {
+                AbstractWadlDocumentationMojo.this.writePage(new File(pageDirectory, name), pageContent,
+                        buildState);
+            }
+        };
+        final int parts = Math.min(this.getThreadCount(), pagesRenderer.getPageNames().size());
+        if (parts == 1) {
+            pagesRenderer.renderResourcePages(0, 1, pageHandler);
+        } else if (parts > 1) {
+            List<Callable<Object>> tasks = new ArrayList<Callable<Object>>();
+            for (int i = 0; i < parts; i++) {
+                final int part = i;
+                tasks.add(new Callable<Object>() {
+
+                    public Object call() throws Exception {
+                        pagesRenderer.renderResourcePages(part, parts, pageHandler);
+                        return null;
+                    }
+                });
+            }
+            this.invokeAll(tasks);
+        }
+
+        this.deleteObsoletePages(pageDirectory, pagesRenderer.getPageNames(), buildState);
+        return metadata;
+    }
+
+    private void invokeAll(List<Callable<Object>> tasks) throws MavenReportException {
+        ExecutorService executor = Executors.newFixedThreadPool(tasks.size(), this.createThreadFactory());
+        try {
+            for (Future<Object> future : executor.invokeAll(tasks)) {
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    MavenReportException exception = new MavenReportException(e.getCause().getMessage());
+                    exception.initCause(e.getCause());
+                    throw exception;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MavenReportException("The transformation of the WADL files was interrupted.");
+        } finally {
+            executor.shutdownNow();
+            awaitTermination(executor);
+        }
+    }
+
+    private BuildState loadBuildState() throws MavenReportException {
+        if (!this.incremental) {
+            return null;
+        }
+
+        try {
+            return BuildState.load(this.outputDirectory, this.createBuildSettings());
+        } catch (IOException e) {
+            throw new MavenReportException("Can't load the build state from " + this.outputDirectory, e);
+        }
+    }
+
+    /**
+     * Transforms all WADL files, sequentially or in parallel depending on the configured number of threads, puts
+     * the metadata of the transformed files into the passed map and returns the files that couldn't be
+     * transformed.
+     */
+    private Collection<WadlFile> transformWadlDocuments2HTMLDocuments(List<WadlFile> wadlFiles,
+            Map<WadlFile, WadlMetadata> metadata, BuildState buildState) throws MavenReportException {
+        // in the per-resource layout, the threads render the pages of one WADL file at a time
+        int threadCount = this.perResourceLayout ? 1 : Math.min(this.getThreadCount(), wadlFiles.size());
+        this.getLog().debug("Transforming " + wadlFiles.size() + " WADL files using " + threadCount + " thread(s).");
+
+        Map<WadlFile, Throwable> failures = new TreeMap<WadlFile, Throwable>();
+        if (threadCount <= 1) {
+            for (WadlFile wadlFile : wadlFiles) {
+                try {
+                    metadata.put(wadlFile, this.transformWadl2Html(wadlFile, buildState));
+                } catch (Exception e) {
+                    failures.put(wadlFile, e);
+                    if (this.isFailOnError()) {
+                        break;
+                    }
+                }
+            }
+        } else {
+            this.transformInParallel(wadlFiles, threadCount, metadata, failures, buildState);
+        }
+
+        return this.handleFailures(failures);
+    }
+
+    /**
+     * Render a WADL file into a single page or take the page from the page cache. Files in large-file mode aren't
+     * cached, because their pages would have to be held in memory.
+     */
+    private WadlMetadata renderCachedWadl(WadlFile wadlFile, OutputStream outputStream) throws IOException {
+        String key = this.pageCache.createKey(BuildState.hash(wadlFile.getUrl()), this
+                .createStylesheetPath(wadlFile));
+        CachedPage cachedPage = this.pageCache.get(key, wadlFile);
+        if (cachedPage != null) {
+            this.getLog().debug("Taking the page of " + wadlFile + " from the page cache.");
+            outputStream.write(cachedPage.getContent());
+            return cachedPage.getMetadata();
+        }
+
+        Wadl2HtmlPipeline pipeline = this.createPipeline(wadlFile);
+        if (pipeline.isLargeFileMode()) {
+            return pipeline.execute(outputStream);
+        }
+
+        ByteArrayOutputStream content = new ByteArrayOutputStream();
+        WadlMetadata metadata = pipeline.execute(new TeeOutputStream(outputStream, content));
+        try {
+            this.pageCache.put(key, new CachedPage(content.toByteArray(), metadata, PageCache
+                    .hashDependencies(getDependencies(wadlFile, metadata))));
+        } catch (IOException e) {
+            this.getLog().warn("Can't write the page of " + wadlFile + " to the page cache: " + e.getMessage());
+        }
+        return metadata;
+    }
+
+    /**
+     * Get the name of the CSS file the pages link to or <code>null</code> if they have the default inline styles.
+     */
+    private String getStylesheetName() {
+        if (this.stylesheetAsset != null) {
+            return this.stylesheetAsset.getName();
+        }
+        if (this.stylesheet != null) {
+            return this.stylesheet.getName();
+        }
+        return null;
+    }
+
+    private boolean isLargeFile(WadlFile wadlFile) {
+        return this.largeFileThreshold > 0 && wadlFile.getLength() >= this.largeFileThreshold * 1024L * 1024L;
+    }
+
+    /**
+     * Record the time since <code>start</code> as a phase of the build metrics, if they are enabled.
+     * 
+     * @return The current time, i.e. the start of the next phase.
+     */
+    private long recordPhase(String phase, long start) {
+        if (this.buildMetrics == null) {
+            return System.nanoTime();
+        }
+        return this.buildMetrics.recordPhase(phase, start);
+    }
+
+    /**
+     * Find the WADL files of the input directory and of all additional sources. The files are sorted so that the
+     * order of the transformations and of the error messages is deterministic.
+     */
+    protected List<WadlFile> scanWadlFiles() throws MavenReportException {
+        List<WadlFile> wadlFiles = new ArrayList<WadlFile>();
+        this.scanWadlFiles(new WadlFileScanner(this.inputDirectory, this.includes, this.excludes), wadlFiles);
+
+        if (this.wadlSources != null) {
+            for (WadlSource source : this.wadlSources) {
+                this.scanWadlFiles(source, wadlFiles);
+            }
+        }
+
+        // files with the same path would overwrite each other's pages
+        Map<String, WadlFile> paths = new HashMap<String, WadlFile>();
+        for (WadlFile wadlFile : wadlFiles) {
+            WadlFile other = paths.put(wadlFile.getPath(), wadlFile);
+            if (other != null) {
+                throw new MavenReportException("The WADL files " + other.getKey() + " and " + wadlFile.getKey()
+                        + " have the same path " + wadlFile.getPath() + ". Use the prefix of a WADL source to put "
+                        + "one of them into another directory.");
+            }
+        }
+
+        Collections.sort(wadlFiles);
+        return wadlFiles;
+    }
+
+    private void scanWadlFiles(WadlFileScanner scanner, List<WadlFile> wadlFiles) throws MavenReportException {
+        try {
+            wadlFiles.addAll(scanner.scan());
+        } catch (IOException e) {
+            throw new MavenReportException("Can't read the WADL files of " + scanner, e);
+        }
+    }
+
+    private void scanWadlFiles(WadlSource source, List<WadlFile> wadlFiles) throws MavenReportException {
+        List<File> bases = new ArrayList<File>();
+        String prefix = source.getPrefix();
+        if (source.getDirectory() != null) {
+            bases.add(source.getDirectory());
+        } else if (StringUtils.isNotBlank(source.getDependency())) {
+            Artifact artifact = this.findArtifact(source.getDependency().trim());
+            if (artifact.getFile() == null) {
+                throw new MavenReportException("The dependency " + artifact + " hasn't been resolved.");
+            }
+            bases.add(artifact.getFile());
+            if (prefix == null) {
+                prefix = artifact.getArtifactId();
+            }
+        } else if (source.getUrls() != null && source.getUrls().length > 0) {
+            this.createWadlSources().addFetchedWadlFiles(source, wadlFiles);
+            return;
+        } else if (source.isClasspath()) {
+            if (this.classpathElements != null) {
+                for (String classpathElement : this.classpathElements) {
+                    bases.add(new File(classpathElement));
+                }
+            }
+        } else {
+            throw new MavenReportException("The WADL source has to specify a directory, a dependency or the "
+                    + "classpath.");
+        }
+
+        if (StringUtils.isNotEmpty(prefix) && !prefix.endsWith("/")) {
+            prefix += "/";
+        }
+        for (File base : bases) {
+            WadlFileScanner scanner = new WadlFileScanner(base, source.getIncludes(), source.getExcludes());
+            scanner.setPathPrefix(prefix);
+            this.scanWadlFiles(scanner, wadlFiles);
+        }
+    }
+
+    private void transformInParallel(List<WadlFile> wadlFiles, int threadCount,
+            Map<WadlFile, WadlMetadata> metadata, Map<WadlFile, Throwable> failures, final BuildState buildState)
+            throws MavenReportException {
+        ExecutorService executor = Executors.newFixedThreadPool(threadCount, this.createThreadFactory());
+        CompletionService<WadlMetadata> completionService = new ExecutorCompletionService<WadlMetadata>(executor);
+        Map<Future<WadlMetadata>, WadlFile> futures = new HashMap<Future<WadlMetadata>, WadlFile>();
+
+        // start with the largest files so that none of them is left over for the end, when most threads are idle
+        List<WadlFile> schedule = new ArrayList<WadlFile>(wadlFiles);
+        Collections.sort(schedule, new Comparator<WadlFile>() {
+
+            public int compare(WadlFile f1, WadlFile f2) {
+                return Long.valueOf(f2.getLength()).compareTo(f1.getLength());
+            }
+        });
+
+        try {
+            for (final WadlFile wadlFile : schedule) {
+                futures.put(completionService.submit(new Callable<WadlMetadata>() {
+
+                    public WadlMetadata call() throws Exception {
+                        return AbstractWadlDocumentationMojo.this.transformWadl2Html(wadlFile, buildState);
+                    }
+                }), wadlFile);
+            }
+
+            for (int i = 0; i < wadlFiles.size(); i++) {
+                Future<WadlMetadata> future = completionService.take();
+                try {
+                    metadata.put(futures.get(future), future.get());
+                } catch (ExecutionException e) {
+                    failures.put(futures.get(future), e.getCause());
+                    if (this.isFailOnError()) {
+                        // fail fast: don't start any further transformations
+                        for (Future<WadlMetadata> eachFuture : futures.keySet()) {
+                            eachFuture.cancel(true);
+                        }
+                        break;
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MavenReportException("The transformation of the WADL files was interrupted.");
+        } finally {
+            executor.shutdownNow();
+            awaitTermination(executor);
+        }
+    }
+
+    private Collection<WadlFile> handleFailures(Map<WadlFile, Throwable> failures) throws MavenReportException {
+        if (failures.isEmpty()) {
+            return failures.keySet();
+        }
+
+        // report the errors in the order of the WADL files
+        for (Entry<WadlFile, Throwable> failure : failures.entrySet()) {
+            this.getLog().error("Can't transform " + failure.getKey() + ": " + failure.getValue().getMessage(),
+                    failure.getValue());
+        }
+
+        if (this.isFailOnError()) {
+            Entry<WadlFile, Throwable> firstFailure = failures.entrySet().iterator().next();
+            MavenReportException exception = new MavenReportException("Can't transform " + firstFailure.getKey());
+            exception.initCause(firstFailure.getValue());
+            throw exception;
+        }
+
+        return failures.keySet();
+    }
+
+    /**
+     * Write the build metrics, if they are enabled. A failure is only logged, so that it doesn't hide the
+     * exception of a failed build.
+     */
+    private void writeBuildMetrics() {
+        if (this.buildMetrics == null) {
+            return;
+        }
+
+        this.buildMetrics.finish();
+        this.buildMetrics.log(this.getLog());
+        try {
+            File file = this.buildMetrics.write(this.outputDirectory);
+            this.getLog().info("Build metrics written to " + file);
+        } catch (IOException e) {
+            this.getLog().warn("Can't write the build metrics to " + this.outputDirectory + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Write the fingerprinted stylesheet and delete the assets of earlier builds.
+     */
+    private void writeStylesheetAsset() throws MavenReportException {
+        try {
+            this.pageWriter.write(new File(this.outputDirectory, this.stylesheetAsset.getName()),
+                    this.stylesheetAsset.getContent());
+        } catch (IOException e) {
+            throw new MavenReportException("Can't write stylesheet " + this.stylesheetAsset.getName(), e);
+        }
+
+        for (File file : this.outputDirectory.listFiles()) {
+            if (this.stylesheetAsset.isOutdatedAsset(file)) {
+                file.delete();
+                PageWriter.getCompressedPage(file).delete();
+            }
+        }
+    }
+
+    private void writeFrameset(HtmlDocument startPage) throws MavenReportException {
+        try {
+            this.writePage(new File(this.outputDirectory, "index.html"), this.createFramesetTemplate(startPage));
+        } catch (IOException e) {
+            throw new MavenReportException("Can't create frameset.html", e);
+        }
+    }
+
+    private HtmlDocument writeIndexPage(Collection<WadlFile> wadlFiles, Map<WadlFile, WadlMetadata> metadata,
+            BuildState buildState) throws MavenReportException {
+        Map<WadlFile, String> titles = new HashMap<WadlFile, String>();
+        for (WadlFile wadlFile : wadlFiles) {
+            if (metadata.containsKey(wadlFile)) {
+                titles.put(wadlFile, metadata.get(wadlFile).getTitle());
+            } else {
+                // the WADL file was up to date and hasn't been transformed
+                titles.put(wadlFile, buildState.getTitle(wadlFile.getKey()));
+            }
+        }
+        List<HtmlDocument> htmlDocuments = this.createHtmlDocuments(wadlFiles, titles);
+
+        File f = new File(this.outputDirectory, "resources.html");
+        try {
+            this.writePage(f, this.createIndexTemplate(htmlDocuments, this.search));
+        } catch (IOException e) {
+            throw new MavenReportException("Can't create index.html", e);
+        }
+
+        return htmlDocuments.get(0);
+    }
+
+    /**
+     * Render a template directly into a page, without creating the whole content in memory first.
+     */
+    private void writePage(File page, StringTemplate stringTemplate) throws IOException {
+        PageOutputStream outputStream = this.pageWriter.open(page);
+        try {
+            Writer writer = new OutputStreamWriter(outputStream, "UTF-8");
+            stringTemplate.write(new AutoIndentWriter(writer));
+            writer.flush();
+
+            if (!outputStream.commit()) {
+                this.getLog().debug(page + " is unchanged.");
+            }
+        } finally {
+            outputStream.close();
+        }
+    }
+
+    /**
+     * Write a page unless it has the same content as in the last incremental build.
+     */
+    private void writePage(File page, byte[] content, BuildState buildState) throws IOException {
+        if (buildState != null && buildState.isPageUpToDate(page, content)) {
+            this.getLog().debug(page + " is up to date.");
+            return;
+        }
+
+        if (!this.pageWriter.write(page, content)) {
+            this.getLog().debug(page + " is unchanged.");
+        }
+
+        if (buildState != null) {
+            buildState.updatePage(page, content);
+        }
+    }
+
+    /**
+     * Write the search index shards of the transformed WADL files and the manifest of all WADL files.
+     */
+    private void writeSearchIndex(Collection<WadlFile> wadlFiles, Map<WadlFile, WadlMetadata> metadata,
+            BuildState buildState) throws MavenReportException {
+        SearchIndex searchIndex = new SearchIndex(this.outputDirectory, this.pageWriter);
+        try {
+            for (WadlFile wadlFile : wadlFiles) {
+                String title;
+                String terms;
+                if (metadata.containsKey(wadlFile)) {
+                    List<SearchEntry> entries = metadata.get(wadlFile).getSearchEntries();
+                    searchIndex.writeShard(wadlFile.getKey(), entries);
+                    title = metadata.get(wadlFile).getTitle();
+                    terms = SearchIndex.createTerms(entries);
+                    if (buildState != null) {
+                        buildState.setSearchTerms(wadlFile.getKey(), terms);
+                    }
+                } else {
+                    // the WADL file was up to date and keeps its shard
+                    title = buildState.getTitle(wadlFile.getKey());
+                    terms = buildState.getSearchTerms(wadlFile.getKey());
+                }
+                searchIndex.addShard(wadlFile.getKey(), title, this.createOutFileName(wadlFile), terms);
+            }
+            searchIndex.writeManifest();
+        } catch (IOException e) {
+            throw new MavenReportException("Can't write the search index to " + this.outputDirectory, e);
+        }
+    }
+
+    static void awaitTermination(ExecutorService executor) {
+        // transformations that are already running can't be cancelled; wait for them so that they don't write
+        // into the output directory after the mojo has returned
+        try {
+            executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static List<String> getXsltHashes() throws MavenReportException {
+        List<String> hashes = new ArrayList<String>();
+        for (URL xslt : Wadl2HtmlPipeline.getXsltStylesheets()) {
+            try {
+                hashes.add(BuildState.hash(xslt));
+            } catch (IOException e) {
+                throw new MavenReportException("Can't read stylesheet " + xslt, e);
+            }
+        }
+        return hashes;
+    }
+
+    /**
+     * Record the title of a transformed WADL file and the files it depends on: the local documents it references
+     * or the archive it has been read from.
+     */
+    private static void updateBuildState(BuildState buildState, WadlFile wadlFile, WadlMetadata metadata) {
+        buildState.updateWadl(wadlFile, metadata.getTitle(), getDependencies(wadlFile, metadata));
+    }
+
+    private static class TransformationThreadFactory implements ThreadFactory {
+
+        private final AtomicInteger threadNumber = new AtomicInteger(1);
+        private final ClassLoader contextClassLoader;
+        private final WadlRenderer wadlRenderer;
+
+        public TransformationThreadFactory(ClassLoader contextClassLoader, WadlRenderer wadlRenderer) {
+            this.contextClassLoader = contextClassLoader;
+            this.wadlRenderer = wadlRenderer;
+        }
+
+        public Thread newThread(final Runnable runnable) {
+            Runnable releasingRunnable = new Runnable() {
+
+                public void run() {
+                    try {
+                        runnable.run();
+                    } finally {
+                        Wadl2HtmlPipeline.releaseThreadResources(TransformationThreadFactory.this.wadlRenderer);
+                    }
+                }
+            };
+            Thread thread = new Thread(releasingRunnable, "wadldoc-transformer-"
+                    + this.threadNumber.getAndIncrement());
+            thread.setDaemon(true);
+            // see executeReport: JAXP relies on the thread context classloader
+            thread.setContextClassLoader(this.contextClassLoader);
+            return thread;
+        }
+    }
+
+    private static class HtmlDocument {
+
+        private String name;
+        private String path;
+
+        public HtmlDocument(String name, String path) {
+            super();
+            this.name = name;
+            this.path = path;
+        }
+
+        public String getName() {
+            return this.name;
+        }
+
+        public String getPath() {
+            return this.path;
         }
     }
 }
@@ -0,0 +1,256 @@
+/*
+ * Licensed to Indoqa Software Design und Beratung GmbH (Indoqa) 
+ * under one or more contributor license agreements. See the NOTICE 
+ * file distributed with this work for additional information
+ * regarding copyright ownership. Indoqa licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.indoqa.maven.wadldoc;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.maven.plugin.logging.Log;
+
+import com.indoqa.maven.wadldoc.transformation.FileMetrics;
+import com.indoqa.maven.wadldoc.transformation.FileMetrics.Stage;
+
+/**
+ * The metrics of a build: the time of each phase of the mojo and the {@link FileMetrics} of each transformed WADL
+ * file. They are logged as a summary table and written as JSON file into the output directory, so that the
+ * bottlenecks of a slow build can be found and builds can be compared.
+ */
+public class BuildMetrics {
+
+    public static final String FILE_NAME = "build-metrics.json";
+
+    private static final int SLOWEST_FILES = 5;
+    private static final double NANOS_PER_MILLI = 1000000d;
+    private static final double NANOS_PER_SECOND = 1000000000d;
+
+    private final long start = System.nanoTime();
+    private final Map<String, Long> phases = new LinkedHashMap<String, Long>();
+    private final List<FileMetrics> files = new ArrayList<FileMetrics>();
+    private long nanos;
+
+    static void appendString(StringBuilder json, String value) {
+        json.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    json.append("\\\"");
+                    break;
+                case '\\':
+                    json.append("\\\\");
+                    break;
+                case '\n':
+                    json.append("\\n");
+                    break;
+                case '\r':
+                    json.append("\\r");
+                    break;
+                case '\t':
+                    json.append("\\t");
+                    break;
+                default:
+                    if (c < ' ' || c == '\u2028' || c == '\u2029') {
+                        // the line separators aren't allowed in JavaScript strings
+                        json.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        json.append(c);
+                    }
+            }
+        }
+        json.append('"');
+    }
+
+    private static double perSecond(long count, long time) {
+        if (time <= 0) {
+            return 0;
+        }
+        return count * NANOS_PER_SECOND / time;
+    }
+
+    private static double toMillis(long time) {
+        return time / NANOS_PER_MILLI;
+    }
+
+    /**
+     * Create the metrics of a WADL file and add them to the build.
+     */
+    public synchronized FileMetrics createFileMetrics(String name) {
+        FileMetrics fileMetrics = new FileMetrics(name);
+        this.files.add(fileMetrics);
+        return fileMetrics;
+    }
+
+    /**
+     * Finish the build, i.e. take the total time.
+     */
+    public synchronized void finish() {
+        this.nanos = System.nanoTime() - this.start;
+    }
+
+    public synchronized List<FileMetrics> getFiles() {
+        return new ArrayList<FileMetrics>(this.files);
+    }
+
+    /**
+     * Get the stages of all files, summed up by their names.
+     */
+    public synchronized List<Stage> getStages() {
+        Map<String, Stage> stages = new LinkedHashMap<String, Stage>();
+        for (FileMetrics fileMetrics : this.files) {
+            for (Stage stage : fileMetrics.getStages()) {
+                Stage total = stages.get(stage.getName());
+                if (total == null) {
+                    total = new Stage(stage.getName());
+                    stages.put(stage.getName(), total);
+                }
+                total.add(stage.getNanos(), stage.getEvents());
+            }
+        }
+        return new ArrayList<Stage>(stages.values());
+    }
+
+    /**
+     * Log the phases, the stages summed up over all files and the slowest files.
+     */
+    public synchronized void log(Log log) {
+        long bytesIn = 0;
+        long bytesOut = 0;
+        long filesNanos = 0;
+        for (FileMetrics fileMetrics : this.files) {
+            bytesIn += fileMetrics.getBytesIn();
+            bytesOut += fileMetrics.getBytesOut();
+            filesNanos += fileMetrics.getNanos();
+        }
+
+        log.info(String.format("Build metrics: %d WADL files, %d bytes read, %d bytes written in %.1f ms",
+                this.files.size(), bytesIn, bytesOut, toMillis(this.nanos)));
+
+        log.info(String.format("  %-32s %12s", "Phase", "Time [ms]"));
+        for (Entry<String, Long> phase : this.phases.entrySet()) {
+            log.info(String.format("  %-32s %12.1f", phase.getKey(), toMillis(phase.getValue())));
+        }
+
+        List<Stage> stages = this.getStages();
+        long stagesNanos = 0;
+        for (Stage stage : stages) {
+            stagesNanos += stage.getNanos();
+        }
+        if (!stages.isEmpty()) {
+            log.info(String.format("  %-32s %12s %7s %12s %14s", "Stage", "Time [ms]", "Share", "SAX events",
+                    "Events/s"));
+            for (Stage stage : stages) {
+                log.info(String.format("  %-32s %12.1f %6.1f%% %12d %14.0f", stage.getName(), toMillis(stage
+                        .getNanos()), stagesNanos > 0 ? stage.getNanos() * 100d / stagesNanos : 0, stage
+                        .getEvents(), perSecond(stage.getEvents(), stage.getNanos())));
+            }
+        }
+
+        if (!this.files.isEmpty()) {
+            log.info(String.format("  %-32s %12s %12s %12s %10s", "Slowest files", "Time [ms]", "Bytes in",
+                    "Bytes out", "MB/s"));
+            List<FileMetrics> slowestFiles = new ArrayList<FileMetrics>(this.files);
+            Collections.sort(slowestFiles, new Comparator<FileMetrics>() {
+
+                public int compare(FileMetrics f1, FileMetrics f2) {
+                    return Long.valueOf(f2.getNanos()).compareTo(f1.getNanos());
+                }
+            });
+            for (FileMetrics fileMetrics : slowestFiles.subList(0, Math.min(SLOWEST_FILES, slowestFiles.size()))) {
+                double megabytesPerSecond = perSecond(fileMetrics.getBytesIn(), fileMetrics.getNanos())
+                        / (1024 * 1024);
+                log.info(String.format("  %-32s %12.1f %12d %12d %10.2f", fileMetrics.getName(),
+                        toMillis(fileMetrics.getNanos()), fileMetrics.getBytesIn(), fileMetrics.getBytesOut(),
+                        megabytesPerSecond));
+            }
+            log.info(String.format("  %-32s %12.1f %12d %12d %10.2f", "All files", toMillis(filesNanos), bytesIn,
+                    bytesOut, perSecond(bytesIn, filesNanos) / (1024 * 1024)));
+        }
+    }
+
+    /**
+     * Record the time since <code>phaseStart</code> as a phase of the build.
+     * 
+     * @return The current time, i.e. the start of the next phase.
+     */
+    public synchronized long recordPhase(String phase, long phaseStart) {
+        long now = System.nanoTime();
+        Long time = this.phases.get(phase);
+        this.phases.put(phase, (time == null ? 0 : time) + now - phaseStart);
+        return now;
+    }
+
+    public synchronized String toJson() {
+        StringBuilder json = new StringBuilder();
+        json.append("{\n  \"nanos\": ").append(this.nanos).append(",\n  \"phases\": [");
+        boolean first = true;
+        for (Entry<String, Long> phase : this.phases.entrySet()) {
+            json.append(first ? "\n" : ",\n").append("    {\"name\": ");
+            appendString(json, phase.getKey());
+            json.append(", \"nanos\": ").append(phase.getValue()).append('}');
+            first = false;
+        }
+        json.append("\n  ],\n  \"stages\": ");
+        this.appendStages(json, this.getStages(), "  ");
+        json.append(",\n  \"files\": [");
+        first = true;
+        for (FileMetrics fileMetrics : this.files) {
+            json.append(first ? "\n" : ",\n").append("    {\n      \"name\": ");
+            appendString(json, fileMetrics.getName());
+            json.append(",\n      \"nanos\": ").append(fileMetrics.getNanos());
+            json.append(",\n      \"bytesIn\": ").append(fileMetrics.getBytesIn());
+            json.append(",\n      \"bytesOut\": ").append(fileMetrics.getBytesOut());
+            json.append(",\n      \"stages\": ");
+            this.appendStages(json, fileMetrics.getStages(), "      ");
+            json.append("\n    }");
+            first = false;
+        }
+        json.append("\n  ]\n}\n");
+        return json.toString();
+    }
+
+    /**
+     * Write the metrics as JSON file into the passed directory.
+     */
+    public File write(File directory) throws IOException {
+        File file = new File(directory, FILE_NAME);
+        FileUtils.writeStringToFile(file, this.toJson(), "UTF-8");
+        return file;
+    }
+
+    private void appendStages(StringBuilder json, List<Stage> stages, String indent) {
+        json.append('[');
+        boolean first = true;
+        for (Stage stage : stages) {
+            json.append(first ? "\n" : ",\n").append(indent).append("  {\"name\": ");
+            appendString(json, stage.getName());
+            json.append(", \"nanos\": ").append(stage.getNanos());
+            json.append(", \"events\": ").append(stage.getEvents()).append('}');
+            first = false;
+        }
+        json.append('\n').append(indent).append(']');
+    }
+}
@@ -0,0 +1,367 @@
+/*
+ * Licensed to Indoqa Software Design und Beratung GmbH (Indoqa) 
+ * under one or more contributor license agreements. See the NOTICE 
+ * file distributed with this work for additional information
+ * regarding copyright ownership. Indoqa licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.indoqa.maven.wadldoc;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.math.BigInteger;
+import java.net.URL;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang.StringUtils;
+
+/**
+ * The state of the last incremental build. It is stored as a small properties file in the output directory and
+ * records the settings of the build, the content hashes of each WADL file together with all the documents it
+ * references and the hashes of the generated index pages. The length and the modification time the scanner read
+ * for a local WADL file are recorded as well: as long as they don't change, the WADL file isn't hashed again.
+ */
+public class BuildState {
+
+    private static final String FILE_NAME = ".wadldoc-build-state.properties";
+    private static final String KEY_SETTINGS = "settings";
+    private static final String PREFIX_ATTRIBUTES = "attributes.";
+    private static final String PREFIX_WADL = "wadl.";
+    private static final String PREFIX_PAGE = "page.";
+    private static final String PREFIX_SEARCH = "search.";
+    private static final String PREFIX_TITLE = "title.";
+    private static final String SEPARATOR = "|";
+
+    private final File file;
+    private final Properties properties = new Properties();
+    private final Map<File, String> hashes = new ConcurrentHashMap<File, String>();
+
+    private BuildState(File file) {
+        this.file = file;
+    }
+
+    /**
+     * Load the build state from the output directory. If the settings of the last build differ from the passed
+     * settings, an empty build state is returned so that everything gets rebuilt.
+     */
+    public static BuildState load(File outputDirectory, String settings) throws IOException {
+        BuildState buildState = new BuildState(new File(outputDirectory, FILE_NAME));
+
+        if (buildState.file.exists()) {
+            InputStream inputStream = new FileInputStream(buildState.file);
+            try {
+                buildState.properties.load(inputStream);
+            } finally {
+                IOUtils.closeQuietly(inputStream);
+            }
+        }
+
+        if (!settings.equals(buildState.properties.getProperty(KEY_SETTINGS))) {
+            buildState.properties.clear();
+            buildState.properties.setProperty(KEY_SETTINGS, settings);
+        }
+
+        return buildState;
+    }
+
+    public static String hash(String... values) {
+        MessageDigest digest = createMessageDigest();
+        try {
+            for (String value : values) {
+                digest.update(StringUtils.defaultString(value).getBytes("UTF-8"));
+                digest.update((byte) 0);
+            }
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException("UTF-8 is not supported by this JVM.", e);
+        }
+        return toHex(digest.digest());
+    }
+
+    public static String hash(byte[] content) {
+        MessageDigest digest = createMessageDigest();
+        digest.update(content);
+        return toHex(digest.digest());
+    }
+
+    public static String hash(URL url) throws IOException {
+        InputStream inputStream = url.openStream();
+        try {
+            return hash(inputStream);
+        } finally {
+            IOUtils.closeQuietly(inputStream);
+        }
+    }
+
+    private static String getAttributes(WadlFile wadlFile) {
+        return wadlFile.getLength() + ":" + wadlFile.getLastModified();
+    }
+
+    private static MessageDigest createMessageDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-1 is not supported by this JVM.", e);
+        }
+    }
+
+    private static String hash(InputStream inputStream) throws IOException {
+        MessageDigest digest = createMessageDigest();
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = inputStream.read(buffer)) != -1) {
+            digest.update(buffer, 0, read);
+        }
+        return toHex(digest.digest());
+    }
+
+    private static String toHex(byte[] bytes) {
+        return StringUtils.leftPad(new BigInteger(1, bytes).toString(16), bytes.length * 2, '0');
+    }
+
+    /**
+     * Get all files recorded by the last build: the WADL files and all the documents and archives they depend on.
+     */
+    public Set<File> getTrackedFiles() {
+        Set<File> files = new HashSet<File>();
+        for (Entry<Object, Object> property : this.properties.entrySet()) {
+            if (!((String) property.getKey()).startsWith(PREFIX_WADL)) {
+                continue;
+            }
+
+            for (String entry : StringUtils.split((String) property.getValue(), '\n')) {
+                files.add(new File(StringUtils.substringAfter(entry, SEPARATOR)));
+            }
+        }
+        return files;
+    }
+
+    /**
+     * Get the prefixes of the search terms of a WADL file, identified by its key, as recorded by the last build.
+     */
+    public String getSearchTerms(String wadlKey) {
+        return this.properties.getProperty(PREFIX_SEARCH + wadlKey);
+    }
+
+    /**
+     * Get the title of a WADL file as recorded by the last build.
+     */
+    public String getTitle(File wadlFile) {
+        return this.getTitle(wadlFile.getAbsolutePath());
+    }
+
+    /**
+     * Get the title of a WADL file, identified by its key, as recorded by the last build.
+     */
+    public String getTitle(String wadlKey) {
+        return this.properties.getProperty(PREFIX_TITLE + wadlKey);
+    }
+
+    /**
+     * Checks if the passed page content equals the content that was written by the last build.
+     */
+    public boolean isPageUpToDate(File page, byte[] content) {
+        return page.exists() && hash(content).equals(this.properties.getProperty(this.getPageKey(page)));
+    }
+
+    /**
+     * Checks if the output file of a WADL file exists and neither the WADL file nor any of the documents it
+     * references have changed since the last build.
+     */
+    public boolean isUpToDate(File wadlFile, File outFile) {
+        return this.isUpToDate(wadlFile.getAbsolutePath(), outFile);
+    }
+
+    /**
+     * Checks if the output file of a WADL file, identified by its key, exists and none of the files recorded for
+     * it have changed since the last build.
+     */
+    public boolean isUpToDate(String wadlKey, File outFile) {
+        return this.isUpToDate(wadlKey, outFile, null);
+    }
+
+    /**
+     * Checks if the output file of a WADL file found by the scanner exists and none of the files recorded for it
+     * have changed since the last build. A local WADL file whose length and modification time are the ones
+     * recorded by the last build isn't hashed again.
+     */
+    public boolean isUpToDate(WadlFile wadlFile, File outFile) {
+        File unchangedFile = null;
+        String attributes = this.properties.getProperty(PREFIX_ATTRIBUTES + wadlFile.getKey());
+        if (wadlFile.getFile() != null && getAttributes(wadlFile).equals(attributes)) {
+            unchangedFile = wadlFile.getFile().getAbsoluteFile();
+        }
+        return this.isUpToDate(wadlFile.getKey(), outFile, unchangedFile);
+    }
+
+    private boolean isUpToDate(String wadlKey, File outFile, File unchangedFile) {
+        String entries = this.properties.getProperty(PREFIX_WADL + wadlKey);
+        if (entries == null || !outFile.exists()) {
+            return false;
+        }
+
+        for (String entry : StringUtils.split(entries, '\n')) {
+            String hash = StringUtils.substringBefore(entry, SEPARATOR);
+            File file = new File(StringUtils.substringAfter(entry, SEPARATOR));
+
+            if (file.equals(unchangedFile)) {
+                continue;
+            }
+            if (!file.exists() || !hash.equals(this.getHash(file))) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Keep only the state of the passed WADL files and drop the state of all others.
+     */
+    public void retainAll(Collection<File> wadlFiles) {
+        Set<String> paths = new HashSet<String>();
+        for (File wadlFile : wadlFiles) {
+            paths.add(wadlFile.getAbsolutePath());
+        }
+        this.retainWadls(paths);
+    }
+
+    /**
+     * Keep only the state of the WADL files with the passed keys and drop the state of all others.
+     */
+    public void retainWadls(Collection<String> wadlKeys) {
+        Set<String> paths = new HashSet<String>(wadlKeys);
+        for (Object each : new ArrayList<Object>(this.properties.keySet())) {
+            String key = (String) each;
+            for (String prefix : new String[] {PREFIX_WADL, PREFIX_TITLE, PREFIX_SEARCH, PREFIX_ATTRIBUTES}) {
+                if (key.startsWith(prefix) && !paths.contains(key.substring(prefix.length()))) {
+                    this.properties.remove(key);
+                }
+            }
+        }
+    }
+
+    public void removePage(File page) {
+        this.properties.remove(this.getPageKey(page));
+    }
+
+    /**
+     * Record the prefixes of the search terms of a WADL file, identified by its key.
+     */
+    public void setSearchTerms(String wadlKey, String terms) {
+        this.properties.setProperty(PREFIX_SEARCH + wadlKey, terms);
+    }
+
+    public void store() throws IOException {
+        OutputStream outputStream = new FileOutputStream(this.file);
+        try {
+            this.properties.store(outputStream, "WADL documentation build state");
+        } finally {
+            IOUtils.closeQuietly(outputStream);
+        }
+    }
+
+    public void updatePage(File page, byte[] content) {
+        this.properties.setProperty(this.getPageKey(page), hash(content));
+    }
+
+    /**
+     * Record the current state of a WADL file, its title and the state of all the documents it references.
+     */
+    public void updateWadl(File wadlFile, String title, Collection<File> dependencies) {
+        List<File> files = new ArrayList<File>();
+        files.add(wadlFile);
+        files.addAll(dependencies);
+        this.updateWadl(wadlFile.getAbsolutePath(), title, files);
+    }
+
+    /**
+     * Record the title of a WADL file found by the scanner, the current state of the passed files, e.g. of the
+     * documents it references or of the archive that contains it, and the attributes the scanner read.
+     */
+    public void updateWadl(WadlFile wadlFile, String title, Collection<File> files) {
+        this.updateWadl(wadlFile.getKey(), title, files);
+
+        if (wadlFile.getFile() != null && this.properties.containsKey(PREFIX_WADL + wadlFile.getKey())) {
+            this.properties.setProperty(PREFIX_ATTRIBUTES + wadlFile.getKey(), getAttributes(wadlFile));
+        } else {
+            this.properties.remove(PREFIX_ATTRIBUTES + wadlFile.getKey());
+        }
+    }
+
+    /**
+     * Record the title of a WADL file, identified by its key, and the current state of the passed files, e.g. of
+     * the archive that contains the WADL file.
+     */
+    public void updateWadl(String wadlKey, String title, Collection<File> files) {
+        if (title == null) {
+            this.properties.remove(PREFIX_TITLE + wadlKey);
+        } else {
+            this.properties.setProperty(PREFIX_TITLE + wadlKey, title);
+        }
+
+        StringBuilder entries = new StringBuilder();
+        for (File file : files) {
+            String hash = this.getHash(file);
+            if (hash == null) {
+                // the file can't be read -> don't record anything so that it gets rebuilt next time
+                this.properties.remove(PREFIX_WADL + wadlKey);
+                return;
+            }
+            entries.append(hash).append(SEPARATOR).append(file.getAbsolutePath()).append('\n');
+        }
+
+        this.properties.setProperty(PREFIX_WADL + wadlKey, entries.toString());
+    }
+
+    /**
+     * Pages are identified by their path relative to the output directory.
+     */
+    private String getPageKey(File page) {
+        String outputDirectory = this.file.getParentFile().getAbsolutePath();
+        String path = page.getAbsolutePath();
+        if (path.startsWith(outputDirectory + File.separator)) {
+            path = path.substring(outputDirectory.length() + 1);
+        }
+        return PREFIX_PAGE + path.replace(File.separatorChar, '/');
+    }
+
+    private String getHash(File file) {
+        String hash = this.hashes.get(file);
+        if (hash == null) {
+            try {
+                hash = hash(file.toURI().toURL());
+            } catch (IOException e) {
+                return null;
+            }
+            this.hashes.put(file, hash);
+        }
+        return hash;
+    }
+}
@@ -0,0 +1,213 @@
+/*
+ * Licensed to Indoqa Software Design und Beratung GmbH (Indoqa) 
+ * under one or more contributor license agreements. See the NOTICE 
+ * file distributed with this work for additional information
+ * regarding copyright ownership. Indoqa licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.indoqa.maven.wadldoc;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang.Validate;
+
+import com.indoqa.maven.wadldoc.PageWriter.PageOutputStream;
+import com.indoqa.maven.wadldoc.transformation.WadlMetadata;
+
+/**
+ * A persistent cache of rendered pages. An entry is identified by the content hash of the WADL document and the
+ * settings that influence its page (renderer, stylesheet versions, CSS path, escaping), not by its location, so
+ * that the cache survives <code>mvn clean</code> if it is kept outside of the output directory and can be shared
+ * by all modules of a build, or by all builds of a CI agent, that publish identical WADL documents.
+ * <p>
+ * Each entry stores the page together with the metadata collected while rendering it and a hash of the documents
+ * the WADL document references. An entry is only used if the referenced documents are still the same. Entries are
+ * written atomically, so that several builds can share the cache directory at the same time. Entries that can't
+ * be read, e.g. because they were written by an incompatible version, count as misses.
+ * <p>
+ * The entries are written field by field in an explicit, versioned format, not with Java serialization, so that
+ * reading an entry of a shared directory can't do anything but fill in a page.
+ */
+public class PageCache {
+
+    private static final String EXTENSION = ".page";
+    // increment if the format of the entries changes
+    private static final int FORMAT_VERSION = 1;
+    private static final int MAGIC = 0x57444c50;
+
+    private final File directory;
+    private final String settings;
+    private final PageWriter pageWriter = new PageWriter(false);
+    private final AtomicInteger hits = new AtomicInteger();
+    private final AtomicInteger misses = new AtomicInteger();
+
+    /**
+     * @param settings A hash of all settings that influence the rendered pages.
+     */
+    public PageCache(File directory, String settings) {
+        Validate.notNull(directory, "A cache directory has to be passed.");
+        this.directory = directory;
+        this.settings = settings;
+    }
+
+    /**
+     * Hash the contents of the documents a WADL document references, in the passed order.
+     */
+    public static String hashDependencies(Collection<File> dependencies) {
+        List<String> hashes = new ArrayList<String>();
+        for (File dependency : dependencies) {
+            try {
+                hashes.add(BuildState.hash(dependency.toURI().toURL()));
+            } catch (IOException e) {
+                hashes.add("");
+            }
+        }
+        return BuildState.hash(hashes.toArray(new String[hashes.size()]));
+    }
+
+    /**
+     * Create the key of the page of a WADL document.
+     * 
+     * @param wadlHash The content hash of the WADL document.
+     * @param stylesheet The path of the CSS file the page links to or <code>null</code>.
+     */
+    public String createKey(String wadlHash, String stylesheet) {
+        return BuildState.hash(this.settings, wadlHash, stylesheet);
+    }
+
+    /**
+     * Get the cached page of a WADL file or <code>null</code> if there isn't any for the key or if the documents
+     * the WADL file references have changed since the page was rendered.
+     */
+    public CachedPage get(String key, WadlFile wadlFile) {
+        CachedPage page = this.read(this.getFile(key));
+        if (page == null || !page.isUpToDate(AbstractWadlDocumentationMojo.getDependencies(wadlFile, page
+                .getMetadata()))) {
+            this.misses.incrementAndGet();
+            return null;
+        }
+
+        this.hits.incrementAndGet();
+        return page;
+    }
+
+    public int getHits() {
+        return this.hits.get();
+    }
+
+    public int getMisses() {
+        return this.misses.get();
+    }
+
+    public void put(String key, CachedPage page) throws IOException {
+        PageOutputStream pageOutputStream = this.pageWriter.open(this.getFile(key));
+        try {
+            GZIPOutputStream gzipOutputStream = new GZIPOutputStream(pageOutputStream);
+            DataOutputStream outputStream = new DataOutputStream(gzipOutputStream);
+            outputStream.writeInt(MAGIC);
+            outputStream.writeInt(FORMAT_VERSION);
+            outputStream.writeUTF(page.dependencies);
+            outputStream.writeInt(page.content.length);
+            outputStream.write(page.content);
+            page.metadata.write(outputStream);
+            outputStream.flush();
+            gzipOutputStream.finish();
+            pageOutputStream.commit();
+        } finally {
+            pageOutputStream.close();
+        }
+    }
+
+    private CachedPage read(File file) {
+        if (!file.isFile()) {
+            return null;
+        }
+
+        DataInputStream inputStream = null;
+        try {
+            inputStream = new DataInputStream(new GZIPInputStream(new BufferedInputStream(new FileInputStream(
+                    file))));
+            if (inputStream.readInt() != MAGIC || inputStream.readInt() != FORMAT_VERSION) {
+                return null;
+            }
+
+            String dependencies = inputStream.readUTF();
+            int length = inputStream.readInt();
+            if (length < 0) {
+                return null;
+            }
+            byte[] content = new byte[length];
+            inputStream.readFully(content);
+            WadlMetadata metadata = WadlMetadata.read(inputStream);
+            return new CachedPage(content, metadata, dependencies);
+        } catch (IOException e) {
+            return null;
+        } finally {
+            IOUtils.closeQuietly(inputStream);
+        }
+    }
+
+    /**
+     * The entries are spread over 256 directories, so that a shared cache doesn't end up with a huge directory.
+     */
+    private File getFile(String key) {
+        return new File(new File(this.directory, key.substring(0, 2)), key + EXTENSION);
+    }
+
+    /**
+     * A page with its metadata and the hash of the documents it was rendered from.
+     */
+    public static class CachedPage {
+
+        private final byte[] content;
+        private final WadlMetadata metadata;
+        private final String dependencies;
+
+        /**
+         * @param dependencies The hash of the referenced documents, see {@link PageCache#hashDependencies}.
+         */
+        public CachedPage(byte[] content, WadlMetadata metadata, String dependencies) {
+            this.content = content;
+            this.metadata = metadata;
+            this.dependencies = dependencies;
+        }
+
+        public byte[] getContent() {
+            return this.content;
+        }
+
+        public WadlMetadata getMetadata() {
+            return this.metadata;
+        }
+
+        /**
+         * Checks if the page was rendered from documents with the same content as the passed ones.
+         */
+        public boolean isUpToDate(Collection<File> dependencies) {
+            return this.dependencies.equals(hashDependencies(dependencies));
+        }
+    }
+}
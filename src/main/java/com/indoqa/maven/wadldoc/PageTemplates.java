@@ -0,0 +1,72 @@
+/*
+ * Licensed to Indoqa Software Design und Beratung GmbH (Indoqa) 
+ * under one or more contributor license agreements. See the NOTICE 
+ * file distributed with this work for additional information
+ * regarding copyright ownership. Indoqa licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.indoqa.maven.wadldoc;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.antlr.stringtemplate.StringTemplate;
+import org.antlr.stringtemplate.StringTemplateGroup;
+import org.apache.commons.io.IOUtils;
+
+/**
+ * The templates of the frameset and the index page. Each template is read and parsed only once per class loader;
+ * all pages are rendered by instances that share the parsed template, also across the runs of the
+ * <code>watch</code> goal.
+ */
+final class PageTemplates {
+
+    /**
+     * The template of the frameset <code>index.html</code>.
+     */
+    public static final String FRAMESET = "index";
+
+    /**
+     * The template of the index page <code>resources.html</code>.
+     */
+    public static final String INDEX = "resources";
+
+    private static final StringTemplateGroup GROUP = new StringTemplateGroup("wadldoc");
+
+    private PageTemplates() {
+        // hide utility class constructor
+    }
+
+    /**
+     * Get a new instance of a template to set the attributes of one page.
+     */
+    public static StringTemplate getInstanceOf(String name) throws IOException {
+        synchronized (GROUP) {
+            if (!GROUP.isDefinedInThisGroup(name)) {
+                InputStream inputStream = PageTemplates.class.getResourceAsStream(name + ".html");
+                if (inputStream == null) {
+                    throw new IOException("The template " + name + ".html doesn't exist.");
+                }
+
+                try {
+                    GROUP.defineTemplate(name, IOUtils.toString(inputStream, "UTF-8"));
+                } finally {
+                    IOUtils.closeQuietly(inputStream);
+                }
+            }
+        }
+
+        return GROUP.getInstanceOf(name);
+    }
+}
@@ -0,0 +1,244 @@
+/*
+ * Licensed to Indoqa Software Design und Beratung GmbH (Indoqa) 
+ * under one or more contributor license agreements. See the NOTICE 
+ * file distributed with this work for additional information
+ * regarding copyright ownership. Indoqa licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.indoqa.maven.wadldoc;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+
+/**
+ * Writes the generated pages. A page is written through a large buffer into a temporary file in the directory
+ * of the page, which then replaces the page by a rename, so that nobody reading the output directory, e.g. a
+ * deployment of the site, ever sees a half-written page. Pages whose bytes haven't changed aren't replaced, so that
+ * their modification time is kept. Optionally a gzip-compressed copy of each page is written next to it, which
+ * static web servers can deliver without compressing the page on every request.
+ */
+public class PageWriter {
+
+    /**
+     * The extension of the compressed copies of the pages.
+     */
+    public static final String COMPRESSED_EXTENSION = ".gz";
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final String TEMP_EXTENSION = ".tmp";
+
+    private final boolean compress;
+
+    /**
+     * @param compress Specifies whether a compressed copy of each page should be written. If not, outdated
+     *            compressed copies of earlier builds are deleted.
+     */
+    public PageWriter(boolean compress) {
+        this.compress = compress;
+    }
+
+    /**
+     * Get the compressed copy of a page.
+     */
+    public static File getCompressedPage(File page) {
+        return new File(page.getParentFile(), page.getName() + COMPRESSED_EXTENSION);
+    }
+
+    private static boolean hasContent(File page, byte[] content) throws IOException {
+        if (!page.isFile() || page.length() != content.length) {
+            return false;
+        }
+        return Arrays.equals(FileUtils.readFileToByteArray(page), content);
+    }
+
+    /**
+     * Replace the target by the source. The rename is atomic on POSIX file systems; on Windows, which can't rename
+     * onto an existing file, the target has to be deleted first.
+     */
+    private static void rename(File source, File target) throws IOException {
+        if (source.renameTo(target)) {
+            return;
+        }
+        if (target.delete() && source.renameTo(target)) {
+            return;
+        }
+
+        source.delete();
+        throw new IOException("Can't rename " + source + " to " + target);
+    }
+
+    /**
+     * Open a stream to write a page. The page is replaced once the stream is committed; closing the stream without
+     * committing it, e.g. after a failed transformation, leaves the page as it was.
+     */
+    public PageOutputStream open(File page) throws IOException {
+        page.getParentFile().mkdirs();
+        return new PageOutputStream(page);
+    }
+
+    /**
+     * Delete a page together with its compressed copy.
+     */
+    public boolean delete(File page) {
+        getCompressedPage(page).delete();
+        return page.delete();
+    }
+
+    /**
+     * Write a page encoded in UTF-8.
+     * 
+     * @return <code>true</code> if the page has been written, <code>false</code> if it already had this content.
+     */
+    public boolean write(File page, String content) throws IOException {
+        return this.write(page, content.getBytes("UTF-8"));
+    }
+
+    /**
+     * Write a page.
+     * 
+     * @return <code>true</code> if the page has been written, <code>false</code> if it already had this content.
+     */
+    public boolean write(File page, byte[] content) throws IOException {
+        if (hasContent(page, content)) {
+            this.writeCompressedPage(page, false);
+            return false;
+        }
+
+        PageOutputStream outputStream = this.open(page);
+        try {
+            outputStream.write(content);
+            return outputStream.commit();
+        } finally {
+            outputStream.close();
+        }
+    }
+
+    /**
+     * Write the compressed copy of a page, unless it is up to date already. If the pages aren't compressed, the
+     * compressed copy of an earlier build is deleted, so that it can't be delivered instead of the page.
+     */
+    private void writeCompressedPage(File page, boolean changed) throws IOException {
+        File compressedPage = getCompressedPage(page);
+        if (!this.compress) {
+            compressedPage.delete();
+            return;
+        }
+        if (!changed && compressedPage.lastModified() >= page.lastModified()) {
+            return;
+        }
+
+        File tempFile = File.createTempFile("." + compressedPage.getName() + ".", TEMP_EXTENSION, page
+                .getParentFile());
+        InputStream inputStream = new BufferedInputStream(new FileInputStream(page), BUFFER_SIZE);
+        OutputStream outputStream = null;
+        try {
+            outputStream = new GZIPOutputStream(new FileOutputStream(tempFile), BUFFER_SIZE) {
+                {
+                    // the pages are compressed only once, but delivered many times
+                    this.def.setLevel(Deflater.BEST_COMPRESSION);
+                }
+            };
+            IOUtils.copy(inputStream, outputStream);
+            outputStream.close();
+        } catch (IOException e) {
+            IOUtils.closeQuietly(outputStream);
+            tempFile.delete();
+            throw e;
+        } finally {
+            IOUtils.closeQuietly(inputStream);
+        }
+
+        rename(tempFile, compressedPage);
+    }
+
+    /**
+     * A buffered stream into a temporary file that replaces the page when it is committed.
+     */
+    public final class PageOutputStream extends FilterOutputStream {
+
+        private final File page;
+        private final File tempFile;
+        private boolean closed;
+
+        PageOutputStream(File page) throws IOException {
+            super(null);
+            this.page = page;
+            this.tempFile = File.createTempFile("." + page.getName() + ".", TEMP_EXTENSION, page.getParentFile());
+            this.out = new BufferedOutputStream(new FileOutputStream(this.tempFile), BUFFER_SIZE);
+        }
+
+        /**
+         * Discard the written content unless it has been committed.
+         */
+        @Override
+        public void close() throws IOException {
+            if (this.closed) {
+                return;
+            }
+
+            this.closed = true;
+            IOUtils.closeQuietly(this.out);
+            this.tempFile.delete();
+        }
+
+        /**
+         * Replace the page by the written content unless the page has the same content already.
+         * 
+         * @return <code>true</code> if the page has been replaced, <code>false</code> if it already had this
+         *         content.
+         */
+        public boolean commit() throws IOException {
+            if (this.closed) {
+                throw new IOException("The page " + this.page + " has already been closed.");
+            }
+
+            this.closed = true;
+            try {
+                this.out.close();
+            } catch (IOException e) {
+                this.tempFile.delete();
+                throw e;
+            }
+
+            boolean changed = !this.page.isFile() || !FileUtils.contentEquals(this.tempFile, this.page);
+            if (changed) {
+                rename(this.tempFile, this.page);
+            } else {
+                this.tempFile.delete();
+            }
+
+            PageWriter.this.writeCompressedPage(this.page, changed);
+            return changed;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            // FilterOutputStream would write byte by byte
+            this.out.write(b, off, len);
+        }
+    }
+}
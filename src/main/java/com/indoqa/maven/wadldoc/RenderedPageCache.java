@@ -0,0 +1,150 @@
+/*
+ * Licensed to Indoqa Software Design und Beratung GmbH (Indoqa) 
+ * under one or more contributor license agreements. See the NOTICE 
+ * file distributed with this work for additional information
+ * regarding copyright ownership. Indoqa licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.indoqa.maven.wadldoc;
+
+import java.io.File;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+import com.indoqa.maven.wadldoc.transformation.WadlMetadata;
+
+/**
+ * A cache of pages rendered on demand. A page stays valid as long as none of the files it has been rendered from
+ * changes its length or modification time. A page is rendered only once, even if it is requested by several
+ * threads at once; different pages are rendered concurrently.
+ */
+public final class RenderedPageCache {
+
+    private final ConcurrentMap<String, FutureTask<RenderedPage>> pages =
+        new ConcurrentHashMap<String, FutureTask<RenderedPage>>();
+
+    public void clear() {
+        this.pages.clear();
+    }
+
+    /**
+     * Get the page with the passed key, rendering it if it hasn't been rendered yet or if it is outdated.
+     */
+    public RenderedPage get(String key, Callable<RenderedPage> renderer) throws Exception {
+        while (true) {
+            FutureTask<RenderedPage> page = this.pages.get(key);
+            if (page != null && page.isDone()) {
+                RenderedPage renderedPage = this.getPage(key, page);
+                if (renderedPage.isUpToDate()) {
+                    return renderedPage;
+                }
+            } else if (page != null) {
+                // being rendered by another thread
+                return this.getPage(key, page);
+            }
+
+            FutureTask<RenderedPage> newPage = new FutureTask<RenderedPage>(renderer);
+            boolean replaced;
+            if (page == null) {
+                replaced = this.pages.putIfAbsent(key, newPage) == null;
+            } else {
+                replaced = this.pages.replace(key, page, newPage);
+            }
+            if (!replaced) {
+                // another thread installed a page in the meantime -> look again
+                continue;
+            }
+
+            newPage.run();
+            return this.getPage(key, newPage);
+        }
+    }
+
+    private RenderedPage getPage(String key, FutureTask<RenderedPage> page) throws Exception {
+        try {
+            return page.get();
+        } catch (ExecutionException e) {
+            // render the page again next time, e.g. after the error has been fixed
+            this.pages.remove(key, page);
+            if (e.getCause() instanceof Exception) {
+                throw (Exception) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * A rendered page together with the state of the files it has been rendered from.
+     */
+    public static final class RenderedPage {
+
+        private final byte[] content;
+        private final WadlMetadata metadata;
+        private final Map<File, String> stamps = new HashMap<File, String>();
+        private final long lastModified;
+        private final String etag;
+
+        public RenderedPage(byte[] content, WadlMetadata metadata, Collection<File> files) {
+            this.content = content;
+            this.metadata = metadata;
+
+            long latestModification = 0;
+            for (File file : files) {
+                this.stamps.put(file, getStamp(file));
+                latestModification = Math.max(latestModification, file.lastModified());
+            }
+            this.lastModified = latestModification;
+            this.etag = "\"" + BuildState.hash(content) + "\"";
+        }
+
+        private static String getStamp(File file) {
+            return file.length() + ":" + file.lastModified();
+        }
+
+        public byte[] getContent() {
+            return this.content;
+        }
+
+        public String getETag() {
+            return this.etag;
+        }
+
+        /**
+         * Get the latest modification time of the files the page has been rendered from.
+         */
+        public long getLastModified() {
+            return this.lastModified;
+        }
+
+        public WadlMetadata getMetadata() {
+            return this.metadata;
+        }
+
+        public boolean isUpToDate() {
+            for (Entry<File, String> stamp : this.stamps.entrySet()) {
+                if (!stamp.getValue().equals(getStamp(stamp.getKey()))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
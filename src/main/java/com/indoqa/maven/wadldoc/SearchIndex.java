@@ -0,0 +1,193 @@
+/*
+ * Licensed to Indoqa Software Design und Beratung GmbH (Indoqa) 
+ * under one or more contributor license agreements. See the NOTICE 
+ * file distributed with this work for additional information
+ * regarding copyright ownership. Indoqa licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.indoqa.maven.wadldoc;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang.StringUtils;
+
+import com.indoqa.maven.wadldoc.transformation.SearchEntry;
+
+/**
+ * The search index of the documentation, which is searched by the search box of the index page. The entries of
+ * each WADL file are written into a shard of their own, <code>search/&lt;shard&gt;.js</code>, when the WADL file
+ * is transformed; up to date WADL files keep their shards. The manifest <code>search/index.js</code> lists the
+ * shards together with the prefixes of all the terms they contain, so that the browser only loads those shards
+ * that can match a query. The files are scripts instead of plain JSON, so that the search also works when the
+ * documentation is opened from the file system.
+ */
+public class SearchIndex {
+
+    /**
+     * The directory of the search index, relative to the output directory.
+     */
+    public static final String DIRECTORY = "search";
+
+    private static final String MANIFEST = "index.js";
+    private static final String SCRIPT = "search.js";
+    private static final int PREFIX_LENGTH = 3;
+
+    private final File directory;
+    private final PageWriter pageWriter;
+    private final List<String[]> shards = new ArrayList<String[]>();
+
+    public SearchIndex(File outputDirectory, PageWriter pageWriter) {
+        this.directory = new File(outputDirectory, DIRECTORY);
+        this.pageWriter = pageWriter;
+    }
+
+    /**
+     * Get the prefixes of all the terms of the passed entries, separated by blanks. The terms are split at all
+     * characters except ASCII letters and digits, exactly like the search box splits the queries.
+     */
+    public static String createTerms(Collection<SearchEntry> entries) {
+        Set<String> prefixes = new TreeSet<String>();
+        for (SearchEntry entry : entries) {
+            addPrefixes(entry.getPath(), prefixes);
+            addPrefixes(StringUtils.defaultString(entry.getId()), prefixes);
+            for (String method : entry.getMethods()) {
+                addPrefixes(method, prefixes);
+            }
+            for (String param : entry.getParams()) {
+                addPrefixes(param, prefixes);
+            }
+            for (String mediaType : entry.getMediaTypes()) {
+                addPrefixes(mediaType, prefixes);
+            }
+            addPrefixes(entry.getText(), prefixes);
+        }
+        return StringUtils.join(prefixes, ' ');
+    }
+
+    /**
+     * Get the name of the shard of a WADL file, identified by its key.
+     */
+    public static String getShardName(String wadlKey) {
+        return BuildState.hash(wadlKey).substring(0, 16);
+    }
+
+    private static void addPrefixes(String text, Set<String> prefixes) {
+        String lowerCaseText = text.toLowerCase(Locale.ENGLISH);
+        int start = -1;
+        for (int i = 0; i <= lowerCaseText.length(); i++) {
+            boolean termCharacter = i < lowerCaseText.length() && isTermCharacter(lowerCaseText.charAt(i));
+            if (termCharacter && start < 0) {
+                start = i;
+            } else if (!termCharacter && start >= 0) {
+                prefixes.add(lowerCaseText.substring(start, Math.min(i, start + PREFIX_LENGTH)));
+                start = -1;
+            }
+        }
+    }
+
+    private static void appendArray(StringBuilder script, Collection<String> values) {
+        BuildMetrics.appendString(script, StringUtils.join(values, ' '));
+    }
+
+    private static boolean isTermCharacter(char c) {
+        return c >= 'a' && c <= 'z' || c >= '0' && c <= '9';
+    }
+
+    /**
+     * Add a shard to the manifest.
+     * 
+     * @param title The title of the WADL file.
+     * @param page The path of the page of the WADL file, relative to the output directory.
+     * @param terms The prefixes of the terms of the shard as created by {@link #createTerms(Collection)}.
+     */
+    public void addShard(String wadlKey, String title, String page, String terms) {
+        this.shards.add(new String[] {getShardName(wadlKey), StringUtils.defaultString(title), page,
+                StringUtils.defaultString(terms)});
+    }
+
+    /**
+     * Write the manifest and the script of the search box and delete the shards of WADL files that don't exist
+     * anymore.
+     */
+    public void writeManifest() throws IOException {
+        StringBuilder script = new StringBuilder("wadldocSearch.setIndex([");
+        Set<String> files = new HashSet<String>();
+        boolean first = true;
+        for (String[] shard : this.shards) {
+            script.append(first ? "\n[" : ",\n[");
+            first = false;
+            for (int i = 0; i < shard.length; i++) {
+                if (i > 0) {
+                    script.append(',');
+                }
+                BuildMetrics.appendString(script, shard[i]);
+            }
+            script.append(']');
+            files.add(shard[0] + ".js");
+        }
+        script.append("]);\n");
+
+        this.pageWriter.write(new File(this.directory, MANIFEST), script.toString());
+        this.pageWriter.write(new File(this.directory, SCRIPT), IOUtils.toByteArray(SearchIndex.class
+                .getResourceAsStream(SCRIPT)));
+
+        files.add(MANIFEST);
+        files.add(SCRIPT);
+        for (File file : this.directory.listFiles()) {
+            if (file.isFile() && file.getName().endsWith(".js") && !files.contains(file.getName())) {
+                this.pageWriter.delete(file);
+            }
+        }
+    }
+
+    /**
+     * Write the shard of a WADL file, identified by its key.
+     */
+    public void writeShard(String wadlKey, Collection<SearchEntry> entries) throws IOException {
+        String shardName = getShardName(wadlKey);
+        StringBuilder script = new StringBuilder("wadldocSearch.addShard(");
+        BuildMetrics.appendString(script, shardName);
+        script.append(", [");
+        boolean first = true;
+        for (SearchEntry entry : entries) {
+            script.append(first ? "\n[" : ",\n[");
+            first = false;
+
+            BuildMetrics.appendString(script, entry.getPath());
+            script.append(',');
+            BuildMetrics.appendString(script, StringUtils.defaultString(entry.getId()));
+            script.append(',');
+            appendArray(script, entry.getMethods());
+            script.append(',');
+            appendArray(script, entry.getParams());
+            script.append(',');
+            appendArray(script, entry.getMediaTypes());
+            script.append(',');
+            BuildMetrics.appendString(script, entry.getText());
+            script.append(']');
+        }
+        script.append("]);\n");
+
+        this.pageWriter.write(new File(this.directory, shardName + ".js"), script.toString());
+    }
+}
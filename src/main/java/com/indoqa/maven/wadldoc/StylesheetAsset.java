@@ -0,0 +1,155 @@
+/*
+ * Licensed to Indoqa Software Design und Beratung GmbH (Indoqa) 
+ * under one or more contributor license agreements. See the NOTICE 
+ * file distributed with this work for additional information
+ * regarding copyright ownership. Indoqa licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.indoqa.maven.wadldoc;
+
+import java.io.File;
+import java.io.UnsupportedEncodingException;
+import java.util.regex.Pattern;
+
+import org.apache.commons.io.FilenameUtils;
+import org.apache.commons.lang.StringUtils;
+
+/**
+ * A CSS file whose name contains a hash of its content, e.g. <code>style.3fa9c1d2.css</code>. A changed stylesheet
+ * gets a new name, so that web servers can let browsers cache the stylesheet forever and the pages still never
+ * show outdated styles.
+ */
+public final class StylesheetAsset {
+
+    private static final int HASH_LENGTH = 8;
+
+    private final String baseName;
+    private final String name;
+    private final byte[] content;
+
+    private StylesheetAsset(String baseName, byte[] content) {
+        this.baseName = baseName;
+        this.content = content;
+        this.name = baseName + "." + BuildState.hash(content).substring(0, HASH_LENGTH) + ".css";
+    }
+
+    /**
+     * Create the asset of the CSS file with the passed name, e.g. <code>style.css</code>.
+     */
+    public static StylesheetAsset create(String fileName, String css, boolean minify) {
+        String text = minify ? minify(css) : css;
+        try {
+            return new StylesheetAsset(FilenameUtils.getBaseName(fileName), text.getBytes("UTF-8"));
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException("UTF-8 is not supported by this JVM.", e);
+        }
+    }
+
+    /**
+     * Remove the comments and all whitespace that isn't needed from the passed CSS. Strings are kept as they are
+     * and so is the whitespace before a colon, which is significant in selectors like <code>a :hover</code>.
+     */
+    public static String minify(String css) {
+        StringBuilder result = new StringBuilder(css.length());
+        char quote = 0;
+        boolean whitespace = false;
+
+        for (int i = 0; i < css.length(); i++) {
+            char c = css.charAt(i);
+
+            if (quote != 0) {
+                result.append(c);
+                if (c == '\\' && i + 1 < css.length()) {
+                    result.append(css.charAt(++i));
+                } else if (c == quote) {
+                    quote = 0;
+                }
+                continue;
+            }
+
+            if (c == '/' && i + 1 < css.length() && css.charAt(i + 1) == '*') {
+                int end = css.indexOf("*/", i + 2);
+                i = end < 0 ? css.length() : end + 1;
+                whitespace = true;
+                continue;
+            }
+
+            if (Character.isWhitespace(c)) {
+                whitespace = true;
+                continue;
+            }
+
+            if (whitespace && result.length() > 0 && !isSeparator(c)
+                    && !isSeparator(result.charAt(result.length() - 1))
+                    && result.charAt(result.length() - 1) != ':') {
+                result.append(' ');
+            }
+            whitespace = false;
+
+            if (c == '}' && result.length() > 0 && result.charAt(result.length() - 1) == ';') {
+                // the last declaration of a block doesn't need a semicolon
+                result.setLength(result.length() - 1);
+            }
+            if (c == '"' || c == '\'') {
+                quote = c;
+            }
+            result.append(c);
+        }
+
+        return result.toString();
+    }
+
+    /**
+     * Remove the indentation that all lines of the passed CSS have in common, e.g. of styles embedded in another
+     * document, and the leading and trailing blank lines.
+     */
+    public static String unindent(String css) {
+        String[] lines = StringUtils.splitPreserveAllTokens(StringUtils.strip(css, "\r\n"), '\n');
+        int indentation = Integer.MAX_VALUE;
+        for (String line : lines) {
+            if (StringUtils.isNotBlank(line)) {
+                indentation = Math.min(indentation, line.length() - StringUtils.stripStart(line, null).length());
+            }
+        }
+
+        StringBuilder result = new StringBuilder();
+        for (String line : lines) {
+            String unindented = line.length() > indentation ? line.substring(indentation) : "";
+            result.append(StringUtils.stripEnd(unindented, null)).append('\n');
+        }
+        return result.toString();
+    }
+
+    private static boolean isSeparator(char c) {
+        return c == '{' || c == '}' || c == ';' || c == ',';
+    }
+
+    public byte[] getContent() {
+        return this.content;
+    }
+
+    public String getName() {
+        return this.name;
+    }
+
+    /**
+     * Checks if the passed file is an asset of the same CSS file with another content, e.g. one written by an
+     * earlier build.
+     */
+    public boolean isOutdatedAsset(File file) {
+        return !file.getName().equals(this.name)
+                && Pattern.matches(Pattern.quote(this.baseName) + "\\.[0-9a-f]{" + HASH_LENGTH + "}\\.css",
+                        file.getName());
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ * Licensed to Indoqa Software Design und Beratung GmbH (Indoqa) 
+ * under one or more contributor license agreements. See the NOTICE 
+ * file distributed with this work for additional information
+ * regarding copyright ownership. Indoqa licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.indoqa.maven.wadldoc;
+
+import java.io.File;
+import java.net.URI;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import org.apache.commons.lang.StringUtils;
+import org.xml.sax.Attributes;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+import org.xml.sax.helpers.DefaultHandler;
+
+import com.indoqa.maven.wadldoc.transformation.XmlParsers;
+
+/**
+ * Collects the local documents a WADL file pulls in via <code>wadl:include/@href</code>,
+ * <code>wadl:*&#47;@href</code> and <code>wadl:resource/@type</code> references, transitively. These are the
+ * documents the stylesheet loads with <code>document()</code>, so a change of any of them requires the WADL file
+ * to be transformed again.
+ */
+public final class WadlDependencies {
+
+    private static final String ATT_HREF = "href";
+    private static final String ATT_TYPE = "type";
+    private static final String EL_RESOURCE = "resource";
+    private static final String NS_WADL = "http://research.sun.com/wadl/2006/10";
+
+    private WadlDependencies() {
+        // hide utility class constructor
+    }
+
+    /**
+     * Get all local documents the passed WADL file references, directly or indirectly. The direct references are
+     * passed in, usually from the {@link com.indoqa.maven.wadldoc.transformation.WadlMetadata} collected during the
+     * transformation, so that only the referenced documents have to be scanned. Documents that aren't available as
+     * local files (e.g. HTTP URLs) can't be tracked and are ignored.
+     */
+    public static Set<File> collect(File wadlFile, Collection<String> references) {
+        Set<File> dependencies = new LinkedHashSet<File>();
+        dependencies.add(wadlFile);
+
+        Set<File> directDependencies = new LinkedHashSet<File>();
+        resolve(wadlFile, references, directDependencies);
+        for (File dependency : directDependencies) {
+            collect(dependency, dependencies);
+        }
+
+        dependencies.remove(wadlFile);
+        return dependencies;
+    }
+
+    private static void resolve(File document, Collection<String> references, Collection<File> dependencies) {
+        for (String reference : references) {
+            String uri = StringUtils.substringBefore(reference, "#");
+            if (StringUtils.isBlank(uri)) {
+                // a reference within the same document
+                continue;
+            }
+
+            try {
+                URI resolved = document.toURI().resolve(uri);
+                if ("file".equals(resolved.getScheme())) {
+                    dependencies.add(new File(resolved));
+                }
+            } catch (IllegalArgumentException e) {
+                // not a valid URI -> the stylesheet won't be able to load it either
+            }
+        }
+    }
+
+    private static void collect(File document, Set<File> dependencies) {
+        if (!dependencies.add(document) || !document.isFile()) {
+            return;
+        }
+
+        Set<File> directDependencies = new LinkedHashSet<File>();
+        resolve(document, scanReferences(document), directDependencies);
+        for (File dependency : directDependencies) {
+            collect(dependency, dependencies);
+        }
+    }
+
+    private static Collection<String> scanReferences(File document) {
+        final Collection<String> references = new LinkedHashSet<String>();
+        try {
+            XMLReader xmlReader = XmlParsers.getReader();
+            xmlReader.setContentHandler(new DefaultHandler() {
+
+                @Override
+                public void startElement(String uri, String localName, String name, Attributes atts)
+                        throws SAXException {
+                    if (!NS_WADL.equals(uri)) {
+                        return;
+                    }
+
+                    String href = atts.getValue(ATT_HREF);
+                    if (href != null) {
+                        references.add(href);
+                    }
+                    if (EL_RESOURCE.equals(localName) && atts.getValue(ATT_TYPE) != null) {
+                        // a resource can have several resource types
+                        for (String type : StringUtils.split(atts.getValue(ATT_TYPE))) {
+                            references.add(type);
+                        }
+                    }
+                }
+            });
+            xmlReader.parse(document.toURI().toString());
+            XmlParsers.releaseReader(xmlReader);
+        } catch (Exception e) {
+            // an unreadable document is still tracked by its content hash, its references are unknown though
+        }
+        return references;
+    }
+}
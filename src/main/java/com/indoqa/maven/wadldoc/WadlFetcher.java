@@ -0,0 +1,229 @@
+/*
+ * Licensed to Indoqa Software Design und Beratung GmbH (Indoqa) 
+ * under one or more contributor license agreements. See the NOTICE 
+ * file distributed with this work for additional information
+ * regarding copyright ownership. Indoqa licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.indoqa.maven.wadldoc;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLConnection;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang.StringUtils;
+
+import com.indoqa.maven.wadldoc.PageWriter.PageOutputStream;
+
+/**
+ * Fetches WADL documents from URLs, e.g. from the endpoints of running services, into a local directory, where
+ * they are rendered like any other WADL file. The <code>ETag</code> and <code>Last-Modified</code> headers of each
+ * document are recorded in a small properties file in the directory, so that fetching an unchanged document again
+ * costs a conditional GET that is answered with <code>304 Not Modified</code> and leaves the local copy untouched.
+ * Several documents can be fetched concurrently by the same fetcher.
+ */
+public class WadlFetcher {
+
+    private static final String ACCEPT = "application/vnd.sun.wadl+xml, application/xml;q=0.9, */*;q=0.8";
+    private static final String DEFAULT_NAME = "application.wadl";
+    private static final String FILE_NAME = ".wadldoc-fetch.properties";
+    private static final String SUFFIX_ETAG = ".etag";
+    private static final String SUFFIX_LAST_MODIFIED = ".lastModified";
+
+    private final File directory;
+    private final File file;
+    private final Properties properties = new Properties();
+    private final AtomicInteger fetched = new AtomicInteger();
+    private final AtomicInteger notModified = new AtomicInteger();
+    private final PageWriter pageWriter = new PageWriter(false);
+
+    private int connectTimeout;
+    private int readTimeout;
+
+    private WadlFetcher(File directory) {
+        this.directory = directory;
+        this.file = new File(directory, FILE_NAME);
+    }
+
+    /**
+     * Get the path of the WADL document of a URL, relative to the output directory: the path of the URL without
+     * the query, with the extension <code>.wadl</code> if it has neither <code>.wadl</code> nor <code>.xml</code>,
+     * e.g. <code>orders.wadl</code> for <code>http://localhost:8080/orders?_wadl</code>.
+     */
+    public static String getPath(URL url) {
+        // the document mustn't end up outside of the directories
+        StringBuilder segments = new StringBuilder();
+        for (String segment : StringUtils.split(StringUtils.defaultString(url.getPath()), '/')) {
+            if (!".".equals(segment) && !"..".equals(segment)) {
+                segments.append(segment).append('/');
+            }
+        }
+
+        String path = segments.toString();
+        if (path.length() == 0 || url.getPath().endsWith("/")) {
+            return path + DEFAULT_NAME;
+        }
+        path = path.substring(0, path.length() - 1);
+        if (!StringUtils.endsWithIgnoreCase(path, ".wadl") && !StringUtils.endsWithIgnoreCase(path, ".xml")) {
+            return path + ".wadl";
+        }
+        return path;
+    }
+
+    /**
+     * Load the recorded headers of the documents fetched into the passed directory before.
+     */
+    public static WadlFetcher load(File directory) throws IOException {
+        WadlFetcher fetcher = new WadlFetcher(directory);
+
+        if (fetcher.file.exists()) {
+            InputStream inputStream = new FileInputStream(fetcher.file);
+            try {
+                fetcher.properties.load(inputStream);
+            } finally {
+                IOUtils.closeQuietly(inputStream);
+            }
+        }
+
+        return fetcher;
+    }
+
+    /**
+     * Fetch a WADL document into its local copy, see {@link #getFile(URL)}.
+     * 
+     * @return <code>true</code> if the document has been downloaded, <code>false</code> if the local copy is up to
+     *         date.
+     */
+    public boolean fetch(URL url) throws IOException {
+        String key = url.toExternalForm();
+        File localFile = this.getFile(url);
+
+        URLConnection connection = url.openConnection();
+        connection.setConnectTimeout(this.connectTimeout);
+        connection.setReadTimeout(this.readTimeout);
+        connection.setUseCaches(false);
+        connection.setRequestProperty("Accept", ACCEPT);
+        if (localFile.exists()) {
+            setRequestProperty(connection, "If-None-Match", this.properties.getProperty(key + SUFFIX_ETAG));
+            setRequestProperty(connection, "If-Modified-Since", this.properties.getProperty(key
+                    + SUFFIX_LAST_MODIFIED));
+        }
+
+        InputStream inputStream = null;
+        try {
+            if (connection instanceof HttpURLConnection) {
+                int status = ((HttpURLConnection) connection).getResponseCode();
+                if (status == HttpURLConnection.HTTP_NOT_MODIFIED) {
+                    this.notModified.incrementAndGet();
+                    return false;
+                }
+                if (status != HttpURLConnection.HTTP_OK) {
+                    throw new IOException("The server returned " + status + " "
+                            + ((HttpURLConnection) connection).getResponseMessage() + ".");
+                }
+            }
+
+            inputStream = connection.getInputStream();
+            this.write(inputStream, localFile);
+        } finally {
+            IOUtils.closeQuietly(inputStream);
+            if (connection instanceof HttpURLConnection) {
+                ((HttpURLConnection) connection).disconnect();
+            }
+        }
+
+        setProperty(this.properties, key + SUFFIX_ETAG, connection.getHeaderField("ETag"));
+        setProperty(this.properties, key + SUFFIX_LAST_MODIFIED, connection.getHeaderField("Last-Modified"));
+        this.fetched.incrementAndGet();
+        return true;
+    }
+
+    /**
+     * Get the number of documents downloaded since the fetcher has been loaded.
+     */
+    public int getFetched() {
+        return this.fetched.get();
+    }
+
+    /**
+     * Get the local copy of the document of a URL. The copies are put into a directory per host and port, below
+     * which they have the path returned by {@link #getPath(URL)}.
+     */
+    public File getFile(URL url) {
+        String host = url.getPort() == -1 ? url.getHost() : url.getHost() + "_" + url.getPort();
+        return new File(new File(this.directory, StringUtils.defaultIfEmpty(host, "local")), getPath(url));
+    }
+
+    /**
+     * Get the number of documents that were up to date since the fetcher has been loaded.
+     */
+    public int getNotModified() {
+        return this.notModified.get();
+    }
+
+    public void setConnectTimeout(int connectTimeout) {
+        this.connectTimeout = connectTimeout;
+    }
+
+    public void setReadTimeout(int readTimeout) {
+        this.readTimeout = readTimeout;
+    }
+
+    public void store() throws IOException {
+        this.directory.mkdirs();
+        OutputStream outputStream = new FileOutputStream(this.file);
+        try {
+            this.properties.store(outputStream, "Fetched WADL documents");
+        } finally {
+            IOUtils.closeQuietly(outputStream);
+        }
+    }
+
+    private static void setProperty(Properties properties, String key, String value) {
+        if (value == null) {
+            properties.remove(key);
+        } else {
+            properties.setProperty(key, value);
+        }
+    }
+
+    private static void setRequestProperty(URLConnection connection, String name, String value) {
+        if (value != null) {
+            connection.setRequestProperty(name, value);
+        }
+    }
+
+    /**
+     * Write the document like a page, into a temporary file that then replaces the local copy by a rename, so that
+     * an interrupted download doesn't destroy the local copy and nobody ever reads a half-written one.
+     */
+    private void write(InputStream inputStream, File localFile) throws IOException {
+        PageOutputStream outputStream = this.pageWriter.open(localFile);
+        try {
+            IOUtils.copy(inputStream, outputStream);
+            outputStream.commit();
+        } finally {
+            outputStream.close();
+        }
+    }
+}
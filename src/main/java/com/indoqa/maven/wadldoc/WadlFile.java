@@ -0,0 +1,146 @@
+/*
+ * Licensed to Indoqa Software Design und Beratung GmbH (Indoqa) 
+ * under one or more contributor license agreements. See the NOTICE 
+ * file distributed with this work for additional information
+ * regarding copyright ownership. Indoqa licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.indoqa.maven.wadldoc;
+
+import java.io.File;
+import java.net.MalformedURLException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.URL;
+
+/**
+ * A WADL file found by the {@link WadlFileScanner} together with the path of its pages relative to the output
+ * directory and the attributes read while scanning, so that they don't have to be read again. A WADL file is
+ * either a local file or an entry of an archive, e.g. of a dependency JAR, which is read directly from the
+ * archive.
+ */
+public final class WadlFile implements Comparable<WadlFile> {
+
+    private final URL url;
+    private final File file;
+    private final File archive;
+    private final String path;
+    private final long length;
+    private final long lastModified;
+
+    public WadlFile(File file, String path, long length, long lastModified) {
+        this(toUrl(file.toURI()), file, null, path, length, lastModified);
+    }
+
+    public WadlFile(File archive, String entryName, String path, long length, long lastModified) {
+        this(toArchiveEntryUrl(archive, entryName), null, archive, path, length, lastModified);
+    }
+
+    private WadlFile(URL url, File file, File archive, String path, long length, long lastModified) {
+        this.url = url;
+        this.file = file;
+        this.archive = archive;
+        this.path = path;
+        this.length = length;
+        this.lastModified = lastModified;
+    }
+
+    private static URL toArchiveEntryUrl(File archive, String entryName) {
+        try {
+            String encodedEntryName = new URI(null, null, entryName, null).getRawPath();
+            return new URL("jar:" + toUrl(archive.toURI()).toExternalForm() + "!/" + encodedEntryName);
+        } catch (URISyntaxException e) {
+            throw new IllegalArgumentException("Invalid archive entry " + entryName, e);
+        } catch (MalformedURLException e) {
+            throw new IllegalArgumentException("Invalid archive entry " + entryName, e);
+        }
+    }
+
+    private static URL toUrl(URI uri) {
+        try {
+            return uri.toURL();
+        } catch (MalformedURLException e) {
+            throw new IllegalArgumentException("Can't create URL object from " + uri, e);
+        }
+    }
+
+    public int compareTo(WadlFile other) {
+        return this.path.compareTo(other.path);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof WadlFile)) {
+            return false;
+        }
+        return this.getKey().equals(((WadlFile) obj).getKey());
+    }
+
+    /**
+     * Get the archive that contains the WADL file or <code>null</code> if it is a local file.
+     */
+    public File getArchive() {
+        return this.archive;
+    }
+
+    /**
+     * Get the local file or <code>null</code> if the WADL file is an entry of an archive.
+     */
+    public File getFile() {
+        return this.file;
+    }
+
+    /**
+     * Get a key that identifies the WADL file: the absolute path of a local file or the URL of an archive entry.
+     */
+    public String getKey() {
+        if (this.file != null) {
+            return this.file.getAbsolutePath();
+        }
+        return this.url.toExternalForm();
+    }
+
+    public long getLastModified() {
+        return this.lastModified;
+    }
+
+    public long getLength() {
+        return this.length;
+    }
+
+    /**
+     * Get the path relative to the output directory, separated by slashes. For the files of the input directory,
+     * this is their path relative to the input directory.
+     */
+    public String getPath() {
+        return this.path;
+    }
+
+    public URL getUrl() {
+        return this.url;
+    }
+
+    @Override
+    public int hashCode() {
+        return this.getKey().hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return this.path;
+    }
+}
@@ -0,0 +1,194 @@
+/*
+ * Licensed to Indoqa Software Design und Beratung GmbH (Indoqa) 
+ * under one or more contributor license agreements. See the NOTICE 
+ * file distributed with this work for additional information
+ * regarding copyright ownership. Indoqa licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.indoqa.maven.wadldoc;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileVisitOption;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import org.apache.commons.lang.StringUtils;
+import org.codehaus.plexus.util.SelectorUtils;
+
+/**
+ * Finds the WADL files in a directory tree or in an archive (e.g. a JAR) that match at least one of the include
+ * patterns and none of the exclude patterns. The patterns are Ant-style patterns relative to the directory or the
+ * root of the archive, e.g. <code>**&#47;*.wadl</code> or <code>legacy&#47;**</code>. The tree is walked only
+ * once with {@link Files#walkFileTree}: directories that can't contain any included file or that are excluded as
+ * a whole aren't entered, and the length and the modification time of each file are taken from the attributes
+ * the walk reads anyway. Archives are read through their central
+ * directory without extracting anything.
+ */
+public final class WadlFileScanner {
+
+    public static final String[] DEFAULT_INCLUDES = {"**/*.xml", "**/*.wadl"};
+
+    private final File base;
+    private final String[] includes;
+    private final String[] excludes;
+    private String pathPrefix = "";
+
+    /**
+     * @param base A directory or an archive.
+     */
+    public WadlFileScanner(File base, String[] includes, String[] excludes) {
+        this.base = base;
+        this.includes = normalizePatterns(includes == null || includes.length == 0 ? DEFAULT_INCLUDES : includes);
+        this.excludes = normalizePatterns(excludes == null ? new String[0] : excludes);
+    }
+
+    /**
+     * Ant-style patterns use slashes or backslashes; a pattern ending with a separator matches everything below.
+     */
+    private static String[] normalizePatterns(String[] patterns) {
+        List<String> result = new ArrayList<String>();
+        for (String pattern : patterns) {
+            if (StringUtils.isBlank(pattern)) {
+                continue;
+            }
+
+            String normalized = pattern.trim().replace('/', File.separatorChar).replace('\\', File.separatorChar);
+            if (normalized.endsWith(File.separator)) {
+                normalized += "**";
+            }
+            result.add(normalized);
+        }
+        return result.toArray(new String[result.size()]);
+    }
+
+    /**
+     * Get all matching files, sorted by their paths. A base that doesn't exist doesn't contain any files.
+     */
+    public List<WadlFile> scan() throws IOException {
+        List<WadlFile> wadlFiles = new ArrayList<WadlFile>();
+        if (this.base.isDirectory()) {
+            this.scanDirectory(wadlFiles);
+        } else if (this.base.isFile()) {
+            this.scanArchive(wadlFiles);
+        }
+        Collections.sort(wadlFiles);
+        return wadlFiles;
+    }
+
+    /**
+     * Set the prefix of the paths of the found files, e.g. <code>orders&#47;</code>.
+     */
+    public void setPathPrefix(String pathPrefix) {
+        this.pathPrefix = StringUtils.defaultString(pathPrefix);
+    }
+
+    @Override
+    public String toString() {
+        return this.base.toString();
+    }
+
+    private boolean couldContainIncludedFiles(String directoryPath) {
+        for (String exclude : this.excludes) {
+            if (exclude.endsWith(File.separator + "**") && SelectorUtils.matchPath(exclude, directoryPath)) {
+                return false;
+            }
+        }
+        for (String include : this.includes) {
+            if (SelectorUtils.matchPatternStart(include, directoryPath)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean isIncluded(String path) {
+        for (String exclude : this.excludes) {
+            if (SelectorUtils.matchPath(exclude, path)) {
+                return false;
+            }
+        }
+        for (String include : this.includes) {
+            if (SelectorUtils.matchPath(include, path)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void scanDirectory(final List<WadlFile> wadlFiles) throws IOException {
+        final Path basePath = this.base.toPath();
+        Files.walkFileTree(basePath, EnumSet.of(FileVisitOption.FOLLOW_LINKS), Integer.MAX_VALUE,
+                new SimpleFileVisitor<Path>() {
+
+                    @Override
+                    public FileVisitResult preVisitDirectory(Path directory, BasicFileAttributes attributes) {
+                        if (directory.equals(basePath)
+                                || WadlFileScanner.this.couldContainIncludedFiles(getPath(basePath, directory))) {
+                            return FileVisitResult.CONTINUE;
+                        }
+                        return FileVisitResult.SKIP_SUBTREE;
+                    }
+
+                    @Override
+                    public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) {
+                        String path = getPath(basePath, file);
+                        if (attributes.isRegularFile() && WadlFileScanner.this.isIncluded(path)) {
+                            wadlFiles.add(new WadlFile(file.toFile(), WadlFileScanner.this.pathPrefix
+                                    + path.replace(File.separatorChar, '/'), attributes.size(), attributes
+                                    .lastModifiedTime().toMillis()));
+                        }
+                        return FileVisitResult.CONTINUE;
+                    }
+
+                    @Override
+                    public FileVisitResult visitFileFailed(Path file, IOException e) {
+                        // unreadable files and directories and symlink cycles are skipped
+                        return FileVisitResult.CONTINUE;
+                    }
+                });
+    }
+
+    private static String getPath(Path basePath, Path path) {
+        return basePath.relativize(path).toString();
+    }
+
+    private void scanArchive(List<WadlFile> wadlFiles) throws IOException {
+        ZipFile zipFile = new ZipFile(this.base);
+        try {
+            Enumeration<? extends ZipEntry> entries = zipFile.entries();
+            while (entries.hasMoreElements()) {
+                ZipEntry entry = entries.nextElement();
+                if (entry.isDirectory() || !this.isIncluded(entry.getName().replace('/', File.separatorChar))) {
+                    continue;
+                }
+
+                wadlFiles.add(new WadlFile(this.base, entry.getName(), this.pathPrefix + entry.getName(), entry
+                        .getSize(), entry.getTime()));
+            }
+        } finally {
+            zipFile.close();
+        }
+    }
+}
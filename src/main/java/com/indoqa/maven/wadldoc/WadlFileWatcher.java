@@ -0,0 +1,162 @@
+/*
+ * Licensed to Indoqa Software Design und Beratung GmbH (Indoqa) 
+ * under one or more contributor license agreements. See the NOTICE 
+ * file distributed with this work for additional information
+ * regarding copyright ownership. Indoqa licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.indoqa.maven.wadldoc;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.apache.maven.plugin.logging.Log;
+
+/**
+ * Watches the input directory with all its subdirectories, so that new WADL files are noticed, and the directories
+ * of a set of files with a {@link WatchService}. If the file system doesn't support it, the files have to be
+ * polled instead and a change is assumed whenever the poll interval has elapsed. Not thread-safe.
+ */
+class WadlFileWatcher {
+
+    private final File inputDirectory;
+    private final int pollInterval;
+    private final Log log;
+
+    private WatchService watchService;
+    private long lastWatch;
+
+    public WadlFileWatcher(File inputDirectory, int pollInterval, Log log) {
+        this.inputDirectory = inputDirectory;
+        this.pollInterval = pollInterval;
+        this.log = log;
+        this.watchService = this.createWatchService();
+    }
+
+    /**
+     * Wait until the file system reports an event in one of the watched directories or, if there is no watch
+     * service, for the poll interval.
+     */
+    public void awaitChanges() throws InterruptedException {
+        if (this.watchService == null) {
+            Thread.sleep(this.pollInterval);
+            return;
+        }
+
+        drain(this.watchService, this.watchService.take());
+    }
+
+    public void close() {
+        if (this.watchService == null) {
+            return;
+        }
+
+        try {
+            this.watchService.close();
+        } catch (IOException e) {
+            // ignore
+        }
+        this.watchService = null;
+    }
+
+    /**
+     * Check without blocking whether the file system has reported an event in one of the watched directories or,
+     * if there is no watch service, whether the poll interval has elapsed since the files were last watched.
+     */
+    public boolean hasChanges() {
+        if (this.watchService == null) {
+            return System.currentTimeMillis() - this.lastWatch >= this.pollInterval;
+        }
+
+        WatchKey key = this.watchService.poll();
+        if (key == null) {
+            return false;
+        }
+        drain(this.watchService, key);
+        return true;
+    }
+
+    /**
+     * Watch the input directory with all its subdirectories and the directories of the passed files. Registering
+     * a directory again doesn't have any effect. If a directory can't be watched, the watcher falls back to
+     * polling.
+     */
+    public void watch(Collection<File> files) {
+        this.lastWatch = System.currentTimeMillis();
+        if (this.watchService == null) {
+            return;
+        }
+
+        final Set<Path> directories = new HashSet<Path>();
+        for (File file : files) {
+            directories.add(file.getAbsoluteFile().getParentFile().toPath());
+        }
+        try {
+            if (this.inputDirectory != null && this.inputDirectory.isDirectory()) {
+                Files.walkFileTree(this.inputDirectory.toPath(), new SimpleFileVisitor<Path>() {
+
+                    @Override
+                    public FileVisitResult preVisitDirectory(Path directory, BasicFileAttributes attributes) {
+                        directories.add(directory);
+                        return FileVisitResult.CONTINUE;
+                    }
+                });
+            }
+
+            for (Path directory : directories) {
+                directory.register(this.watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                        StandardWatchEventKinds.ENTRY_DELETE, StandardWatchEventKinds.ENTRY_MODIFY);
+            }
+        } catch (IOException e) {
+            this.log.info("Can't watch the file system, polling for changes instead: " + e.getMessage());
+            this.close();
+        }
+    }
+
+    /**
+     * Consume the events of the passed key and of all other keys that have been signalled in the meantime.
+     */
+    private static void drain(WatchService watchService, WatchKey signalledKey) {
+        WatchKey key = signalledKey;
+        do {
+            key.pollEvents();
+            key.reset();
+            key = watchService.poll();
+        } while (key != null);
+    }
+
+    private WatchService createWatchService() {
+        try {
+            return FileSystems.getDefault().newWatchService();
+        } catch (IOException e) {
+            this.log.info("Can't watch the file system, polling for changes instead: " + e.getMessage());
+            return null;
+        } catch (UnsupportedOperationException e) {
+            this.log.info("The file system can't be watched, polling for changes instead.");
+            return null;
+        }
+    }
+}
@@ -111,6 +111,11 @@ public class WadlReport extends AbstractWadlDocumentationMojo implements MavenRe
         return true;
     }
 
+    @Override
+    protected boolean isFailOnError() {
+        return this.failOnError;
+    }
+
     public void setReportOutputDirectory(File reportOutputDirectory) {
         this.updateReportOutputDirectory(reportOutputDirectory, this.destDir);
     }
@@ -0,0 +1,357 @@
+/*
+ * Licensed to Indoqa Software Design und Beratung GmbH (Indoqa) 
+ * under one or more contributor license agreements. See the NOTICE 
+ * file distributed with this work for additional information
+ * regarding copyright ownership. Indoqa licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.indoqa.maven.wadldoc;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.text.DateFormat;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TimeZone;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang.StringUtils;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.reporting.MavenReportException;
+
+import com.indoqa.maven.wadldoc.RenderedPageCache.RenderedPage;
+import com.indoqa.maven.wadldoc.transformation.Wadl2HtmlPipeline;
+import com.indoqa.maven.wadldoc.transformation.WadlMetadata;
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Serves the documentation from an embedded HTTP server without generating it up front. Each page is rendered when
+ * it is requested for the first time and then served from memory until the WADL file or one of the documents it
+ * references changes. The pages of different WADL files are rendered concurrently by the configured threads. The
+ * responses carry an ETag and a Last-Modified header, so that browsers only download pages that have changed. Like
+ * in the <code>watch</code> goal, the WADL files are only scanned again when the file system reports a change in
+ * their directories. The goal always uses the <code>single</code> layout and runs until it is stopped with Ctrl-C.
+ * <p>
+ * The server is the <code>com.sun.net.httpserver</code> server that comes with the JDK since Java 6 (Oracle JDK
+ * and OpenJDK).
+ * 
+ * @goal serve
+ * @requiresDependencyResolution runtime
+ * @since 1.0.0
+ */
+public class WadlServeMojo extends AbstractWadlDocumentationMojo {
+
+    private static final String CONTENT_TYPE_CSS = "text/css";
+    private static final String CONTENT_TYPE_HTML = "text/html; charset=UTF-8";
+    private static final String HTTP_DATE_FORMAT = "EEE, dd MMM yyyy HH:mm:ss zzz";
+
+    /**
+     * Specifies the host name or address the server is bound to. Use <code>0.0.0.0</code> to make the
+     * documentation accessible from other machines.
+     * 
+     * @parameter expression="${maven.restapidocs.host}" default-value="localhost"
+     */
+    private String host;
+
+    /**
+     * Specifies the interval in milliseconds in which the WADL files are scanned again if the file system doesn't
+     * report changes.
+     * 
+     * @parameter expression="${maven.restapidocs.pollInterval}" default-value="500"
+     */
+    private int pollInterval;
+
+    /**
+     * Specifies the port of the server.
+     * 
+     * @parameter expression="${maven.restapidocs.port}" default-value="8080"
+     */
+    private int port;
+
+    private final RenderedPageCache pages = new RenderedPageCache();
+    private final RenderedPageCache titles = new RenderedPageCache();
+
+    // guarded by this; the WADL files are only scanned again when the watcher reports a change
+    private WadlFileWatcher watcher;
+    private List<WadlFile> wadlFiles;
+
+    public void execute() throws MojoExecutionException, MojoFailureException {
+        if (this.skip) {
+            this.getLog().info("Skipping javadoc generation");
+            return;
+        }
+
+        // the pages are rendered one by one, so there is nothing to gain from the per-resource layout
+        this.layout = null;
+        // the stylesheet is served with its plain name and never cached by the browser
+        this.fingerprint = false;
+
+        if (this.pollInterval <= 0) {
+            throw new MojoExecutionException("Invalid poll interval " + this.pollInterval
+                    + ". Use a positive number of milliseconds.");
+        }
+
+        HttpServer server;
+        ExecutorService executor;
+        try {
+            this.initialize();
+            // the WADL files of running services are fetched once, at the start
+            this.fetchWadlFiles();
+            this.watcher = new WadlFileWatcher(this.inputDirectory, this.pollInterval, this.getLog());
+
+            server = HttpServer.create(new InetSocketAddress(this.host, this.port), 0);
+            executor = Executors.newFixedThreadPool(this.getThreadCount(), this.createThreadFactory());
+        } catch (MavenReportException e) {
+            throw new MojoExecutionException(e.getMessage(), e);
+        } catch (IOException e) {
+            throw new MojoExecutionException("Can't start the server on " + this.host + ":" + this.port, e);
+        }
+
+        server.createContext("/", new HttpHandler() {
+
+            public void handle(HttpExchange exchange) throws IOException {
+                WadlServeMojo.this.handle(exchange);
+            }
+        });
+        server.setExecutor(executor);
+        server.start();
+        this.getLog().info(
+                "Serving the documentation at http://" + this.host + ":" + this.port + "/. Press Ctrl-C to stop.");
+
+        try {
+            Thread.sleep(Long.MAX_VALUE);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            this.getLog().info("Stopped serving the documentation.");
+        } finally {
+            server.stop(0);
+            executor.shutdownNow();
+            synchronized (this) {
+                this.watcher.close();
+            }
+        }
+    }
+
+    /**
+     * Broken WADL files are reported, but the other ones are still served.
+     */
+    @Override
+    protected boolean isFailOnError() {
+        return false;
+    }
+
+    private static String formatDate(long time) {
+        return createDateFormat().format(new Date(time));
+    }
+
+    private static DateFormat createDateFormat() {
+        DateFormat dateFormat = new SimpleDateFormat(HTTP_DATE_FORMAT, Locale.US);
+        dateFormat.setTimeZone(TimeZone.getTimeZone("GMT"));
+        return dateFormat;
+    }
+
+    /**
+     * Checks if the client already has the current version of a page, either by its ETag or, if the client didn't
+     * send one, by its modification time.
+     */
+    private static boolean isNotModified(Headers requestHeaders, String etag, long lastModified) {
+        String ifNoneMatch = requestHeaders.getFirst("If-None-Match");
+        if (ifNoneMatch != null) {
+            return ifNoneMatch.contains(etag) || "*".equals(ifNoneMatch.trim());
+        }
+
+        String ifModifiedSince = requestHeaders.getFirst("If-Modified-Since");
+        if (ifModifiedSince == null || lastModified <= 0) {
+            return false;
+        }
+        try {
+            // HTTP dates have a resolution of seconds
+            return lastModified / 1000 <= createDateFormat().parse(ifModifiedSince).getTime() / 1000;
+        } catch (ParseException e) {
+            return false;
+        }
+    }
+
+    private static void send(HttpExchange exchange, int status, String contentType, byte[] content)
+            throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", contentType);
+        if ("HEAD".equals(exchange.getRequestMethod())) {
+            exchange.getResponseHeaders().set("Content-Length", String.valueOf(content.length));
+            exchange.sendResponseHeaders(status, -1);
+            return;
+        }
+
+        exchange.sendResponseHeaders(status, content.length);
+        OutputStream outputStream = exchange.getResponseBody();
+        try {
+            outputStream.write(content);
+        } finally {
+            IOUtils.closeQuietly(outputStream);
+        }
+    }
+
+    private static void sendError(HttpExchange exchange, int status, String message) throws IOException {
+        send(exchange, status, "text/plain; charset=UTF-8", message.getBytes("UTF-8"));
+    }
+
+    private static void sendPage(HttpExchange exchange, String contentType, RenderedPage page) throws IOException {
+        Headers responseHeaders = exchange.getResponseHeaders();
+        responseHeaders.set("ETag", page.getETag());
+        if (page.getLastModified() > 0) {
+            responseHeaders.set("Last-Modified", formatDate(page.getLastModified()));
+        }
+        // the browser has to ask every time, so that changes of the WADL files show up immediately
+        responseHeaders.set("Cache-Control", "no-cache");
+
+        if (isNotModified(exchange.getRequestHeaders(), page.getETag(), page.getLastModified())) {
+            exchange.sendResponseHeaders(304, -1);
+            return;
+        }
+
+        send(exchange, 200, contentType, page.getContent());
+    }
+
+    /**
+     * Get the WADL files of the last scan. They are scanned again if the watcher has noticed a change in the input
+     * directory or in the directory of one of the WADL files.
+     */
+    private synchronized List<WadlFile> getWadlFiles() throws MavenReportException {
+        if (this.wadlFiles == null || this.watcher.hasChanges()) {
+            List<WadlFile> scannedFiles = this.scanWadlFiles();
+            Set<File> files = new HashSet<File>();
+            for (WadlFile wadlFile : scannedFiles) {
+                files.add(wadlFile.getFile() != null ? wadlFile.getFile() : wadlFile.getArchive());
+            }
+            this.watcher.watch(files);
+            this.wadlFiles = Collections.unmodifiableList(scannedFiles);
+        }
+        return this.wadlFiles;
+    }
+
+    private Map<WadlFile, String> getTitles(List<WadlFile> wadlFiles) throws Exception {
+        Map<WadlFile, String> result = new HashMap<WadlFile, String>();
+        for (final WadlFile wadlFile : wadlFiles) {
+            RenderedPage metadataPage = this.titles.get(wadlFile.getKey(), new Callable<RenderedPage>() {
+
+                public RenderedPage call() throws Exception {
+                    // a plain parse that collects the title, much cheaper than rendering the page
+                    WadlMetadata metadata = new Wadl2HtmlPipeline(wadlFile.getUrl(), null,
+                            WadlServeMojo.this.escapeHtmlRepresentations).readMetadata();
+                    return new RenderedPage(new byte[0], metadata, getDependencies(wadlFile, metadata));
+                }
+            });
+            result.put(wadlFile, metadataPage.getMetadata().getTitle());
+        }
+        return result;
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            String method = exchange.getRequestMethod();
+            if (!"GET".equals(method) && !"HEAD".equals(method)) {
+                sendError(exchange, 405, "Method " + method + " is not allowed.");
+                return;
+            }
+
+            String path = exchange.getRequestURI().getPath();
+            this.getLog().debug("Serving " + path);
+            this.serve(exchange, StringUtils.removeStart(path, "/"));
+        } catch (Exception e) {
+            this.getLog().error("Can't serve " + exchange.getRequestURI() + ": " + e.getMessage(), e);
+            sendError(exchange, 500, "Can't serve " + exchange.getRequestURI() + ": " + e.getMessage());
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void serve(HttpExchange exchange, String path) throws Exception {
+        if (this.stylesheet != null && path.equals(this.stylesheet.getName())) {
+            sendPage(exchange, CONTENT_TYPE_CSS, this.pages.get(path, new Callable<RenderedPage>() {
+
+                public RenderedPage call() throws Exception {
+                    File file = WadlServeMojo.this.stylesheet;
+                    return new RenderedPage(FileUtils.readFileToByteArray(file), null, Collections
+                            .singleton(file));
+                }
+            }));
+            return;
+        }
+
+        List<WadlFile> wadlFiles = this.getWadlFiles();
+        if (wadlFiles.isEmpty()) {
+            sendError(exchange, 404, "No WADL files.");
+            return;
+        }
+
+        if (path.length() == 0 || path.equals("index.html")) {
+            this.sendGeneratedPage(exchange, this.createFrameset(wadlFiles, this.getTitles(wadlFiles)));
+            return;
+        }
+
+        if (path.equals("resources.html")) {
+            this.sendGeneratedPage(exchange, this.createIndexPage(wadlFiles, this.getTitles(wadlFiles)));
+            return;
+        }
+
+        for (final WadlFile wadlFile : wadlFiles) {
+            if (!path.equals(this.createOutFileName(wadlFile))) {
+                continue;
+            }
+
+            sendPage(exchange, CONTENT_TYPE_HTML, this.pages.get(wadlFile.getKey(), new Callable<RenderedPage>() {
+
+                public RenderedPage call() throws Exception {
+                    long start = System.nanoTime();
+                    ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+                    WadlMetadata metadata = WadlServeMojo.this.renderWadl(wadlFile, outputStream);
+                    WadlServeMojo.this.getLog().info(
+                            "Rendered " + wadlFile + " in " + (System.nanoTime() - start) / 1000000 + " ms.");
+                    return new RenderedPage(outputStream.toByteArray(), metadata, getDependencies(wadlFile,
+                            metadata));
+                }
+            }));
+            return;
+        }
+
+        sendError(exchange, 404, "There is no page " + path + ".");
+    }
+
+    /**
+     * Send one of the pages generated on each request, like the index page. They are cheap to generate and carry
+     * an ETag only.
+     */
+    private void sendGeneratedPage(HttpExchange exchange, String content) throws IOException {
+        sendPage(exchange, CONTENT_TYPE_HTML, new RenderedPage(content.getBytes("UTF-8"), null, Collections
+                .<File> emptySet()));
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ * Licensed to Indoqa Software Design und Beratung GmbH (Indoqa) 
+ * under one or more contributor license agreements. See the NOTICE 
+ * file distributed with this work for additional information
+ * regarding copyright ownership. Indoqa licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.indoqa.maven.wadldoc;
+
+import java.io.File;
+
+import org.apache.commons.lang.StringUtils;
+
+/**
+ * An additional source of WADL files, configured as <code>&lt;wadlSource&gt;</code> element of the
+ * <code>wadlSources</code> parameter. A source is either
+ * <ul>
+ * <li>a <code>directory</code>,</li>
+ * <li>the <code>classpath</code> of the project, i.e. its output directory and all its runtime dependencies,
+ * or</li>
+ * <li>a <code>dependency</code> of the project, given as <code>groupId:artifactId</code> or
+ * <code>artifactId</code>, or</li>
+ * <li>a list of <code>urls</code> of WADL documents, e.g. the <code>application.wadl</code> published by running
+ * services. They are fetched into the <code>fetchDirectory</code> and their pages get the path of the URL, see
+ * {@link WadlFetcher#getPath(java.net.URL)}.</li>
+ * </ul>
+ * The WADL files are selected with Ant-style <code>includes</code> and <code>excludes</code> patterns. By default,
+ * all <code>.xml</code> and <code>.wadl</code> files of a directory and all <code>.wadl</code> files of the
+ * classpath or a dependency are included. The pages of the WADL files are put into the directory
+ * <code>prefix</code>, which defaults to the artifactId for dependencies and to the root of the output directory
+ * otherwise.
+ */
+public class WadlSource {
+
+    private static final String[] DEFAULT_ARCHIVE_INCLUDES = {"**/*.wadl"};
+
+    private File directory;
+    private boolean classpath;
+    private String dependency;
+    private String[] includes;
+    private String[] excludes;
+    private String prefix;
+    private String[] urls;
+
+    public String getDependency() {
+        return this.dependency;
+    }
+
+    public File getDirectory() {
+        return this.directory;
+    }
+
+    public String[] getExcludes() {
+        return this.excludes;
+    }
+
+    /**
+     * Get the include patterns or the default include patterns of this kind of source if none are configured.
+     */
+    public String[] getIncludes() {
+        if ((this.includes == null || this.includes.length == 0) && this.directory == null) {
+            return DEFAULT_ARCHIVE_INCLUDES;
+        }
+        return this.includes;
+    }
+
+    public String getPrefix() {
+        return this.prefix;
+    }
+
+    public String[] getUrls() {
+        return this.urls;
+    }
+
+    public boolean isClasspath() {
+        return this.classpath;
+    }
+
+    public void setClasspath(boolean classpath) {
+        this.classpath = classpath;
+    }
+
+    public void setDependency(String dependency) {
+        this.dependency = dependency;
+    }
+
+    public void setDirectory(File directory) {
+        this.directory = directory;
+    }
+
+    public void setExcludes(String[] excludes) {
+        this.excludes = excludes;
+    }
+
+    public void setIncludes(String[] includes) {
+        this.includes = includes;
+    }
+
+    public void setPrefix(String prefix) {
+        this.prefix = prefix;
+    }
+
+    public void setUrls(String[] urls) {
+        this.urls = urls;
+    }
+
+    @Override
+    public String toString() {
+        if (this.directory != null) {
+            return "directory " + this.directory;
+        }
+        if (this.dependency != null) {
+            return "dependency " + this.dependency;
+        }
+        if (this.urls != null && this.urls.length > 0) {
+            return "urls " + StringUtils.join(this.urls, ", ");
+        }
+        return "classpath";
+    }
+}
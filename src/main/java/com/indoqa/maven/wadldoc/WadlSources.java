@@ -0,0 +1,214 @@
+/*
+ * Licensed to Indoqa Software Design und Beratung GmbH (Indoqa) 
+ * under one or more contributor license agreements. See the NOTICE 
+ * file distributed with this work for additional information
+ * regarding copyright ownership. Indoqa licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.indoqa.maven.wadldoc;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.maven.plugin.logging.Log;
+import org.apache.maven.reporting.MavenReportException;
+
+/**
+ * The WADL documents of the <code>urls</code> sources, i.e. of running services. They are fetched into the fetch
+ * directory by a {@link WadlFetcher} and then rendered from there like any other WADL file.
+ */
+class WadlSources {
+
+    private static final int MAX_FETCH_THREADS = 8;
+
+    private final WadlSource[] sources;
+    private final File fetchDirectory;
+    private final Log log;
+
+    public WadlSources(WadlSource[] sources, File fetchDirectory, Log log) {
+        this.sources = sources;
+        this.fetchDirectory = fetchDirectory;
+        this.log = log;
+    }
+
+    /**
+     * Add the copies of the WADL documents of a <code>urls</code> source, which have been fetched before.
+     * Documents that have never been fetched are missing.
+     */
+    public void addFetchedWadlFiles(WadlSource source, List<WadlFile> wadlFiles) throws MavenReportException {
+        WadlFetcher fetcher = this.loadFetcher();
+
+        String prefix = StringUtils.defaultString(source.getPrefix());
+        if (prefix.length() > 0 && !prefix.endsWith("/")) {
+            prefix += "/";
+        }
+        for (URL url : toUrls(source)) {
+            File file = fetcher.getFile(url);
+            if (file.isFile()) {
+                wadlFiles.add(new WadlFile(file, prefix + WadlFetcher.getPath(url), file.length(), file
+                        .lastModified()));
+            }
+        }
+    }
+
+    /**
+     * Fetch the WADL documents of all <code>urls</code> sources concurrently into the fetch directory. If a
+     * document can't be fetched, its copy from the last fetch is used. Documents that have never been fetched fail
+     * the build, unless errors are tolerated.
+     * 
+     * @return <code>false</code> if there are no documents to fetch.
+     */
+    public boolean fetch(int connectTimeout, int readTimeout, boolean failOnError, ThreadFactory threadFactory)
+            throws MavenReportException {
+        List<URL> urls = this.getUrls();
+        if (urls.isEmpty()) {
+            return false;
+        }
+
+        if (connectTimeout < 0 || readTimeout < 0) {
+            throw new MavenReportException("Invalid connect timeout " + connectTimeout + " or read timeout "
+                    + readTimeout + ". Use a number of milliseconds or 0 to wait forever.");
+        }
+
+        final WadlFetcher fetcher = this.loadFetcher();
+        fetcher.setConnectTimeout(connectTimeout);
+        fetcher.setReadTimeout(readTimeout);
+        urls = getDistinctUrls(fetcher, urls);
+
+        List<Callable<Boolean>> tasks = new ArrayList<Callable<Boolean>>();
+        for (final URL url : urls) {
+            tasks.add(new Callable<Boolean>() {
+
+                public Boolean call() throws IOException {
+                    return fetcher.fetch(url);
+                }
+            });
+        }
+
+        Map<URL, Throwable> failures = new LinkedHashMap<URL, Throwable>();
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(urls.size(), MAX_FETCH_THREADS),
+                threadFactory);
+        try {
+            List<Future<Boolean>> futures = executor.invokeAll(tasks);
+            for (int i = 0; i < urls.size(); i++) {
+                try {
+                    futures.get(i).get();
+                } catch (ExecutionException e) {
+                    URL url = urls.get(i);
+                    if (fetcher.getFile(url).exists()) {
+                        this.log.warn("Can't fetch " + url + ", using the copy of the last fetch: "
+                                + e.getCause().getMessage());
+                    } else {
+                        this.log.error("Can't fetch " + url + ": " + e.getCause().getMessage());
+                        failures.put(url, e.getCause());
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MavenReportException("Fetching the WADL files was interrupted.");
+        } finally {
+            executor.shutdownNow();
+            AbstractWadlDocumentationMojo.awaitTermination(executor);
+        }
+
+        try {
+            fetcher.store();
+        } catch (IOException e) {
+            throw new MavenReportException("Can't store the state of the fetched WADL files in "
+                    + this.fetchDirectory, e);
+        }
+        this.log.info("Fetched " + fetcher.getFetched() + " WADL files, " + fetcher.getNotModified()
+                + " were unchanged.");
+
+        if (!failures.isEmpty() && failOnError) {
+            Entry<URL, Throwable> firstFailure = failures.entrySet().iterator().next();
+            MavenReportException exception = new MavenReportException("Can't fetch " + firstFailure.getKey());
+            exception.initCause(firstFailure.getValue());
+            throw exception;
+        }
+        return true;
+    }
+
+    /**
+     * Get the URLs of the WADL files of running services, collected from all WADL sources.
+     */
+    public List<URL> getUrls() throws MavenReportException {
+        List<URL> urls = new ArrayList<URL>();
+        if (this.sources != null) {
+            for (WadlSource source : this.sources) {
+                if (source.getUrls() != null) {
+                    urls.addAll(toUrls(source));
+                }
+            }
+        }
+        return urls;
+    }
+
+    /**
+     * Drop URLs that are listed more than once and make sure that the remaining ones have local copies of their
+     * own. Since the query isn't part of the local copy, e.g. <code>/orders?_wadl</code> and
+     * <code>/orders?v=2</code> would be fetched into the same file.
+     */
+    private static List<URL> getDistinctUrls(WadlFetcher fetcher, List<URL> urls) throws MavenReportException {
+        Map<File, URL> localFiles = new LinkedHashMap<File, URL>();
+        for (URL url : urls) {
+            File localFile = fetcher.getFile(url);
+            URL other = localFiles.get(localFile);
+            if (other == null) {
+                localFiles.put(localFile, url);
+            } else if (!other.toExternalForm().equals(url.toExternalForm())) {
+                throw new MavenReportException("The WADL URLs " + other + " and " + url
+                        + " would be fetched into the same file " + localFile + ". Only one of them can be used.");
+            }
+        }
+        return new ArrayList<URL>(localFiles.values());
+    }
+
+    private static List<URL> toUrls(WadlSource source) throws MavenReportException {
+        Map<String, URL> urls = new LinkedHashMap<String, URL>();
+        for (String url : source.getUrls()) {
+            try {
+                URL parsedUrl = new URL(url.trim());
+                urls.put(parsedUrl.toExternalForm(), parsedUrl);
+            } catch (MalformedURLException e) {
+                throw new MavenReportException("Invalid WADL URL '" + url + "'.", e);
+            }
+        }
+        return new ArrayList<URL>(urls.values());
+    }
+
+    private WadlFetcher loadFetcher() throws MavenReportException {
+        try {
+            return WadlFetcher.load(this.fetchDirectory);
+        } catch (IOException e) {
+            throw new MavenReportException("Can't load the state of the fetched WADL files from "
+                    + this.fetchDirectory, e);
+        }
+    }
+}
@@ -0,0 +1,65 @@
+/*
+ * Licensed to Indoqa Software Design und Beratung GmbH (Indoqa) 
+ * under one or more contributor license agreements. See the NOTICE 
+ * file distributed with this work for additional information
+ * regarding copyright ownership. Indoqa licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.indoqa.maven.wadldoc;
+
+import java.util.List;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.reporting.MavenReportException;
+
+/**
+ * Validates the WADL files against the schema of WADL and the XSD grammars they include, without generating any
+ * documentation. The WADL files are found like by the <code>restapi</code> goal and validated in parallel, using
+ * the configured number of threads. All errors are reported with their file and line and fail the build.
+ * 
+ * @goal validate
+ * @requiresDependencyResolution runtime
+ * @since 1.0.0
+ */
+public class WadlValidateMojo extends AbstractWadlDocumentationMojo {
+
+    public void execute() throws MojoExecutionException, MojoFailureException {
+        if (this.skip) {
+            this.getLog().info("Skipping the validation of the WADL files");
+            return;
+        }
+
+        try {
+            this.fetchWadlFiles();
+            List<WadlFile> wadlFiles = this.scanWadlFiles();
+            if (wadlFiles.isEmpty()) {
+                this.getLog().info("No WADL files. Nothing to do.");
+                return;
+            }
+
+            long start = System.nanoTime();
+            int invalidFiles = this.validateWadlFiles(wadlFiles).size();
+            if (invalidFiles > 0) {
+                throw new MojoFailureException(invalidFiles + " of " + wadlFiles.size()
+                        + " WADL files are invalid.");
+            }
+            this.getLog().info(
+                    "Validated " + wadlFiles.size() + " WADL files in " + (System.nanoTime() - start) / 1000000
+                            + " ms.");
+        } catch (MavenReportException e) {
+            throw new MojoExecutionException(e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,428 @@
+/*
+ * Licensed to Indoqa Software Design und Beratung GmbH (Indoqa) 
+ * under one or more contributor license agreements. See the NOTICE 
+ * file distributed with this work for additional information
+ * regarding copyright ownership. Indoqa licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.indoqa.maven.wadldoc;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+import javax.xml.XMLConstants;
+import javax.xml.transform.Source;
+import javax.xml.transform.stream.StreamSource;
+import javax.xml.validation.Schema;
+import javax.xml.validation.SchemaFactory;
+import javax.xml.validation.ValidatorHandler;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang.StringUtils;
+import org.apache.commons.lang.Validate;
+import org.xml.sax.Attributes;
+import org.xml.sax.ContentHandler;
+import org.xml.sax.ErrorHandler;
+import org.xml.sax.Locator;
+import org.xml.sax.SAXException;
+import org.xml.sax.SAXNotRecognizedException;
+import org.xml.sax.SAXNotSupportedException;
+import org.xml.sax.SAXParseException;
+import org.xml.sax.XMLReader;
+import org.xml.sax.helpers.DefaultHandler;
+
+import com.indoqa.maven.wadldoc.transformation.XmlParsers;
+
+/**
+ * Validates WADL documents against the schema of WADL and the XSD grammars they include via
+ * <code>wadl:grammars/wadl:include</code>, so that content of the grammars' namespaces, e.g. in extension
+ * elements or in the documentation, is validated, too.
+ * <p>
+ * The schemas are compiled once per combination of grammars and shared by all threads, no matter whether they
+ * validate sequentially or in parallel. The WADL documents are streamed through a SAX validator without building a
+ * tree. Grammars that aren't local files or classpath resources are skipped, so that the validation works offline.
+ */
+public final class WadlValidator {
+
+    private static final String ATT_HREF = "href";
+    private static final String EL_DOC = "doc";
+    private static final String EL_GRAMMARS = "grammars";
+    private static final String EL_INCLUDE = "include";
+    private static final String HONOUR_ALL_SCHEMA_LOCATIONS =
+            "http://apache.org/xml/features/honour-all-schemaLocations";
+    private static final String NS_WADL = "http://research.sun.com/wadl/2006/10";
+    private static final String WADL_SCHEMA = "com/indoqa/maven/wadldoc/schema/wadl.xsd";
+
+    private static final ConcurrentMap<String, CacheEntry> CACHE = new ConcurrentHashMap<String, CacheEntry>();
+
+    private static SchemaFactory schemaFactory;
+
+    private WadlValidator() {
+        // hide utility class constructor
+    }
+
+    public static void clear() {
+        CACHE.clear();
+    }
+
+    /**
+     * Format a problem as <code>file:line:column: message</code>.
+     */
+    public static String format(SAXParseException problem) {
+        StringBuilder location = new StringBuilder();
+        String systemId = problem.getSystemId();
+        if (systemId != null && systemId.startsWith("file:")) {
+            try {
+                systemId = FileUtils.toFile(new URL(systemId)).getPath();
+            } catch (MalformedURLException e) {
+                // keep the system id
+            }
+        }
+        location.append(StringUtils.defaultIfEmpty(systemId, "[unknown]"));
+        if (problem.getLineNumber() > 0) {
+            location.append(':').append(problem.getLineNumber());
+            if (problem.getColumnNumber() > 0) {
+                location.append(':').append(problem.getColumnNumber());
+            }
+        }
+        return location.append(": ").append(problem.getMessage()).toString();
+    }
+
+    /**
+     * Validate a WADL document and return all problems in the order they have been found: those of the WADL
+     * document itself and those of the grammars it includes. A valid document has no problems.
+     */
+    public static List<SAXParseException> validate(URL wadl) {
+        Validate.notNull(wadl, "A WADL URL object has to be passed.");
+
+        List<SAXParseException> problems = new ArrayList<SAXParseException>();
+        List<SAXParseException> grammarProblems = new ArrayList<SAXParseException>();
+        List<URL> grammars = readGrammars(wadl, grammarProblems, problems);
+        if (!problems.isEmpty()) {
+            // the document isn't even well-formed
+            return problems;
+        }
+        // grammars that can't be read are skipped, the document is validated anyway
+        problems.addAll(grammarProblems);
+
+        ProblemCollector problemCollector = new ProblemCollector(problems);
+        ValidatorHandler validatorHandler = getSchema(grammars, problems).newValidatorHandler();
+        validatorHandler.setErrorHandler(problemCollector);
+        parse(wadl, validatorHandler, problemCollector, problems);
+        return problems;
+    }
+
+    private static CompiledSchema compile(List<URL> grammars) throws SAXException {
+        List<Source> sources = new ArrayList<Source>();
+        sources.add(new StreamSource(WadlValidator.class.getClassLoader().getResource(WADL_SCHEMA)
+                .toExternalForm()));
+        for (URL grammar : grammars) {
+            sources.add(new StreamSource(grammar.toExternalForm()));
+        }
+
+        List<SAXParseException> problems = new ArrayList<SAXParseException>();
+        SchemaFactory factory = getSchemaFactory();
+
+        // SchemaFactory implementations aren't required to be thread-safe
+        synchronized (factory) {
+            factory.setErrorHandler(new ProblemCollector(problems));
+            try {
+                Schema schema = factory.newSchema(sources.toArray(new Source[sources.size()]));
+                return new CompiledSchema(schema, problems);
+            } catch (SAXException e) {
+                if (grammars.isEmpty()) {
+                    throw e;
+                }
+                problems.add(e instanceof SAXParseException ? (SAXParseException) e : new SAXParseException(e
+                        .getMessage(), null, null, -1, -1, e));
+            } finally {
+                factory.setErrorHandler(null);
+            }
+        }
+
+        // the grammars are broken -> validate against the schema of WADL alone and report the grammars' problems
+        return new CompiledSchema(getSchema(Collections.<URL> emptyList(), null), problems);
+    }
+
+    private static long getLastModified(URL url) {
+        if ("file".equals(url.getProtocol())) {
+            return FileUtils.toFile(url).lastModified();
+        }
+
+        try {
+            return url.openConnection().getLastModified();
+        } catch (IOException e) {
+            // the grammar will fail later, when it's compiled
+            return 0;
+        }
+    }
+
+    /**
+     * Get the compiled schema for the passed grammars and add the problems found while compiling them to
+     * <code>problems</code>.
+     */
+    private static Schema getSchema(final List<URL> grammars, List<SAXParseException> problems) {
+        String key = grammars.toString();
+        StringBuilder lastModified = new StringBuilder();
+        for (URL grammar : grammars) {
+            lastModified.append(getLastModified(grammar)).append(' ');
+        }
+
+        while (true) {
+            CacheEntry entry = CACHE.get(key);
+            if (entry == null || !entry.getLastModified().equals(lastModified.toString())) {
+                CacheEntry newEntry = new CacheEntry(lastModified.toString(), new FutureTask<CompiledSchema>(
+                        new Callable<CompiledSchema>() {
+
+                            public CompiledSchema call() throws Exception {
+                                return compile(grammars);
+                            }
+                        }));
+                boolean replaced = entry == null ? CACHE.putIfAbsent(key, newEntry) == null : CACHE.replace(key,
+                        entry, newEntry);
+                if (!replaced) {
+                    // another thread installed an entry in the meantime -> look again
+                    continue;
+                }
+
+                newEntry.compile();
+                entry = newEntry;
+            }
+
+            CompiledSchema compiledSchema = entry.getCompiledSchema();
+            if (problems != null) {
+                problems.addAll(compiledSchema.getProblems());
+            }
+            return compiledSchema.getSchema();
+        }
+    }
+
+    private static synchronized SchemaFactory getSchemaFactory() {
+        if (schemaFactory == null) {
+            schemaFactory = SchemaFactory.newInstance(XMLConstants.W3C_XML_SCHEMA_NS_URI);
+            schemaFactory.setResourceResolver(XmlParsers.createResourceResolver());
+            try {
+                // grammars with the same target namespace are all loaded and not only the first one
+                schemaFactory.setFeature(HONOUR_ALL_SCHEMA_LOCATIONS, true);
+            } catch (SAXNotRecognizedException e) {
+                // not a Xerces schema factory
+            } catch (SAXNotSupportedException e) {
+                // not a Xerces schema factory
+            }
+        }
+        return schemaFactory;
+    }
+
+    private static boolean isLocal(URL url) {
+        return "file".equals(url.getProtocol()) || "jar".equals(url.getProtocol());
+    }
+
+    private static void parse(URL wadl, ContentHandler handler, ErrorHandler errorHandler,
+            List<SAXParseException> problems) {
+        try {
+            XMLReader reader = XmlParsers.getReader();
+            reader.setContentHandler(handler);
+            reader.setErrorHandler(errorHandler);
+            try {
+                reader.parse(wadl.toExternalForm());
+            } catch (StopParsingException e) {
+                // everything needed has been read, the parser can still be reused
+            }
+            XmlParsers.releaseReader(reader);
+        } catch (SAXParseException e) {
+            problems.add(e);
+        } catch (SAXException e) {
+            problems.add(new SAXParseException(e.getMessage(), null, wadl.toExternalForm(), -1, -1, e));
+        } catch (IOException e) {
+            problems.add(new SAXParseException("Can't read the WADL document: " + e.getMessage(), null, wadl
+                    .toExternalForm(), -1, -1, e));
+        }
+    }
+
+    /**
+     * Read the local grammars included by a WADL document. Only the beginning of the document is read, up to the
+     * end of <code>wadl:grammars</code>. Included grammars that can't be read are reported as problems.
+     */
+    /**
+     * Read the grammars the WADL document includes. Grammars that can't be read are added to
+     * <code>grammarProblems</code>, fatal errors of the WADL document itself to <code>problems</code>.
+     */
+    private static List<URL> readGrammars(URL wadl, List<SAXParseException> grammarProblems,
+            List<SAXParseException> problems) {
+        GrammarCollector grammarCollector = new GrammarCollector(grammarProblems);
+        // errors that aren't fatal are reported by the validation
+        parse(wadl, grammarCollector, null, problems);
+        return grammarCollector.getGrammars();
+    }
+
+    private static class CacheEntry {
+
+        private final String lastModified;
+        private final FutureTask<CompiledSchema> compiledSchema;
+
+        public CacheEntry(String lastModified, FutureTask<CompiledSchema> compiledSchema) {
+            this.lastModified = lastModified;
+            this.compiledSchema = compiledSchema;
+        }
+
+        public void compile() {
+            this.compiledSchema.run();
+        }
+
+        public CompiledSchema getCompiledSchema() {
+            try {
+                return this.compiledSchema.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("The compilation of the schema was interrupted.", e);
+            } catch (ExecutionException e) {
+                // the schema of WADL is part of the plugin and has to compile
+                throw new IllegalStateException("Can't compile the schema of WADL.", e.getCause());
+            }
+        }
+
+        public String getLastModified() {
+            return this.lastModified;
+        }
+    }
+
+    private static class CompiledSchema {
+
+        private final Schema schema;
+        private final List<SAXParseException> problems;
+
+        public CompiledSchema(Schema schema, List<SAXParseException> problems) {
+            this.schema = schema;
+            this.problems = problems;
+        }
+
+        public List<SAXParseException> getProblems() {
+            return this.problems;
+        }
+
+        public Schema getSchema() {
+            return this.schema;
+        }
+    }
+
+    /**
+     * Collects the <code>wadl:grammars/wadl:include/@href</code> references and stops the parser as soon as the
+     * grammars have been read.
+     */
+    private static class GrammarCollector extends DefaultHandler {
+
+        private final List<URL> grammars = new ArrayList<URL>();
+        private final List<SAXParseException> problems;
+
+        private Locator locator;
+        private int depth;
+        private boolean inGrammars;
+
+        public GrammarCollector(List<SAXParseException> problems) {
+            this.problems = problems;
+        }
+
+        @Override
+        public void endElement(String uri, String localName, String name) throws SAXException {
+            this.depth--;
+            if (this.inGrammars && this.depth == 1) {
+                throw new StopParsingException();
+            }
+        }
+
+        public List<URL> getGrammars() {
+            return this.grammars;
+        }
+
+        @Override
+        public void setDocumentLocator(Locator locator) {
+            this.locator = locator;
+        }
+
+        @Override
+        public void startElement(String uri, String localName, String name, Attributes atts)
+                throws SAXException {
+            this.depth++;
+            if (this.depth == 2) {
+                if (!NS_WADL.equals(uri) || !EL_DOC.equals(localName) && !EL_GRAMMARS.equals(localName)) {
+                    // the grammars come right after the documentation of the application
+                    throw new StopParsingException();
+                }
+                this.inGrammars = EL_GRAMMARS.equals(localName);
+            } else if (this.inGrammars && this.depth == 3 && NS_WADL.equals(uri) && EL_INCLUDE.equals(localName)
+                    && atts.getValue(ATT_HREF) != null) {
+                this.addGrammar(atts.getValue(ATT_HREF));
+            }
+        }
+
+        private void addGrammar(String href) {
+            try {
+                URL grammar = new URL(new URL(this.locator.getSystemId()), href);
+                if (!isLocal(grammar)) {
+                    return;
+                }
+
+                // check that the grammar can be read so that the problem is reported where it's included
+                InputStream inputStream = grammar.openStream();
+                IOUtils.closeQuietly(inputStream);
+                this.grammars.add(grammar);
+            } catch (IOException e) {
+                this.problems.add(new SAXParseException("Can't read the grammar " + href + ": " + e.getMessage(),
+                        this.locator, e));
+            }
+        }
+    }
+
+    private static class ProblemCollector implements ErrorHandler {
+
+        private final List<SAXParseException> problems;
+
+        public ProblemCollector(List<SAXParseException> problems) {
+            this.problems = problems;
+        }
+
+        public void error(SAXParseException exception) {
+            this.problems.add(exception);
+        }
+
+        public void fatalError(SAXParseException exception) throws SAXException {
+            // reported by the caller that gets the exception
+            throw exception;
+        }
+
+        public void warning(SAXParseException exception) {
+            // warnings aren't problems
+        }
+    }
+
+    /**
+     * Stops the parser once it has read everything needed.
+     */
+    private static class StopParsingException extends SAXException {
+
+        private static final long serialVersionUID = 1L;
+    }
+}
@@ -0,0 +1,182 @@
+/*
+ * Licensed to Indoqa Software Design und Beratung GmbH (Indoqa) 
+ * under one or more contributor license agreements. See the NOTICE 
+ * file distributed with this work for additional information
+ * regarding copyright ownership. Indoqa licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.indoqa.maven.wadldoc;
+
+import java.io.File;
+import java.nio.file.WatchService;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.reporting.MavenReportException;
+
+/**
+ * Generates the documentation like the <code>restapi</code> goal and then keeps watching the WADL files and all
+ * the documents they reference. Whenever some of them change, the documentation is generated again,
+ * incrementally, i.e. only the changed WADL files and the index pages are rendered again. The JVM, the compiled
+ * stylesheets and the parsed referenced documents stay warm between the runs. The goal runs until it is stopped
+ * with Ctrl-C.
+ * <p>
+ * The directories of the WADL files and of the referenced documents are watched with a {@link WatchService}. If
+ * the file system doesn't support it, the files are polled instead.
+ * 
+ * @goal watch
+ * @requiresDependencyResolution runtime
+ * @since 1.0.0
+ */
+public class WadlWatchMojo extends AbstractWadlDocumentationMojo {
+
+    /**
+     * Specifies the interval in milliseconds in which the WADL files are checked for changes if the file system
+     * doesn't report them.
+     * 
+     * @parameter expression="${maven.restapidocs.pollInterval}" default-value="500"
+     */
+    private int pollInterval;
+
+    /**
+     * Specifies how long in milliseconds the files have to stay unchanged before the documentation is generated
+     * again, so that a burst of changes, e.g. saving several files at once, results in a single run.
+     * 
+     * @parameter expression="${maven.restapidocs.quietPeriod}" default-value="300"
+     */
+    private int quietPeriod;
+
+    public void execute() throws MojoExecutionException, MojoFailureException {
+        if (this.pollInterval <= 0 || this.quietPeriod < 0) {
+            throw new MojoExecutionException("Invalid poll interval " + this.pollInterval + " or quiet period "
+                    + this.quietPeriod + ". Use a positive number of milliseconds.");
+        }
+
+        // only the changed WADL files are rendered again
+        this.incremental = true;
+
+        try {
+            this.generate();
+            if (this.skip) {
+                return;
+            }
+
+            Map<File, String> snapshot = this.createSnapshot();
+            WadlFileWatcher watcher = new WadlFileWatcher(this.inputDirectory, this.pollInterval, this.getLog());
+            watcher.watch(snapshot.keySet());
+            this.getLog().info("Watching " + snapshot.size() + " files for changes. Press Ctrl-C to stop.");
+
+            try {
+                while (true) {
+                    watcher.awaitChanges();
+                    Map<File, String> changedSnapshot = this.createSnapshot();
+                    // new directories have to be watched as well
+                    watcher.watch(changedSnapshot.keySet());
+                    if (changedSnapshot.equals(snapshot)) {
+                        continue;
+                    }
+
+                    // wait until the burst of changes is over
+                    Map<File, String> quietSnapshot;
+                    while (true) {
+                        Thread.sleep(this.quietPeriod);
+                        quietSnapshot = this.createSnapshot();
+                        if (quietSnapshot.equals(changedSnapshot)) {
+                            break;
+                        }
+                        changedSnapshot = quietSnapshot;
+                    }
+
+                    this.getLog().info("Changed: " + getChangedFiles(snapshot, changedSnapshot));
+                    long start = System.nanoTime();
+                    this.generate();
+                    this.getLog().info(
+                            "Documentation generated in " + (System.nanoTime() - start) / 1000000 + " ms.");
+
+                    snapshot = this.createSnapshot();
+                    watcher.watch(snapshot.keySet());
+                }
+            } finally {
+                watcher.close();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            this.getLog().info("Stopped watching the WADL files.");
+        }
+    }
+
+    /**
+     * Broken WADL files are reported, but the other ones are still rendered and the watching goes on.
+     */
+    @Override
+    protected boolean isFailOnError() {
+        return false;
+    }
+
+    private static Set<File> getChangedFiles(Map<File, String> snapshot, Map<File, String> changedSnapshot) {
+        Set<File> files = new TreeSet<File>();
+        for (Entry<File, String> entry : changedSnapshot.entrySet()) {
+            if (!entry.getValue().equals(snapshot.get(entry.getKey()))) {
+                files.add(entry.getKey());
+            }
+        }
+        for (File file : snapshot.keySet()) {
+            if (!changedSnapshot.containsKey(file)) {
+                files.add(file);
+            }
+        }
+        return files;
+    }
+
+    /**
+     * Get the length and the modification time of all WADL files, including new ones, and of all the documents and
+     * archives they depended on in the last run.
+     */
+    private Map<File, String> createSnapshot() {
+        Set<File> files = new HashSet<File>();
+        try {
+            for (WadlFile wadlFile : this.scanWadlFiles()) {
+                files.add(wadlFile.getFile() != null ? wadlFile.getFile() : wadlFile.getArchive());
+            }
+        } catch (MavenReportException e) {
+            this.getLog().warn("Can't read the WADL files: " + e.getMessage());
+        }
+        if (this.getLastBuildState() != null) {
+            files.addAll(this.getLastBuildState().getTrackedFiles());
+        }
+
+        Map<File, String> snapshot = new HashMap<File, String>();
+        for (File file : files) {
+            if (file.exists()) {
+                snapshot.put(file, file.length() + ":" + file.lastModified());
+            }
+        }
+        return snapshot;
+    }
+
+    private void generate() {
+        try {
+            this.executeReport(Locale.ENGLISH);
+        } catch (MavenReportException e) {
+            this.getLog().error("Can't generate the documentation: " + e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * Licensed to Indoqa Software Design und Beratung GmbH (Indoqa) 
+ * under one or more contributor license agreements. See the NOTICE 
+ * file distributed with this work for additional information
+ * regarding copyright ownership. Indoqa licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.indoqa.maven.wadldoc.transformation;
+
+import java.net.URL;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import javax.xml.transform.sax.SAXResult;
+import javax.xml.transform.sax.TransformerHandler;
+
+import org.apache.cocoon.pipeline.component.sax.AbstractTransformer;
+import org.apache.cocoon.pipeline.component.sax.XMLConsumer;
+import org.apache.cocoon.pipeline.component.sax.XMLConsumerAdapter;
+import org.apache.commons.lang.Validate;
+
+/**
+ * An XSLT transformer that, in contrast to Cocoon's XSLTTransformer, doesn't compile its stylesheet for every
+ * instance but gets it from the {@link TemplatesCache}. The documents loaded with <code>document()</code> are
+ * taken from the {@link ReferencedDocumentCache}.
+ */
+public class CachedXSLTTransformer extends AbstractTransformer {
+
+    private final URL source;
+    private final Map<String, Object> parameters;
+    private URL systemId;
+
+    public CachedXSLTTransformer(URL source) {
+        this(source, null);
+    }
+
+    public CachedXSLTTransformer(URL source, Map<String, Object> parameters) {
+        this(source, parameters, null);
+    }
+
+    /**
+     * @param systemId The URL of the transformed document. Relative URIs passed to <code>document()</code> are
+     *            resolved against it, otherwise against the working directory.
+     */
+    public CachedXSLTTransformer(URL source, Map<String, Object> parameters, URL systemId) {
+        Validate.notNull(source, "The parameter 'source' mustn't be null.");
+        this.source = source;
+        this.parameters = parameters;
+        this.systemId = systemId;
+    }
+
+    @Override
+    protected void setXMLConsumer(XMLConsumer consumer) {
+        TransformerHandler transformerHandler;
+        try {
+            transformerHandler = TemplatesCache.newTransformerHandler(TemplatesCache.getTemplates(this.source));
+        } catch (Exception e) {
+            throw new RuntimeException("Could not initialize transformer handler for " + this.source, e);
+        }
+
+        transformerHandler.getTransformer().setURIResolver(new CachingURIResolver());
+
+        if (this.parameters != null) {
+            for (Entry<String, Object> parameter : this.parameters.entrySet()) {
+                transformerHandler.getTransformer().setParameter(parameter.getKey(), parameter.getValue());
+            }
+        }
+
+        if (this.systemId != null) {
+            transformerHandler.setSystemId(this.systemId.toExternalForm());
+        }
+
+        SAXResult result = new SAXResult();
+        result.setHandler(consumer);
+        result.setLexicalHandler(consumer);
+        transformerHandler.setResult(result);
+
+        super.setXMLConsumer(new XMLConsumerAdapter(transformerHandler, transformerHandler));
+    }
+
+    /**
+     * Change the URL of the transformed document. The transformer handler is created anew each time the pipeline
+     * is set up, so that a reused pipeline can transform the next document with the same transformer.
+     */
+    public void setSystemId(URL systemId) {
+        this.systemId = systemId;
+    }
+
+    @Override
+    public String toString() {
+        return "CachedXSLTTransformer(src=" + this.source + ")";
+    }
+}
@@ -0,0 +1,162 @@
+/*
+ * Licensed to Indoqa Software Design und Beratung GmbH (Indoqa) 
+ * under one or more contributor license agreements. See the NOTICE 
+ * file distributed with this work for additional information
+ * regarding copyright ownership. Indoqa licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.indoqa.maven.wadldoc.transformation;
+
+import java.net.URL;
+
+import javax.xml.transform.Source;
+import javax.xml.transform.TransformerException;
+import javax.xml.transform.URIResolver;
+import javax.xml.transform.sax.SAXSource;
+
+import org.apache.cocoon.pipeline.util.SaxBuffer;
+import org.xml.sax.ContentHandler;
+import org.xml.sax.DTDHandler;
+import org.xml.sax.EntityResolver;
+import org.xml.sax.ErrorHandler;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.SAXNotRecognizedException;
+import org.xml.sax.XMLReader;
+
+import com.indoqa.maven.wadldoc.transformation.ReferencedDocumentCache.DocumentLoader;
+
+/**
+ * A {@link URIResolver} that serves the documents loaded by the <code>document()</code> function of the
+ * stylesheet from the {@link ReferencedDocumentCache}. A document is parsed once into a {@link SaxBuffer} and
+ * replayed for every transformation that references it, so that the transformer builds exactly the same tree as
+ * if it had parsed the document itself. If a document can't be loaded, the problem is reported to the transformer
+ * as a {@link TransformerException}.
+ */
+public class CachingURIResolver implements URIResolver {
+
+    private static final String LEXICAL_HANDLER = "http://xml.org/sax/properties/lexical-handler";
+    private static final DocumentLoader<SaxBuffer> SAX_BUFFER_LOADER = new SaxBufferLoader();
+
+    public Source resolve(String href, String base) throws TransformerException {
+        try {
+            URL url = base == null ? new URL(href) : new URL(new URL(base), href);
+            SaxBuffer document = ReferencedDocumentCache.getDocument(url, SAX_BUFFER_LOADER);
+
+            InputSource inputSource = new InputSource(url.toExternalForm());
+            return new SAXSource(new SaxBufferReader(document), inputSource);
+        } catch (Exception e) {
+            throw new TransformerException("Can't load the referenced document " + href, e);
+        }
+    }
+
+    private static class SaxBufferLoader implements DocumentLoader<SaxBuffer> {
+
+        public Class<SaxBuffer> getType() {
+            return SaxBuffer.class;
+        }
+
+        public SaxBuffer load(URL url) throws Exception {
+            XMLReader xmlReader = XmlParsers.getReader();
+
+            SaxBuffer saxBuffer = new SaxBuffer();
+            xmlReader.setContentHandler(saxBuffer);
+            xmlReader.setProperty(LEXICAL_HANDLER, saxBuffer);
+            xmlReader.parse(url.toExternalForm());
+            XmlParsers.releaseReader(xmlReader);
+            return saxBuffer;
+        }
+    }
+
+    /**
+     * An {@link XMLReader} that replays a recorded document instead of parsing it. The recording is never
+     * modified, so any number of readers can replay it at the same time.
+     */
+    private static class SaxBufferReader implements XMLReader {
+
+        private final SaxBuffer saxBuffer;
+
+        private ContentHandler contentHandler;
+        private DTDHandler dtdHandler;
+        private EntityResolver entityResolver;
+        private ErrorHandler errorHandler;
+
+        public SaxBufferReader(SaxBuffer saxBuffer) {
+            this.saxBuffer = saxBuffer;
+        }
+
+        public ContentHandler getContentHandler() {
+            return this.contentHandler;
+        }
+
+        public DTDHandler getDTDHandler() {
+            return this.dtdHandler;
+        }
+
+        public EntityResolver getEntityResolver() {
+            return this.entityResolver;
+        }
+
+        public ErrorHandler getErrorHandler() {
+            return this.errorHandler;
+        }
+
+        public boolean getFeature(String name) throws SAXNotRecognizedException {
+            if ("http://xml.org/sax/features/namespaces".equals(name)) {
+                return true;
+            }
+            if ("http://xml.org/sax/features/namespace-prefixes".equals(name)) {
+                return false;
+            }
+            throw new SAXNotRecognizedException(name);
+        }
+
+        public Object getProperty(String name) throws SAXNotRecognizedException {
+            throw new SAXNotRecognizedException(name);
+        }
+
+        public void parse(InputSource input) throws SAXException {
+            // lexical events are passed on if the content handler is a lexical handler too
+            this.saxBuffer.toSAX(this.contentHandler);
+        }
+
+        public void parse(String systemId) throws SAXException {
+            this.saxBuffer.toSAX(this.contentHandler);
+        }
+
+        public void setContentHandler(ContentHandler handler) {
+            this.contentHandler = handler;
+        }
+
+        public void setDTDHandler(DTDHandler handler) {
+            this.dtdHandler = handler;
+        }
+
+        public void setEntityResolver(EntityResolver resolver) {
+            this.entityResolver = resolver;
+        }
+
+        public void setErrorHandler(ErrorHandler handler) {
+            this.errorHandler = handler;
+        }
+
+        public void setFeature(String name, boolean value) {
+            // the recording is replayed as it is
+        }
+
+        public void setProperty(String name, Object value) {
+            // the lexical handler is the content handler
+        }
+    }
+}
@@ -18,12 +18,16 @@
  */
 package com.indoqa.maven.wadldoc.transformation;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import org.apache.cocoon.pipeline.component.sax.AbstractTransformer;
 import org.xml.sax.Attributes;
 import org.xml.sax.SAXException;
 
 /**
- * This transformer escapes HTML representations.
+ * This transformer escapes HTML representations. The markup of the representations is turned into character
+ * events that are written from a reusable buffer, so that no intermediate Strings are created per element.
  */
 public class EscapingTransformer extends AbstractTransformer {
 
@@ -33,10 +37,15 @@ public class EscapingTransformer extends AbstractTransformer {
     private static final String EL_REPRESENTATION = "representation";
     private static final String EL_FAULT = "fault";
     private static final String NS_WADL = "http://research.sun.com/wadl/2006/10";
+    private static final String XMLNS = "xmlns";
 
     private boolean inDocElement;
     private boolean inRepOrFault;
 
+    private char[] buffer = new char[256];
+    private int length;
+    private final List<String> prefixMappings = new ArrayList<String>();
+
     @Override
     public void endElement(String uri, String localName, String name) throws SAXException {
         if (EL_DOC.equals(localName) && NS_WADL.equals(uri)) {
@@ -50,7 +59,7 @@ public class EscapingTransformer extends AbstractTransformer {
             this.inRepOrFault = false;
         }
 
-        if (this.inDocElement && this.inRepOrFault) {
+        if (this.isEscaping()) {
             this.escapeEndElement(name);
         } else {
             super.endElement(uri, localName, name);
@@ -59,11 +68,12 @@ public class EscapingTransformer extends AbstractTransformer {
 
     @Override
     public void startElement(String uri, String localName, String name, Attributes atts) throws SAXException {
-        if (this.inDocElement && this.inRepOrFault) {
+        if (this.isEscaping()) {
             this.escapeStartElement(name, atts);
         } else {
             super.startElement(uri, localName, name, atts);
         }
+        this.prefixMappings.clear();
 
         if (EL_DOC.equals(localName) && NS_WADL.equals(uri)) {
             this.inDocElement = true;
@@ -80,24 +90,99 @@ public class EscapingTransformer extends AbstractTransformer {
 
     }
 
+    @Override
+    public void startPrefixMapping(String prefix, String uri) throws SAXException {
+        if (this.isEscaping()) {
+            // remember the namespace declaration so that it becomes part of the escaped start tag
+            this.prefixMappings.add(prefix);
+            this.prefixMappings.add(uri);
+        }
+
+        super.startPrefixMapping(prefix, uri);
+    }
+
+    private void append(char c) {
+        this.ensureCapacity(1);
+        this.buffer[this.length++] = c;
+    }
+
+    private void append(String string) {
+        int stringLength = string.length();
+        this.ensureCapacity(stringLength);
+        string.getChars(0, stringLength, this.buffer, this.length);
+        this.length += stringLength;
+    }
+
+    private void appendAttribute(String name, String value) {
+        this.append(' ');
+        this.append(name);
+        this.append('=');
+        this.append('"');
+        this.appendEscaped(value);
+        this.append('"');
+    }
+
+    /**
+     * Append an attribute value as it would have to be written in the markup, i.e. with quotes, ampersands and
+     * less-than signs escaped.
+     */
+    private void appendEscaped(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    this.append("&quot;");
+                    break;
+                case '&':
+                    this.append("&amp;");
+                    break;
+                case '<':
+                    this.append("&lt;");
+                    break;
+                default:
+                    this.append(c);
+            }
+        }
+    }
+
+    private void ensureCapacity(int additionalLength) {
+        int requiredLength = this.length + additionalLength;
+        if (requiredLength > this.buffer.length) {
+            char[] newBuffer = new char[Math.max(requiredLength, this.buffer.length * 2)];
+            System.arraycopy(this.buffer, 0, newBuffer, 0, this.length);
+            this.buffer = newBuffer;
+        }
+    }
+
     private void escapeEndElement(String name) throws SAXException {
-        char[] chars = ("</" + name + ">").toCharArray();
-        this.characters(chars, 0, chars.length);
+        this.append('<');
+        this.append('/');
+        this.append(name);
+        this.append('>');
+        this.flush();
     }
 
     private void escapeStartElement(String name, Attributes atts) throws SAXException {
-        StringBuilder sb = new StringBuilder();
-        sb.append("<").append(name);
+        this.append('<');
+        this.append(name);
+        for (int i = 0; i < this.prefixMappings.size(); i += 2) {
+            String prefix = this.prefixMappings.get(i);
+            String attributeName = prefix.length() == 0 ? XMLNS : XMLNS + ':' + prefix;
+            this.appendAttribute(attributeName, this.prefixMappings.get(i + 1));
+        }
         for (int i = 0; i < atts.getLength(); i++) {
-            sb.append(" ");
-            sb.append(atts.getQName(i));
-            sb.append("=\"");
-            sb.append(atts.getValue(i));
-            sb.append("\"");
+            this.appendAttribute(atts.getQName(i), atts.getValue(i));
         }
-        sb.append(">");
+        this.append('>');
+        this.flush();
+    }
+
+    private void flush() throws SAXException {
+        this.characters(this.buffer, 0, this.length);
+        this.length = 0;
+    }
 
-        char[] chars = sb.toString().toCharArray();
-        this.characters(chars, 0, chars.length);
+    private boolean isEscaping() {
+        return this.inDocElement && this.inRepOrFault;
     }
 }
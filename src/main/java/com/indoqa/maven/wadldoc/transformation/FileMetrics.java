@@ -0,0 +1,155 @@
+/*
+ * Licensed to Indoqa Software Design und Beratung GmbH (Indoqa) 
+ * under one or more contributor license agreements. See the NOTICE 
+ * file distributed with this work for additional information
+ * regarding copyright ownership. Indoqa licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.indoqa.maven.wadldoc.transformation;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The metrics of the transformation of one WADL file: the time, the bytes read and written and the time and the
+ * number of SAX events of each stage, i.e. of each pipeline component and of the reading and expanding steps of
+ * the {@link StaxWadlRenderer}. Stages that are run several times for the same file (e.g. one pipeline per page)
+ * are summed up. The metrics can be updated by several threads at once.
+ */
+public final class FileMetrics {
+
+    private static final ThreadLocal<FileMetrics> CURRENT = new ThreadLocal<FileMetrics>();
+
+    private final String name;
+    private final Map<String, Stage> stages = new LinkedHashMap<String, Stage>();
+    private long nanos;
+    private long bytesIn;
+    private long bytesOut;
+
+    public FileMetrics(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Get the metrics the stages running in the current thread are recorded in, if any.
+     */
+    static FileMetrics getCurrent() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Record the time since <code>start</code> as a stage of the current metrics, if there are any.
+     * 
+     * @return The current time, i.e. the start of the next stage.
+     */
+    static long recordStage(String stageName, long start) {
+        long now = System.nanoTime();
+        FileMetrics metrics = getCurrent();
+        if (metrics != null) {
+            metrics.addStage(stageName, now - start, 0);
+        }
+        return now;
+    }
+
+    static void setCurrent(FileMetrics metrics) {
+        if (metrics == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(metrics);
+        }
+    }
+
+    public synchronized void addBytesIn(long bytes) {
+        this.bytesIn += bytes;
+    }
+
+    public synchronized void addBytesOut(long bytes) {
+        this.bytesOut += bytes;
+    }
+
+    public synchronized void addNanos(long time) {
+        this.nanos += time;
+    }
+
+    public synchronized void addStage(String stageName, long time, long events) {
+        Stage stage = this.stages.get(stageName);
+        if (stage == null) {
+            stage = new Stage(stageName);
+            this.stages.put(stageName, stage);
+        }
+        stage.add(time, events);
+    }
+
+    public synchronized long getBytesIn() {
+        return this.bytesIn;
+    }
+
+    public synchronized long getBytesOut() {
+        return this.bytesOut;
+    }
+
+    public String getName() {
+        return this.name;
+    }
+
+    public synchronized long getNanos() {
+        return this.nanos;
+    }
+
+    /**
+     * Get copies of the stages in the order in which they have been run first.
+     */
+    public synchronized List<Stage> getStages() {
+        List<Stage> result = new ArrayList<Stage>();
+        for (Stage stage : this.stages.values()) {
+            Stage copy = new Stage(stage.getName());
+            copy.add(stage.getNanos(), stage.getEvents());
+            result.add(copy);
+        }
+        return result;
+    }
+
+    /**
+     * The time spent in a stage and the number of SAX events it produced.
+     */
+    public static final class Stage {
+
+        private final String name;
+        private long nanos;
+        private long events;
+
+        public Stage(String name) {
+            this.name = name;
+        }
+
+        public void add(long time, long eventCount) {
+            this.nanos += time;
+            this.events += eventCount;
+        }
+
+        public long getEvents() {
+            return this.events;
+        }
+
+        public String getName() {
+            return this.name;
+        }
+
+        public long getNanos() {
+            return this.nanos;
+        }
+    }
+}
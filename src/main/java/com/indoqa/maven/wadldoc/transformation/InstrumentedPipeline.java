@@ -0,0 +1,257 @@
+/*
+ * Licensed to Indoqa Software Design und Beratung GmbH (Indoqa) 
+ * under one or more contributor license agreements. See the NOTICE 
+ * file distributed with this work for additional information
+ * regarding copyright ownership. Indoqa licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.indoqa.maven.wadldoc.transformation;
+
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.Map;
+
+import org.apache.cocoon.pipeline.NonCachingPipeline;
+import org.apache.cocoon.pipeline.component.PipelineComponent;
+import org.apache.cocoon.pipeline.component.sax.AbstractTransformer;
+import org.xml.sax.Attributes;
+import org.xml.sax.Locator;
+import org.xml.sax.SAXException;
+
+/**
+ * A non-caching pipeline that records the time and the SAX events of each of its components in the
+ * {@link FileMetrics} of the current thread, if there are any. A probe is put behind each component except the
+ * last one. It counts the events the component produces and measures the time spent in the components behind it,
+ * so that the time of each component is the difference between the times measured by the probes around it.
+ * <p>
+ * The probes measure every single SAX event, which slows the pipeline down a little. Without metrics, the pipeline
+ * is a plain {@link NonCachingPipeline}.
+ * <p>
+ * The pipeline can be set up and executed several times, e.g. by the {@link XsltPipelineFactory}. The metrics are
+ * looked up and the probes are put in place again on each setup.
+ */
+final class InstrumentedPipeline extends NonCachingPipeline {
+
+    private FileMetrics metrics;
+    private final List<String> names = new ArrayList<String>();
+    private final List<Probe> probes = new ArrayList<Probe>();
+
+    @Override
+    public void execute() throws Exception {
+        if (this.metrics == null) {
+            super.execute();
+            return;
+        }
+
+        long start = System.nanoTime();
+        super.execute();
+        long total = System.nanoTime() - start;
+
+        // the time of each component is the time of the previous one minus the time of the following ones
+        long upstream = total;
+        for (int i = 0; i < this.names.size(); i++) {
+            long downstream = 0;
+            long events = 0;
+            if (i < this.probes.size()) {
+                downstream = this.probes.get(i).getNanos();
+                events = this.probes.get(i).getEvents();
+            }
+            this.metrics.addStage(this.names.get(i), upstream - downstream, events);
+            upstream = downstream;
+        }
+    }
+
+    @Override
+    protected void setupComponents(OutputStream outputStream, Map<String, Object> parameters) {
+        this.removeProbes();
+        this.metrics = FileMetrics.getCurrent();
+        if (this.metrics != null) {
+            this.addProbes();
+        }
+        super.setupComponents(outputStream, parameters);
+    }
+
+    private void addProbes() {
+        ListIterator<PipelineComponent> components = this.getComponents().listIterator();
+        while (components.hasNext()) {
+            PipelineComponent component = components.next();
+            this.names.add(component.getClass().getSimpleName());
+            if (components.hasNext()) {
+                Probe probe = new Probe();
+                components.add(probe);
+                this.probes.add(probe);
+            }
+        }
+    }
+
+    private void removeProbes() {
+        this.getComponents().removeAll(this.probes);
+        this.names.clear();
+        this.probes.clear();
+    }
+
+    /**
+     * Counts the SAX events passing through and measures the time spent in the following components.
+     */
+    private static class Probe extends AbstractTransformer {
+
+        private long nanos;
+        private long events;
+
+        @Override
+        public void characters(char[] ch, int start, int length) throws SAXException {
+            long time = this.begin();
+            super.characters(ch, start, length);
+            this.end(time);
+        }
+
+        @Override
+        public void comment(char[] ch, int start, int length) throws SAXException {
+            long time = this.begin();
+            super.comment(ch, start, length);
+            this.end(time);
+        }
+
+        @Override
+        public void endCDATA() throws SAXException {
+            long time = this.begin();
+            super.endCDATA();
+            this.end(time);
+        }
+
+        @Override
+        public void endDocument() throws SAXException {
+            long time = this.begin();
+            super.endDocument();
+            this.end(time);
+        }
+
+        @Override
+        public void endDTD() throws SAXException {
+            long time = this.begin();
+            super.endDTD();
+            this.end(time);
+        }
+
+        @Override
+        public void endElement(String uri, String localName, String name) throws SAXException {
+            long time = this.begin();
+            super.endElement(uri, localName, name);
+            this.end(time);
+        }
+
+        @Override
+        public void endEntity(String name) throws SAXException {
+            long time = this.begin();
+            super.endEntity(name);
+            this.end(time);
+        }
+
+        @Override
+        public void endPrefixMapping(String prefix) throws SAXException {
+            long time = this.begin();
+            super.endPrefixMapping(prefix);
+            this.end(time);
+        }
+
+        public long getEvents() {
+            return this.events;
+        }
+
+        public long getNanos() {
+            return this.nanos;
+        }
+
+        @Override
+        public void ignorableWhitespace(char[] ch, int start, int length) throws SAXException {
+            long time = this.begin();
+            super.ignorableWhitespace(ch, start, length);
+            this.end(time);
+        }
+
+        @Override
+        public void processingInstruction(String target, String data) throws SAXException {
+            long time = this.begin();
+            super.processingInstruction(target, data);
+            this.end(time);
+        }
+
+        @Override
+        public void setDocumentLocator(Locator locator) {
+            long time = this.begin();
+            super.setDocumentLocator(locator);
+            this.end(time);
+        }
+
+        @Override
+        public void skippedEntity(String name) throws SAXException {
+            long time = this.begin();
+            super.skippedEntity(name);
+            this.end(time);
+        }
+
+        @Override
+        public void startCDATA() throws SAXException {
+            long time = this.begin();
+            super.startCDATA();
+            this.end(time);
+        }
+
+        @Override
+        public void startDocument() throws SAXException {
+            long time = this.begin();
+            super.startDocument();
+            this.end(time);
+        }
+
+        @Override
+        public void startDTD(String name, String publicId, String systemId) throws SAXException {
+            long time = this.begin();
+            super.startDTD(name, publicId, systemId);
+            this.end(time);
+        }
+
+        @Override
+        public void startElement(String uri, String localName, String name, Attributes atts) throws SAXException {
+            long time = this.begin();
+            super.startElement(uri, localName, name, atts);
+            this.end(time);
+        }
+
+        @Override
+        public void startEntity(String name) throws SAXException {
+            long time = this.begin();
+            super.startEntity(name);
+            this.end(time);
+        }
+
+        @Override
+        public void startPrefixMapping(String prefix, String uri) throws SAXException {
+            long time = this.begin();
+            super.startPrefixMapping(prefix, uri);
+            this.end(time);
+        }
+
+        private long begin() {
+            this.events++;
+            return System.nanoTime();
+        }
+
+        private void end(long start) {
+            this.nanos += System.nanoTime() - start;
+        }
+    }
+}
@@ -0,0 +1,363 @@
+/*
+ * Licensed to Indoqa Software Design und Beratung GmbH (Indoqa) 
+ * under one or more contributor license agreements. See the NOTICE 
+ * file distributed with this work for additional information
+ * regarding copyright ownership. Indoqa licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.indoqa.maven.wadldoc.transformation;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang.Validate;
+
+/**
+ * A process-wide cache of the documents a WADL document references via <code>wadl:include/@href</code>,
+ * <code>wadl:*&#47;@href</code> and <code>wadl:resource/@type</code>. A document that is referenced by many WADL
+ * files (e.g. a common types WADL) is parsed once per URL and last-modified date and then shared by all
+ * transformations, no matter whether they run sequentially or in parallel.
+ * <p>
+ * The last-modified dates of files are checked on every lookup. Documents that are read from other URLs are only
+ * checked once per build (see {@link #checkForUpdates()}), since opening a connection costs about as much as
+ * parsing a small document.
+ * <p>
+ * The cache is bounded by a memory budget. The memory a document occupies is estimated from the size of its
+ * source; if the budget is exceeded, the least recently used documents are evicted.
+ */
+public final class ReferencedDocumentCache {
+
+    public static final long DEFAULT_MEMORY_BUDGET = 64 * 1024 * 1024;
+
+    // a parsed document occupies several times the size of its source
+    private static final int HEAP_BYTES_PER_SOURCE_BYTE = 8;
+
+    // guarded by itself; in access order, i.e. the least recently used entry comes first
+    private static final Map<String, CacheEntry> CACHE = new LinkedHashMap<String, CacheEntry>(16, 0.75f, true);
+    private static final ConcurrentMap<String, AtomicInteger> RESOLUTIONS =
+            new ConcurrentHashMap<String, AtomicInteger>();
+    private static final ConcurrentMap<String, Stamp> STAMPS = new ConcurrentHashMap<String, Stamp>();
+    private static final AtomicLong HITS = new AtomicLong();
+    private static final AtomicLong MISSES = new AtomicLong();
+    private static final AtomicLong EVICTIONS = new AtomicLong();
+
+    private static long memoryBudget = DEFAULT_MEMORY_BUDGET;
+    private static long memoryUsage;
+
+    private ReferencedDocumentCache() {
+        // hide utility class constructor
+    }
+
+    public static void clear() {
+        synchronized (CACHE) {
+            CACHE.clear();
+            memoryUsage = 0;
+        }
+        checkForUpdates();
+        resetStatistics();
+    }
+
+    /**
+     * Make the next lookup of each document check whether it has been modified, even if it isn't a file. Called
+     * at the beginning of each build.
+     */
+    public static void checkForUpdates() {
+        STAMPS.clear();
+    }
+
+    public static long getEvictions() {
+        return EVICTIONS.get();
+    }
+
+    public static long getHits() {
+        return HITS.get();
+    }
+
+    public static long getMemoryBudget() {
+        synchronized (CACHE) {
+            return memoryBudget;
+        }
+    }
+
+    /**
+     * Get the estimated memory occupied by the cached documents in bytes.
+     */
+    public static long getMemoryUsage() {
+        synchronized (CACHE) {
+            return memoryUsage;
+        }
+    }
+
+    public static long getMisses() {
+        return MISSES.get();
+    }
+
+    /**
+     * Get a report of all referenced documents and how often each of them was resolved, the most frequently
+     * resolved first.
+     */
+    public static String getReport() {
+        List<Entry<String, AtomicInteger>> resolutions = new ArrayList<Entry<String, AtomicInteger>>(
+                RESOLUTIONS.entrySet());
+        Collections.sort(resolutions, new Comparator<Entry<String, AtomicInteger>>() {
+
+            public int compare(Entry<String, AtomicInteger> o1, Entry<String, AtomicInteger> o2) {
+                int result = o2.getValue().get() - o1.getValue().get();
+                if (result == 0) {
+                    result = o1.getKey().compareTo(o2.getKey());
+                }
+                return result;
+            }
+        });
+
+        StringBuilder sb = new StringBuilder();
+        sb.append("Referenced document cache: ").append(HITS.get()).append(" hits, ");
+        sb.append(MISSES.get()).append(" misses, ").append(EVICTIONS.get()).append(" evictions, ");
+        sb.append(getSize()).append(" documents cached (~").append(getMemoryUsage() / 1024).append(" of ");
+        sb.append(getMemoryBudget() / 1024).append(" KB)");
+        for (Entry<String, AtomicInteger> each : resolutions) {
+            sb.append("\n  ").append(each.getKey()).append(": resolved ").append(each.getValue().get()).append(
+                    " time(s)");
+        }
+        return sb.toString();
+    }
+
+    public static int getSize() {
+        synchronized (CACHE) {
+            return CACHE.size();
+        }
+    }
+
+    /**
+     * Reset the statistics of the {@link #getReport() report} but keep the cached documents.
+     */
+    public static void resetStatistics() {
+        RESOLUTIONS.clear();
+        HITS.set(0);
+        MISSES.set(0);
+        EVICTIONS.set(0);
+    }
+
+    /**
+     * Set the memory budget in bytes. A budget of 0 disables the cache.
+     */
+    public static void setMemoryBudget(long memoryBudget) {
+        Validate.isTrue(memoryBudget >= 0, "The memory budget mustn't be negative.");
+
+        synchronized (CACHE) {
+            ReferencedDocumentCache.memoryBudget = memoryBudget;
+            evict(null);
+        }
+    }
+
+    /**
+     * Get the document with the passed URL. The cache keeps a separate entry for each type of loader, since the
+     * renderers use different document models.
+     */
+    static <T> T getDocument(final URL url, final DocumentLoader<T> loader) throws Exception {
+        String location = url.toExternalForm();
+        countResolution(location);
+
+        Stamp stamp = getStamp(url, location);
+        long lastModified = stamp.getLastModified();
+        long estimatedSize = stamp.getSourceSize() * HEAP_BYTES_PER_SOURCE_BYTE;
+
+        long budget = getMemoryBudget();
+        if (budget == 0 || estimatedSize > budget) {
+            MISSES.incrementAndGet();
+            return loader.load(url);
+        }
+
+        String key = loader.getClass().getName() + '|' + location;
+        CacheEntry entry;
+        boolean loading = false;
+        synchronized (CACHE) {
+            entry = CACHE.get(key);
+            if (entry == null || entry.getLastModified() != lastModified) {
+                FutureTask<Object> document = new FutureTask<Object>(new Callable<Object>() {
+
+                    public Object call() throws Exception {
+                        return loader.load(url);
+                    }
+                });
+                if (entry != null) {
+                    CACHE.remove(key);
+                    memoryUsage -= entry.getEstimatedSize();
+                }
+                entry = new CacheEntry(lastModified, estimatedSize, document);
+                CACHE.put(key, entry);
+                memoryUsage += estimatedSize;
+                evict(entry);
+                loading = true;
+            }
+        }
+
+        // the document is loaded and waited for without holding the lock, so that a slow document doesn't block
+        // the lookups of all other documents
+        if (!loading) {
+            HITS.incrementAndGet();
+            return loader.getType().cast(entry.getDocument());
+        }
+
+        MISSES.incrementAndGet();
+        entry.load();
+        try {
+            return loader.getType().cast(entry.getDocument());
+        } catch (Exception e) {
+            synchronized (CACHE) {
+                if (CACHE.get(key) == entry) {
+                    CACHE.remove(key);
+                    memoryUsage -= entry.getEstimatedSize();
+                }
+            }
+            throw e;
+        }
+    }
+
+    private static void countResolution(String location) {
+        AtomicInteger count = RESOLUTIONS.get(location);
+        if (count == null) {
+            AtomicInteger newCount = new AtomicInteger();
+            count = RESOLUTIONS.putIfAbsent(location, newCount);
+            if (count == null) {
+                count = newCount;
+            }
+        }
+        count.incrementAndGet();
+    }
+
+    private static Stamp getStamp(URL url, String location) {
+        if ("file".equals(url.getProtocol())) {
+            File file = FileUtils.toFile(url);
+            return new Stamp(file.lastModified(), file.length());
+        }
+
+        Stamp stamp = STAMPS.get(location);
+        if (stamp == null) {
+            try {
+                URLConnection connection = url.openConnection();
+                stamp = new Stamp(connection.getLastModified(), Math.max(0, connection.getContentLength()));
+            } catch (IOException e) {
+                // the loader will fail with a better message
+                stamp = new Stamp(0, 0);
+            }
+            STAMPS.put(location, stamp);
+        }
+        return stamp;
+    }
+
+    /**
+     * Evict the least recently used entries until the cache fits into the memory budget again. Must be called
+     * while holding the lock of the cache.
+     */
+    private static void evict(CacheEntry keep) {
+        Iterator<CacheEntry> iterator = CACHE.values().iterator();
+        while (memoryUsage > memoryBudget && iterator.hasNext()) {
+            CacheEntry entry = iterator.next();
+            if (entry == keep) {
+                continue;
+            }
+
+            iterator.remove();
+            memoryUsage -= entry.getEstimatedSize();
+            EVICTIONS.incrementAndGet();
+        }
+    }
+
+    /**
+     * Loads a referenced document into one of the document models of the renderers.
+     */
+    interface DocumentLoader<T> {
+
+        Class<T> getType();
+
+        T load(URL url) throws Exception;
+    }
+
+    private static class CacheEntry {
+
+        private final long lastModified;
+        private final long estimatedSize;
+        private final FutureTask<Object> document;
+
+        public CacheEntry(long lastModified, long estimatedSize, FutureTask<Object> document) {
+            this.lastModified = lastModified;
+            this.estimatedSize = estimatedSize;
+            this.document = document;
+        }
+
+        public Object getDocument() throws Exception {
+            try {
+                return this.document.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw e;
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof Exception) {
+                    throw (Exception) e.getCause();
+                }
+                throw e;
+            }
+        }
+
+        public long getEstimatedSize() {
+            return this.estimatedSize;
+        }
+
+        public long getLastModified() {
+            return this.lastModified;
+        }
+
+        public void load() {
+            this.document.run();
+        }
+    }
+
+    private static class Stamp {
+
+        private final long lastModified;
+        private final long sourceSize;
+
+        public Stamp(long lastModified, long sourceSize) {
+            this.lastModified = lastModified;
+            this.sourceSize = sourceSize;
+        }
+
+        public long getLastModified() {
+            return this.lastModified;
+        }
+
+        public long getSourceSize() {
+            return this.sourceSize;
+        }
+    }
+}
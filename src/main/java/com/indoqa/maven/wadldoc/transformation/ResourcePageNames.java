@@ -0,0 +1,79 @@
+/*
+ * Licensed to Indoqa Software Design und Beratung GmbH (Indoqa) 
+ * under one or more contributor license agreements. See the NOTICE 
+ * file distributed with this work for additional information
+ * regarding copyright ownership. Indoqa licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.indoqa.maven.wadldoc.transformation;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Assigns the file names of the pages of the top-level resources in the per-resource layout. The names are derived
+ * from the paths of the resources, so that they stay the same when other resources are added or removed. They have
+ * to be requested for all top-level resources in document order to be the same every time.
+ */
+final class ResourcePageNames {
+
+    private static final String EXTENSION = ".html";
+
+    private final Set<String> usedNames = new HashSet<String>();
+    private final List<String> names = new ArrayList<String>();
+
+    ResourcePageNames() {
+        this.usedNames.add(ResourcePagesRenderer.TABLE_OF_CONTENTS);
+    }
+
+    /**
+     * Get all names that have been assigned so far, in the order of their assignment.
+     */
+    List<String> getNames() {
+        return this.names;
+    }
+
+    String next(WadlNode resource) {
+        String baseName = toFileName(resource.getAttributeValue("path"));
+
+        String name = baseName + EXTENSION;
+        for (int i = 2; !this.usedNames.add(name); i++) {
+            name = baseName + "-" + i + EXTENSION;
+        }
+        this.names.add(name);
+        return name;
+    }
+
+    private static String toFileName(String path) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < path.length(); i++) {
+            char c = path.charAt(i);
+            if (c >= 'a' && c <= 'z' || c >= 'A' && c <= 'Z' || c >= '0' && c <= '9' || c == '_') {
+                sb.append(c);
+            } else if (sb.length() > 0 && sb.charAt(sb.length() - 1) != '-') {
+                sb.append('-');
+            }
+        }
+        if (sb.length() > 0 && sb.charAt(sb.length() - 1) == '-') {
+            sb.setLength(sb.length() - 1);
+        }
+
+        if (sb.length() == 0) {
+            return "resource";
+        }
+        return sb.toString().toLowerCase();
+    }
+}
@@ -0,0 +1,204 @@
+/*
+ * Licensed to Indoqa Software Design und Beratung GmbH (Indoqa) 
+ * under one or more contributor license agreements. See the NOTICE 
+ * file distributed with this work for additional information
+ * regarding copyright ownership. Indoqa licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.indoqa.maven.wadldoc.transformation;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URL;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.cocoon.pipeline.Pipeline;
+import org.apache.commons.io.output.CountingOutputStream;
+import org.apache.commons.lang.StringUtils;
+import org.apache.commons.lang.Validate;
+import org.xml.sax.SAXException;
+
+import com.indoqa.maven.wadldoc.transformation.Wadl2HtmlPipeline.PipelineException;
+import com.indoqa.maven.wadldoc.transformation.WadlExpander.ResourceVisitor;
+
+/**
+ * Renders a WADL document into the per-resource layout: a lightweight table of contents page and one page for each
+ * top-level resource. The document is processed resource by resource like in the large-file mode of the
+ * {@link StaxWadlRenderer}.
+ * <p>
+ * The pages of the resources can be rendered in several parts, e.g. by several threads. Each part reads the WADL
+ * document on its own, so that the parts don't share any state.
+ */
+public class ResourcePagesRenderer {
+
+    /**
+     * The file name of the table of contents page.
+     */
+    public static final String TABLE_OF_CONTENTS = "index.html";
+
+    private final URL wadl;
+    private final String stylesheet;
+    private final boolean escapeHtmlRepresentations;
+
+    private List<String> pageNames;
+    private FileMetrics metrics;
+
+    /**
+     * @param stylesheet The path of the CSS file, relative to the directory of the pages.
+     */
+    public ResourcePagesRenderer(URL wadl, String stylesheet, boolean escapeHtmlRepresentations) {
+        Validate.notNull(wadl, "A WADL URL object has to be passed.");
+        this.wadl = wadl;
+        this.stylesheet = stylesheet;
+        this.escapeHtmlRepresentations = escapeHtmlRepresentations;
+    }
+
+    /**
+     * Get the file names of the resource pages in document order. They are known once the table of contents has
+     * been rendered.
+     */
+    public List<String> getPageNames() {
+        Validate.notNull(this.pageNames, "The table of contents hasn't been rendered yet.");
+        return Collections.unmodifiableList(this.pageNames);
+    }
+
+    /**
+     * Render the pages of those top-level resources whose position modulo <code>parts</code> equals
+     * <code>part</code>.
+     */
+    public void renderResourcePages(final int part, final int parts, final PageHandler handler)
+            throws PipelineException {
+        Validate.isTrue(part >= 0 && part < parts, "The part has to be between 0 and " + (parts - 1) + ".");
+
+        long start = System.nanoTime();
+        FileMetrics.setCurrent(this.metrics);
+        try {
+            long time = System.nanoTime();
+            WadlDocumentReader reader = new WadlDocumentReader(this.escapeHtmlRepresentations, null);
+            final WadlDocument document = reader.readSkeleton(this.wadl, WadlDocumentReader
+                    .readLocalReferences(this.wadl));
+            final WadlExpander expander = new WadlExpander(document, this.escapeHtmlRepresentations);
+            time = FileMetrics.recordStage(WadlDocumentReader.class.getSimpleName(), time);
+            expander.expand();
+            FileMetrics.recordStage(WadlExpander.class.getSimpleName(), time);
+
+            final String style = StaxWadlRenderer.getStyle();
+            final ResourcePageNames names = new ResourcePageNames();
+            expander.visitResources(new ResourceVisitor() {
+
+                private int index;
+
+                @Override
+                public void resource(WadlNode resource) throws SAXException {
+                    String name = names.next(resource);
+                    if (this.index++ % parts != part) {
+                        return;
+                    }
+
+                    ByteArrayOutputStream page = new ByteArrayOutputStream();
+                    try {
+                        ResourcePagesRenderer.this.render(WadlHtmlGenerator.createResourcePage(document, expander,
+                                ResourcePagesRenderer.this.escapeHtmlRepresentations, style, resource), page);
+                        handler.page(name, page.toByteArray());
+                        if (ResourcePagesRenderer.this.metrics != null) {
+                            ResourcePagesRenderer.this.metrics.addBytesOut(page.size());
+                        }
+                    } catch (Exception e) {
+                        throw new SAXException("Can't create the page " + name, e);
+                    }
+                }
+            });
+        } catch (Exception e) {
+            throw new PipelineException(e);
+        } finally {
+            this.recordTime(start);
+        }
+    }
+
+    /**
+     * Render the table of contents page and return the metadata of the WADL document.
+     */
+    public WadlMetadata renderTableOfContents(OutputStream os) throws PipelineException {
+        long start = System.nanoTime();
+        CountingOutputStream countingOutputStream = new CountingOutputStream(os);
+        FileMetrics.setCurrent(this.metrics);
+        try {
+            WadlMetadataCollector metadataCollector = new WadlMetadataCollector();
+            WadlDocumentReader reader = new WadlDocumentReader(this.escapeHtmlRepresentations, metadataCollector);
+            WadlDocument document = reader.readSkeleton(this.wadl, WadlDocumentReader
+                    .readLocalReferences(this.wadl));
+            WadlExpander expander = new WadlExpander(document, this.escapeHtmlRepresentations);
+            long time = FileMetrics.recordStage(WadlDocumentReader.class.getSimpleName(), start);
+            expander.expand();
+            FileMetrics.recordStage(WadlExpander.class.getSimpleName(), time);
+
+            ResourcePageNames names = new ResourcePageNames();
+            this.render(WadlHtmlGenerator.createTableOfContents(document, expander, this.escapeHtmlRepresentations,
+                    StaxWadlRenderer.getStyle(), names), countingOutputStream);
+
+            this.pageNames = names.getNames();
+            return metadataCollector.getMetadata();
+        } catch (Exception e) {
+            throw new PipelineException(e);
+        } finally {
+            this.recordTime(start);
+            if (this.metrics != null) {
+                this.metrics.addBytesIn(Wadl2HtmlPipeline.getLength(this.wadl));
+                this.metrics.addBytesOut(countingOutputStream.getByteCount());
+            }
+        }
+    }
+
+    /**
+     * Record the time and the stages of the following renderings in the passed metrics. The bytes read are
+     * recorded once, when the table of contents is rendered. If the pages are rendered in several parts at once,
+     * the recorded time is the sum of the times of all parts.
+     */
+    public void setMetrics(FileMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    private void recordTime(long start) {
+        FileMetrics.setCurrent(null);
+        if (this.metrics != null) {
+            this.metrics.addNanos(System.nanoTime() - start);
+        }
+    }
+
+    private void render(WadlHtmlGenerator generator, OutputStream os) throws Exception {
+        Pipeline pipeline = new InstrumentedPipeline();
+        pipeline.addComponent(generator);
+
+        // CSS
+        if (StringUtils.isNotBlank(this.stylesheet)) {
+            pipeline.addComponent(new StylesheetTransformer(this.stylesheet));
+        }
+
+        // serialization
+        pipeline.addComponent(XsltPipelineFactory.createHtmlSerializer());
+
+        pipeline.setup(os);
+        pipeline.execute();
+    }
+
+    /**
+     * Receives the rendered resource pages.
+     */
+    public interface PageHandler {
+
+        void page(String name, byte[] content) throws IOException;
+    }
+}
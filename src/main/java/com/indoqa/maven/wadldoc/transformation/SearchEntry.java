@@ -0,0 +1,152 @@
+/*
+ * Licensed to Indoqa Software Design und Beratung GmbH (Indoqa) 
+ * under one or more contributor license agreements. See the NOTICE 
+ * file distributed with this work for additional information
+ * regarding copyright ownership. Indoqa licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.indoqa.maven.wadldoc.transformation;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * The searchable information about a resource of a WADL document: its full path, the names and ids of its
+ * methods, the names of its parameters, the media types of its representations and the text of its documentation.
+ */
+public class SearchEntry {
+
+    private static final int MAX_TEXT_LENGTH = 2000;
+
+    private final String path;
+    private final String id;
+    private final Set<String> methods = new LinkedHashSet<String>();
+    private final Set<String> params = new LinkedHashSet<String>();
+    private final Set<String> mediaTypes = new LinkedHashSet<String>();
+    private final StringBuilder text = new StringBuilder();
+
+    SearchEntry(String path, String id) {
+        this.path = path;
+        this.id = id;
+    }
+
+    /**
+     * Read a search entry that has been written by {@link #write(DataOutput)}.
+     */
+    static SearchEntry read(DataInput input) throws IOException {
+        SearchEntry searchEntry = new SearchEntry(WadlMetadata.readString(input), WadlMetadata.readString(input));
+        WadlMetadata.readStrings(input, searchEntry.methods);
+        WadlMetadata.readStrings(input, searchEntry.params);
+        WadlMetadata.readStrings(input, searchEntry.mediaTypes);
+        searchEntry.text.append(WadlMetadata.readString(input));
+        return searchEntry;
+    }
+
+    /**
+     * Get the id of the resource or <code>null</code> if it hasn't any.
+     */
+    public String getId() {
+        return this.id;
+    }
+
+    public Collection<String> getMediaTypes() {
+        return Collections.unmodifiableSet(this.mediaTypes);
+    }
+
+    /**
+     * Get the HTTP methods of the resource and the ids of the method definitions.
+     */
+    public Collection<String> getMethods() {
+        return Collections.unmodifiableSet(this.methods);
+    }
+
+    public Collection<String> getParams() {
+        return Collections.unmodifiableSet(this.params);
+    }
+
+    /**
+     * Get the path of the resource, including the paths of all its parent resources.
+     */
+    public String getPath() {
+        return this.path;
+    }
+
+    /**
+     * Get the text of the documentation of the resource and of its methods, with normalized whitespace.
+     */
+    public String getText() {
+        return this.text.toString();
+    }
+
+    @Override
+    public String toString() {
+        return "SearchEntry(path=" + this.path + ", methods=" + this.methods + ", params=" + this.params
+                + ", mediaTypes=" + this.mediaTypes + ")";
+    }
+
+    void write(DataOutput output) throws IOException {
+        WadlMetadata.writeString(output, this.path);
+        WadlMetadata.writeString(output, this.id);
+        WadlMetadata.writeStrings(output, this.methods);
+        WadlMetadata.writeStrings(output, this.params);
+        WadlMetadata.writeStrings(output, this.mediaTypes);
+        WadlMetadata.writeString(output, this.text.toString());
+    }
+
+    void addMediaType(String mediaType) {
+        this.mediaTypes.add(mediaType);
+    }
+
+    void addMethod(String method) {
+        this.methods.add(method);
+    }
+
+    void addParam(String param) {
+        this.params.add(param);
+    }
+
+    void addText(char[] characters, int start, int length) {
+        for (int i = start; i < start + length && this.text.length() < MAX_TEXT_LENGTH; i++) {
+            char c = characters[i];
+            if (!Character.isWhitespace(c)) {
+                this.text.append(c);
+            } else if (this.text.length() > 0 && this.text.charAt(this.text.length() - 1) != ' ') {
+                this.text.append(' ');
+            }
+        }
+    }
+
+    /**
+     * Separate the documentation of the next element from the text collected so far.
+     */
+    void endText() {
+        if (this.text.length() > 0 && this.text.charAt(this.text.length() - 1) != ' ') {
+            this.text.append(' ');
+        }
+    }
+
+    /**
+     * Remove the trailing whitespace once the resource is complete.
+     */
+    void trimText() {
+        while (this.text.length() > 0 && this.text.charAt(this.text.length() - 1) == ' ') {
+            this.text.setLength(this.text.length() - 1);
+        }
+    }
+}
@@ -0,0 +1,136 @@
+/*
+ * Licensed to Indoqa Software Design und Beratung GmbH (Indoqa) 
+ * under one or more contributor license agreements. See the NOTICE 
+ * file distributed with this work for additional information
+ * regarding copyright ownership. Indoqa licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.indoqa.maven.wadldoc.transformation;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URL;
+import java.util.Set;
+
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamReader;
+
+import org.apache.cocoon.pipeline.Pipeline;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang.StringUtils;
+
+import com.indoqa.maven.wadldoc.transformation.Wadl2HtmlPipeline.PipelineException;
+
+/**
+ * A renderer that doesn't use XSLT at all. The WADL document is read with StAX into a lightweight tree, its
+ * references are resolved with id indexes and the HTML is generated directly as SAX events. The result is the same
+ * as the one of the {@link XsltWadlRenderer}, except for the values of generated ids.
+ * <p>
+ * In streaming mode, only the parts outside of the top-level resources and the elements referenced by local ids
+ * are kept in memory. The top-level resources are read, rendered and dropped one by one, once for each section of
+ * the page that lists them. This takes more time, but the memory required is proportional to the largest
+ * resource instead of the whole document.
+ */
+public class StaxWadlRenderer implements WadlRenderer {
+
+    private static final String NS_XHTML = "http://www.w3.org/1999/xhtml";
+
+    private static String style;
+
+    private final boolean streaming;
+
+    public StaxWadlRenderer() {
+        this(false);
+    }
+
+    public StaxWadlRenderer(boolean streaming) {
+        this.streaming = streaming;
+    }
+
+    /**
+     * Get the inline styles of the page. They are taken from <code>wadl_documentation.xsl</code> so that both
+     * renderers always use the same styles.
+     */
+    public static synchronized String getStyle() throws Exception {
+        if (style == null) {
+            style = readStyle(XsltWadlRenderer.getStylesheets().get(0));
+        }
+        return style;
+    }
+
+    private static String readStyle(URL stylesheet) throws Exception {
+        InputStream inputStream = stylesheet.openStream();
+        try {
+            XMLStreamReader reader = XmlParsers.createInputFactory().createXMLStreamReader(inputStream);
+            try {
+                while (reader.hasNext()) {
+                    if (reader.next() == XMLStreamConstants.START_ELEMENT
+                            && NS_XHTML.equals(reader.getNamespaceURI())
+                            && "style".equals(reader.getLocalName())) {
+                        return reader.getElementText();
+                    }
+                }
+            } finally {
+                reader.close();
+            }
+        } finally {
+            IOUtils.closeQuietly(inputStream);
+        }
+        throw new IllegalStateException("The stylesheet " + stylesheet + " doesn't contain any inline styles.");
+    }
+
+    public WadlMetadata render(URL wadl, String stylesheet, boolean escapeHtmlRepresentations, OutputStream os)
+            throws PipelineException {
+        try {
+            long start = System.nanoTime();
+            WadlMetadataCollector metadataCollector = new WadlMetadataCollector();
+            WadlDocumentReader reader = new WadlDocumentReader(escapeHtmlRepresentations, metadataCollector);
+            WadlDocument document;
+            WadlExpander expander;
+            if (this.streaming) {
+                Set<String> localReferences = WadlDocumentReader.readLocalReferences(wadl);
+                document = reader.readSkeleton(wadl, localReferences);
+                expander = new WadlExpander(document, escapeHtmlRepresentations);
+            } else {
+                document = reader.read(wadl);
+                expander = new WadlExpander(document);
+            }
+            start = FileMetrics.recordStage(WadlDocumentReader.class.getSimpleName(), start);
+            expander.expand();
+            FileMetrics.recordStage(WadlExpander.class.getSimpleName(), start);
+
+            Pipeline pipeline = new InstrumentedPipeline();
+            pipeline.addComponent(new WadlHtmlGenerator(document, expander, escapeHtmlRepresentations,
+                    getStyle()));
+
+            // CSS
+            if (StringUtils.isNotBlank(stylesheet)) {
+                pipeline.addComponent(new StylesheetTransformer(stylesheet));
+            }
+
+            // serialization
+            pipeline.addComponent(XsltPipelineFactory.createHtmlSerializer());
+
+            pipeline.setup(os);
+            pipeline.execute();
+            return metadataCollector.getMetadata();
+        } catch (Exception e) {
+            throw new PipelineException(e);
+        }
+    }
+
+    public boolean isStreaming() {
+        return this.streaming;
+    }
+}
@@ -31,12 +31,19 @@ public class StylesheetTransformer extends AbstractTransformer {
     private static final String NS_HTML = "http://www.w3.org/1999/xhtml";
 
     private boolean inStyle;
-    private final String stylesheet;
+    private String stylesheet;
 
     public StylesheetTransformer(String stylesheet) {
         this.stylesheet = stylesheet;
     }
 
+    /**
+     * Change the path of the CSS file, e.g. before a reused pipeline transforms the next document.
+     */
+    public void setStylesheet(String stylesheet) {
+        this.stylesheet = stylesheet;
+    }
+
     @Override
     public void startElement(String uri, String localName, String name, Attributes atts) throws SAXException {
         if (EL_STYLE.equalsIgnoreCase(localName) && atts.getIndex("type") >= 0) {
@@ -0,0 +1,279 @@
+/*
+ * Licensed to Indoqa Software Design und Beratung GmbH (Indoqa) 
+ * under one or more contributor license agreements. See the NOTICE 
+ * file distributed with this work for additional information
+ * regarding copyright ownership. Indoqa licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.indoqa.maven.wadldoc.transformation;
+
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.xml.transform.Source;
+import javax.xml.transform.Templates;
+import javax.xml.transform.TransformerConfigurationException;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.URIResolver;
+import javax.xml.transform.sax.SAXTransformerFactory;
+import javax.xml.transform.sax.TransformerHandler;
+import javax.xml.transform.stream.StreamSource;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang.Validate;
+
+/**
+ * A process-wide cache of compiled XSLT stylesheets. A stylesheet is compiled once per URL and the resulting
+ * {@link Templates} object is shared by all pipelines running in the same classloader, no matter whether they run
+ * sequentially, in parallel or in separate mojo executions of a reactor build. A compiled stylesheet is dropped as
+ * soon as the last-modified date of the stylesheet or of one of the stylesheets it imports or includes changes.
+ */
+public final class TemplatesCache {
+
+    private static final ConcurrentMap<String, CacheEntry> CACHE = new ConcurrentHashMap<String, CacheEntry>();
+    private static final AtomicLong HITS = new AtomicLong();
+    private static final AtomicLong MISSES = new AtomicLong();
+
+    private static SAXTransformerFactory transformerFactory;
+
+    private TemplatesCache() {
+        // hide utility class constructor
+    }
+
+    public static void clear() {
+        CACHE.clear();
+        HITS.set(0);
+        MISSES.set(0);
+    }
+
+    public static long getHits() {
+        return HITS.get();
+    }
+
+    public static long getMisses() {
+        return MISSES.get();
+    }
+
+    public static int getSize() {
+        return CACHE.size();
+    }
+
+    public static Templates getTemplates(final URL stylesheet) throws TransformerConfigurationException {
+        Validate.notNull(stylesheet, "A stylesheet URL has to be passed.");
+
+        String key = stylesheet.toExternalForm();
+
+        while (true) {
+            CacheEntry entry = CACHE.get(key);
+            if (entry != null && entry.isUpToDate()) {
+                HITS.incrementAndGet();
+                return entry.getTemplates();
+            }
+
+            CacheEntry newEntry = new CacheEntry(new FutureTask<CompiledStylesheet>(
+                    new Callable<CompiledStylesheet>() {
+
+                        public CompiledStylesheet call() throws Exception {
+                            return compile(stylesheet);
+                        }
+                    }));
+            boolean replaced = entry == null ? CACHE.putIfAbsent(key, newEntry) == null : CACHE.replace(key, entry,
+                    newEntry);
+            if (!replaced) {
+                // another thread installed an entry in the meantime -> look again
+                continue;
+            }
+
+            MISSES.incrementAndGet();
+            newEntry.compile();
+            try {
+                return newEntry.getTemplates();
+            } catch (TransformerConfigurationException e) {
+                CACHE.remove(key, newEntry);
+                throw e;
+            }
+        }
+    }
+
+    public static TransformerHandler newTransformerHandler(Templates templates)
+            throws TransformerConfigurationException {
+        SAXTransformerFactory factory = getTransformerFactory();
+
+        // TransformerFactory implementations aren't required to be thread-safe
+        synchronized (factory) {
+            return factory.newTransformerHandler(templates);
+        }
+    }
+
+    private static CompiledStylesheet compile(URL stylesheet) throws TransformerConfigurationException {
+        // the stylesheet is stamped before it is compiled, so that a change during the compilation isn't missed
+        Map<URL, Long> stamps = new LinkedHashMap<URL, Long>();
+        stamps.put(stylesheet, getLastModified(stylesheet));
+
+        SAXTransformerFactory factory = getTransformerFactory();
+        StylesheetRecorder recorder = new StylesheetRecorder();
+        Templates templates;
+        synchronized (factory) {
+            factory.setURIResolver(recorder);
+            try {
+                templates = factory.newTemplates(new StreamSource(stylesheet.toExternalForm()));
+            } finally {
+                factory.setURIResolver(null);
+            }
+        }
+
+        for (URL importedStylesheet : recorder.getStylesheets()) {
+            if (!stamps.containsKey(importedStylesheet)) {
+                stamps.put(importedStylesheet, getLastModified(importedStylesheet));
+            }
+        }
+        return new CompiledStylesheet(templates, stamps);
+    }
+
+    private static long getLastModified(URL url) {
+        if ("file".equals(url.getProtocol())) {
+            return FileUtils.toFile(url).lastModified();
+        }
+
+        if ("jar".equals(url.getProtocol())) {
+            // a stylesheet packaged in a jar only changes together with the jar file, and opening a connection
+            // for every lookup would be much more expensive than the lookup itself
+            String path = url.getPath();
+            int separator = path.indexOf("!/");
+            if (separator != -1) {
+                try {
+                    return getLastModified(new URL(path.substring(0, separator)));
+                } catch (MalformedURLException e) {
+                    return 0;
+                }
+            }
+            return 0;
+        }
+
+        try {
+            return url.openConnection().getLastModified();
+        } catch (IOException e) {
+            // the stylesheet will fail later, when it's compiled
+            return 0;
+        }
+    }
+
+    private static synchronized SAXTransformerFactory getTransformerFactory() {
+        if (transformerFactory == null) {
+            transformerFactory = (SAXTransformerFactory) TransformerFactory.newInstance();
+        }
+        return transformerFactory;
+    }
+
+    private static class CacheEntry {
+
+        private final FutureTask<CompiledStylesheet> compiledStylesheet;
+
+        public CacheEntry(FutureTask<CompiledStylesheet> compiledStylesheet) {
+            this.compiledStylesheet = compiledStylesheet;
+        }
+
+        public void compile() {
+            this.compiledStylesheet.run();
+        }
+
+        public Templates getTemplates() throws TransformerConfigurationException {
+            return this.getCompiledStylesheet().getTemplates();
+        }
+
+        public boolean isUpToDate() {
+            if (!this.compiledStylesheet.isDone()) {
+                // the stylesheet is being compiled right now
+                return true;
+            }
+
+            try {
+                return this.getCompiledStylesheet().isUpToDate();
+            } catch (TransformerConfigurationException e) {
+                return false;
+            }
+        }
+
+        private CompiledStylesheet getCompiledStylesheet() throws TransformerConfigurationException {
+            try {
+                return this.compiledStylesheet.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new TransformerConfigurationException(e);
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof TransformerConfigurationException) {
+                    throw (TransformerConfigurationException) e.getCause();
+                }
+                throw new TransformerConfigurationException(e.getCause());
+            }
+        }
+    }
+
+    private static class CompiledStylesheet {
+
+        private final Templates templates;
+        private final Map<URL, Long> stamps;
+
+        public CompiledStylesheet(Templates templates, Map<URL, Long> stamps) {
+            this.templates = templates;
+            this.stamps = stamps;
+        }
+
+        public Templates getTemplates() {
+            return this.templates;
+        }
+
+        public boolean isUpToDate() {
+            for (Map.Entry<URL, Long> stamp : this.stamps.entrySet()) {
+                if (getLastModified(stamp.getKey()) != stamp.getValue().longValue()) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Records the URLs of all stylesheets that are imported or included while a stylesheet is compiled. The
+     * resolution itself is left to the {@link TransformerFactory}.
+     */
+    private static class StylesheetRecorder implements URIResolver {
+
+        private final Map<URL, Boolean> stylesheets = new LinkedHashMap<URL, Boolean>();
+
+        public Iterable<URL> getStylesheets() {
+            return Collections.unmodifiableSet(this.stylesheets.keySet());
+        }
+
+        public Source resolve(String href, String base) {
+            try {
+                URL url = base == null ? new URL(href) : new URL(new URL(base), href);
+                this.stylesheets.put(url, Boolean.TRUE);
+            } catch (MalformedURLException e) {
+                // the stylesheet can't be tracked, the factory reports the problem if it can't resolve it either
+            }
+            return null;
+        }
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * Licensed to Indoqa Software Design und Beratung GmbH (Indoqa) 
+ * under one or more contributor license agreements. See the NOTICE 
+ * file distributed with this work for additional information
+ * regarding copyright ownership. Indoqa licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.indoqa.maven.wadldoc.transformation;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+
+import org.apache.cocoon.pipeline.ProcessingException;
+import org.apache.cocoon.pipeline.component.Starter;
+import org.apache.cocoon.pipeline.component.sax.AbstractGenerator;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang.Validate;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+
+/**
+ * A generator that, in contrast to Cocoon's FileGenerator, doesn't look up and create a new XML reader for every
+ * document it parses. It reuses the offline-safe readers of {@link XmlParsers} and can be pointed at another URL
+ * before each execution. Like all pipeline components, it mustn't be used by several threads at once.
+ */
+final class UrlGenerator extends AbstractGenerator implements Starter {
+
+    private static final String LEXICAL_HANDLER = "http://xml.org/sax/properties/lexical-handler";
+
+    private URL source;
+
+    public void execute() {
+        Validate.notNull(this.source, "The generator has no source.");
+
+        InputStream inputStream = null;
+        try {
+            XMLReader xmlReader = XmlParsers.getReader();
+            xmlReader.setContentHandler(this.getXMLConsumer());
+            xmlReader.setProperty(LEXICAL_HANDLER, this.getXMLConsumer());
+
+            inputStream = new BufferedInputStream(this.source.openStream());
+            InputSource inputSource = new InputSource(inputStream);
+            inputSource.setSystemId(this.source.toExternalForm());
+            xmlReader.parse(inputSource);
+            XmlParsers.releaseReader(xmlReader);
+        } catch (IOException e) {
+            throw new ProcessingException("Can't read " + this.source, e);
+        } catch (SAXException e) {
+            throw new ProcessingException("Can't parse " + this.source, e);
+        } finally {
+            IOUtils.closeQuietly(inputStream);
+        }
+    }
+
+    public void setSource(URL source) {
+        this.source = source;
+    }
+
+    @Override
+    public String toString() {
+        return "UrlGenerator(src=" + this.source + ")";
+    }
+}
@@ -18,76 +18,208 @@
  */
 package com.indoqa.maven.wadldoc.transformation;
 
+import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.URL;
-import java.util.Properties;
-
-import org.apache.cocoon.pipeline.NonCachingPipeline;
-import org.apache.cocoon.pipeline.Pipeline;
-import org.apache.cocoon.pipeline.component.sax.FileGenerator;
-import org.apache.cocoon.pipeline.component.sax.XMLSerializer;
-import org.apache.cocoon.pipeline.component.sax.XSLTTransformer;
-import org.apache.commons.lang.StringUtils;
+import java.util.List;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.output.CountingOutputStream;
 import org.apache.commons.lang.Validate;
+import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
+import org.xml.sax.XMLReader;
+import org.xml.sax.helpers.DefaultHandler;
 
 public class Wadl2HtmlPipeline {
 
-    private Pipeline pipeline;
+    public static final String RENDERER_STAX = "stax";
+    public static final String RENDERER_STREAMING = "streaming";
+    public static final String RENDERER_XSLT = "xslt";
+
     private final URL wadl;
     private final boolean escapeHtmlRepresentations;
-    private String stylesheet;
+    private final String stylesheet;
+    private final WadlRenderer renderer;
+    private long largeFileThreshold;
+    private FileMetrics metrics;
 
-    public Wadl2HtmlPipeline(URL wadlUrl, String stylesheet, boolean escapeHtmlRepresentations) {
+    public Wadl2HtmlPipeline(URL wadlUrl, String stylesheet, boolean escapeHtmlRepresentations,
+            WadlRenderer renderer) {
         Validate.notNull(wadlUrl, "A WADL URL object has to be passed.");
+        Validate.notNull(renderer, "A renderer has to be passed.");
         this.wadl = wadlUrl;
         this.stylesheet = stylesheet;
         this.escapeHtmlRepresentations = escapeHtmlRepresentations;
+        this.renderer = renderer;
+    }
+
+    /**
+     * Create a pipeline that renders with its own {@link XsltWadlRenderer}. Pass the same renderer to all
+     * pipelines instead, so that the threads can reuse the pipelines of the renderer.
+     */
+    public Wadl2HtmlPipeline(URL wadlUrl, String stylesheet, boolean escapeHtmlRepresentations) {
+        this(wadlUrl, stylesheet, escapeHtmlRepresentations, new XsltWadlRenderer());
     }
 
     public Wadl2HtmlPipeline(URL wadlUrl, String stylesheet) {
         this(wadlUrl, stylesheet, true);
     }
 
-    private void setup() throws PipelineException {
+    /**
+     * Create a renderer by its name, which is either <code>xslt</code>, <code>stax</code>,
+     * <code>streaming</code> or the class name of a {@link WadlRenderer} implementation.
+     */
+    public static WadlRenderer createRenderer(String name) {
+        Validate.notEmpty(name, "A renderer name has to be passed.");
+
+        if (RENDERER_XSLT.equalsIgnoreCase(name)) {
+            return new XsltWadlRenderer();
+        }
+        if (RENDERER_STAX.equalsIgnoreCase(name)) {
+            return new StaxWadlRenderer();
+        }
+        if (RENDERER_STREAMING.equalsIgnoreCase(name)) {
+            return new StaxWadlRenderer(true);
+        }
+
         try {
-            this.pipeline = new NonCachingPipeline();
-
-            // start with the WADL file
-            this.pipeline.addComponent(new FileGenerator(this.wadl));
-
-            // escape HTML representations
-            if (this.escapeHtmlRepresentations) {
-                this.pipeline.addComponent(new EscapingTransformer());
-                URL resource = this.getClass().getClassLoader().getResource(
-                        "com/indoqa/maven/wadldoc/stylesheet/wadl_documentation_html-reps.xsl");
-                this.pipeline.addComponent(new XSLTTransformer(resource, null));
-            } else {
-                URL resource = this.getClass().getClassLoader().getResource(
-                        "com/indoqa/maven/wadldoc/stylesheet/wadl_documentation.xsl");
-                this.pipeline.addComponent(new XSLTTransformer(resource, null));
-            }
-
-            // CSS
-            if (StringUtils.isNotBlank(this.stylesheet)) {
-                this.pipeline.addComponent(new StylesheetTransformer(this.stylesheet));
-            }
-
-            // serialization
-            Properties properties = new Properties();
-            properties.put("method", "html");
-            this.pipeline.addComponent(new XMLSerializer(properties));
+            Class<?> rendererClass = Class.forName(name, true, Wadl2HtmlPipeline.class.getClassLoader());
+            return (WadlRenderer) rendererClass.newInstance();
         } catch (Exception e) {
-            throw new PipelineException(e);
+            throw new IllegalArgumentException("The renderer '" + name + "' is neither '" + RENDERER_XSLT
+                    + "', '" + RENDERER_STAX + "', '" + RENDERER_STREAMING + "' nor the name of a "
+                    + WadlRenderer.class.getName() + " implementation with a public no-arg constructor.", e);
+        }
+    }
+
+    /**
+     * Release the parsers and pipelines the current thread keeps for reuse by the passed renderer and by all reads
+     * of XML documents. Each thread that transformed WADL documents has to call this when it's done, so that
+     * threads that outlive the build don't keep the classloader of the plugin alive.
+     */
+    public static void releaseThreadResources(WadlRenderer renderer) {
+        if (renderer instanceof XsltWadlRenderer) {
+            ((XsltWadlRenderer) renderer).releasePipelines();
+        }
+        XmlParsers.releaseThreadReader();
+    }
+
+    /**
+     * Get all XSLT stylesheets that can be used by the pipeline, including the imported ones.
+     */
+    public static List<URL> getXsltStylesheets() {
+        return XsltWadlRenderer.getStylesheets();
+    }
+
+    /**
+     * Transform the WADL document with the renderer that has been passed and return the metadata that were
+     * collected on the way.
+     */
+    public WadlMetadata execute(OutputStream os) throws PipelineException {
+        if (this.metrics == null) {
+            return this.renderer.render(this.wadl, this.stylesheet, this.escapeHtmlRepresentations, os);
+        }
+
+        long start = System.nanoTime();
+        CountingOutputStream countingOutputStream = new CountingOutputStream(os);
+        FileMetrics.setCurrent(this.metrics);
+        try {
+            return this.renderer.render(this.wadl, this.stylesheet, this.escapeHtmlRepresentations,
+                    countingOutputStream);
+        } finally {
+            FileMetrics.setCurrent(null);
+            this.metrics.addNanos(System.nanoTime() - start);
+            this.metrics.addBytesIn(getLength(this.wadl));
+            this.metrics.addBytesOut(countingOutputStream.getByteCount());
+        }
+    }
+
+    /**
+     * Get the length of a local file or <code>0</code> if the URL doesn't point to a local file.
+     */
+    static long getLength(URL url) {
+        if (!"file".equals(url.getProtocol())) {
+            return 0;
+        }
+        return FileUtils.toFile(url).length();
+    }
+
+    public FileMetrics getMetrics() {
+        return this.metrics;
+    }
+
+    public long getLargeFileThreshold() {
+        return this.largeFileThreshold;
+    }
+
+    /**
+     * Checks if the WADL document is a local file that is at least as large as the large-file threshold.
+     */
+    public boolean isLargeFileMode() {
+        if (this.largeFileThreshold <= 0 || !"file".equals(this.wadl.getProtocol())) {
+            return false;
         }
+        return FileUtils.toFile(this.wadl).length() >= this.largeFileThreshold;
+    }
+
+    /**
+     * Set the size in bytes from which on WADL documents are in large-file mode. Such documents should be rendered
+     * by a streaming {@link StaxWadlRenderer}, so that the memory required doesn't grow with the size of the
+     * document. <code>0</code>, the default, disables the large-file mode.
+     */
+    public void setLargeFileThreshold(long largeFileThreshold) {
+        Validate.isTrue(largeFileThreshold >= 0, "The large-file threshold mustn't be negative.");
+        this.largeFileThreshold = largeFileThreshold;
+    }
+
+    /**
+     * Record the time, the bytes read and written and the time and the SAX events of each stage of the
+     * transformation in the passed metrics. Measuring each SAX event slows down the transformation a little, so
+     * nothing is recorded by default.
+     */
+    public void setMetrics(FileMetrics metrics) {
+        this.metrics = metrics;
     }
 
-    public void execute(OutputStream os) throws PipelineException {
+    /**
+     * Read only the metadata of the WADL document without transforming it, e.g. to list the document on an index
+     * page before it is rendered.
+     */
+    public WadlMetadata readMetadata() throws PipelineException {
+        final WadlMetadataCollector metadataCollector = new WadlMetadataCollector();
+        InputStream inputStream = null;
         try {
-            this.setup();
-            this.pipeline.setup(os);
-            this.pipeline.execute();
+            inputStream = this.wadl.openStream();
+            InputSource inputSource = new InputSource(inputStream);
+            inputSource.setSystemId(this.wadl.toExternalForm());
+
+            XMLReader xmlReader = XmlParsers.getReader();
+            xmlReader.setContentHandler(new DefaultHandler() {
+
+                @Override
+                public void characters(char[] ch, int start, int length) {
+                    metadataCollector.characters(ch, start, length);
+                }
+
+                @Override
+                public void endElement(String uri, String localName, String name) {
+                    metadataCollector.endElement();
+                }
+
+                @Override
+                public void startElement(String uri, String localName, String name, Attributes atts) {
+                    metadataCollector.startElement(uri, localName, WadlMetadataCollector.getAttributeSource(atts));
+                }
+            });
+            xmlReader.parse(inputSource);
+            XmlParsers.releaseReader(xmlReader);
+            return metadataCollector.getMetadata();
         } catch (Exception e) {
-            throw new PipelineException(e);
+            throw new PipelineException("Can't read the metadata of " + this.wadl, e);
+        } finally {
+            IOUtils.closeQuietly(inputStream);
         }
     }
 
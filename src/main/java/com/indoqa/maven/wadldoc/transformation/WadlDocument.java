@@ -0,0 +1,98 @@
+/*
+ * Licensed to Indoqa Software Design und Beratung GmbH (Indoqa) 
+ * under one or more contributor license agreements. See the NOTICE 
+ * file distributed with this work for additional information
+ * regarding copyright ownership. Indoqa licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.indoqa.maven.wadldoc.transformation;
+
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A WADL document (or any other XML document referenced by a WADL document) read into the compact model of the
+ * {@link StaxWadlRenderer}. All WADL elements with an <code>id</code> attribute are indexed, so that references
+ * can be resolved without searching the document.
+ * <p>
+ * Referenced documents are shared by all transformations via the {@link ReferencedDocumentCache} and mustn't be
+ * modified once they have been read.
+ */
+final class WadlDocument {
+
+    private final URL url;
+    private final Map<String, List<WadlNode>> elementsById = new HashMap<String, List<WadlNode>>();
+    private WadlNode rootElement;
+    private boolean containsFaults;
+
+    WadlDocument(URL url) {
+        this.url = url;
+    }
+
+    /**
+     * Checks if the document contains any <code>wadl:fault</code> elements.
+     */
+    boolean containsFaults() {
+        return this.containsFaults;
+    }
+
+    /**
+     * Get all WADL elements with the passed id in document order.
+     */
+    List<WadlNode> getElementsById(String id) {
+        List<WadlNode> elements = this.elementsById.get(id);
+        if (elements == null) {
+            return Collections.emptyList();
+        }
+        return elements;
+    }
+
+    WadlNode getRootElement() {
+        return this.rootElement;
+    }
+
+    URL getUrl() {
+        return this.url;
+    }
+
+    void setContainsFaults() {
+        this.containsFaults = true;
+    }
+
+    void index(WadlNode element) {
+        if (element.isWadl("fault")) {
+            this.containsFaults = true;
+        }
+
+        String id = element.getAttribute("id");
+        if (id == null || !element.isWadl()) {
+            return;
+        }
+
+        List<WadlNode> elements = this.elementsById.get(id);
+        if (elements == null) {
+            elements = new ArrayList<WadlNode>(1);
+            this.elementsById.put(id, elements);
+        }
+        elements.add(element);
+    }
+
+    void setRootElement(WadlNode rootElement) {
+        this.rootElement = rootElement;
+    }
+}
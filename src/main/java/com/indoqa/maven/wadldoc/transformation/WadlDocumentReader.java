@@ -0,0 +1,500 @@
+/*
+ * Licensed to Indoqa Software Design und Beratung GmbH (Indoqa) 
+ * under one or more contributor license agreements. See the NOTICE 
+ * file distributed with this work for additional information
+ * regarding copyright ownership. Indoqa licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.indoqa.maven.wadldoc.transformation;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.apache.commons.io.IOUtils;
+import org.xml.sax.SAXException;
+
+import com.indoqa.maven.wadldoc.transformation.WadlMetadataCollector.AttributeSource;
+
+/**
+ * Reads a WADL document with a StAX parser into the compact model of the {@link StaxWadlRenderer}. While reading,
+ * the markup of HTML representations is escaped exactly like the {@link EscapingTransformer} does it and the
+ * {@link WadlMetadata} are collected. Whitespace between WADL elements isn't kept because it is never rendered.
+ * <p>
+ * Large WADL documents can be read in two steps instead: {@link #readSkeleton(URL, Set)} reads everything except
+ * the top-level resources and {@link #readResources(WadlDocument, ResourceHandler)} streams the top-level
+ * resources one by one, so that only one of them has to be kept in memory at a time.
+ */
+final class WadlDocumentReader {
+
+    private static final String ATT_HREF = "href";
+    private static final String ATT_ID = "id";
+    private static final String ATT_MEDIA_TYPE = "mediaType";
+    private static final String ATT_TYPE = "type";
+    private static final String ATT_VALUE_MEDIA_TYPE_HTML = "text/html";
+    private static final String EL_APPLICATION = "application";
+    private static final String EL_DOC = "doc";
+    private static final String EL_FAULT = "fault";
+    private static final String EL_REPRESENTATION = "representation";
+    private static final String EL_RESOURCE = "resource";
+    private static final String EL_RESOURCES = "resources";
+
+    private static final XMLInputFactory INPUT_FACTORY = XmlParsers.createInputFactory();
+
+    private final boolean escapeHtmlRepresentations;
+    private final WadlMetadataCollector metadataCollector;
+
+    private WadlDocument document;
+    private Mode mode = Mode.FULL;
+    private Set<String> retainedIds;
+    private ResourceHandler resourceHandler;
+    private int resourcesIndex;
+    private WadlNode resource;
+
+    // in resources mode, elements that aren't needed are represented by null
+    private final List<WadlNode> elements = new ArrayList<WadlNode>();
+    private final List<Boolean> escapedElements = new ArrayList<Boolean>();
+    private final StringBuilder text = new StringBuilder();
+    private boolean inDocElement;
+    private boolean inRepOrFault;
+
+    /**
+     * Create a reader for WADL documents that are rendered, i.e. with escaping and metadata collection.
+     */
+    WadlDocumentReader(boolean escapeHtmlRepresentations, WadlMetadataCollector metadataCollector) {
+        this.escapeHtmlRepresentations = escapeHtmlRepresentations;
+        this.metadataCollector = metadataCollector;
+    }
+
+    /**
+     * Create a reader for documents that are only referenced. They are read as they are, like XSLT's
+     * <code>document()</code> function would do it.
+     */
+    WadlDocumentReader() {
+        this(false, null);
+    }
+
+    /**
+     * Get the ids that are referenced within the document, i.e. by <code>@href</code> or <code>@type</code>
+     * references without a document URI.
+     */
+    static Set<String> readLocalReferences(URL url) throws IOException, XMLStreamException {
+        Set<String> references = new HashSet<String>();
+
+        InputStream inputStream = url.openStream();
+        try {
+            XMLStreamReader reader = createStreamReader(url, inputStream);
+            try {
+                while (reader.hasNext()) {
+                    if (reader.next() != XMLStreamConstants.START_ELEMENT
+                            || !WadlNode.NS_WADL.equals(reader.getNamespaceURI())) {
+                        continue;
+                    }
+
+                    addLocalReference(getAttributeValue(reader, ATT_HREF), references);
+                    if (EL_RESOURCE.equals(reader.getLocalName())) {
+                        addLocalReference(getAttributeValue(reader, ATT_TYPE), references);
+                    }
+                }
+            } finally {
+                reader.close();
+            }
+        } finally {
+            IOUtils.closeQuietly(inputStream);
+        }
+
+        return references;
+    }
+
+    WadlDocument read(URL url) throws IOException, XMLStreamException {
+        this.document = new WadlDocument(url);
+
+        try {
+            this.read();
+        } catch (SAXException e) {
+            // there is no resource handler that could throw it
+            throw new IllegalStateException(e);
+        }
+
+        return this.document;
+    }
+
+    /**
+     * Stream the top-level resources (<code>/wadl:application/wadl:resources/wadl:resource</code>) of a document
+     * whose skeleton has been read before. The resources are connected to the <code>wadl:resources</code>
+     * elements of the skeleton and belong to the skeleton document.
+     */
+    void readResources(WadlDocument skeleton, ResourceHandler handler) throws IOException, XMLStreamException,
+            SAXException {
+        this.document = skeleton;
+        this.mode = Mode.RESOURCES;
+        this.resourceHandler = handler;
+
+        this.read();
+    }
+
+    /**
+     * Read a document without its top-level resources. WADL elements within the top-level resources are only kept
+     * (detached from their resource) if their ids are in the set of retained ids, so that local references to them
+     * can still be resolved.
+     */
+    WadlDocument readSkeleton(URL url, Set<String> ids) throws IOException, XMLStreamException {
+        this.document = new WadlDocument(url);
+        this.mode = Mode.SKELETON;
+        this.retainedIds = ids;
+
+        try {
+            this.read();
+        } catch (SAXException e) {
+            // there is no resource handler that could throw it
+            throw new IllegalStateException(e);
+        }
+
+        return this.document;
+    }
+
+    private static void addLocalReference(String reference, Set<String> references) {
+        if (reference != null && reference.startsWith("#")) {
+            references.add(reference.substring(1));
+        }
+    }
+
+    private static XMLStreamReader createStreamReader(URL url, InputStream inputStream) throws XMLStreamException {
+        // the factory is only configured once, creating readers is thread-safe
+        synchronized (INPUT_FACTORY) {
+            return INPUT_FACTORY.createXMLStreamReader(url.toExternalForm(), inputStream);
+        }
+    }
+
+    private void read() throws IOException, XMLStreamException, SAXException {
+        URL url = this.document.getUrl();
+        InputStream inputStream = url.openStream();
+        try {
+            XMLStreamReader reader = createStreamReader(url, inputStream);
+            try {
+                this.read(reader);
+            } finally {
+                reader.close();
+            }
+        } finally {
+            IOUtils.closeQuietly(inputStream);
+        }
+    }
+
+    private void appendEscaped(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    this.text.append("&quot;");
+                    break;
+                case '&':
+                    this.text.append("&amp;");
+                    break;
+                case '<':
+                    this.text.append("&lt;");
+                    break;
+                default:
+                    this.text.append(c);
+            }
+        }
+    }
+
+    private void endElement(XMLStreamReader reader) throws SAXException {
+        String uri = reader.getNamespaceURI();
+        String localName = reader.getLocalName();
+        boolean wadl = WadlNode.NS_WADL.equals(uri);
+
+        if (this.metadataCollector != null) {
+            this.metadataCollector.endElement();
+        }
+
+        // the same state machine as in the EscapingTransformer
+        if (wadl && EL_DOC.equals(localName)) {
+            this.inDocElement = false;
+        }
+        if (this.inRepOrFault && wadl && (EL_REPRESENTATION.equals(localName) || EL_FAULT.equals(localName))) {
+            this.inRepOrFault = false;
+        }
+
+        if (this.isEscaping()) {
+            this.text.append("</").append(getQName(reader)).append('>');
+        }
+
+        if (this.escapedElements.remove(this.escapedElements.size() - 1).booleanValue()) {
+            return;
+        }
+
+        this.flushText();
+        WadlNode element = this.elements.remove(this.elements.size() - 1);
+
+        if (element != null && element == this.resource) {
+            this.resource = null;
+            if (this.mode == Mode.SKELETON) {
+                this.retain(element);
+            } else {
+                this.resourceHandler.resource(element);
+            }
+        } else if (this.mode == Mode.RESOURCES && element != null && element.isWadl(EL_RESOURCES)) {
+            this.resourceHandler.endResources(element);
+        }
+    }
+
+    /**
+     * Get the element of the skeleton that corresponds to the started element, if there is any.
+     */
+    private WadlNode getSkeletonElement(boolean wadl, String localName) {
+        WadlNode root = this.document.getRootElement();
+        if (this.elements.isEmpty()) {
+            return root;
+        }
+
+        if (this.elements.size() == 1 && this.elements.get(0) == root && root.isWadl(EL_APPLICATION) && wadl
+                && EL_RESOURCES.equals(localName)) {
+            List<WadlNode> resources = root.getWadlChildren(EL_RESOURCES);
+            if (this.resourcesIndex < resources.size()) {
+                return resources.get(this.resourcesIndex++);
+            }
+        }
+
+        return null;
+    }
+
+    private boolean isTopLevelResource(boolean wadl, String localName) {
+        if (this.mode == Mode.FULL || !wadl || !EL_RESOURCE.equals(localName) || this.elements.size() != 2) {
+            return false;
+        }
+
+        WadlNode application = this.elements.get(0);
+        WadlNode resources = this.elements.get(1);
+        return application != null && application.isWadl(EL_APPLICATION) && resources != null
+                && resources.isWadl(EL_RESOURCES);
+    }
+
+    /**
+     * Keep detached copies of all elements of a top-level resource that are referenced within the document.
+     */
+    private void retain(WadlNode element) {
+        if (element.isWadl() && this.retainedIds.contains(element.getAttribute(ATT_ID))) {
+            this.document.index(element.copyDetached());
+        }
+
+        for (WadlNode child : element.getChildren()) {
+            if (child.isElement()) {
+                this.retain(child);
+            }
+        }
+    }
+
+    private void flushText() {
+        if (this.text.length() == 0) {
+            return;
+        }
+
+        if (!this.elements.isEmpty() && this.elements.get(this.elements.size() - 1) != null) {
+            WadlNode parent = this.elements.get(this.elements.size() - 1);
+            if (!parent.isWadl() || parent.isWadl(EL_DOC) || !isWhitespace(this.text)) {
+                parent.addChild(WadlNode.text(this.text.toString()));
+            }
+        }
+        this.text.setLength(0);
+    }
+
+    private boolean isEscaping() {
+        return this.escapeHtmlRepresentations && this.inDocElement && this.inRepOrFault;
+    }
+
+    private void read(XMLStreamReader reader) throws XMLStreamException, SAXException {
+        while (reader.hasNext()) {
+            switch (reader.next()) {
+                case XMLStreamConstants.START_ELEMENT:
+                    this.startElement(reader);
+                    break;
+                case XMLStreamConstants.END_ELEMENT:
+                    this.endElement(reader);
+                    break;
+                case XMLStreamConstants.CHARACTERS:
+                case XMLStreamConstants.CDATA:
+                case XMLStreamConstants.SPACE:
+                    this.text.append(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+                    if (this.metadataCollector != null) {
+                        this.metadataCollector.characters(reader.getTextCharacters(), reader.getTextStart(), reader
+                                .getTextLength());
+                    }
+                    break;
+                case XMLStreamConstants.COMMENT:
+                    if (!this.elements.isEmpty() && this.elements.get(this.elements.size() - 1) != null) {
+                        this.flushText();
+                        this.elements.get(this.elements.size() - 1).addChild(WadlNode.comment(reader.getText()));
+                    }
+                    break;
+                default:
+                    // processing instructions, DTDs etc. aren't rendered
+                    break;
+            }
+        }
+    }
+
+    private void startElement(final XMLStreamReader reader) throws SAXException {
+        String uri = reader.getNamespaceURI();
+        String localName = reader.getLocalName();
+        boolean wadl = WadlNode.NS_WADL.equals(uri);
+
+        if (this.metadataCollector != null) {
+            this.metadataCollector.startElement(uri, localName, new AttributeSource() {
+
+                public String getAttribute(String attributeName) {
+                    return getAttributeValue(reader, attributeName);
+                }
+            });
+        }
+
+        boolean escaped = this.isEscaping();
+        this.escapedElements.add(Boolean.valueOf(escaped));
+        if (escaped) {
+            this.text.append('<').append(getQName(reader));
+            for (int i = 0; i < reader.getNamespaceCount(); i++) {
+                String prefix = reader.getNamespacePrefix(i);
+                this.text.append(prefix == null || prefix.length() == 0 ? " xmlns" : " xmlns:" + prefix);
+                this.text.append("=\"");
+                this.appendEscaped(reader.getNamespaceURI(i));
+                this.text.append('"');
+            }
+            for (int i = 0; i < reader.getAttributeCount(); i++) {
+                this.text.append(' ').append(getAttributeName(reader, i)).append("=\"");
+                this.appendEscaped(reader.getAttributeValue(i));
+                this.text.append('"');
+            }
+            this.text.append('>');
+        } else {
+            this.flushText();
+            this.elements.add(this.createElement(reader, wadl, localName));
+        }
+
+        if (wadl && EL_DOC.equals(localName)) {
+            this.inDocElement = true;
+        }
+        if (wadl && (EL_REPRESENTATION.equals(localName) || EL_FAULT.equals(localName))) {
+            String mediaType = getAttributeValue(reader, ATT_MEDIA_TYPE);
+            if (mediaType != null && mediaType.startsWith(ATT_VALUE_MEDIA_TYPE_HTML)) {
+                this.inRepOrFault = true;
+            }
+        }
+    }
+
+    private WadlNode createElement(XMLStreamReader reader, boolean wadl, String localName) throws SAXException {
+        boolean topLevelResource = this.isTopLevelResource(wadl, localName);
+        if (this.mode == Mode.RESOURCES && this.resource == null && !topLevelResource) {
+            // outside of the top-level resources, everything is in the skeleton already
+            WadlNode skeletonElement = this.getSkeletonElement(wadl, localName);
+            if (skeletonElement != null && skeletonElement.isWadl(EL_RESOURCES)) {
+                this.resourceHandler.startResources(skeletonElement);
+            }
+            return skeletonElement;
+        }
+
+        WadlNode element = WadlNode.element(reader.getNamespaceURI(), localName, reader.getPrefix(),
+                this.document);
+        for (int i = 0; i < reader.getNamespaceCount(); i++) {
+            String prefix = reader.getNamespacePrefix(i);
+            element.declareNamespace(prefix == null ? "" : prefix, reader.getNamespaceURI(i));
+        }
+        for (int i = 0; i < reader.getAttributeCount(); i++) {
+            element.setAttribute(getAttributeName(reader, i), reader.getAttributeValue(i));
+        }
+
+        WadlNode parent = this.elements.isEmpty() ? null : this.elements.get(this.elements.size() - 1);
+        if (topLevelResource) {
+            this.resource = element;
+            element.setParent(parent);
+        } else if (parent != null) {
+            parent.addChild(element);
+        } else {
+            this.document.setRootElement(element);
+        }
+
+        if (this.mode == Mode.FULL || this.resource == null) {
+            this.document.index(element);
+        } else if (this.mode == Mode.SKELETON && element.isWadl(EL_FAULT)) {
+            this.document.setContainsFaults();
+        }
+
+        return element;
+    }
+
+    private static String getAttributeName(XMLStreamReader reader, int index) {
+        String prefix = reader.getAttributePrefix(index);
+        if (prefix == null || prefix.length() == 0) {
+            return reader.getAttributeLocalName(index);
+        }
+        return prefix + ':' + reader.getAttributeLocalName(index);
+    }
+
+    /**
+     * Get the value of an attribute without namespace.
+     */
+    private static String getAttributeValue(XMLStreamReader reader, String localName) {
+        for (int i = 0; i < reader.getAttributeCount(); i++) {
+            String namespaceUri = reader.getAttributeNamespace(i);
+            if ((namespaceUri == null || namespaceUri.length() == 0)
+                    && localName.equals(reader.getAttributeLocalName(i))) {
+                return reader.getAttributeValue(i);
+            }
+        }
+        return null;
+    }
+
+    private static String getQName(XMLStreamReader reader) {
+        String prefix = reader.getPrefix();
+        if (prefix == null || prefix.length() == 0) {
+            return reader.getLocalName();
+        }
+        return prefix + ':' + reader.getLocalName();
+    }
+
+    private static boolean isWhitespace(CharSequence chars) {
+        for (int i = 0; i < chars.length(); i++) {
+            char c = chars.charAt(i);
+            if (c != ' ' && c != '\t' && c != '\n' && c != '\r') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private enum Mode {
+        FULL, SKELETON, RESOURCES
+    }
+
+    /**
+     * Receives the top-level resources of a document that is read resource by resource.
+     */
+    interface ResourceHandler {
+
+        void endResources(WadlNode resources) throws SAXException;
+
+        void resource(WadlNode resource) throws SAXException;
+
+        void startResources(WadlNode resources) throws SAXException;
+    }
+}
@@ -0,0 +1,842 @@
+/*
+ * Licensed to Indoqa Software Design und Beratung GmbH (Indoqa) 
+ * under one or more contributor license agreements. See the NOTICE 
+ * file distributed with this work for additional information
+ * regarding copyright ownership. Indoqa licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.indoqa.maven.wadldoc.transformation;
+
+import java.io.IOException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.xml.stream.XMLStreamException;
+
+import org.xml.sax.SAXException;
+
+import com.indoqa.maven.wadldoc.transformation.ReferencedDocumentCache.DocumentLoader;
+import com.indoqa.maven.wadldoc.transformation.WadlDocumentReader.ResourceHandler;
+
+/**
+ * Builds the expanded resource tree and collects the grammars of a WADL document. It does the same as the
+ * <code>expand</code>, <code>include-href</code> and <code>include-grammar</code> modes of
+ * <code>wadl_documentation.xsl</code>, but resolves references with the id indexes of the documents instead of
+ * searching them and reads every referenced document only once.
+ * <p>
+ * For large documents, the expander works on a skeleton (see {@link WadlDocumentReader#readSkeleton(URL, Set)})
+ * and the top-level resources are read, expanded and handed to a {@link ResourceVisitor} one by one, every time
+ * the resources are visited. Their generated ids are derived from their position then, so that they are the same
+ * in every visit.
+ */
+final class WadlExpander {
+
+    private static final String NS_XSD = "http://www.w3.org/2001/XMLSchema";
+
+    private static final String ATT_BASE = "base";
+    private static final String ATT_HREF = "href";
+    private static final String ATT_ID = "id";
+    private static final String ATT_NAME = "name";
+    private static final String ATT_PATH = "path";
+    private static final String ATT_TARGET_NAMESPACE = "targetNamespace";
+    private static final String ATT_TYPE = "type";
+    private static final String EL_APPLICATION = "application";
+    private static final String EL_GRAMMARS = "grammars";
+    private static final String EL_INCLUDE = "include";
+    private static final String EL_RESOURCE = "resource";
+    private static final String EL_RESOURCE_TYPE = "resource_type";
+    private static final String EL_RESOURCES = "resources";
+    private static final String[] REFERENCED_ATTRIBUTES = {"element", "mediaType", "status", ATT_NAME};
+
+    private static final DocumentLoader<WadlDocument> WADL_DOCUMENT_LOADER = new DocumentLoader<WadlDocument>() {
+
+        public Class<WadlDocument> getType() {
+            return WadlDocument.class;
+        }
+
+        public WadlDocument load(URL url) throws Exception {
+            return new WadlDocumentReader().read(url);
+        }
+    };
+
+    private final WadlDocument document;
+    private final boolean streamed;
+    private final boolean escapeHtmlRepresentations;
+    private final Map<String, WadlDocument> referencedDocuments = new HashMap<String, WadlDocument>();
+
+    private final List<WadlNode> resources = new ArrayList<WadlNode>();
+    private WadlNode namespaceFallback;
+
+    private final List<Grammar> grammars = new ArrayList<Grammar>();
+    private boolean grammarsCollected;
+    private final Map<WadlDocument, List<Grammar>> referencedGrammars = new HashMap<WadlDocument, List<Grammar>>();
+    private final Set<WadlDocument> activeDocuments = new HashSet<WadlDocument>();
+    // the definitions of each grammar, indexed by name; the same grammar can be included several times
+    private final Map<WadlNode, Map<String, List<Definition>>> definitions =
+            new IdentityHashMap<WadlNode, Map<String, List<Definition>>>();
+
+    private int generatedIds;
+
+    WadlExpander(WadlDocument document) {
+        this(document, false, false);
+    }
+
+    /**
+     * Create an expander for the skeleton of a large document. The top-level resources are read from the document
+     * again for each visit, with the passed escaping setting.
+     */
+    WadlExpander(WadlDocument skeleton, boolean escapeHtmlRepresentations) {
+        this(skeleton, true, escapeHtmlRepresentations);
+    }
+
+    private WadlExpander(WadlDocument document, boolean streamed, boolean escapeHtmlRepresentations) {
+        this.document = document;
+        this.streamed = streamed;
+        this.escapeHtmlRepresentations = escapeHtmlRepresentations;
+    }
+
+    /**
+     * Expand the resources and collect the grammars. The top-level resources of a skeleton are expanded when they
+     * are visited and the grammars they reference are collected during the first visit.
+     */
+    void expand() {
+        WadlNode application = this.document.getRootElement();
+        if (application == null || !application.isWadl(EL_APPLICATION)) {
+            this.grammarsCollected = true;
+            return;
+        }
+
+        for (WadlNode eachResources : application.getWadlChildren(EL_RESOURCES)) {
+            if (this.namespaceFallback == null) {
+                this.namespaceFallback = eachResources;
+            }
+            if (!this.streamed) {
+                this.resources.add(this.expandResources(eachResources));
+            }
+        }
+        markDuplicates(this.resources, new HashSet<String>(), new HashSet<String>());
+
+        this.collectGrammars(application);
+    }
+
+    /**
+     * Find the schema definitions with the passed name in the grammars. If <code>elementsOnly</code> is set, only
+     * element declarations are considered, otherwise all named schema components.
+     */
+    List<Definition> findDefinitions(String localName, String namespaceUri, boolean elementsOnly)
+            throws SAXException {
+        if (!this.grammarsCollected) {
+            this.visitResources(new ResourceVisitor());
+        }
+
+        List<Definition> result = new ArrayList<Definition>();
+        for (Grammar grammar : this.grammars) {
+            List<Definition> candidates = this.getDefinitions(grammar).get(localName);
+            if (candidates == null) {
+                continue;
+            }
+
+            for (Definition candidate : candidates) {
+                if ((!elementsOnly || "element".equals(candidate.getElement().getLocalName()))
+                        && candidate.isInTargetNamespace(namespaceUri)) {
+                    result.add(new Definition(candidate.getElement(), grammar.getHref(),
+                            candidate.targetNamespaces));
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Get the value of the <code>id</code> attribute or the generated id of an element.
+     */
+    String getId(WadlNode element) {
+        String id = element.getAttribute(ATT_ID);
+        if (id != null) {
+            return id;
+        }
+
+        if (element.getGeneratedId() == null) {
+            element.setGeneratedId("N" + Integer.toHexString(++this.generatedIds).toUpperCase());
+        }
+        return element.getGeneratedId();
+    }
+
+    /**
+     * Hand all expanded <code>wadl:resources</code> elements and their resources to the visitor, in document
+     * order. The <code>wadl:resources</code> elements of a skeleton don't contain their resources and resources
+     * are only valid until the next one is visited.
+     */
+    void visitResources(ResourceVisitor visitor) throws SAXException {
+        if (!this.streamed) {
+            for (WadlNode eachResources : this.resources) {
+                visitor.startResources(eachResources);
+                for (WadlNode resource : eachResources.getWadlChildren(EL_RESOURCE)) {
+                    visitor.resource(resource);
+                }
+                visitor.endResources(eachResources);
+            }
+            return;
+        }
+
+        StreamedResourceHandler handler = new StreamedResourceHandler(visitor, !this.grammarsCollected);
+        try {
+            new WadlDocumentReader(this.escapeHtmlRepresentations, null).readResources(this.document, handler);
+        } catch (IOException e) {
+            throw new SAXException("Can't read the resources of " + this.document.getUrl(), e);
+        } catch (XMLStreamException e) {
+            throw new SAXException("Can't read the resources of " + this.document.getUrl(), e);
+        }
+
+        if (!this.grammarsCollected) {
+            for (Reference reference : handler.getReferences()) {
+                this.includeReferencedGrammars(reference.getDocument(), reference.getReference(), this.grammars);
+            }
+            this.grammarsCollected = true;
+        }
+    }
+
+    /**
+     * Resolve a prefix in the context of an expanded element. If the prefix isn't in scope, the namespaces of the
+     * first <code>wadl:resources</code> element are used.
+     */
+    String lookupNamespace(WadlNode element, String prefix) {
+        String namespaceUri = element.lookupNamespace(prefix);
+        if (namespaceUri == null && prefix.length() > 0 && this.namespaceFallback != null) {
+            namespaceUri = this.namespaceFallback.lookupNamespace(prefix);
+        }
+        return namespaceUri == null ? "" : namespaceUri;
+    }
+
+    private void collectGrammars(WadlNode application) {
+        for (WadlNode eachGrammars : application.getWadlChildren(EL_GRAMMARS)) {
+            for (WadlNode child : eachGrammars.getChildren()) {
+                if (child.isElement() && !child.isWadl()) {
+                    this.grammars.add(new Grammar(child, null));
+                }
+            }
+        }
+        for (WadlNode eachGrammars : application.getWadlChildren(EL_GRAMMARS)) {
+            for (WadlNode include : eachGrammars.getWadlChildren(EL_INCLUDE)) {
+                this.includeGrammar(include, this.grammars);
+            }
+        }
+        if (this.streamed) {
+            // the references of the top-level resources are only known after they have been visited
+            return;
+        }
+
+        for (WadlNode eachResources : application.getWadlChildren(EL_RESOURCES)) {
+            for (WadlNode resource : findWadlDescendants(eachResources, EL_RESOURCE, ATT_TYPE)) {
+                this.includeReferencedGrammars(resource, this.grammars);
+            }
+        }
+        for (WadlNode eachResources : this.resources) {
+            for (WadlNode element : findWadlDescendants(eachResources, null, ATT_HREF)) {
+                this.includeReferencedGrammars(element, this.grammars);
+            }
+        }
+        this.grammarsCollected = true;
+    }
+
+    private WadlNode copyElement(WadlNode source) {
+        WadlNode result = WadlNode.element(source.getNamespaceUri(), source.getLocalName(), source.getPrefix(),
+                source.getDocument());
+        result.setNamespaceSource(source);
+        copyAttributes(source, result);
+        return result;
+    }
+
+    private void expandChildElements(WadlNode source, WadlNode target, String base) {
+        for (WadlNode child : source.getChildren()) {
+            if (child.isElement()) {
+                target.addChild(this.expandElement(child, base));
+            }
+        }
+    }
+
+    private void expandChildren(WadlNode source, WadlNode target, String base) {
+        for (WadlNode child : source.getChildren()) {
+            if (child.isElement()) {
+                target.addChild(this.expandElement(child, base));
+            } else if (child.isText()) {
+                target.addChild(WadlNode.text(child.getText()));
+            } else {
+                target.addChild(WadlNode.comment(child.getText()));
+            }
+        }
+    }
+
+    private WadlNode expandElement(WadlNode source, String base) {
+        if (source.isWadl(EL_RESOURCE) && source.hasAttribute(ATT_TYPE)) {
+            return this.expandResourceType(source, base);
+        }
+
+        if (source.hasAttribute(ATT_ID)) {
+            WadlNode result = createWadlElement(source);
+            copyAttributes(source, result);
+            result.setAttribute(ATT_ID, base + '#' + source.getAttribute(ATT_ID));
+            this.expandChildren(source, result, base);
+            return result;
+        }
+
+        if (source.isWadl() && source.hasAttribute(ATT_HREF)) {
+            return this.expandHref(source, base);
+        }
+
+        WadlNode result = this.copyElement(source);
+        this.expandChildren(source, result, base);
+        return result;
+    }
+
+    private WadlNode expandHref(WadlNode source, String base) {
+        String href = source.getAttribute(ATT_HREF);
+        String uri = substringBefore(href, '#');
+        String id = substringAfter(href, '#');
+
+        WadlNode result = createWadlElement(source);
+        copyAttributes(source, result);
+
+        if (uri.length() > 0) {
+            result.setAttribute(ATT_ID, href);
+            WadlDocument included = this.getReferencedDocument(source.getDocument(), uri);
+            if (included != null) {
+                for (WadlNode target : included.getElementsById(id)) {
+                    this.expandChildElements(target, result, uri);
+                }
+            }
+        } else {
+            result.setAttribute(ATT_ID, base + '#' + id);
+            List<WadlNode> targets = source.getDocument().getElementsById(id);
+            for (String attribute : REFERENCED_ATTRIBUTES) {
+                result.setAttribute(attribute, getFirstAttributeValue(targets, attribute));
+            }
+            for (WadlNode target : targets) {
+                this.expandChildElements(target, result, base);
+            }
+        }
+
+        return result;
+    }
+
+    private WadlNode expandResources(WadlNode source) {
+        WadlNode result = createWadlElement(source);
+        copyAttributes(source, result);
+        this.expandChildren(source, result, getBase(source));
+        return result;
+    }
+
+    private WadlNode expandResourceType(WadlNode source, String base) {
+        String type = source.getAttribute(ATT_TYPE);
+        String uri = substringBefore(type, '#');
+        String id = substringAfter(type, '#');
+        String path = source.getAttributeValue(ATT_PATH);
+
+        WadlNode result = createWadlElement(source);
+        result.setAttribute(ATT_PATH, path);
+
+        if (uri.length() > 0) {
+            WadlDocument included = this.getReferencedDocument(source.getDocument(), uri);
+            List<WadlNode> resourceTypes = Collections.emptyList();
+            if (included != null) {
+                resourceTypes = filterWadlElements(included.getElementsById(id), EL_RESOURCE_TYPE);
+            }
+            for (WadlNode resourceType : resourceTypes) {
+                copyAttributes(resourceType, result);
+            }
+            result.setAttribute(ATT_ID, type + '#' + path);
+            for (WadlNode resourceType : resourceTypes) {
+                this.expandChildElements(resourceType, result, uri);
+            }
+        } else {
+            result.setAttribute(ATT_ID, base + '#' + type + '#' + path);
+            for (WadlNode resourceType : filterWadlElements(source.getDocument().getElementsById(id),
+                    EL_RESOURCE_TYPE)) {
+                this.expandChildElements(resourceType, result, base);
+            }
+        }
+
+        this.expandChildren(source, result, base);
+        return result;
+    }
+
+    private Map<String, List<Definition>> getDefinitions(Grammar grammar) {
+        Map<String, List<Definition>> result = this.definitions.get(grammar.getRoot());
+        if (result == null) {
+            result = new HashMap<String, List<Definition>>();
+            indexDefinitions(grammar.getRoot(), new ArrayList<String>(), result);
+            this.definitions.put(grammar.getRoot(), result);
+        }
+        return result;
+    }
+
+    /**
+     * Get a referenced document like XSLT's <code>document($uri, /)</code> does it. Documents that can't be read
+     * are treated as empty.
+     */
+    private WadlDocument getReferencedDocument(WadlDocument referencingDocument, String uri) {
+        URL url;
+        try {
+            url = new URL(referencingDocument.getUrl(), uri);
+        } catch (Exception e) {
+            return null;
+        }
+
+        String key = url.toExternalForm();
+        if (this.referencedDocuments.containsKey(key)) {
+            return this.referencedDocuments.get(key);
+        }
+
+        WadlDocument referencedDocument;
+        try {
+            referencedDocument = ReferencedDocumentCache.getDocument(url, WADL_DOCUMENT_LOADER);
+        } catch (Exception e) {
+            referencedDocument = null;
+        }
+        this.referencedDocuments.put(key, referencedDocument);
+        return referencedDocument;
+    }
+
+    private void includeGrammar(WadlNode include, List<Grammar> target) {
+        String href = include.getAttribute(ATT_HREF);
+        if (href == null) {
+            return;
+        }
+
+        WadlDocument included = this.getReferencedDocument(include.getDocument(), href);
+        if (included != null && included.getRootElement() != null) {
+            target.add(new Grammar(included.getRootElement(), href));
+        }
+    }
+
+    /**
+     * Add the grammars of the document a <code>@href</code> or <code>@type</code> reference points to, including
+     * the grammars of all documents that one references in turn.
+     */
+    private void includeReferencedGrammars(WadlNode element, List<Grammar> target) {
+        this.includeReferencedGrammars(element.getDocument(), getReference(element), target);
+    }
+
+    private void includeReferencedGrammars(WadlDocument referencingDocument, String reference,
+            List<Grammar> target) {
+        String uri = substringBefore(reference, '#');
+        if (uri.length() == 0) {
+            return;
+        }
+
+        WadlDocument included = this.getReferencedDocument(referencingDocument, uri);
+        if (included == null || included.getRootElement() == null) {
+            return;
+        }
+
+        List<Grammar> includedGrammars = this.referencedGrammars.get(included);
+        if (includedGrammars == null) {
+            if (!this.activeDocuments.add(included)) {
+                // a cyclic reference, its grammars are already being collected
+                return;
+            }
+
+            includedGrammars = new ArrayList<Grammar>();
+            this.collectReferencedGrammars(included.getRootElement(), includedGrammars);
+            this.activeDocuments.remove(included);
+            this.referencedGrammars.put(included, includedGrammars);
+        }
+        target.addAll(includedGrammars);
+    }
+
+    private void collectReferencedGrammars(WadlNode root, List<Grammar> target) {
+        if (root.isWadl(EL_APPLICATION)) {
+            for (WadlNode eachGrammars : root.getWadlChildren(EL_GRAMMARS)) {
+                for (WadlNode child : eachGrammars.getChildren()) {
+                    if (child.isElement() && !child.isWadl()) {
+                        target.add(new Grammar(child, null));
+                    }
+                }
+            }
+        }
+
+        List<WadlNode> includes = findWadlDescendants(root, EL_INCLUDE, ATT_HREF);
+        if (root.isWadl(EL_INCLUDE) && root.hasAttribute(ATT_HREF)) {
+            includes.add(0, root);
+        }
+        for (WadlNode include : includes) {
+            this.includeGrammar(include, target);
+        }
+
+        if (root.isWadl(EL_APPLICATION)) {
+            for (WadlNode eachResources : root.getWadlChildren(EL_RESOURCES)) {
+                for (WadlNode resource : findWadlDescendants(eachResources, EL_RESOURCE, ATT_TYPE)) {
+                    this.includeReferencedGrammars(resource, target);
+                }
+                for (WadlNode element : findWadlDescendants(eachResources, null, ATT_HREF)) {
+                    this.includeReferencedGrammars(element, target);
+                }
+            }
+        }
+    }
+
+    private static void copyAttributes(WadlNode source, WadlNode target) {
+        for (int i = 0; i < source.getAttributeCount(); i++) {
+            target.setAttribute(source.getAttributeName(i), source.getAttributeValue(i));
+        }
+    }
+
+    /**
+     * Create an element in the WADL namespace like <code>xsl:element</code> does it in the stylesheet. Such an
+     * element declares the WADL namespace as its default namespace.
+     */
+    private static WadlNode createWadlElement(WadlNode source) {
+        WadlNode result = WadlNode.element(WadlNode.NS_WADL, source.getLocalName(), "", source.getDocument());
+        result.declareNamespace("", WadlNode.NS_WADL);
+        return result;
+    }
+
+    /**
+     * Generate the ids of all WADL elements of a resource that don't have an <code>id</code> attribute from their
+     * position, so that they don't depend on the order in which the ids are requested.
+     */
+    private static int generateIds(WadlNode element, String prefix, int count) {
+        int result = count;
+        if (element.isWadl() && !element.hasAttribute(ATT_ID)) {
+            element.setGeneratedId(prefix + Integer.toHexString(++result).toUpperCase());
+        }
+        for (WadlNode child : element.getChildren()) {
+            if (child.isElement()) {
+                result = generateIds(child, prefix, result);
+            }
+        }
+        return result;
+    }
+
+    private static List<WadlNode> filterWadlElements(List<WadlNode> elements, String localName) {
+        List<WadlNode> result = new ArrayList<WadlNode>();
+        for (WadlNode element : elements) {
+            if (element.isWadl(localName)) {
+                result.add(element);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Find all WADL descendants with the passed name (any name if <code>null</code>) that have the passed
+     * attribute.
+     */
+    private static List<WadlNode> findWadlDescendants(WadlNode element, String localName, String attribute) {
+        List<WadlNode> result = new ArrayList<WadlNode>();
+        findWadlDescendants(element, localName, attribute, result);
+        return result;
+    }
+
+    private static void findWadlDescendants(WadlNode element, String localName, String attribute,
+            List<WadlNode> result) {
+        for (WadlNode child : element.getChildren()) {
+            if (!child.isElement()) {
+                continue;
+            }
+            if (child.isWadl() && (localName == null || localName.equals(child.getLocalName()))
+                    && child.hasAttribute(attribute)) {
+                result.add(child);
+            }
+            findWadlDescendants(child, localName, attribute, result);
+        }
+    }
+
+    private static String getBase(WadlNode resources) {
+        String base = resources.getAttributeValue(ATT_BASE);
+        if (base.endsWith("/")) {
+            return base.substring(0, base.length() - 1);
+        }
+        return base;
+    }
+
+    private static String getFirstAttributeValue(List<WadlNode> elements, String attribute) {
+        for (WadlNode element : elements) {
+            String value = element.getAttribute(attribute);
+            if (value != null) {
+                return value;
+            }
+        }
+        return "";
+    }
+
+    private static String getReference(WadlNode element) {
+        if (element.isWadl(EL_RESOURCE) && element.hasAttribute(ATT_TYPE)) {
+            return element.getAttribute(ATT_TYPE);
+        }
+        return element.getAttribute(ATT_HREF);
+    }
+
+    private static void indexDefinitions(WadlNode element, List<String> targetNamespaces,
+            Map<String, List<Definition>> index) {
+        String targetNamespace = element.getAttribute(ATT_TARGET_NAMESPACE);
+        if (targetNamespace != null) {
+            targetNamespaces.add(targetNamespace);
+        }
+
+        String name = element.getAttribute(ATT_NAME);
+        if (name != null && NS_XSD.equals(element.getNamespaceUri())) {
+            List<Definition> definitions = index.get(name);
+            if (definitions == null) {
+                definitions = new ArrayList<Definition>();
+                index.put(name, definitions);
+            }
+            definitions.add(new Definition(element, null, new ArrayList<String>(targetNamespaces)));
+        }
+
+        for (WadlNode child : element.getChildren()) {
+            if (child.isElement()) {
+                indexDefinitions(child, targetNamespaces, index);
+            }
+        }
+
+        if (targetNamespace != null) {
+            targetNamespaces.remove(targetNamespaces.size() - 1);
+        }
+    }
+
+    /**
+     * Mark the duplicates within an element as if there weren't any other elements.
+     */
+    static void markDuplicates(WadlNode element) {
+        markDuplicates(Collections.singletonList(element), new HashSet<String>(), new HashSet<String>());
+    }
+
+    /**
+     * Mark all elements that are preceded by another element with the same id, so that they are only listed once.
+     */
+    private static void markDuplicates(List<WadlNode> elements, Set<String> precedingIds,
+            Set<String> precedingResourceIds) {
+        for (WadlNode element : elements) {
+            if (!element.isElement()) {
+                continue;
+            }
+
+            String id = element.isWadl() ? element.getAttribute(ATT_ID) : null;
+            if (id != null) {
+                Set<String> ids = element.isWadl(EL_RESOURCE) ? precedingResourceIds : precedingIds;
+                element.setDuplicate(ids.contains(id));
+            }
+
+            markDuplicates(element.getChildren(), precedingIds, precedingResourceIds);
+
+            if (id != null) {
+                precedingIds.add(id);
+                if (element.isWadl(EL_RESOURCE)) {
+                    precedingResourceIds.add(id);
+                }
+            }
+        }
+    }
+
+    /**
+     * XPath's <code>substring-after</code>, which returns an empty string if the separator isn't found.
+     */
+    private static String substringAfter(String value, char separator) {
+        int index = value.indexOf(separator);
+        return index == -1 ? "" : value.substring(index + 1);
+    }
+
+    /**
+     * XPath's <code>substring-before</code>, which returns an empty string if the separator isn't found.
+     */
+    private static String substringBefore(String value, char separator) {
+        int index = value.indexOf(separator);
+        return index == -1 ? "" : value.substring(0, index);
+    }
+
+    /**
+     * A named schema component found in the grammars.
+     */
+    static class Definition {
+
+        private final WadlNode element;
+        private final String source;
+        private final List<String> targetNamespaces;
+
+        public Definition(WadlNode element, String source, List<String> targetNamespaces) {
+            this.element = element;
+            this.source = source;
+            this.targetNamespaces = targetNamespaces;
+        }
+
+        public WadlNode getElement() {
+            return this.element;
+        }
+
+        /**
+         * Get the <code>href</code> of the <code>wadl:include</code> the definition was included by.
+         */
+        public String getSource() {
+            return this.source;
+        }
+
+        public boolean isInTargetNamespace(String namespaceUri) {
+            return this.targetNamespaces.contains(namespaceUri);
+        }
+    }
+
+    private static class Grammar {
+
+        private final WadlNode root;
+        private final String href;
+
+        public Grammar(WadlNode root, String href) {
+            this.root = root;
+            this.href = href;
+        }
+
+        public String getHref() {
+            return this.href;
+        }
+
+        public WadlNode getRoot() {
+            return this.root;
+        }
+    }
+
+    /**
+     * Receives the expanded resources, see {@link WadlExpander#visitResources(ResourceVisitor)}. All methods do
+     * nothing by default.
+     */
+    static class ResourceVisitor {
+
+        public void endResources(WadlNode resources) throws SAXException {
+            // nothing to do by default
+        }
+
+        public void resource(WadlNode resource) throws SAXException {
+            // nothing to do by default
+        }
+
+        public void startResources(WadlNode resources) throws SAXException {
+            // nothing to do by default
+        }
+    }
+
+    /**
+     * A reference to another document, made from within a document.
+     */
+    private static class Reference {
+
+        private final WadlDocument document;
+        private final String reference;
+
+        public Reference(WadlDocument document, String reference) {
+            this.document = document;
+            this.reference = reference;
+        }
+
+        public WadlDocument getDocument() {
+            return this.document;
+        }
+
+        public String getReference() {
+            return this.reference;
+        }
+    }
+
+    /**
+     * Expands the top-level resources of a skeleton while they are read and passes them on to a visitor. The
+     * references to other documents are recorded on demand, in the order in which the stylesheet includes the
+     * grammars of the referenced documents: resource types first, then all the other references.
+     */
+    private class StreamedResourceHandler implements ResourceHandler {
+
+        private final ResourceVisitor visitor;
+        private final boolean recordReferences;
+        private final List<Reference> typeReferences = new ArrayList<Reference>();
+        private final List<Reference> hrefReferences = new ArrayList<Reference>();
+        private final Set<String> precedingIds = new HashSet<String>();
+        private final Set<String> precedingResourceIds = new HashSet<String>();
+
+        private WadlNode resources;
+        private String base;
+        private int count;
+
+        public StreamedResourceHandler(ResourceVisitor visitor, boolean recordReferences) {
+            this.visitor = visitor;
+            this.recordReferences = recordReferences;
+        }
+
+        public void endResources(WadlNode source) throws SAXException {
+            this.visitor.endResources(this.resources);
+            this.resources = null;
+        }
+
+        public List<Reference> getReferences() {
+            List<Reference> result = new ArrayList<Reference>(this.typeReferences);
+            result.addAll(this.hrefReferences);
+            return result;
+        }
+
+        public void resource(WadlNode source) throws SAXException {
+            if (this.recordReferences) {
+                if (source.hasAttribute(ATT_TYPE)) {
+                    this.record(source, this.typeReferences);
+                }
+                for (WadlNode resource : findWadlDescendants(source, EL_RESOURCE, ATT_TYPE)) {
+                    this.record(resource, this.typeReferences);
+                }
+            }
+
+            WadlNode resource = WadlExpander.this.expandElement(source, this.base);
+            resource.setParent(this.resources);
+            markDuplicates(Collections.singletonList(resource), this.precedingIds, this.precedingResourceIds);
+            generateIds(resource, "N" + Integer.toHexString(++this.count).toUpperCase() + "_", 0);
+
+            if (this.recordReferences) {
+                if (resource.isWadl() && resource.hasAttribute(ATT_HREF)) {
+                    this.record(resource, this.hrefReferences);
+                }
+                this.recordHrefReferences(resource);
+            }
+
+            this.visitor.resource(resource);
+        }
+
+        public void startResources(WadlNode source) throws SAXException {
+            this.base = getBase(source);
+            this.resources = WadlExpander.this.expandResources(source);
+            markDuplicates(Collections.singletonList(this.resources), this.precedingIds,
+                    this.precedingResourceIds);
+
+            if (this.recordReferences) {
+                this.recordHrefReferences(this.resources);
+            }
+
+            this.visitor.startResources(this.resources);
+        }
+
+        private void record(WadlNode element, List<Reference> references) {
+            String reference = getReference(element);
+            if (substringBefore(reference, '#').length() > 0) {
+                references.add(new Reference(element.getDocument(), reference));
+            }
+        }
+
+        private void recordHrefReferences(WadlNode element) {
+            for (WadlNode each : findWadlDescendants(element, null, ATT_HREF)) {
+                this.record(each, this.hrefReferences);
+            }
+        }
+    }
+}
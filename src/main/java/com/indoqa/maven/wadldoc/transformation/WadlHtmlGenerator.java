@@ -0,0 +1,1081 @@
+/*
+ * Licensed to Indoqa Software Design und Beratung GmbH (Indoqa) 
+ * under one or more contributor license agreements. See the NOTICE 
+ * file distributed with this work for additional information
+ * regarding copyright ownership. Indoqa licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.indoqa.maven.wadldoc.transformation;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.cocoon.pipeline.ProcessingException;
+import org.apache.cocoon.pipeline.component.sax.AbstractGenerator;
+import org.apache.cocoon.pipeline.component.sax.XMLConsumer;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.AttributesImpl;
+
+import com.indoqa.maven.wadldoc.transformation.WadlExpander.ResourceVisitor;
+
+/**
+ * Generates the HTML documentation of a WADL document from the model built by the {@link WadlDocumentReader} and
+ * the {@link WadlExpander}. The generated SAX events are the same as those of <code>wadl_documentation.xsl</code>
+ * (and <code>wadl_documentation_html-reps.xsl</code> if HTML representations are escaped), except for the values
+ * of generated ids.
+ * <p>
+ * Besides the single page of the stylesheet, the generator can produce the pages of the per-resource layout: a
+ * table of contents and one page for each top-level resource, see {@link ResourcePagesRenderer}.
+ */
+final class WadlHtmlGenerator extends AbstractGenerator {
+
+    private static final String NS_XHTML = "http://www.w3.org/1999/xhtml";
+    private static final String NS_XSD = "http://www.w3.org/2001/XMLSchema";
+
+    private static final String ATT_DEFAULT = "default";
+    private static final String ATT_ELEMENT = "element";
+    private static final String ATT_FIXED = "fixed";
+    private static final String ATT_MEDIA_TYPE = "mediaType";
+    private static final String ATT_NAME = "name";
+    private static final String ATT_PATH = "path";
+    private static final String ATT_STATUS = "status";
+    private static final String ATT_STYLE = "style";
+    private static final String ATT_TITLE = "title";
+    private static final String ATT_VALUE = "value";
+    private static final String EL_DOC = "doc";
+    private static final String EL_FAULT = "fault";
+    private static final String EL_METHOD = "method";
+    private static final String EL_OPTION = "option";
+    private static final String EL_PARAM = "param";
+    private static final String EL_REPRESENTATION = "representation";
+    private static final String EL_REQUEST = "request";
+    private static final String EL_RESOURCE = "resource";
+    private static final String EL_RESPONSE = "response";
+    private static final String MEDIA_TYPE_HTML = "text/html";
+
+    // the links of the stylesheet to the grammars are literally like this
+    private static final String SOURCE_LINK = "http://www.mnot.net/webdesc/%7B$source%7D";
+    private static final String TYPE_LINK =
+            "http://www.mnot.net/webdesc/%7B$definition/ancestor-or-self::wadl:include%5B1%5D/@href%7D";
+
+    private final WadlDocument document;
+    private final WadlExpander expander;
+    private final boolean escapeHtmlRepresentations;
+    private final String style;
+
+    private Page page = Page.DOCUMENT;
+    private WadlNode resource;
+    private ResourcePageNames pageNames;
+
+    private XMLConsumer consumer;
+
+    WadlHtmlGenerator(WadlDocument document, WadlExpander expander, boolean escapeHtmlRepresentations,
+            String style) {
+        this.document = document;
+        this.expander = expander;
+        this.escapeHtmlRepresentations = escapeHtmlRepresentations;
+        this.style = style;
+    }
+
+    /**
+     * Create a generator for the page of a top-level resource. It contains the resource itself, its subresources
+     * and all the representations and faults they use.
+     */
+    static WadlHtmlGenerator createResourcePage(WadlDocument document, WadlExpander expander,
+            boolean escapeHtmlRepresentations, String style, WadlNode resource) {
+        WadlHtmlGenerator generator = new WadlHtmlGenerator(document, expander, escapeHtmlRepresentations, style);
+        generator.page = Page.RESOURCE;
+        generator.resource = resource;
+        return generator;
+    }
+
+    /**
+     * Create a generator for the table of contents of the per-resource layout. The entries of the top-level
+     * resources link to the pages with the passed names.
+     */
+    static WadlHtmlGenerator createTableOfContents(WadlDocument document, WadlExpander expander,
+            boolean escapeHtmlRepresentations, String style, ResourcePageNames pageNames) {
+        WadlHtmlGenerator generator = new WadlHtmlGenerator(document, expander, escapeHtmlRepresentations, style);
+        generator.page = Page.TABLE_OF_CONTENTS;
+        generator.pageNames = pageNames;
+        return generator;
+    }
+
+    public void execute() {
+        this.consumer = this.getXMLConsumer();
+
+        try {
+            this.consumer.startDocument();
+            WadlNode application = this.document.getRootElement();
+            if (application != null && application.isWadl("application")) {
+                this.consumer.startPrefixMapping("", NS_XHTML);
+                if (this.page == Page.RESOURCE) {
+                    this.renderResourcePage(application);
+                } else if (this.page == Page.TABLE_OF_CONTENTS) {
+                    this.renderTableOfContents(application);
+                } else {
+                    this.renderApplication(application);
+                }
+                this.consumer.endPrefixMapping("");
+            } else if (application != null) {
+                // like XSLT's built-in templates
+                this.text(application.getStringValue());
+            }
+            this.consumer.endDocument();
+        } catch (SAXException e) {
+            throw new ProcessingException("Can't generate the HTML documentation of " + this.document.getUrl(), e);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "WadlHtmlGenerator(src=" + this.document.getUrl() + ")";
+    }
+
+    private void copy(List<WadlNode> nodes) throws SAXException {
+        for (WadlNode node : nodes) {
+            if (node.isText()) {
+                this.text(node.getText());
+            } else if (node.isComment()) {
+                char[] chars = node.getText().toCharArray();
+                this.consumer.comment(chars, 0, chars.length);
+            } else if (NS_XHTML.equals(node.getNamespaceUri())) {
+                // remove the prefix of HTML elements and their attributes
+                AttributesImpl atts = new AttributesImpl();
+                for (int i = 0; i < node.getAttributeCount(); i++) {
+                    String name = getLocalName(node.getAttributeName(i));
+                    int index = atts.getIndex(name);
+                    if (index == -1) {
+                        atts.addAttribute("", name, name, "CDATA", node.getAttributeValue(i));
+                    } else {
+                        atts.setValue(index, node.getAttributeValue(i));
+                    }
+                }
+                this.consumer.startElement(NS_XHTML, node.getLocalName(), node.getLocalName(), atts);
+                this.copy(node.getChildren());
+                this.consumer.endElement(NS_XHTML, node.getLocalName(), node.getLocalName());
+            } else {
+                this.copyElement(node);
+            }
+        }
+    }
+
+    private void copyElement(WadlNode element) throws SAXException {
+        String namespaceUri = element.getNamespaceUri() == null ? "" : element.getNamespaceUri();
+        String prefix = element.getPrefix() == null ? "" : element.getPrefix();
+
+        AttributesImpl atts = new AttributesImpl();
+        for (int i = 0; i < element.getAttributeCount(); i++) {
+            String name = element.getAttributeName(i);
+            String attributePrefix = getPrefix(name);
+            String attributeNamespace = "";
+            if (attributePrefix.length() > 0) {
+                attributeNamespace = this.expander.lookupNamespace(element, attributePrefix);
+            }
+            atts.addAttribute(attributeNamespace, getLocalName(name), name, "CDATA", element.getAttributeValue(i));
+        }
+
+        this.consumer.startPrefixMapping(prefix, namespaceUri);
+        this.consumer.startElement(namespaceUri, element.getLocalName(), element.getQName(), atts);
+        this.copy(element.getChildren());
+        this.consumer.endElement(namespaceUri, element.getLocalName(), element.getQName());
+        this.consumer.endPrefixMapping(prefix);
+    }
+
+    private void end(String name) throws SAXException {
+        this.consumer.endElement(NS_XHTML, name, name);
+    }
+
+    private String getExpandedName(WadlNode element) {
+        String qname = element.getAttributeValue(ATT_ELEMENT);
+        return "{" + this.expander.lookupNamespace(element, substringBefore(qname, ':')) + "} "
+                + substringAfter(qname, ':');
+    }
+
+    private void renderApplication(WadlNode application) throws SAXException {
+        String title = getApplicationTitle(application);
+
+        this.start("html");
+        this.renderHead(title);
+
+        this.start("body");
+        this.start("h1");
+        this.text(title);
+        this.end("h1");
+        this.renderDocs(application);
+
+        // table of contents
+        this.start("ul");
+        this.start("li");
+        this.renderLink("resources", "Resources");
+        this.expander.visitResources(new ResourceVisitor() {
+
+            private String base;
+
+            @Override
+            public void endResources(WadlNode resources) throws SAXException {
+                WadlHtmlGenerator.this.end("ul");
+            }
+
+            @Override
+            public void resource(WadlNode resource) throws SAXException {
+                WadlHtmlGenerator.this.renderResourceTocEntry(resource, this.base, "");
+            }
+
+            @Override
+            public void startResources(WadlNode resources) throws SAXException {
+                this.base = getBase(resources);
+                WadlHtmlGenerator.this.start("ul");
+            }
+        });
+        this.end("li");
+        this.start("li");
+        this.renderLink("representations", "Representations");
+        this.start("ul");
+        boolean faultsFound = this.renderRepresentationTocEntries(false);
+        this.end("ul");
+        this.end("li");
+        if (this.document.containsFaults()) {
+            this.start("li");
+            this.renderLink("faults", "Faults");
+            this.start("ul");
+            this.renderRepresentationTocEntries(true);
+            this.end("ul");
+            this.end("li");
+        }
+        this.end("ul");
+
+        // listings
+        this.start("h2", "id", "resources");
+        this.text("Resources");
+        this.end("h2");
+        this.expander.visitResources(new ResourceVisitor() {
+
+            @Override
+            public void resource(WadlNode resource) throws SAXException {
+                WadlHtmlGenerator.this.renderResource(resource, "");
+            }
+        });
+        this.start("h2", "id", "representations");
+        this.text("Representations");
+        this.end("h2");
+        this.renderRepresentations(false);
+        if (faultsFound) {
+            this.start("h2", "id", "faults");
+            this.text("Faults");
+            this.end("h2");
+            this.renderRepresentations(true);
+        }
+
+        this.end("body");
+        this.end("html");
+    }
+
+    private void renderDoc(WadlNode doc) throws SAXException {
+        WadlNode parent = doc.getParent();
+        if (this.escapeHtmlRepresentations && parent != null
+                && (parent.isWadl(EL_REPRESENTATION) || parent.isWadl(EL_FAULT))
+                && MEDIA_TYPE_HTML.equals(parent.getAttribute(ATT_MEDIA_TYPE))) {
+            // the escaped HTML representations, see wadl_documentation_html-reps.xsl
+            this.start("pre");
+            this.text(doc.getStringValue());
+            this.end("pre");
+            return;
+        }
+
+        List<WadlNode> children = doc.getChildren();
+        if (!children.isEmpty() && children.get(0).isText()) {
+            this.start("p");
+            this.copy(children);
+            this.end("p");
+        } else {
+            this.copy(children);
+        }
+    }
+
+    private void renderDocs(WadlNode element) throws SAXException {
+        for (WadlNode doc : element.getWadlChildren(EL_DOC)) {
+            this.renderDoc(doc);
+        }
+    }
+
+    private void renderElementDefinition(WadlNode context, String qname) throws SAXException {
+        String namespaceUri = this.expander.lookupNamespace(context, substringBefore(qname, ':'));
+        List<WadlExpander.Definition> definitions = this.expander.findDefinitions(substringAfter(qname, ':'),
+                namespaceUri, true);
+
+        String source = "";
+        for (WadlExpander.Definition definition : definitions) {
+            if (definition.getSource() != null) {
+                source = definition.getSource();
+                break;
+            }
+        }
+
+        this.start("p");
+        this.start("em");
+        this.text("Source: ");
+        this.start("a", "href", SOURCE_LINK);
+        this.text(source);
+        this.end("a");
+        this.end("em");
+        this.end("p");
+
+        StringBuilder sb = new StringBuilder();
+        for (WadlExpander.Definition definition : definitions) {
+            encode(definition.getElement(), sb);
+        }
+        this.start("pre");
+        this.text(sb.toString());
+        this.end("pre");
+    }
+
+    private void renderHead(String title) throws SAXException {
+        this.start("head");
+        this.start("title");
+        this.text(title);
+        this.end("title");
+        this.start("style", "type", "text/css");
+        this.text(this.style);
+        this.end("style");
+        this.end("head");
+    }
+
+    private void renderLink(String id, String text) throws SAXException {
+        this.renderLink("", id, text);
+    }
+
+    private void renderLink(String pageName, String id, String text) throws SAXException {
+        this.start("a", "href", pageName + "#" + id);
+        this.text(text);
+        this.end("a");
+    }
+
+    private void renderMethod(WadlNode method) throws SAXException {
+        this.start("div", "class", "method");
+        this.start("h4", "id", this.expander.getId(method));
+        this.text(method.getAttributeValue(ATT_NAME));
+        this.end("h4");
+        this.renderDocs(method);
+
+        for (WadlNode request : method.getWadlChildren(EL_REQUEST)) {
+            this.renderParamGroup(request, "request", "query");
+            this.renderParamGroup(request, "request", "header");
+            this.renderRepresentationLinks(request.getWadlChildren(EL_REPRESENTATION),
+                    "acceptable request representations:");
+        }
+        for (WadlNode response : method.getWadlChildren(EL_RESPONSE)) {
+            this.renderParamGroup(response, "response", "header");
+            this.renderRepresentationLinks(response.getWadlChildren(EL_REPRESENTATION),
+                    "available response representations:");
+            this.renderRepresentationLinks(response.getWadlChildren(EL_FAULT), "potential faults:");
+        }
+
+        this.end("div");
+    }
+
+    private void renderOptionValue(WadlNode option) throws SAXException {
+        this.start("tt");
+        this.text(option.getAttributeValue(ATT_VALUE));
+        this.end("tt");
+
+        WadlNode param = option.getParent();
+        while (param != null && !param.isWadl(EL_PARAM)) {
+            param = param.getParent();
+        }
+        if (param != null && param.hasAttribute(ATT_DEFAULT) && option.hasAttribute(ATT_VALUE)
+                && param.getAttribute(ATT_DEFAULT).equals(option.getAttribute(ATT_VALUE))) {
+            this.start("small");
+            this.text(" (default)");
+            this.end("small");
+        }
+    }
+
+    private void renderParam(WadlNode param) throws SAXException {
+        this.start("tr");
+
+        this.start("td");
+        this.start("p");
+        this.start("strong");
+        this.text(param.getAttributeValue(ATT_NAME));
+        this.end("strong");
+        this.end("p");
+        this.end("td");
+
+        this.start("td");
+        this.start("p");
+        this.start("em");
+        this.renderTypeLink(param, param.getAttributeValue("type"));
+        this.end("em");
+        if ("true".equals(param.getAttribute("required"))) {
+            this.start("small");
+            this.text(" (required)");
+            this.end("small");
+        }
+        if ("true".equals(param.getAttribute("repeating"))) {
+            this.start("small");
+            this.text(" (repeating)");
+            this.end("small");
+        }
+        this.end("p");
+        List<WadlNode> options = param.getWadlChildren(EL_OPTION);
+        if (!options.isEmpty()) {
+            this.start("p");
+            this.start("em");
+            this.text("One of:");
+            this.end("em");
+            this.end("p");
+            this.start("ul");
+            for (WadlNode option : options) {
+                this.start("li");
+                this.renderOptionValue(option);
+                this.end("li");
+            }
+            this.end("ul");
+        } else {
+            if (param.hasAttribute(ATT_DEFAULT)) {
+                this.renderParamValue("Default: ", param.getAttribute(ATT_DEFAULT));
+            }
+            if (param.hasAttribute(ATT_FIXED)) {
+                this.renderParamValue("Fixed: ", param.getAttribute(ATT_FIXED));
+            }
+        }
+        this.end("td");
+
+        this.start("td");
+        this.renderDocs(param);
+        boolean optionDocs = false;
+        for (WadlNode option : options) {
+            optionDocs |= !option.getWadlChildren(EL_DOC).isEmpty();
+        }
+        if (optionDocs) {
+            this.start("dl");
+            for (WadlNode option : options) {
+                this.start("dt");
+                this.renderOptionValue(option);
+                this.end("dt");
+                this.start("dd");
+                this.renderDocs(option);
+                this.end("dd");
+            }
+            this.end("dl");
+        }
+        if (param.hasAttribute(ATT_PATH)) {
+            this.start("ul");
+            this.start("li");
+            this.text("XPath to value: ");
+            this.start("tt");
+            this.text(param.getAttribute(ATT_PATH));
+            this.end("tt");
+            this.end("li");
+            for (WadlNode link : param.getWadlChildren("link")) {
+                this.start("li");
+                this.text("\n            Link: ");
+                this.start("a", "href", "#" + link.getAttributeValue("resource_type"));
+                this.text(link.getAttributeValue("rel"));
+                this.end("a");
+                this.end("li");
+            }
+            this.end("ul");
+        }
+        this.end("td");
+
+        this.end("tr");
+    }
+
+    /**
+     * Render the parameters with the passed style of an element and all its ancestors.
+     */
+    private void renderParamGroup(WadlNode element, String prefix, String style) throws SAXException {
+        List<WadlNode> ancestors = new ArrayList<WadlNode>();
+        for (WadlNode ancestor = element; ancestor != null; ancestor = ancestor.getParent()) {
+            if (ancestor.isWadl()) {
+                ancestors.add(0, ancestor);
+            }
+        }
+
+        List<WadlNode> params = new ArrayList<WadlNode>();
+        for (WadlNode ancestor : ancestors) {
+            for (WadlNode param : ancestor.getWadlChildren(EL_PARAM)) {
+                if (style.equals(param.getAttribute(ATT_STYLE))) {
+                    params.add(param);
+                }
+            }
+        }
+        if (params.isEmpty()) {
+            return;
+        }
+
+        this.start("h6");
+        this.text(prefix + " " + style + " parameters");
+        this.end("h6");
+        this.start("table");
+        this.start("tr");
+        for (String header : new String[] {"parameter", "value", "description"}) {
+            this.start("th");
+            this.text(header);
+            this.end("th");
+        }
+        this.end("tr");
+        for (WadlNode param : params) {
+            this.renderParam(param);
+        }
+        this.end("table");
+    }
+
+    private void renderParamValue(String label, String value) throws SAXException {
+        this.start("p");
+        this.text(label);
+        this.start("tt");
+        this.text(value);
+        this.end("tt");
+        this.end("p");
+    }
+
+    private void renderRepresentation(WadlNode representation) throws SAXException {
+        if (representation.isDuplicate()) {
+            return;
+        }
+
+        this.start("h3", "id", this.expander.getId(representation));
+        this.renderRepresentationName(representation);
+        this.end("h3");
+        this.renderDocs(representation);
+
+        String element = representation.getAttribute(ATT_ELEMENT);
+        if (element != null || !representation.getWadlChildren(EL_PARAM).isEmpty()) {
+            this.start("div", "class", "representation");
+            if (element != null && element.length() > 0) {
+                this.start("h6");
+                this.text("XML Schema");
+                this.end("h6");
+                this.renderElementDefinition(representation, element);
+            }
+            this.renderParamGroup(representation, "", "plain");
+            this.renderParamGroup(representation, "", "header");
+            this.end("div");
+        }
+    }
+
+    private void renderRepresentations(boolean renderFaults) throws SAXException {
+        new RepresentationVisitor() {
+
+            @Override
+            protected void render(WadlNode representation) throws SAXException {
+                WadlHtmlGenerator.this.renderRepresentation(representation);
+            }
+        }.visit(renderFaults);
+    }
+
+    private void renderRepresentationLinks(List<WadlNode> representations, String label) throws SAXException {
+        if (representations.isEmpty()) {
+            return;
+        }
+
+        this.start("p");
+        this.start("em");
+        this.text(label);
+        this.end("em");
+        this.end("p");
+        this.start("ul");
+        for (WadlNode representation : representations) {
+            this.start("li");
+            this.start("a", "href", "#" + this.expander.getId(representation));
+            this.renderRepresentationName(representation);
+            this.end("a");
+            this.end("li");
+        }
+        this.end("ul");
+    }
+
+    private void renderRepresentationName(WadlNode representation) throws SAXException {
+        String status = representation.getAttribute(ATT_STATUS);
+        String mediaType = representation.getAttribute(ATT_MEDIA_TYPE);
+        String element = representation.getAttribute(ATT_ELEMENT);
+        String title = getTitle(representation);
+        boolean anyAttribute = status != null || mediaType != null || element != null;
+
+        if (title != null) {
+            this.text(title);
+            if (anyAttribute) {
+                this.text(" (");
+            }
+            if (isNotEmpty(status)) {
+                this.text("Status Code ");
+            }
+            this.text(status);
+            if (isNotEmpty(status) && mediaType != null) {
+                this.text(" - ");
+            }
+            this.text(mediaType);
+            if ((isNotEmpty(status) || isNotEmpty(mediaType)) && isNotEmpty(element)) {
+                this.text(" - ");
+            }
+            if (isNotEmpty(element)) {
+                this.start("abbr", ATT_TITLE, this.getExpandedName(representation));
+                this.text(element);
+                this.end("abbr");
+            }
+            if (anyAttribute) {
+                this.text(")");
+            }
+        } else {
+            if (status != null) {
+                this.text("Status Code ");
+            }
+            this.text(status);
+            if (status != null && mediaType != null) {
+                this.text(" - ");
+            }
+            this.text(mediaType);
+            if (element != null) {
+                this.text(" (");
+            }
+            this.start("abbr", ATT_TITLE, this.getExpandedName(representation));
+            this.text(element);
+            this.end("abbr");
+            if (element != null) {
+                this.text(")");
+            }
+        }
+    }
+
+    /**
+     * Render the table of contents entries of all representations or all faults.
+     *
+     * @return <code>true</code> if there are any faults.
+     */
+    private boolean renderRepresentationTocEntries(final boolean renderFaults) throws SAXException {
+        RepresentationVisitor visitor = new RepresentationVisitor() {
+
+            @Override
+            protected void render(WadlNode representation) throws SAXException {
+                WadlHtmlGenerator.this.renderRepresentationTocEntry(representation);
+            }
+        };
+        visitor.visit(renderFaults);
+        return visitor.isFaultFound();
+    }
+
+    private void renderRepresentationTocEntry(WadlNode representation) throws SAXException {
+        if (representation.isDuplicate()) {
+            return;
+        }
+
+        this.start("li");
+        this.start("a", "href", "#" + this.expander.getId(representation));
+        this.renderRepresentationName(representation);
+        this.end("a");
+        this.end("li");
+    }
+
+    private void renderResource(WadlNode resource, String context) throws SAXException {
+        if (resource.isDuplicate()) {
+            return;
+        }
+
+        String name = context + "/" + resource.getAttributeValue(ATT_PATH);
+        List<String> matrixParams = new ArrayList<String>();
+        for (WadlNode param : resource.getWadlChildren(EL_PARAM)) {
+            if ("matrix".equals(param.getAttribute(ATT_STYLE))) {
+                matrixParams.add(";" + param.getAttributeValue(ATT_NAME) + "=...");
+            }
+        }
+
+        this.start("div", "class", "resource");
+        this.start("h3", "id", this.expander.getId(resource));
+        String title = getTitle(resource);
+        if (title != null) {
+            this.text(title);
+        } else {
+            this.text(name);
+            for (String matrixParam : matrixParams) {
+                this.start("span", "class", "optional");
+                this.text(matrixParam);
+                this.end("span");
+            }
+            this.renderQueryParams(resource);
+        }
+        this.end("h3");
+        this.renderDocs(resource);
+        this.renderParamGroup(resource, "resource-wide", "template");
+        this.renderParamGroup(resource, "resource-wide", "matrix");
+        this.start("h6");
+        this.text("Methods");
+        this.end("h6");
+        this.start("div", "class", "methods");
+        for (WadlNode method : resource.getWadlChildren(EL_METHOD)) {
+            this.renderMethod(method);
+        }
+        this.end("div");
+        this.end("div");
+
+        StringBuilder childContext = new StringBuilder(name);
+        for (String matrixParam : matrixParams) {
+            childContext.append(matrixParam);
+        }
+        for (WadlNode child : resource.getWadlChildren(EL_RESOURCE)) {
+            this.renderResource(child, childContext.toString());
+        }
+    }
+
+    private void renderQueryParams(WadlNode resource) throws SAXException {
+        List<WadlNode> methods = resource.getWadlChildren(EL_METHOD);
+        if (methods.isEmpty()) {
+            return;
+        }
+
+        for (WadlNode request : methods.get(0).getWadlChildren(EL_REQUEST)) {
+            boolean first = true;
+            for (WadlNode param : request.getWadlChildren(EL_PARAM)) {
+                if (!"query".equals(param.getAttribute(ATT_STYLE))) {
+                    continue;
+                }
+
+                String text = (first ? "?" : "&") + param.getAttributeValue(ATT_NAME);
+                first = false;
+                if ("true".equals(param.getAttribute("required"))) {
+                    this.text(text);
+                } else {
+                    this.start("span", "class", "optional");
+                    this.text(text);
+                    this.end("span");
+                }
+            }
+        }
+    }
+
+    /**
+     * Render the page of a top-level resource. Representations and faults that are used by several resources are
+     * rendered on each of their pages.
+     */
+    private void renderResourcePage(WadlNode application) throws SAXException {
+        String applicationTitle = getApplicationTitle(application);
+        String title = getTitle(this.resource);
+        if (title == null) {
+            title = getBase(this.resource.getParent()) + "/" + this.resource.getAttributeValue(ATT_PATH);
+        }
+
+        WadlExpander.markDuplicates(this.resource);
+        List<WadlNode> representations = new ArrayList<WadlNode>();
+        List<WadlNode> faults = new ArrayList<WadlNode>();
+        findRepresentations(this.resource, representations, faults);
+
+        this.start("html");
+        this.renderHead(applicationTitle + " - " + title);
+
+        this.start("body");
+        this.start("p");
+        this.start("a", "href", ResourcePagesRenderer.TABLE_OF_CONTENTS);
+        this.text(applicationTitle);
+        this.end("a");
+        this.end("p");
+        this.start("h1");
+        this.text(title);
+        this.end("h1");
+
+        this.renderResource(this.resource, "");
+        if (!representations.isEmpty()) {
+            this.start("h2", "id", "representations");
+            this.text("Representations");
+            this.end("h2");
+            for (WadlNode representation : representations) {
+                this.renderRepresentation(representation);
+            }
+        }
+        if (!faults.isEmpty()) {
+            this.start("h2", "id", "faults");
+            this.text("Faults");
+            this.end("h2");
+            for (WadlNode fault : faults) {
+                this.renderRepresentation(fault);
+            }
+        }
+
+        this.end("body");
+        this.end("html");
+    }
+
+    private void renderResourceTocEntry(WadlNode resource, String context, String pageName) throws SAXException {
+        String name = context + "/" + resource.getAttributeValue(ATT_PATH);
+
+        this.start("li");
+        this.renderLink(pageName, this.expander.getId(resource), name);
+        List<WadlNode> children = resource.getWadlChildren(EL_RESOURCE);
+        if (!children.isEmpty()) {
+            this.start("ul");
+            for (WadlNode child : children) {
+                this.renderResourceTocEntry(child, name, pageName);
+            }
+            this.end("ul");
+        }
+        this.end("li");
+    }
+
+    /**
+     * Render the table of contents of the per-resource layout, which only lists the resources.
+     */
+    private void renderTableOfContents(WadlNode application) throws SAXException {
+        String title = getApplicationTitle(application);
+
+        this.start("html");
+        this.renderHead(title);
+
+        this.start("body");
+        this.start("h1");
+        this.text(title);
+        this.end("h1");
+        this.renderDocs(application);
+
+        this.start("h2", "id", "resources");
+        this.text("Resources");
+        this.end("h2");
+        this.expander.visitResources(new ResourceVisitor() {
+
+            private String base;
+
+            @Override
+            public void endResources(WadlNode resources) throws SAXException {
+                WadlHtmlGenerator.this.end("ul");
+            }
+
+            @Override
+            public void resource(WadlNode resource) throws SAXException {
+                String pageName = WadlHtmlGenerator.this.pageNames.next(resource);
+                WadlHtmlGenerator.this.renderResourceTocEntry(resource, this.base, pageName);
+            }
+
+            @Override
+            public void startResources(WadlNode resources) throws SAXException {
+                this.base = getBase(resources);
+                WadlHtmlGenerator.this.start("ul");
+            }
+        });
+
+        this.end("body");
+        this.end("html");
+    }
+
+    private void renderTypeLink(WadlNode context, String qname) throws SAXException {
+        String namespaceUri = this.expander.lookupNamespace(context, substringBefore(qname, ':'));
+        String localName = substringAfter(qname, ':');
+
+        if (NS_XSD.equals(namespaceUri)) {
+            this.start("a", "href", "http://www.w3.org/TR/xmlschema-2/#" + localName);
+        } else {
+            String documentation = "";
+            List<WadlExpander.Definition> definitions = this.expander.findDefinitions(localName, namespaceUri,
+                    false);
+            for (WadlExpander.Definition definition : definitions) {
+                documentation = findDocumentation(definition.getElement());
+                if (documentation != null) {
+                    break;
+                }
+                documentation = "";
+            }
+            this.start("a", ATT_TITLE, documentation, "href", TYPE_LINK);
+        }
+        this.text(localName);
+        this.end("a");
+    }
+
+    private void start(String name, String... attributes) throws SAXException {
+        AttributesImpl atts = new AttributesImpl();
+        for (int i = 0; i < attributes.length; i += 2) {
+            atts.addAttribute("", attributes[i], attributes[i], "CDATA", attributes[i + 1]);
+        }
+        this.consumer.startElement(NS_XHTML, name, name, atts);
+    }
+
+    private void text(String text) throws SAXException {
+        if (text == null || text.length() == 0) {
+            return;
+        }
+
+        char[] chars = text.toCharArray();
+        this.consumer.characters(chars, 0, chars.length);
+    }
+
+    /**
+     * Write the markup of a schema definition for display, like the <code>encode</code> mode of the stylesheet.
+     */
+    private static void encode(WadlNode element, StringBuilder sb) {
+        sb.append('<').append(element.getQName());
+        for (int i = 0; i < element.getAttributeCount(); i++) {
+            sb.append(' ').append(element.getAttributeName(i)).append("=\"").append(element.getAttributeValue(i))
+                    .append('"');
+        }
+
+        boolean content = false;
+        for (WadlNode child : element.getChildren()) {
+            content |= child.isElement() || child.isText();
+        }
+        if (!content) {
+            sb.append("/>");
+            return;
+        }
+
+        sb.append('>');
+        for (WadlNode child : element.getChildren()) {
+            if (child.isElement()) {
+                encode(child, sb);
+            } else if (child.isText()) {
+                sb.append(child.getText());
+            }
+        }
+        sb.append("</").append(element.getQName()).append('>');
+    }
+
+    /**
+     * Get the first text of the <code>xs:documentation</code> elements within a schema definition.
+     */
+    private static String findDocumentation(WadlNode element) {
+        for (WadlNode child : element.getChildren()) {
+            if (!child.isElement()) {
+                continue;
+            }
+
+            if (NS_XSD.equals(child.getNamespaceUri()) && "documentation".equals(child.getLocalName())) {
+                String text = findText(child);
+                if (text != null) {
+                    return text;
+                }
+            }
+            String documentation = findDocumentation(child);
+            if (documentation != null) {
+                return documentation;
+            }
+        }
+        return null;
+    }
+
+    private static void findRepresentations(WadlNode element, List<WadlNode> representations,
+            List<WadlNode> faults) {
+        for (WadlNode child : element.getChildren()) {
+            if (child.isWadl(EL_REPRESENTATION)) {
+                representations.add(child);
+            } else if (child.isWadl(EL_FAULT)) {
+                faults.add(child);
+            }
+            if (child.isElement()) {
+                findRepresentations(child, representations, faults);
+            }
+        }
+    }
+
+    private static String findText(WadlNode element) {
+        for (WadlNode child : element.getChildren()) {
+            if (child.isText()) {
+                return child.getText();
+            }
+            if (child.isElement()) {
+                String text = findText(child);
+                if (text != null) {
+                    return text;
+                }
+            }
+        }
+        return null;
+    }
+
+    private static String getApplicationTitle(WadlNode application) {
+        String title = getTitle(application);
+        if (title == null) {
+            return "My Web Application";
+        }
+        return title;
+    }
+
+    private static String getBase(WadlNode resources) {
+        String base = resources.getAttributeValue("base");
+        if (base.endsWith("/")) {
+            return base.substring(0, base.length() - 1);
+        }
+        return base;
+    }
+
+    private static String getLocalName(String qname) {
+        int index = qname.indexOf(':');
+        return index == -1 ? qname : qname.substring(index + 1);
+    }
+
+    private static String getPrefix(String qname) {
+        int index = qname.indexOf(':');
+        return index == -1 ? "" : qname.substring(0, index);
+    }
+
+    /**
+     * Get the title of the first <code>wadl:doc</code> element with a title.
+     */
+    private static String getTitle(WadlNode element) {
+        for (WadlNode doc : element.getWadlChildren(EL_DOC)) {
+            if (doc.hasAttribute(ATT_TITLE)) {
+                return doc.getAttribute(ATT_TITLE);
+            }
+        }
+        return null;
+    }
+
+    private static boolean isNotEmpty(String value) {
+        return value != null && value.length() > 0;
+    }
+
+    private static String substringAfter(String value, char separator) {
+        int index = value.indexOf(separator);
+        return index == -1 ? "" : value.substring(index + 1);
+    }
+
+    private static String substringBefore(String value, char separator) {
+        int index = value.indexOf(separator);
+        return index == -1 ? "" : value.substring(0, index);
+    }
+
+    private enum Page {
+        DOCUMENT, TABLE_OF_CONTENTS, RESOURCE
+    }
+
+    /**
+     * Renders the representations or the faults of all resources, resource by resource.
+     */
+    private abstract class RepresentationVisitor extends ResourceVisitor {
+
+        private final List<WadlNode> representations = new ArrayList<WadlNode>();
+        private final List<WadlNode> faults = new ArrayList<WadlNode>();
+        private boolean renderFaults;
+        private boolean faultFound;
+
+        public boolean isFaultFound() {
+            return this.faultFound;
+        }
+
+        @Override
+        public void resource(WadlNode resource) throws SAXException {
+            findRepresentations(resource, this.representations, this.faults);
+            this.faultFound |= !this.faults.isEmpty();
+
+            for (WadlNode representation : this.renderFaults ? this.faults : this.representations) {
+                this.render(representation);
+            }
+            this.representations.clear();
+            this.faults.clear();
+        }
+
+        public void visit(boolean faultsOnly) throws SAXException {
+            this.renderFaults = faultsOnly;
+            WadlHtmlGenerator.this.expander.visitResources(this);
+        }
+
+        protected abstract void render(WadlNode representation) throws SAXException;
+    }
+}
@@ -0,0 +1,211 @@
+/*
+ * Licensed to Indoqa Software Design und Beratung GmbH (Indoqa) 
+ * under one or more contributor license agreements. See the NOTICE 
+ * file distributed with this work for additional information
+ * regarding copyright ownership. Indoqa licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.indoqa.maven.wadldoc.transformation;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Information about a WADL document that is collected while it is transformed.
+ */
+public class WadlMetadata {
+
+    private String title;
+    private int resourceCount;
+    private int methodCount;
+    private int representationCount;
+    private int faultCount;
+    private int paramCount;
+    private final Set<String> references = new LinkedHashSet<String>();
+    private final List<SearchEntry> searchEntries = new ArrayList<SearchEntry>();
+
+    /**
+     * Read metadata that has been written by {@link #write(DataOutput)}.
+     */
+    public static WadlMetadata read(DataInput input) throws IOException {
+        WadlMetadata metadata = new WadlMetadata();
+        metadata.title = readString(input);
+        metadata.resourceCount = input.readInt();
+        metadata.methodCount = input.readInt();
+        metadata.representationCount = input.readInt();
+        metadata.faultCount = input.readInt();
+        metadata.paramCount = input.readInt();
+        readStrings(input, metadata.references);
+        int searchEntryCount = readCount(input);
+        for (int i = 0; i < searchEntryCount; i++) {
+            metadata.searchEntries.add(SearchEntry.read(input));
+        }
+        return metadata;
+    }
+
+    static int readCount(DataInput input) throws IOException {
+        int count = input.readInt();
+        if (count < 0) {
+            throw new IOException("Invalid count " + count);
+        }
+        return count;
+    }
+
+    /**
+     * Read a string that has been written by {@link #writeString(DataOutput, String)}.
+     */
+    static String readString(DataInput input) throws IOException {
+        if (!input.readBoolean()) {
+            return null;
+        }
+
+        byte[] bytes = new byte[readCount(input)];
+        input.readFully(bytes);
+        return new String(bytes, "UTF-8");
+    }
+
+    static void readStrings(DataInput input, Collection<String> strings) throws IOException {
+        int count = readCount(input);
+        for (int i = 0; i < count; i++) {
+            strings.add(readString(input));
+        }
+    }
+
+    /**
+     * Write a string that may be <code>null</code> and, unlike {@link DataOutput#writeUTF(String)}, may be longer
+     * than 64 KB.
+     */
+    static void writeString(DataOutput output, String string) throws IOException {
+        output.writeBoolean(string != null);
+        if (string != null) {
+            byte[] bytes = string.getBytes("UTF-8");
+            output.writeInt(bytes.length);
+            output.write(bytes);
+        }
+    }
+
+    static void writeStrings(DataOutput output, Collection<String> strings) throws IOException {
+        output.writeInt(strings.size());
+        for (String string : strings) {
+            writeString(output, string);
+        }
+    }
+
+    public int getFaultCount() {
+        return this.faultCount;
+    }
+
+    public int getMethodCount() {
+        return this.methodCount;
+    }
+
+    public int getParamCount() {
+        return this.paramCount;
+    }
+
+    /**
+     * Get the values of all <code>href</code> and <code>resource/@type</code> attributes, i.e. the references to
+     * other documents or to definitions within the same document.
+     */
+    public Collection<String> getReferences() {
+        return Collections.unmodifiableSet(this.references);
+    }
+
+    public int getRepresentationCount() {
+        return this.representationCount;
+    }
+
+    public int getResourceCount() {
+        return this.resourceCount;
+    }
+
+    /**
+     * Get the searchable information about all resources, in document order.
+     */
+    public List<SearchEntry> getSearchEntries() {
+        return Collections.unmodifiableList(this.searchEntries);
+    }
+
+    /**
+     * Get the title of the WADL document (<code>/application/doc/@title</code>) or <code>null</code> if it hasn't
+     * any.
+     */
+    public String getTitle() {
+        return this.title;
+    }
+
+    @Override
+    public String toString() {
+        return "WadlMetadata(title=" + this.title + ", resources=" + this.resourceCount + ", methods="
+                + this.methodCount + ", representations=" + this.representationCount + ", faults=" + this.faultCount
+                + ", params=" + this.paramCount + ")";
+    }
+
+    /**
+     * Write all the metadata, including the search entries, in a form that can be read by
+     * {@link #read(DataInput)}.
+     */
+    public void write(DataOutput output) throws IOException {
+        writeString(output, this.title);
+        output.writeInt(this.resourceCount);
+        output.writeInt(this.methodCount);
+        output.writeInt(this.representationCount);
+        output.writeInt(this.faultCount);
+        output.writeInt(this.paramCount);
+        writeStrings(output, this.references);
+        output.writeInt(this.searchEntries.size());
+        for (SearchEntry searchEntry : this.searchEntries) {
+            searchEntry.write(output);
+        }
+    }
+
+    void addReference(String reference) {
+        this.references.add(reference);
+    }
+
+    void addSearchEntry(SearchEntry searchEntry) {
+        this.searchEntries.add(searchEntry);
+    }
+
+    void incrementFaultCount() {
+        this.faultCount++;
+    }
+
+    void incrementMethodCount() {
+        this.methodCount++;
+    }
+
+    void incrementParamCount() {
+        this.paramCount++;
+    }
+
+    void incrementRepresentationCount() {
+        this.representationCount++;
+    }
+
+    void incrementResourceCount() {
+        this.resourceCount++;
+    }
+
+    void setTitle(String title) {
+        this.title = title;
+    }
+}
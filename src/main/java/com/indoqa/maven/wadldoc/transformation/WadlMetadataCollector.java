@@ -0,0 +1,211 @@
+/*
+ * Licensed to Indoqa Software Design und Beratung GmbH (Indoqa) 
+ * under one or more contributor license agreements. See the NOTICE 
+ * file distributed with this work for additional information
+ * regarding copyright ownership. Indoqa licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.indoqa.maven.wadldoc.transformation;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.lang.StringUtils;
+import org.xml.sax.Attributes;
+
+/**
+ * Collects the {@link WadlMetadata} from the elements of a WADL document. It is fed by the
+ * {@link WadlMetadataTransformer} and the {@link StaxWadlRenderer}, so that both renderers report the same
+ * metadata.
+ */
+final class WadlMetadataCollector {
+
+    private static final String ATT_HREF = "href";
+    private static final String ATT_ID = "id";
+    private static final String ATT_MEDIA_TYPE = "mediaType";
+    private static final String ATT_NAME = "name";
+    private static final String ATT_PATH = "path";
+    private static final String ATT_TITLE = "title";
+    private static final String ATT_TYPE = "type";
+    private static final String EL_APPLICATION = "application";
+    private static final String EL_DOC = "doc";
+    private static final String EL_FAULT = "fault";
+    private static final String EL_METHOD = "method";
+    private static final String EL_PARAM = "param";
+    private static final String EL_REPRESENTATION = "representation";
+    private static final String EL_RESOURCE = "resource";
+    private static final String NS_WADL = "http://research.sun.com/wadl/2006/10";
+
+    private int depth;
+    private boolean inApplication;
+    private int docDepth;
+    private final WadlMetadata metadata = new WadlMetadata();
+    private final List<SearchEntry> resources = new ArrayList<SearchEntry>();
+    private final List<Integer> resourceDepths = new ArrayList<Integer>();
+
+    /**
+     * Give access to the attributes of an element read with SAX.
+     */
+    static AttributeSource getAttributeSource(final Attributes attributes) {
+        return new AttributeSource() {
+
+            public String getAttribute(String localName) {
+                return attributes.getValue("", localName);
+            }
+        };
+    }
+
+    private static String joinPath(String parentPath, String path) {
+        if (StringUtils.isBlank(path)) {
+            return StringUtils.defaultIfEmpty(parentPath, "/");
+        }
+        return StringUtils.removeEnd(parentPath, "/") + "/" + StringUtils.removeStart(path.trim(), "/");
+    }
+
+    /**
+     * Collect the text of the documentation of the current resource.
+     */
+    public void characters(char[] characters, int start, int length) {
+        if (this.docDepth > 0 && !this.resources.isEmpty()) {
+            this.getResource().addText(characters, start, length);
+        }
+    }
+
+    public void endElement() {
+        if (this.depth == this.docDepth) {
+            this.docDepth = 0;
+            if (!this.resources.isEmpty()) {
+                this.getResource().endText();
+            }
+        }
+
+        int last = this.resourceDepths.size() - 1;
+        if (last >= 0 && this.resourceDepths.get(last).intValue() == this.depth) {
+            this.resources.remove(last).trimText();
+            this.resourceDepths.remove(last);
+        }
+
+        this.depth--;
+    }
+
+    public WadlMetadata getMetadata() {
+        return this.metadata;
+    }
+
+    /**
+     * Collect the metadata of an element. Only the few attributes that are relevant for the metadata are read.
+     */
+    public void startElement(String uri, String localName, AttributeSource attributes) {
+        this.depth++;
+
+        if (NS_WADL.equals(uri)) {
+            this.collect(localName, attributes);
+        }
+    }
+
+    private void collect(String localName, AttributeSource attributes) {
+        if (this.depth == 1) {
+            this.inApplication = EL_APPLICATION.equals(localName);
+        } else if (this.depth == 2 && this.inApplication && EL_DOC.equals(localName)
+                && this.metadata.getTitle() == null) {
+            this.metadata.setTitle(attributes.getAttribute(ATT_TITLE));
+        } else if (EL_RESOURCE.equals(localName)) {
+            this.metadata.incrementResourceCount();
+            String type = attributes.getAttribute(ATT_TYPE);
+            if (type != null) {
+                // a resource can have several resource types
+                for (String eachType : StringUtils.split(type)) {
+                    this.metadata.addReference(eachType);
+                }
+            }
+            this.startResource(attributes);
+        } else if (EL_METHOD.equals(localName)) {
+            this.metadata.incrementMethodCount();
+            this.collectMethod(attributes);
+        } else if (EL_REPRESENTATION.equals(localName)) {
+            this.metadata.incrementRepresentationCount();
+            this.collectMediaType(attributes);
+        } else if (EL_FAULT.equals(localName)) {
+            this.metadata.incrementFaultCount();
+            this.collectMediaType(attributes);
+        } else if (EL_PARAM.equals(localName)) {
+            this.metadata.incrementParamCount();
+            String name = attributes.getAttribute(ATT_NAME);
+            if (name != null && !this.resources.isEmpty()) {
+                this.getResource().addParam(name);
+            }
+        }
+
+        if (EL_DOC.equals(localName) && this.docDepth == 0) {
+            this.docDepth = this.depth;
+        }
+
+        String href = attributes.getAttribute(ATT_HREF);
+        if (href != null) {
+            this.metadata.addReference(href);
+        }
+    }
+
+    private void collectMediaType(AttributeSource attributes) {
+        String mediaType = attributes.getAttribute(ATT_MEDIA_TYPE);
+        if (mediaType != null && !this.resources.isEmpty()) {
+            this.getResource().addMediaType(mediaType);
+        }
+    }
+
+    private void collectMethod(AttributeSource attributes) {
+        if (this.resources.isEmpty()) {
+            // a method definition that is referenced by resources
+            return;
+        }
+
+        SearchEntry resource = this.getResource();
+        String name = attributes.getAttribute(ATT_NAME);
+        if (name != null) {
+            resource.addMethod(name);
+        }
+        String id = attributes.getAttribute(ATT_ID);
+        if (id != null) {
+            resource.addMethod(id);
+        }
+        String href = attributes.getAttribute(ATT_HREF);
+        if (href != null && href.indexOf('#') >= 0) {
+            resource.addMethod(StringUtils.substringAfterLast(href, "#"));
+        }
+    }
+
+    private SearchEntry getResource() {
+        return this.resources.get(this.resources.size() - 1);
+    }
+
+    private void startResource(AttributeSource attributes) {
+        String parentPath = this.resources.isEmpty() ? "" : this.getResource().getPath();
+        SearchEntry resource = new SearchEntry(joinPath(parentPath, attributes.getAttribute(ATT_PATH)), attributes
+                .getAttribute(ATT_ID));
+
+        // the entries are listed in document order
+        this.metadata.addSearchEntry(resource);
+        this.resources.add(resource);
+        this.resourceDepths.add(Integer.valueOf(this.depth));
+    }
+
+    /**
+     * Gives access to the attributes without a namespace of the current element, no matter if it has been read
+     * with SAX or StAX.
+     */
+    interface AttributeSource {
+
+        String getAttribute(String localName);
+    }
+}
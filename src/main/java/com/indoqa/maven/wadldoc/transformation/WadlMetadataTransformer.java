@@ -0,0 +1,64 @@
+/*
+ * Licensed to Indoqa Software Design und Beratung GmbH (Indoqa) 
+ * under one or more contributor license agreements. See the NOTICE 
+ * file distributed with this work for additional information
+ * regarding copyright ownership. Indoqa licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.indoqa.maven.wadldoc.transformation;
+
+import java.util.Map;
+
+import org.apache.cocoon.pipeline.component.sax.AbstractTransformer;
+import org.xml.sax.Attributes;
+import org.xml.sax.SAXException;
+
+/**
+ * This transformer passes all SAX events unchanged and collects the {@link WadlMetadata} of the WADL document on
+ * the way, so that nobody has to parse the document a second time to get them.
+ */
+public class WadlMetadataTransformer extends AbstractTransformer {
+
+    private WadlMetadataCollector metadataCollector = new WadlMetadataCollector();
+
+    @Override
+    public void characters(char[] ch, int start, int length) throws SAXException {
+        this.metadataCollector.characters(ch, start, length);
+        super.characters(ch, start, length);
+    }
+
+    @Override
+    public void endElement(String uri, String localName, String name) throws SAXException {
+        this.metadataCollector.endElement();
+        super.endElement(uri, localName, name);
+    }
+
+    public WadlMetadata getMetadata() {
+        return this.metadataCollector.getMetadata();
+    }
+
+    /**
+     * Start collecting the metadata of a new document, so that the transformer can be used by a reused pipeline.
+     */
+    @Override
+    public void setup(Map<String, Object> parameters) {
+        this.metadataCollector = new WadlMetadataCollector();
+    }
+
+    @Override
+    public void startElement(String uri, String localName, String name, Attributes atts) throws SAXException {
+        this.metadataCollector.startElement(uri, localName, WadlMetadataCollector.getAttributeSource(atts));
+        super.startElement(uri, localName, name, atts);
+    }
+}
@@ -0,0 +1,331 @@
+/*
+ * Licensed to Indoqa Software Design und Beratung GmbH (Indoqa) 
+ * under one or more contributor license agreements. See the NOTICE 
+ * file distributed with this work for additional information
+ * regarding copyright ownership. Indoqa licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.indoqa.maven.wadldoc.transformation;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A node of the compact WADL model used by the {@link StaxWadlRenderer}. It's either an element, a text or a
+ * comment. Attributes are kept as a flat array of name/value pairs because elements rarely have more than a few of
+ * them.
+ */
+final class WadlNode {
+
+    static final String NS_WADL = "http://research.sun.com/wadl/2006/10";
+    static final String NS_XML = "http://www.w3.org/XML/1998/namespace";
+
+    private static final String[] NO_ATTRIBUTES = new String[0];
+
+    private final Kind kind;
+    private final String namespaceUri;
+    private final String localName;
+    private final String prefix;
+    private final String text;
+    private final WadlDocument document;
+
+    private String[] attributes = NO_ATTRIBUTES;
+    private String[] namespaces = NO_ATTRIBUTES;
+    private List<WadlNode> children;
+    private WadlNode parent;
+    private WadlNode namespaceSource;
+
+    private String generatedId;
+    private boolean duplicate;
+
+    private WadlNode(Kind kind, String namespaceUri, String localName, String prefix, String text,
+            WadlDocument document) {
+        this.kind = kind;
+        this.namespaceUri = namespaceUri;
+        this.localName = localName;
+        this.prefix = prefix;
+        this.text = text;
+        this.document = document;
+    }
+
+    static WadlNode comment(String text) {
+        return new WadlNode(Kind.COMMENT, null, null, null, text, null);
+    }
+
+    static WadlNode element(String namespaceUri, String localName, String prefix, WadlDocument document) {
+        return new WadlNode(Kind.ELEMENT, namespaceUri, localName, prefix, null, document);
+    }
+
+    static WadlNode text(String text) {
+        return new WadlNode(Kind.TEXT, null, null, null, text, null);
+    }
+
+    void addChild(WadlNode child) {
+        if (this.children == null) {
+            this.children = new ArrayList<WadlNode>();
+        }
+        this.children.add(child);
+        child.parent = this;
+    }
+
+    /**
+     * Create a deep copy of this element that isn't connected to its ancestors anymore. The namespaces that are in
+     * scope are declared on the copy, so that prefixes are resolved the same way.
+     */
+    WadlNode copyDetached() {
+        WadlNode copy = this.copy();
+        for (WadlNode node = this.parent; node != null; node = node.parent) {
+            for (int i = 0; i < node.namespaces.length; i += 2) {
+                if (copy.lookupNamespace(node.namespaces[i]) == null) {
+                    copy.declareNamespace(node.namespaces[i], node.namespaces[i + 1]);
+                }
+            }
+        }
+        return copy;
+    }
+
+    void declareNamespace(String namespacePrefix, String uri) {
+        this.namespaces = put(this.namespaces, namespacePrefix, uri);
+    }
+
+    String getAttribute(String name) {
+        for (int i = 0; i < this.attributes.length; i += 2) {
+            if (this.attributes[i].equals(name)) {
+                return this.attributes[i + 1];
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Get the value of an attribute or an empty string if the attribute doesn't exist, which is how XPath converts
+     * a missing attribute to a string.
+     */
+    String getAttributeValue(String name) {
+        String value = this.getAttribute(name);
+        return value == null ? "" : value;
+    }
+
+    int getAttributeCount() {
+        return this.attributes.length / 2;
+    }
+
+    String getAttributeName(int index) {
+        return this.attributes[index * 2];
+    }
+
+    String getAttributeValue(int index) {
+        return this.attributes[index * 2 + 1];
+    }
+
+    List<WadlNode> getChildren() {
+        if (this.children == null) {
+            return Collections.emptyList();
+        }
+        return this.children;
+    }
+
+    WadlDocument getDocument() {
+        return this.document;
+    }
+
+    /**
+     * The replacement for XSLT's <code>generate-id()</code>.
+     */
+    String getGeneratedId() {
+        return this.generatedId;
+    }
+
+    String getLocalName() {
+        return this.localName;
+    }
+
+    String getNamespaceUri() {
+        return this.namespaceUri;
+    }
+
+    WadlNode getParent() {
+        return this.parent;
+    }
+
+    String getPrefix() {
+        return this.prefix;
+    }
+
+    String getQName() {
+        if (this.prefix == null || this.prefix.length() == 0) {
+            return this.localName;
+        }
+        return this.prefix + ':' + this.localName;
+    }
+
+    /**
+     * Get the concatenation of all descendant texts, i.e. the XPath string value of the node.
+     */
+    String getStringValue() {
+        if (this.kind != Kind.ELEMENT) {
+            return this.text;
+        }
+
+        StringBuilder sb = new StringBuilder();
+        this.appendStringValue(sb);
+        return sb.toString();
+    }
+
+    String getText() {
+        return this.text;
+    }
+
+    /**
+     * Get the child elements with the passed WADL element name.
+     */
+    List<WadlNode> getWadlChildren(String wadlLocalName) {
+        List<WadlNode> result = new ArrayList<WadlNode>();
+        for (WadlNode child : this.getChildren()) {
+            if (child.isWadl(wadlLocalName)) {
+                result.add(child);
+            }
+        }
+        return result;
+    }
+
+    boolean hasAttribute(String name) {
+        return this.getAttribute(name) != null;
+    }
+
+    boolean isComment() {
+        return this.kind == Kind.COMMENT;
+    }
+
+    /**
+     * Checks if another WADL element with the same id precedes this one, i.e. ends before this one starts.
+     */
+    boolean isDuplicate() {
+        return this.duplicate;
+    }
+
+    boolean isElement() {
+        return this.kind == Kind.ELEMENT;
+    }
+
+    boolean isText() {
+        return this.kind == Kind.TEXT;
+    }
+
+    boolean isWadl() {
+        return this.kind == Kind.ELEMENT && NS_WADL.equals(this.namespaceUri);
+    }
+
+    boolean isWadl(String wadlLocalName) {
+        return this.isWadl() && wadlLocalName.equals(this.localName);
+    }
+
+    /**
+     * Resolve a namespace prefix the way the <code>namespace</code> axis of XPath does: declarations of the node
+     * itself, the in-scope namespaces of the source node it was copied from and the declarations of its ancestors.
+     */
+    String lookupNamespace(String namespacePrefix) {
+        for (WadlNode node = this; node != null; node = node.parent) {
+            if (node.namespaceSource != null) {
+                String uri = node.namespaceSource.lookupNamespace(namespacePrefix);
+                if (uri != null) {
+                    return uri;
+                }
+            }
+            for (int i = 0; i < node.namespaces.length; i += 2) {
+                if (node.namespaces[i].equals(namespacePrefix)) {
+                    return node.namespaces[i + 1];
+                }
+            }
+        }
+
+        if ("xml".equals(namespacePrefix)) {
+            return NS_XML;
+        }
+        return null;
+    }
+
+    void setAttribute(String name, String value) {
+        this.attributes = put(this.attributes, name, value);
+    }
+
+    void setDuplicate(boolean duplicate) {
+        this.duplicate = duplicate;
+    }
+
+    void setGeneratedId(String generatedId) {
+        this.generatedId = generatedId;
+    }
+
+    void setNamespaceSource(WadlNode namespaceSource) {
+        this.namespaceSource = namespaceSource;
+    }
+
+    /**
+     * Connect the node to a parent without making it one of its children. The resources of a large WADL document
+     * are read one by one this way; they only need their ancestors to resolve namespaces and parameters.
+     */
+    void setParent(WadlNode parent) {
+        this.parent = parent;
+    }
+
+    @Override
+    public String toString() {
+        if (this.kind == Kind.ELEMENT) {
+            return "WadlNode(" + this.getQName() + ")";
+        }
+        return "WadlNode(" + this.kind + ": " + this.text + ")";
+    }
+
+    private WadlNode copy() {
+        WadlNode copy = new WadlNode(this.kind, this.namespaceUri, this.localName, this.prefix, this.text,
+                this.document);
+        copy.attributes = this.attributes.clone();
+        copy.namespaces = this.namespaces.clone();
+        for (WadlNode child : this.getChildren()) {
+            copy.addChild(child.copy());
+        }
+        return copy;
+    }
+
+    private void appendStringValue(StringBuilder sb) {
+        for (WadlNode child : this.getChildren()) {
+            if (child.kind == Kind.TEXT) {
+                sb.append(child.text);
+            } else if (child.kind == Kind.ELEMENT) {
+                child.appendStringValue(sb);
+            }
+        }
+    }
+
+    private static String[] put(String[] pairs, String name, String value) {
+        for (int i = 0; i < pairs.length; i += 2) {
+            if (pairs[i].equals(name)) {
+                pairs[i + 1] = value;
+                return pairs;
+            }
+        }
+
+        String[] result = new String[pairs.length + 2];
+        System.arraycopy(pairs, 0, result, 0, pairs.length);
+        result[pairs.length] = name;
+        result[pairs.length + 1] = value;
+        return result;
+    }
+
+    private enum Kind {
+        ELEMENT, TEXT, COMMENT
+    }
+}
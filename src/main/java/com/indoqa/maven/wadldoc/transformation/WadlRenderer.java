@@ -0,0 +1,44 @@
+/*
+ * Licensed to Indoqa Software Design und Beratung GmbH (Indoqa) 
+ * under one or more contributor license agreements. See the NOTICE 
+ * file distributed with this work for additional information
+ * regarding copyright ownership. Indoqa licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.indoqa.maven.wadldoc.transformation;
+
+import java.io.OutputStream;
+import java.net.URL;
+
+import com.indoqa.maven.wadldoc.transformation.Wadl2HtmlPipeline.PipelineException;
+
+/**
+ * Renders the HTML documentation of a single WADL document. Implementations have to be thread-safe because the
+ * mojo shares one renderer between all its worker threads, and they need a public no-arg constructor so that
+ * they can be configured by class name.
+ */
+public interface WadlRenderer {
+
+    /**
+     * Render the WADL document to the output stream and return the metadata of the WADL document.
+     * 
+     * @param wadl The URL of the WADL document.
+     * @param stylesheet The URL of a CSS stylesheet that replaces the inline styles, can be <code>null</code>.
+     * @param escapeHtmlRepresentations Render the documentation of <code>text/html</code> representations as
+     *            escaped source instead of HTML.
+     * @param os The stream to write the HTML page to.
+     */
+    WadlMetadata render(URL wadl, String stylesheet, boolean escapeHtmlRepresentations, OutputStream os)
+            throws PipelineException;
+}
@@ -0,0 +1,276 @@
+/*
+ * Licensed to Indoqa Software Design und Beratung GmbH (Indoqa) 
+ * under one or more contributor license agreements. See the NOTICE 
+ * file distributed with this work for additional information
+ * regarding copyright ownership. Indoqa licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.indoqa.maven.wadldoc.transformation;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.StringReader;
+import java.net.MalformedURLException;
+import java.net.URL;
+
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.parsers.SAXParserFactory;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLResolver;
+
+import org.w3c.dom.ls.LSInput;
+import org.w3c.dom.ls.LSResourceResolver;
+import org.xml.sax.EntityResolver;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+
+/**
+ * Provides the XML parsers for all reads of WADL documents and of the documents they reference. The parser
+ * factories are looked up once and each thread reuses its SAX parsers.
+ * <p>
+ * All parsers are offline-safe: external DTDs and entities are only loaded from local files and from the
+ * classpath. Any other external DTD or entity, e.g. one referenced by an HTTP URL, is replaced by an empty
+ * document, so that a build without network access doesn't wait for timeouts.
+ */
+public final class XmlParsers {
+
+    private static final String LEXICAL_HANDLER = "http://xml.org/sax/properties/lexical-handler";
+    private static final EntityResolver OFFLINE_ENTITY_RESOLVER = new OfflineEntityResolver();
+
+    private static final SAXParserFactory PARSER_FACTORY = createParserFactory();
+    private static final ThreadLocal<XMLReader> READERS = new ThreadLocal<XMLReader>();
+
+    private XmlParsers() {
+        // hide utility class constructor
+    }
+
+    /**
+     * Create a namespace-aware and coalescing StAX input factory. Like all factories, it should be created once
+     * and shared.
+     */
+    public static XMLInputFactory createInputFactory() {
+        XMLInputFactory inputFactory = XMLInputFactory.newInstance();
+        inputFactory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, Boolean.TRUE);
+        inputFactory.setProperty(XMLInputFactory.IS_COALESCING, Boolean.TRUE);
+        inputFactory.setXMLResolver(new OfflineXMLResolver());
+        return inputFactory;
+    }
+
+    /**
+     * Create a resolver for the schema documents that XSD grammars import or include. Like the external DTDs and
+     * entities read by the parsers, only local schema documents are loaded.
+     */
+    public static LSResourceResolver createResourceResolver() {
+        return new OfflineResourceResolver();
+    }
+
+    /**
+     * Get a namespace-aware SAX parser. The parser belongs to the caller until it is given back with
+     * {@link #releaseReader(XMLReader)}, so that a parser can be taken while another one is still parsing, e.g.
+     * when a transformation loads a referenced document.
+     */
+    public static XMLReader getReader() throws SAXException {
+        XMLReader reader = READERS.get();
+        if (reader == null) {
+            return createReader();
+        }
+
+        READERS.remove();
+        return reader;
+    }
+
+    /**
+     * Give back a parser after it has parsed a document, so that the next parse of the current thread reuses it.
+     * The handlers of the parser are reset. A parser that failed shouldn't be given back.
+     */
+    public static void releaseReader(XMLReader reader) {
+        try {
+            reader.setContentHandler(null);
+            reader.setErrorHandler(null);
+            reader.setProperty(LEXICAL_HANDLER, null);
+        } catch (SAXException e) {
+            // the parser can't be reset -> drop it
+            return;
+        }
+
+        READERS.set(reader);
+    }
+
+    /**
+     * Drop the parser the current thread keeps for reuse. Called when a thread won't parse any further documents,
+     * so that a thread that outlives the build, e.g. the main thread of Maven, doesn't keep the parser and with it
+     * the classloader of the plugin alive.
+     */
+    public static void releaseThreadReader() {
+        READERS.remove();
+    }
+
+    private static SAXParserFactory createParserFactory() {
+        SAXParserFactory parserFactory = SAXParserFactory.newInstance();
+        parserFactory.setNamespaceAware(true);
+        return parserFactory;
+    }
+
+    private static XMLReader createReader() throws SAXException {
+        XMLReader reader;
+        try {
+            // SAXParserFactory implementations aren't required to be thread-safe
+            synchronized (PARSER_FACTORY) {
+                reader = PARSER_FACTORY.newSAXParser().getXMLReader();
+            }
+        } catch (ParserConfigurationException e) {
+            throw new SAXException("Can't create an XML parser.", e);
+        }
+
+        reader.setEntityResolver(OFFLINE_ENTITY_RESOLVER);
+        return reader;
+    }
+
+    /**
+     * Checks if an external DTD or entity can be loaded without network access.
+     */
+    private static boolean isLocal(String systemId, String baseUri) {
+        if (systemId == null) {
+            return true;
+        }
+
+        try {
+            URL url = baseUri == null ? new URL(systemId) : new URL(new URL(baseUri), systemId);
+            return "file".equals(url.getProtocol()) || "jar".equals(url.getProtocol());
+        } catch (MalformedURLException e) {
+            // a relative system id without a base URI is resolved against the working directory
+            return true;
+        }
+    }
+
+    private static class OfflineEntityResolver implements EntityResolver {
+
+        public InputSource resolveEntity(String publicId, String systemId) {
+            if (isLocal(systemId, null)) {
+                // let the parser load it as usual
+                return null;
+            }
+
+            InputSource inputSource = new InputSource(new StringReader(""));
+            inputSource.setPublicId(publicId);
+            inputSource.setSystemId(systemId);
+            return inputSource;
+        }
+    }
+
+    private static class OfflineXMLResolver implements XMLResolver {
+
+        public Object resolveEntity(String publicId, String systemId, String baseUri, String namespace) {
+            if (isLocal(systemId, baseUri)) {
+                // let the parser load it as usual
+                return null;
+            }
+            return new ByteArrayInputStream(new byte[0]);
+        }
+    }
+
+    private static class OfflineResourceResolver implements LSResourceResolver {
+
+        public LSInput resolveResource(String type, String namespaceUri, String publicId, String systemId,
+                String baseUri) {
+            if (isLocal(systemId, baseUri)) {
+                // let the schema factory load it as usual
+                return null;
+            }
+            return new EmptyInput(publicId, systemId, baseUri);
+        }
+    }
+
+    /**
+     * An empty schema document, which replaces a schema document that isn't available offline.
+     */
+    private static class EmptyInput implements LSInput {
+
+        private String publicId;
+        private String systemId;
+        private String baseUri;
+
+        public EmptyInput(String publicId, String systemId, String baseUri) {
+            this.publicId = publicId;
+            this.systemId = systemId;
+            this.baseUri = baseUri;
+        }
+
+        public String getBaseURI() {
+            return this.baseUri;
+        }
+
+        public InputStream getByteStream() {
+            return new ByteArrayInputStream(new byte[0]);
+        }
+
+        public boolean getCertifiedText() {
+            return false;
+        }
+
+        public Reader getCharacterStream() {
+            return null;
+        }
+
+        public String getEncoding() {
+            return null;
+        }
+
+        public String getPublicId() {
+            return this.publicId;
+        }
+
+        public String getStringData() {
+            return null;
+        }
+
+        public String getSystemId() {
+            return this.systemId;
+        }
+
+        public void setBaseURI(String baseUri) {
+            this.baseUri = baseUri;
+        }
+
+        public void setByteStream(InputStream byteStream) {
+            // always empty
+        }
+
+        public void setCertifiedText(boolean certifiedText) {
+            // not certified
+        }
+
+        public void setCharacterStream(Reader characterStream) {
+            // always empty
+        }
+
+        public void setEncoding(String encoding) {
+            // no encoding
+        }
+
+        public void setPublicId(String publicId) {
+            this.publicId = publicId;
+        }
+
+        public void setStringData(String stringData) {
+            // always empty
+        }
+
+        public void setSystemId(String systemId) {
+            this.systemId = systemId;
+        }
+    }
+}
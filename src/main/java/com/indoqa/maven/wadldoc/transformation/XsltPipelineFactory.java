@@ -0,0 +1,141 @@
+/*
+ * Licensed to Indoqa Software Design und Beratung GmbH (Indoqa) 
+ * under one or more contributor license agreements. See the NOTICE 
+ * file distributed with this work for additional information
+ * regarding copyright ownership. Indoqa licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.indoqa.maven.wadldoc.transformation;
+
+import java.io.OutputStream;
+import java.net.URL;
+import java.util.Properties;
+
+import org.apache.cocoon.pipeline.component.sax.XMLSerializer;
+import org.apache.commons.lang.Validate;
+
+/**
+ * Hands out the pipelines of the {@link XsltWadlRenderer}. The component chain is built once per thread and is
+ * reused for all the WADL documents the thread transforms: the pipeline is only pointed at the next WADL URL, CSS
+ * path and output stream and set up again. Compiled stylesheets come from the {@link TemplatesCache} anyway, so
+ * that a transformation of a small WADL document hardly allocates more than the transformer handler of the
+ * stylesheet and of the serializer.
+ * <p>
+ * A pipeline is taken from its thread while it is executed and only given back if it succeeds, so that neither a
+ * nested transformation nor the state left behind by a failed one can get in the way.
+ */
+final class XsltPipelineFactory {
+
+    private static final Properties HTML_OUTPUT_PROPERTIES = new Properties();
+
+    static {
+        HTML_OUTPUT_PROPERTIES.put("method", "html");
+        HTML_OUTPUT_PROPERTIES.put("encoding", "UTF-8");
+    }
+
+    private final URL xslt;
+    private final boolean escapeHtmlRepresentations;
+    private final boolean stylesheet;
+    private final ThreadLocal<XsltPipeline> pipelines = new ThreadLocal<XsltPipeline>();
+
+    /**
+     * @param stylesheet Whether the pipelines link the pages to a CSS file.
+     */
+    public XsltPipelineFactory(URL xslt, boolean escapeHtmlRepresentations, boolean stylesheet) {
+        Validate.notNull(xslt, "An XSLT URL has to be passed.");
+        this.xslt = xslt;
+        this.escapeHtmlRepresentations = escapeHtmlRepresentations;
+        this.stylesheet = stylesheet;
+    }
+
+    /**
+     * Create a serializer that writes HTML encoded in UTF-8. The serializer doesn't change the output properties,
+     * so that all serializers share them.
+     */
+    public static XMLSerializer createHtmlSerializer() {
+        return new XMLSerializer(HTML_OUTPUT_PROPERTIES);
+    }
+
+    /**
+     * Transform a WADL document with the pipeline of the current thread and return the metadata that were
+     * collected on the way.
+     *
+     * @param stylesheet The path of the CSS file, which has to be blank exactly if the factory has been created
+     *            for pipelines without CSS.
+     */
+    public WadlMetadata execute(URL wadl, String stylesheet, OutputStream os) throws Exception {
+        XsltPipeline pipeline = this.pipelines.get();
+        if (pipeline == null) {
+            pipeline = new XsltPipeline(this.xslt, this.escapeHtmlRepresentations, this.stylesheet);
+        } else {
+            this.pipelines.remove();
+        }
+
+        WadlMetadata metadata = pipeline.execute(wadl, stylesheet, os);
+        this.pipelines.set(pipeline);
+        return metadata;
+    }
+
+    /**
+     * Drop the pipeline of the current thread.
+     */
+    public void releasePipeline() {
+        this.pipelines.remove();
+    }
+
+    private static class XsltPipeline {
+
+        private final InstrumentedPipeline pipeline = new InstrumentedPipeline();
+        private final UrlGenerator generator = new UrlGenerator();
+        private final WadlMetadataTransformer metadataTransformer = new WadlMetadataTransformer();
+        private final CachedXSLTTransformer xsltTransformer;
+        private StylesheetTransformer stylesheetTransformer;
+
+        public XsltPipeline(URL xslt, boolean escapeHtmlRepresentations, boolean stylesheet) {
+            // start with the WADL file
+            this.pipeline.addComponent(this.generator);
+
+            // collect the metadata while the WADL file is streamed anyway
+            this.pipeline.addComponent(this.metadataTransformer);
+
+            // escape HTML representations; the references of the WADL document are resolved against its URL
+            if (escapeHtmlRepresentations) {
+                this.pipeline.addComponent(new EscapingTransformer());
+            }
+            this.xsltTransformer = new CachedXSLTTransformer(xslt);
+            this.pipeline.addComponent(this.xsltTransformer);
+
+            // CSS
+            if (stylesheet) {
+                this.stylesheetTransformer = new StylesheetTransformer(null);
+                this.pipeline.addComponent(this.stylesheetTransformer);
+            }
+
+            // serialization
+            this.pipeline.addComponent(createHtmlSerializer());
+        }
+
+        public WadlMetadata execute(URL wadl, String stylesheet, OutputStream os) throws Exception {
+            this.generator.setSource(wadl);
+            this.xsltTransformer.setSystemId(wadl);
+            if (this.stylesheetTransformer != null) {
+                this.stylesheetTransformer.setStylesheet(stylesheet);
+            }
+
+            this.pipeline.setup(os);
+            this.pipeline.execute();
+            return this.metadataTransformer.getMetadata();
+        }
+    }
+}
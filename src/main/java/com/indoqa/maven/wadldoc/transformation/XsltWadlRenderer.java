@@ -0,0 +1,91 @@
+/*
+ * Licensed to Indoqa Software Design und Beratung GmbH (Indoqa) 
+ * under one or more contributor license agreements. See the NOTICE 
+ * file distributed with this work for additional information
+ * regarding copyright ownership. Indoqa licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.indoqa.maven.wadldoc.transformation;
+
+import java.io.OutputStream;
+import java.net.URL;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.apache.commons.lang.StringUtils;
+
+import com.indoqa.maven.wadldoc.transformation.Wadl2HtmlPipeline.PipelineException;
+
+/**
+ * The default renderer that transforms the WADL document with <code>wadl_documentation.xsl</code>. Each thread
+ * reuses its pipelines, see {@link XsltPipelineFactory}, so the renderer should be reused, too.
+ */
+public class XsltWadlRenderer implements WadlRenderer {
+
+    private static final String XSLT = "com/indoqa/maven/wadldoc/stylesheet/wadl_documentation.xsl";
+    private static final String XSLT_HTML_REPS =
+            "com/indoqa/maven/wadldoc/stylesheet/wadl_documentation_html-reps.xsl";
+
+    /**
+     * The pipelines with and without escaping and with and without CSS. They are reused by all the threads that
+     * render with this renderer.
+     */
+    private final AtomicReferenceArray<XsltPipelineFactory> pipelineFactories =
+            new AtomicReferenceArray<XsltPipelineFactory>(4);
+
+    /**
+     * Get all XSLT stylesheets that can be used by the renderer, including the imported ones.
+     */
+    public static List<URL> getStylesheets() {
+        ClassLoader classLoader = XsltWadlRenderer.class.getClassLoader();
+        return Arrays.asList(classLoader.getResource(XSLT), classLoader.getResource(XSLT_HTML_REPS));
+    }
+
+    public WadlMetadata render(URL wadl, String stylesheet, boolean escapeHtmlRepresentations, OutputStream os)
+            throws PipelineException {
+        try {
+            boolean css = StringUtils.isNotBlank(stylesheet);
+            return this.getPipelineFactory(escapeHtmlRepresentations, css).execute(wadl, css ? stylesheet : null,
+                    os);
+        } catch (Exception e) {
+            throw new PipelineException(e);
+        }
+    }
+
+    /**
+     * Drop the pipelines the current thread keeps for reuse.
+     */
+    public void releasePipelines() {
+        for (int i = 0; i < this.pipelineFactories.length(); i++) {
+            XsltPipelineFactory pipelineFactory = this.pipelineFactories.get(i);
+            if (pipelineFactory != null) {
+                pipelineFactory.releasePipeline();
+            }
+        }
+    }
+
+    private XsltPipelineFactory getPipelineFactory(boolean escapeHtmlRepresentations, boolean css) {
+        int index = (escapeHtmlRepresentations ? 2 : 0) + (css ? 1 : 0);
+        XsltPipelineFactory pipelineFactory = this.pipelineFactories.get(index);
+        if (pipelineFactory == null) {
+            URL resource = this.getClass().getClassLoader().getResource(
+                    escapeHtmlRepresentations ? XSLT_HTML_REPS : XSLT);
+            this.pipelineFactories.compareAndSet(index, null, new XsltPipelineFactory(resource,
+                    escapeHtmlRepresentations, css));
+            pipelineFactory = this.pipelineFactories.get(index);
+        }
+        return pipelineFactory;
+    }
+}
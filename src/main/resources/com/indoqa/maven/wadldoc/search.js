@@ -0,0 +1,159 @@
+/*
+ * Licensed to Indoqa Software Design und Beratung GmbH (Indoqa) 
+ * under one or more contributor license agreements. See the NOTICE 
+ * file distributed with this work for additional information
+ * regarding copyright ownership. Indoqa licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+/*
+ * The search box of the index page. The manifest (index.js) lists the shards of the search index, one for each
+ * WADL file, with the prefixes of all their terms. For a query, only the shards that can match are loaded, by
+ * script elements, so that the search also works with file: URLs.
+ */
+var wadldocSearch = (function() {
+
+    var DIRECTORY = "search/";
+    var MAX_RESULTS = 100;
+    var PREFIX_LENGTH = 3;
+
+    // [name, title, page, prefixes]
+    var shards = [];
+    // the entries of the loaded shards: [path, id, methods, params, media types, text, terms]
+    var entries = {};
+    var requested = {};
+    var query = [];
+
+    function tokenize(text) {
+        var tokens = text.toLowerCase().split(/[^a-z0-9]+/);
+        var result = [];
+        for (var i = 0; i < tokens.length; i++) {
+            if (tokens[i].length > 0) {
+                result.push(tokens[i]);
+            }
+        }
+        return result;
+    }
+
+    function canMatch(shard) {
+        for (var i = 0; i < query.length; i++) {
+            var token = query[i];
+            var prefix = token.length > PREFIX_LENGTH ? token.substring(0, PREFIX_LENGTH) : token;
+            var terms = " " + shard[3] + " ";
+            if (terms.indexOf(" " + prefix + (token.length >= PREFIX_LENGTH ? " " : "")) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    function matches(entry) {
+        for (var i = 0; i < query.length; i++) {
+            if (entry[6].indexOf(" " + query[i]) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    function load(shard) {
+        if (requested[shard[0]]) {
+            return;
+        }
+        requested[shard[0]] = true;
+
+        var script = document.createElement("script");
+        script.type = "text/javascript";
+        script.src = DIRECTORY + shard[0] + ".js";
+        document.getElementsByTagName("head")[0].appendChild(script);
+    }
+
+    function addResult(results, shard, entry) {
+        var link = document.createElement("a");
+        link.href = shard[2] + (entry[1] ? "#" + entry[1] : "");
+        link.target = "contentFrame";
+        link.title = shard[1];
+        link.appendChild(document.createTextNode(entry[0]));
+
+        var item = document.createElement("div");
+        item.appendChild(link);
+        if (entry[2]) {
+            item.appendChild(document.createTextNode(" " + entry[2]));
+        }
+        results.appendChild(item);
+    }
+
+    function render() {
+        var results = document.getElementById("wadldoc-search-results");
+        while (results.firstChild) {
+            results.removeChild(results.firstChild);
+        }
+        if (query.length == 0) {
+            return;
+        }
+
+        var count = 0;
+        var loading = false;
+        for (var i = 0; i < shards.length && count < MAX_RESULTS; i++) {
+            if (!canMatch(shards[i])) {
+                continue;
+            }
+
+            var shardEntries = entries[shards[i][0]];
+            if (!shardEntries) {
+                loading = true;
+                load(shards[i]);
+                continue;
+            }
+
+            for (var j = 0; j < shardEntries.length && count < MAX_RESULTS; j++) {
+                if (matches(shardEntries[j])) {
+                    addResult(results, shards[i], shardEntries[j]);
+                    count++;
+                }
+            }
+        }
+
+        if (count == 0) {
+            results.appendChild(document.createTextNode(loading ? "Searching ..." : "No resources found."));
+        }
+        results.appendChild(document.createElement("hr"));
+    }
+
+    function search() {
+        query = tokenize(document.getElementById("wadldoc-search").value);
+        render();
+    }
+
+    return {
+
+        addShard: function(name, shardEntries) {
+            for (var i = 0; i < shardEntries.length; i++) {
+                var entry = shardEntries[i];
+                entry[6] = " " + tokenize(entry.slice(0, 6).join(" ")).join(" ");
+            }
+            entries[name] = shardEntries;
+            render();
+        },
+
+        setIndex: function(index) {
+            shards = index;
+
+            var input = document.getElementById("wadldoc-search");
+            input.onkeyup = search;
+            input.onchange = search;
+            search();
+        }
+    };
+})();
@@ -0,0 +1,263 @@
+/*
+ * Licensed to Indoqa Software Design und Beratung GmbH (Indoqa) 
+ * under one or more contributor license agreements. See the NOTICE 
+ * file distributed with this work for additional information
+ * regarding copyright ownership. Indoqa licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.indoqa.maven.wadldoc;
+
+import java.io.File;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import junit.framework.Assert;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang.StringUtils;
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.apache.maven.reporting.MavenReportException;
+import org.junit.Before;
+import org.junit.Test;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+
+import com.indoqa.maven.wadldoc.transformation.WadlMetadata;
+import com.indoqa.maven.wadldoc.transformation.XmlParsers;
+
+public class AbstractWadlDocumentationMojoTest {
+
+    private static final String BROKEN = "broken";
+
+    private File inputDirectory;
+    private File outputDirectory;
+
+    @Before
+    public void createDirectories() throws Exception {
+        File directory = new File("target/wadl-documentation-mojo-test");
+        FileUtils.deleteDirectory(directory);
+        this.inputDirectory = new File(directory, "wadl");
+        this.outputDirectory = new File(directory, "html");
+        this.inputDirectory.mkdirs();
+    }
+
+    @Test
+    public void releaseThreadResources() throws Exception {
+        final XMLReader[] readers = new XMLReader[1];
+        Thread thread = new TestMojo(false, "1").createThreadFactory().newThread(new Runnable() {
+
+            public void run() {
+                try {
+                    readers[0] = XmlParsers.getReader();
+                    XmlParsers.releaseReader(readers[0]);
+                } catch (SAXException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        });
+
+        // run the thread's task in the current thread, whose parser can be checked afterwards
+        thread.run();
+        Assert.assertNotNull(readers[0]);
+        Assert.assertNotSame(readers[0], XmlParsers.getReader());
+    }
+
+    @Test
+    public void threadCount() throws Exception {
+        int cores = Runtime.getRuntime().availableProcessors();
+
+        Assert.assertEquals(4, new TestMojo(false, "4").getThreadCount());
+        Assert.assertEquals(4, new TestMojo(false, " 4 ").getThreadCount());
+        Assert.assertEquals(cores, new TestMojo(false, "1C").getThreadCount());
+        Assert.assertEquals(2 * cores, new TestMojo(false, "2c").getThreadCount());
+        Assert.assertEquals(Math.max(1, cores / 2), new TestMojo(false, "0.5C").getThreadCount());
+        Assert.assertEquals(1, new TestMojo(false, "0").getThreadCount());
+        Assert.assertEquals(1, new TestMojo(false, "").getThreadCount());
+        Assert.assertEquals(1, new TestMojo(false, "  ").getThreadCount());
+        Assert.assertEquals(1, new TestMojo(false, null).getThreadCount());
+    }
+
+    @Test
+    public void invalidThreadCount() {
+        for (String threads : new String[] {"many", "C", "1.5", "4 threads"}) {
+            try {
+                new TestMojo(false, threads).getThreadCount();
+                Assert.fail("The number of threads '" + threads + "' is invalid.");
+            } catch (MavenReportException e) {
+                Assert.assertTrue(e.getMessage().contains("'" + threads + "'"));
+            }
+        }
+    }
+
+    @Test
+    public void largeFileWithConfiguredRenderer() throws Exception {
+        this.createWadl("large.wadl", 1024 * 1024);
+        this.createWadl("small.wadl", 0);
+
+        TestMojo mojo = new TestMojo(true, "1");
+        mojo.largeFileThreshold = 1;
+        mojo.renderer = "xslt";
+        try {
+            mojo.executeReport(Locale.ENGLISH);
+            Assert.fail("The XSLT renderer can't render large files resource by resource.");
+        } catch (MavenReportException e) {
+            Assert.assertTrue(e.getMessage().startsWith("1 WADL file(s) reach the large-file threshold of 1 MB."));
+        }
+        Assert.assertEquals(0, mojo.started.get());
+    }
+
+    @Test
+    public void largeFileWithDefaultRenderer() throws Exception {
+        this.createWadl("large.wadl", 1024 * 1024);
+        this.createWadl("small.wadl", 0);
+
+        TestMojo mojo = new TestMojo(true, "1");
+        mojo.largeFileThreshold = 1;
+        mojo.executeReport(Locale.ENGLISH);
+
+        Assert.assertEquals(2, mojo.completed.get());
+        Assert.assertTrue(new File(this.outputDirectory, "large.html").exists());
+        Assert.assertTrue(new File(this.outputDirectory, "small.html").exists());
+    }
+
+    @Test
+    public void parallelTransformationWithErrors() throws Exception {
+        this.createWadl("a-" + BROKEN + ".wadl", 1000);
+        this.createWadl("b.wadl", 0);
+        this.createWadl("c-" + BROKEN + ".wadl", 0);
+        this.createWadl("d.wadl", 0);
+
+        TestMojo mojo = new TestMojo(false, "4");
+        mojo.executeReport(Locale.ENGLISH);
+
+        // c fails first, but the errors are reported in the order of the WADL files
+        Assert.assertEquals(2, mojo.errors.size());
+        Assert.assertTrue(mojo.errors.get(0).startsWith("Can't transform a-" + BROKEN + ".wadl"));
+        Assert.assertTrue(mojo.errors.get(1).startsWith("Can't transform c-" + BROKEN + ".wadl"));
+
+        Assert.assertEquals(2, mojo.completed.get());
+        Assert.assertTrue(new File(this.outputDirectory, "b.html").exists());
+        Assert.assertTrue(new File(this.outputDirectory, "d.html").exists());
+        Assert.assertFalse(new File(this.outputDirectory, "a-" + BROKEN + ".html").exists());
+        Assert.assertFalse(new File(this.outputDirectory, "c-" + BROKEN + ".html").exists());
+
+        String index = FileUtils.readFileToString(new File(this.outputDirectory, "resources.html"), "UTF-8");
+        Assert.assertTrue(index.contains("b.html"));
+        Assert.assertTrue(index.contains("d.html"));
+        Assert.assertFalse(index.contains(BROKEN));
+    }
+
+    @Test
+    public void parallelTransformationFailFast() throws Exception {
+        // the broken file is the largest one, so it is scheduled first
+        this.createWadl("a-" + BROKEN + ".wadl", 10000);
+        this.createWadl("b.wadl", 0);
+        this.createWadl("c.wadl", 0);
+        this.createWadl("d.wadl", 0);
+
+        TestMojo mojo = new TestMojo(true, "2");
+        mojo.delay = 10000;
+        long start = System.currentTimeMillis();
+        try {
+            mojo.executeReport(Locale.ENGLISH);
+            Assert.fail("The broken WADL file has to fail the build.");
+        } catch (MavenReportException e) {
+            Assert.assertTrue(e.getMessage().startsWith("Can't transform a-" + BROKEN + ".wadl"));
+            Assert.assertTrue(e.getCause().getMessage().contains(BROKEN));
+        }
+
+        // the running transformations are cancelled and no further transformation is started
+        Assert.assertTrue(System.currentTimeMillis() - start < mojo.delay);
+        Assert.assertEquals(0, mojo.completed.get());
+        Assert.assertTrue(mojo.started.get() <= 2);
+        Assert.assertEquals(1, mojo.errors.size());
+        Assert.assertFalse(new File(this.outputDirectory, "resources.html").exists());
+    }
+
+    private void createWadl(String name, int padding) throws Exception {
+        String wadl = FileUtils.readFileToString(FileUtils.toFile(this.getClass().getResource(
+                "transformation/wadl.xml")), "UTF-8");
+        FileUtils.writeStringToFile(new File(this.inputDirectory, name), wadl + "<!--"
+                + StringUtils.repeat(" ", padding) + "-->", "UTF-8");
+    }
+
+    private class TestMojo extends AbstractWadlDocumentationMojo {
+
+        private final boolean failOnError;
+        private final List<String> errors = Collections.synchronizedList(new ArrayList<String>());
+        private final AtomicInteger started = new AtomicInteger();
+        private final AtomicInteger completed = new AtomicInteger();
+        private long delay;
+
+        public TestMojo(boolean failOnError, String threads) {
+            this.failOnError = failOnError;
+            this.threads = threads;
+            this.inputDirectory = AbstractWadlDocumentationMojoTest.this.inputDirectory;
+            this.outputDirectory = AbstractWadlDocumentationMojoTest.this.outputDirectory;
+            // the reference cache is shared by the whole JVM, so it gets the budget a Maven build would configure
+            this.referenceCacheSize = 64;
+            this.setLog(new SystemStreamLog() {
+
+                @Override
+                public void debug(CharSequence content) {
+                    // keep the test output readable
+                }
+
+                @Override
+                public void error(CharSequence content, Throwable error) {
+                    TestMojo.this.errors.add(content.toString());
+                }
+            });
+        }
+
+        public void execute() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        protected boolean isFailOnError() {
+            return this.failOnError;
+        }
+
+        @Override
+        protected WadlMetadata renderWadl(WadlFile wadlFile, OutputStream outputStream)
+                throws MavenReportException {
+            if (wadlFile.getPath().contains(BROKEN)) {
+                if (wadlFile.getPath().startsWith("a")) {
+                    // let the other broken file fail first
+                    this.sleep(500);
+                }
+                throw new MavenReportException("The WADL file " + wadlFile + " is " + BROKEN + ".");
+            }
+
+            this.started.incrementAndGet();
+            this.sleep(this.delay);
+            WadlMetadata metadata = super.renderWadl(wadlFile, outputStream);
+            this.completed.incrementAndGet();
+            return metadata;
+        }
+
+        private void sleep(long millis) throws MavenReportException {
+            try {
+                Thread.sleep(millis);
+            } catch (InterruptedException e) {
+                throw new MavenReportException("The transformation has been cancelled.");
+            }
+        }
+    }
+}
@@ -0,0 +1,139 @@
+/*
+ * Licensed to Indoqa Software Design und Beratung GmbH (Indoqa) 
+ * under one or more contributor license agreements. See the NOTICE 
+ * file distributed with this work for additional information
+ * regarding copyright ownership. Indoqa licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.indoqa.maven.wadldoc;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import junit.framework.Assert;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Before;
+import org.junit.Test;
+
+public class BuildStateTest {
+
+    private static final String WADL_NS = "http://research.sun.com/wadl/2006/10";
+
+    private File directory;
+    private File outFile;
+    private File types;
+    private File wadl;
+
+    @Before
+    public void createFiles() throws Exception {
+        this.directory = new File("target/build-state-test");
+        FileUtils.deleteDirectory(this.directory);
+        this.directory.mkdirs();
+
+        this.types = new File(this.directory, "types.xml");
+        FileUtils.writeStringToFile(this.types, "<application xmlns='" + WADL_NS
+                + "'><resource_type id='rt'/></application>");
+        this.wadl = new File(this.directory, "api.wadl");
+        FileUtils.writeStringToFile(this.wadl, "<application xmlns='" + WADL_NS
+                + "'><resources><resource path='x' type='types.xml#rt'/></resources></application>");
+        this.outFile = new File(this.directory, "api.html");
+        FileUtils.writeStringToFile(this.outFile, "<html/>");
+    }
+
+    @Test
+    public void changedDependency() throws Exception {
+        BuildState buildState = BuildState.load(this.directory, "settings");
+        Assert.assertFalse(buildState.isUpToDate(this.wadl, this.outFile));
+
+        Assert.assertEquals(Collections.singleton(this.types.getAbsoluteFile()), this.collectDependencies());
+        buildState.updateWadl(this.wadl, "Title", this.collectDependencies());
+        buildState.store();
+
+        Assert.assertTrue(BuildState.load(this.directory, "settings").isUpToDate(this.wadl, this.outFile));
+        Assert.assertEquals("Title", BuildState.load(this.directory, "settings").getTitle(this.wadl));
+
+        FileUtils.writeStringToFile(this.types, "<application xmlns='" + WADL_NS + "'/>");
+        Assert.assertFalse(BuildState.load(this.directory, "settings").isUpToDate(this.wadl, this.outFile));
+    }
+
+    @Test
+    public void changedSettings() throws Exception {
+        BuildState buildState = BuildState.load(this.directory, "settings");
+        buildState.updateWadl(this.wadl, "Title", this.collectDependencies());
+        buildState.store();
+
+        Assert.assertFalse(BuildState.load(this.directory, "other settings").isUpToDate(this.wadl, this.outFile));
+    }
+
+    @Test
+    public void missingOutput() throws Exception {
+        BuildState buildState = BuildState.load(this.directory, "settings");
+        buildState.updateWadl(this.wadl, "Title", this.collectDependencies());
+
+        this.outFile.delete();
+        Assert.assertFalse(buildState.isUpToDate(this.wadl, this.outFile));
+    }
+
+    @Test
+    public void scannedAttributes() throws Exception {
+        List<File> files = new ArrayList<File>();
+        files.add(this.wadl.getAbsoluteFile());
+        files.addAll(this.collectDependencies());
+        BuildState buildState = BuildState.load(this.directory, "settings");
+        buildState.updateWadl(this.scanWadl(), "Title", files);
+        buildState.store();
+
+        // same length and modification time -> the WADL file isn't hashed again
+        long lastModified = this.wadl.lastModified();
+        FileUtils.writeStringToFile(this.wadl, FileUtils.readFileToString(this.wadl).replace("'x'", "'y'"));
+        this.wadl.setLastModified(lastModified);
+        Assert.assertTrue(BuildState.load(this.directory, "settings").isUpToDate(this.scanWadl(), this.outFile));
+
+        // another modification time -> the WADL file is hashed
+        this.wadl.setLastModified(lastModified - 10000);
+        Assert.assertFalse(BuildState.load(this.directory, "settings").isUpToDate(this.scanWadl(), this.outFile));
+
+        // the referenced documents are always checked
+        this.wadl.setLastModified(lastModified);
+        FileUtils.writeStringToFile(this.types, "<application xmlns='" + WADL_NS + "'/>");
+        Assert.assertFalse(BuildState.load(this.directory, "settings").isUpToDate(this.scanWadl(), this.outFile));
+    }
+
+    @Test
+    public void trackedFiles() throws Exception {
+        BuildState buildState = BuildState.load(this.directory, "settings");
+        Assert.assertTrue(buildState.getTrackedFiles().isEmpty());
+
+        buildState.updateWadl(this.wadl, "Title", this.collectDependencies());
+        buildState.store();
+
+        Set<File> expected = new HashSet<File>();
+        expected.add(this.wadl.getAbsoluteFile());
+        expected.add(this.types.getAbsoluteFile());
+        Assert.assertEquals(expected, BuildState.load(this.directory, "settings").getTrackedFiles());
+    }
+
+    private WadlFile scanWadl() throws Exception {
+        return new WadlFileScanner(this.directory, new String[] {"api.wadl"}, null).scan().get(0);
+    }
+
+    private Set<File> collectDependencies() {
+        return WadlDependencies.collect(this.wadl.getAbsoluteFile(), Collections.singleton("types.xml#rt"));
+    }
+}
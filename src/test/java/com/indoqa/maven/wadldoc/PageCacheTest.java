@@ -0,0 +1,144 @@
+/*
+ * Licensed to Indoqa Software Design und Beratung GmbH (Indoqa) 
+ * under one or more contributor license agreements. See the NOTICE 
+ * file distributed with this work for additional information
+ * regarding copyright ownership. Indoqa licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.indoqa.maven.wadldoc;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.zip.GZIPOutputStream;
+
+import junit.framework.Assert;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.indoqa.maven.wadldoc.PageCache.CachedPage;
+import com.indoqa.maven.wadldoc.transformation.SearchEntry;
+import com.indoqa.maven.wadldoc.transformation.Wadl2HtmlPipeline;
+import com.indoqa.maven.wadldoc.transformation.WadlMetadata;
+
+public class PageCacheTest {
+
+    private static final String[] DOCUMENTS = {"rich-wadl.xml", "rich-resource-types.wadl", "rich-types.xsd"};
+
+    private File directory;
+
+    @Before
+    public void createDirectory() throws Exception {
+        this.directory = new File("target/page-cache-test");
+        FileUtils.deleteDirectory(this.directory);
+    }
+
+    @Test
+    public void changedDependency() throws Exception {
+        WadlFile wadlFile = this.createWadlFile("module");
+        PageCache pageCache = new PageCache(new File(this.directory, "cache"), "settings");
+        String key = put(pageCache, wadlFile);
+
+        FileUtils.writeStringToFile(new File(wadlFile.getFile().getParentFile(), "rich-resource-types.wadl"),
+                "<application xmlns=\"http://research.sun.com/wadl/2006/10\"/>", "UTF-8");
+        Assert.assertNull(pageCache.get(key, wadlFile));
+        Assert.assertEquals(2, pageCache.getMisses());
+    }
+
+    @Test
+    public void sharedPage() throws Exception {
+        WadlFile wadlFile = this.createWadlFile("module1");
+        String key = put(new PageCache(new File(this.directory, "cache"), "settings"), wadlFile);
+
+        // another module with the same documents uses the page, even in a later build
+        WadlFile otherWadlFile = this.createWadlFile("module2");
+        PageCache pageCache = new PageCache(new File(this.directory, "cache"), "settings");
+        Assert.assertEquals(key, pageCache.createKey(BuildState.hash(otherWadlFile.getUrl()), "../style.css"));
+        CachedPage cachedPage = pageCache.get(key, otherWadlFile);
+        Assert.assertNotNull(cachedPage);
+        Assert.assertEquals(1, pageCache.getHits());
+
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        WadlMetadata metadata = new Wadl2HtmlPipeline(wadlFile.getUrl(), "../style.css").execute(expected);
+        Assert.assertEquals(expected.toString("UTF-8"), new String(cachedPage.getContent(), "UTF-8"));
+        Assert.assertEquals(metadata.toString(), cachedPage.getMetadata().toString());
+        Assert.assertEquals(metadata.getReferences(), cachedPage.getMetadata().getReferences());
+        Assert.assertEquals(metadata.getSearchEntries().toString(), cachedPage.getMetadata().getSearchEntries()
+                .toString());
+        SearchEntry searchEntry = metadata.getSearchEntries().get(0);
+        SearchEntry cachedSearchEntry = cachedPage.getMetadata().getSearchEntries().get(0);
+        Assert.assertEquals(searchEntry.getId(), cachedSearchEntry.getId());
+        Assert.assertEquals(searchEntry.getText(), cachedSearchEntry.getText());
+
+        // other settings or another CSS path lead to other pages
+        Assert.assertFalse(key.equals(new PageCache(this.directory, "other").createKey(BuildState.hash(wadlFile
+                .getUrl()), "../style.css")));
+        Assert.assertFalse(key.equals(pageCache.createKey(BuildState.hash(wadlFile.getUrl()), "style.css")));
+    }
+
+    @Test
+    public void serializedEntry() throws Exception {
+        WadlFile wadlFile = this.createWadlFile("module");
+        PageCache pageCache = new PageCache(new File(this.directory, "cache"), "settings");
+        String key = put(pageCache, wadlFile);
+
+        // Java serialization isn't a format of the cache, such an entry is never deserialized
+        File entry = new File(new File(new File(this.directory, "cache"), key.substring(0, 2)), key + ".page");
+        ObjectOutputStream outputStream = new ObjectOutputStream(new GZIPOutputStream(new FileOutputStream(entry)));
+        try {
+            outputStream.writeObject(new ArrayList<String>());
+        } finally {
+            outputStream.close();
+        }
+        Assert.assertNull(pageCache.get(key, wadlFile));
+    }
+
+    @Test
+    public void unreadableEntry() throws Exception {
+        WadlFile wadlFile = this.createWadlFile("module");
+        PageCache pageCache = new PageCache(new File(this.directory, "cache"), "settings");
+        String key = put(pageCache, wadlFile);
+
+        File entry = new File(new File(new File(this.directory, "cache"), key.substring(0, 2)), key + ".page");
+        Assert.assertTrue(entry.isFile());
+        FileUtils.writeStringToFile(entry, "no cache entry", "UTF-8");
+        Assert.assertNull(pageCache.get(key, wadlFile));
+    }
+
+    private WadlFile createWadlFile(String module) throws Exception {
+        File moduleDirectory = new File(this.directory, module);
+        for (String document : DOCUMENTS) {
+            FileUtils.copyURLToFile(Wadl2HtmlPipeline.class.getResource(document), new File(moduleDirectory,
+                    document));
+        }
+
+        File file = new File(moduleDirectory, DOCUMENTS[0]);
+        return new WadlFile(file, DOCUMENTS[0], file.length(), file.lastModified());
+    }
+
+    private static String put(PageCache pageCache, WadlFile wadlFile) throws Exception {
+        String key = pageCache.createKey(BuildState.hash(wadlFile.getUrl()), "../style.css");
+        Assert.assertNull(pageCache.get(key, wadlFile));
+
+        ByteArrayOutputStream content = new ByteArrayOutputStream();
+        WadlMetadata metadata = new Wadl2HtmlPipeline(wadlFile.getUrl(), "../style.css").execute(content);
+        pageCache.put(key, new CachedPage(content.toByteArray(), metadata, PageCache
+                .hashDependencies(AbstractWadlDocumentationMojo.getDependencies(wadlFile, metadata))));
+        return key;
+    }
+}
@@ -0,0 +1,39 @@
+/*
+ * Licensed to Indoqa Software Design und Beratung GmbH (Indoqa) 
+ * under one or more contributor license agreements. See the NOTICE 
+ * file distributed with this work for additional information
+ * regarding copyright ownership. Indoqa licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.indoqa.maven.wadldoc;
+
+import junit.framework.Assert;
+
+import org.antlr.stringtemplate.StringTemplate;
+import org.junit.Test;
+
+public class PageTemplatesTest {
+
+    @Test
+    public void independentInstances() throws Exception {
+        StringTemplate first = PageTemplates.getInstanceOf(PageTemplates.FRAMESET);
+        first.setAttribute("title", "First");
+        StringTemplate second = PageTemplates.getInstanceOf(PageTemplates.FRAMESET);
+        second.setAttribute("title", "Second");
+
+        Assert.assertTrue(first.toString().contains("<TITLE>First</TITLE>"));
+        Assert.assertTrue(second.toString().contains("<TITLE>Second</TITLE>"));
+        Assert.assertFalse(second.toString().contains("First"));
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * Licensed to Indoqa Software Design und Beratung GmbH (Indoqa) 
+ * under one or more contributor license agreements. See the NOTICE 
+ * file distributed with this work for additional information
+ * regarding copyright ownership. Indoqa licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.indoqa.maven.wadldoc;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.util.zip.GZIPInputStream;
+
+import junit.framework.Assert;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.indoqa.maven.wadldoc.PageWriter.PageOutputStream;
+
+public class PageWriterTest {
+
+    private File directory;
+    private File page;
+
+    @Before
+    public void createDirectory() throws Exception {
+        this.directory = new File("target/page-writer-test");
+        FileUtils.deleteDirectory(this.directory);
+        this.page = new File(this.directory, "api/index.html");
+    }
+
+    @Test
+    public void compressedPage() throws Exception {
+        PageWriter pageWriter = new PageWriter(true);
+        Assert.assertTrue(pageWriter.write(this.page, "<html>\u00e4</html>"));
+
+        File compressedPage = PageWriter.getCompressedPage(this.page);
+        Assert.assertTrue(compressedPage.exists());
+        InputStream inputStream = new GZIPInputStream(new FileInputStream(compressedPage));
+        try {
+            Assert.assertEquals("<html>\u00e4</html>", IOUtils.toString(inputStream, "UTF-8"));
+        } finally {
+            IOUtils.closeQuietly(inputStream);
+        }
+
+        // without compression, the outdated compressed copy is deleted
+        new PageWriter(false).write(this.page, "<html/>");
+        Assert.assertFalse(compressedPage.exists());
+        Assert.assertEquals(1, this.directory.listFiles()[0].list().length);
+    }
+
+    @Test
+    public void failedPage() throws Exception {
+        PageWriter pageWriter = new PageWriter(false);
+        pageWriter.write(this.page, "<html/>");
+
+        PageOutputStream outputStream = pageWriter.open(this.page);
+        outputStream.write("<ht".getBytes("UTF-8"));
+        outputStream.close();
+
+        Assert.assertEquals("<html/>", FileUtils.readFileToString(this.page, "UTF-8"));
+        Assert.assertEquals(1, this.page.getParentFile().list().length);
+    }
+
+    @Test
+    public void unchangedPage() throws Exception {
+        PageWriter pageWriter = new PageWriter(false);
+        Assert.assertTrue(pageWriter.write(this.page, "<html/>"));
+        this.page.setLastModified(1000000000000L);
+
+        Assert.assertFalse(pageWriter.write(this.page, "<html/>"));
+        PageOutputStream outputStream = pageWriter.open(this.page);
+        outputStream.write("<html/>".getBytes("UTF-8"));
+        Assert.assertFalse(outputStream.commit());
+        Assert.assertEquals(1000000000000L, this.page.lastModified());
+
+        Assert.assertTrue(pageWriter.write(this.page, "<html></html>"));
+        Assert.assertEquals("<html></html>", FileUtils.readFileToString(this.page, "UTF-8"));
+        Assert.assertEquals(1, this.page.getParentFile().list().length);
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * Licensed to Indoqa Software Design und Beratung GmbH (Indoqa) 
+ * under one or more contributor license agreements. See the NOTICE 
+ * file distributed with this work for additional information
+ * regarding copyright ownership. Indoqa licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.indoqa.maven.wadldoc;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import junit.framework.Assert;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.indoqa.maven.wadldoc.RenderedPageCache.RenderedPage;
+
+public class RenderedPageCacheTest {
+
+    private final AtomicInteger renderings = new AtomicInteger();
+
+    private File file;
+
+    @Before
+    public void createFile() throws Exception {
+        File directory = new File("target/rendered-page-cache-test");
+        FileUtils.deleteDirectory(directory);
+        directory.mkdirs();
+
+        this.file = new File(directory, "api.wadl");
+        FileUtils.writeStringToFile(this.file, "first");
+    }
+
+    @Test
+    public void changedFile() throws Exception {
+        RenderedPageCache cache = new RenderedPageCache();
+        RenderedPage page = cache.get("api", this.createRenderer());
+        Assert.assertEquals("first", new String(page.getContent()));
+        Assert.assertSame(page, cache.get("api", this.createRenderer()));
+        Assert.assertEquals(1, this.renderings.get());
+
+        FileUtils.writeStringToFile(this.file, "second version");
+        RenderedPage changedPage = cache.get("api", this.createRenderer());
+        Assert.assertEquals("second version", new String(changedPage.getContent()));
+        Assert.assertFalse(page.getETag().equals(changedPage.getETag()));
+        Assert.assertEquals(2, this.renderings.get());
+    }
+
+    @Test
+    public void failedRendering() throws Exception {
+        RenderedPageCache cache = new RenderedPageCache();
+        try {
+            cache.get("api", new Callable<RenderedPage>() {
+
+                public RenderedPage call() throws Exception {
+                    throw new IllegalStateException("broken");
+                }
+            });
+            Assert.fail("The rendering error should have been thrown.");
+        } catch (IllegalStateException e) {
+            Assert.assertEquals("broken", e.getMessage());
+        }
+
+        // the failure isn't cached
+        Assert.assertEquals("first", new String(cache.get("api", this.createRenderer()).getContent()));
+    }
+
+    private Callable<RenderedPage> createRenderer() {
+        return new Callable<RenderedPage>() {
+
+            public RenderedPage call() throws Exception {
+                RenderedPageCacheTest.this.renderings.incrementAndGet();
+                File renderedFile = RenderedPageCacheTest.this.file;
+                return new RenderedPage(FileUtils.readFileToByteArray(renderedFile), null, Collections
+                        .singleton(renderedFile));
+            }
+        };
+    }
+}
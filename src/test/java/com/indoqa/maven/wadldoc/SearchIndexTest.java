@@ -0,0 +1,78 @@
+/*
+ * Licensed to Indoqa Software Design und Beratung GmbH (Indoqa) 
+ * under one or more contributor license agreements. See the NOTICE 
+ * file distributed with this work for additional information
+ * regarding copyright ownership. Indoqa licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.indoqa.maven.wadldoc;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.util.List;
+
+import junit.framework.Assert;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Test;
+
+import com.indoqa.maven.wadldoc.transformation.SearchEntry;
+import com.indoqa.maven.wadldoc.transformation.Wadl2HtmlPipeline;
+
+public class SearchIndexTest {
+
+    @Test
+    public void shards() throws Exception {
+        File outputDirectory = new File("target/search-index-test");
+        FileUtils.deleteDirectory(outputDirectory);
+        File obsoleteShard = new File(outputDirectory, SearchIndex.DIRECTORY + "/obsolete.js");
+        FileUtils.writeStringToFile(obsoleteShard, "");
+
+        SearchIndex searchIndex = new SearchIndex(outputDirectory, new PageWriter(false));
+        searchIndex.writeShard("rich-wadl.xml", this.readSearchEntries());
+        searchIndex.addShard("rich-wadl.xml", "Bookstore", "rich-wadl.html", "boo");
+        searchIndex.writeManifest();
+
+        String shardName = SearchIndex.getShardName("rich-wadl.xml");
+        String shard = FileUtils.readFileToString(new File(outputDirectory, SearchIndex.DIRECTORY + "/"
+                + shardName + ".js"), "UTF-8");
+        Assert.assertTrue(shard, shard.startsWith("wadldocSearch.addShard(\"" + shardName + "\", [\n[\"/books\""));
+        String manifest = FileUtils.readFileToString(new File(outputDirectory, SearchIndex.DIRECTORY
+                + "/index.js"), "UTF-8");
+        Assert.assertEquals("wadldocSearch.setIndex([\n[\"" + shardName
+                + "\",\"Bookstore\",\"rich-wadl.html\",\"boo\"]]);\n", manifest);
+        Assert.assertTrue(new File(outputDirectory, SearchIndex.DIRECTORY + "/search.js").exists());
+        Assert.assertFalse(obsoleteShard.exists());
+    }
+
+    @Test
+    public void terms() throws Exception {
+        String terms = " " + SearchIndex.createTerms(this.readSearchEntries()) + " ";
+
+        // the prefixes of the path, the method ids, the params, the media types and the documentation
+        Assert.assertTrue(terms.contains(" boo "));
+        Assert.assertTrue(terms.contains(" lis "));
+        Assert.assertTrue(terms.contains(" isb "));
+        Assert.assertTrue(terms.contains(" jso "));
+        Assert.assertTrue(terms.contains(" asc "));
+        // short terms are kept as they are
+        Assert.assertTrue(terms.contains(" q "));
+        Assert.assertFalse(terms.contains("books"));
+    }
+
+    private List<SearchEntry> readSearchEntries() {
+        return new Wadl2HtmlPipeline(Wadl2HtmlPipeline.class.getResource("rich-wadl.xml"), null, true).execute(
+                new ByteArrayOutputStream()).getSearchEntries();
+    }
+}
@@ -0,0 +1,60 @@
+/*
+ * Licensed to Indoqa Software Design und Beratung GmbH (Indoqa) 
+ * under one or more contributor license agreements. See the NOTICE 
+ * file distributed with this work for additional information
+ * regarding copyright ownership. Indoqa licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.indoqa.maven.wadldoc;
+
+import java.io.File;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+public class StylesheetAssetTest {
+
+    private static final String CSS = "  body {\n    color: black; /* the text */\n  }\n\n  a :hover, p + ul {\n"
+            + "    font-family: \"Times  New Roman\" , serif;\n  }\n";
+
+    @Test
+    public void fingerprint() throws Exception {
+        StylesheetAsset asset = StylesheetAsset.create("docs.css", CSS, false);
+        Assert.assertTrue(asset.getName().matches("docs\\.[0-9a-f]{8}\\.css"));
+        Assert.assertEquals(CSS, new String(asset.getContent(), "UTF-8"));
+        Assert.assertEquals(asset.getName(), StylesheetAsset.create("docs.css", CSS, false).getName());
+
+        StylesheetAsset changedAsset = StylesheetAsset.create("docs.css", CSS + "h1 {}", false);
+        Assert.assertFalse(asset.getName().equals(changedAsset.getName()));
+        Assert.assertTrue(changedAsset.isOutdatedAsset(new File(asset.getName())));
+        Assert.assertFalse(asset.isOutdatedAsset(new File(asset.getName())));
+        Assert.assertFalse(asset.isOutdatedAsset(new File("docs.css")));
+        Assert.assertFalse(asset.isOutdatedAsset(new File("other.0123abcd.css")));
+    }
+
+    @Test
+    public void minify() throws Exception {
+        Assert.assertEquals("body{color:black}a :hover,p + ul{font-family:\"Times  New Roman\",serif}",
+                StylesheetAsset.minify(CSS));
+        Assert.assertEquals(StylesheetAsset.minify(CSS), new String(StylesheetAsset.create("docs.css", CSS, true)
+                .getContent(), "UTF-8"));
+    }
+
+    @Test
+    public void unindent() {
+        Assert.assertEquals("body {\n  color: black; /* the text */\n}\n\na :hover, p + ul {\n"
+                + "  font-family: \"Times  New Roman\" , serif;\n}\n", StylesheetAsset.unindent("\n" + CSS));
+    }
+}
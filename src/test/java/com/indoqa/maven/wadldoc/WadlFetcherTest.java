@@ -0,0 +1,227 @@
+/*
+ * Licensed to Indoqa Software Design und Beratung GmbH (Indoqa) 
+ * under one or more contributor license agreements. See the NOTICE 
+ * file distributed with this work for additional information
+ * regarding copyright ownership. Indoqa licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.indoqa.maven.wadldoc;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executors;
+
+import junit.framework.Assert;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.apache.maven.reporting.MavenReportException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+public class WadlFetcherTest {
+
+    private File directory;
+    private HttpServer server;
+    private String content = "<application xmlns=\"http://research.sun.com/wadl/2006/10\"/>";
+    private String etag = "\"v1\"";
+    private String lastModified;
+    private long delay;
+    private final List<String> conditions = Collections.synchronizedList(new ArrayList<String>());
+
+    @Before
+    public void startServer() throws Exception {
+        this.directory = new File("target/wadl-fetcher-test");
+        FileUtils.deleteDirectory(this.directory);
+
+        this.server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        this.server.createContext("/", new HttpHandler() {
+
+            public void handle(HttpExchange exchange) throws IOException {
+                WadlFetcherTest.this.handle(exchange);
+            }
+        });
+        this.server.start();
+    }
+
+    @After
+    public void stopServer() {
+        this.server.stop(0);
+    }
+
+    @Test
+    public void conditionalGet() throws Exception {
+        URL url = this.getUrl("/orders?_wadl");
+        WadlFetcher fetcher = this.loadFetcher();
+        Assert.assertTrue(fetcher.fetch(url));
+        File file = fetcher.getFile(url);
+        Assert.assertEquals(this.content, FileUtils.readFileToString(file, "UTF-8"));
+        long fileLastModified = file.lastModified();
+
+        // the recorded ETag survives the build
+        fetcher.store();
+        fetcher = this.loadFetcher();
+        Assert.assertFalse(fetcher.fetch(url));
+        Assert.assertEquals(Collections.singletonList(this.etag), this.conditions.subList(1, 2));
+        Assert.assertEquals(fileLastModified, file.lastModified());
+        Assert.assertEquals(0, fetcher.getFetched());
+        Assert.assertEquals(1, fetcher.getNotModified());
+
+        this.content = "<application xmlns=\"http://research.sun.com/wadl/2006/10\"><doc/></application>";
+        this.etag = "\"v2\"";
+        Assert.assertTrue(fetcher.fetch(url));
+        Assert.assertEquals(this.content, FileUtils.readFileToString(file, "UTF-8"));
+
+        // the copy is fetched again if it's gone
+        file.delete();
+        Assert.assertTrue(fetcher.fetch(url));
+        Assert.assertTrue(file.exists());
+    }
+
+    @Test
+    public void lastModified() throws Exception {
+        this.etag = null;
+        this.lastModified = "Tue, 15 Nov 1994 12:45:26 GMT";
+
+        URL url = this.getUrl("/application.wadl");
+        WadlFetcher fetcher = this.loadFetcher();
+        Assert.assertTrue(fetcher.fetch(url));
+        Assert.assertFalse(fetcher.fetch(url));
+        Assert.assertEquals(this.lastModified, this.conditions.get(1));
+    }
+
+    @Test
+    public void paths() throws Exception {
+        Assert.assertEquals("orders.wadl", WadlFetcher.getPath(new URL("http://localhost:8080/orders?_wadl")));
+        Assert.assertEquals("app/application.wadl", WadlFetcher.getPath(new URL("http://localhost/app/")));
+        Assert.assertEquals("application.wadl", WadlFetcher.getPath(new URL("http://localhost")));
+        Assert.assertEquals("api/rest.xml", WadlFetcher.getPath(new URL("http://localhost/api/rest.xml")));
+        Assert.assertEquals("etc/passwd.wadl", WadlFetcher.getPath(new URL("http://localhost/../../etc/passwd")));
+
+        WadlFetcher fetcher = this.loadFetcher();
+        Assert.assertEquals(new File(this.directory, "localhost_8080/orders.wadl"), fetcher.getFile(new URL(
+                "http://localhost:8080/orders?_wadl")));
+    }
+
+    @Test
+    public void failures() throws Exception {
+        URL url = this.getUrl("/missing");
+        WadlFetcher fetcher = this.loadFetcher();
+        try {
+            fetcher.fetch(url);
+            Assert.fail("The document doesn't exist.");
+        } catch (IOException e) {
+            // expected
+        }
+        Assert.assertFalse(fetcher.getFile(url).exists());
+
+        // a slow server doesn't destroy the copy of the last fetch
+        url = this.getUrl("/orders");
+        Assert.assertTrue(fetcher.fetch(url));
+        this.etag = "\"v2\"";
+        this.delay = 2000;
+        fetcher.setReadTimeout(200);
+        try {
+            fetcher.fetch(url);
+            Assert.fail("The server is too slow.");
+        } catch (IOException e) {
+            // expected
+        }
+        Assert.assertEquals(this.content, FileUtils.readFileToString(fetcher.getFile(url), "UTF-8"));
+    }
+
+    @Test
+    public void clashingUrls() throws Exception {
+        WadlSource source = new WadlSource();
+        source.setUrls(new String[] {this.getUrl("/orders?_wadl").toString(), this.getUrl("/orders?v=2").toString()});
+        WadlSources sources = new WadlSources(new WadlSource[] {source}, this.directory, new SystemStreamLog());
+        try {
+            sources.fetch(2000, 2000, true, Executors.defaultThreadFactory());
+            Assert.fail("Both URLs would be fetched into the same file.");
+        } catch (MavenReportException e) {
+            Assert.assertTrue(e.getMessage(), e.getMessage().contains("same file"));
+        }
+        Assert.assertTrue(this.conditions.isEmpty());
+
+        // the same URL listed twice is fetched once
+        String url = this.getUrl("/orders?_wadl").toString();
+        source.setUrls(new String[] {url, url});
+        Assert.assertTrue(sources.fetch(2000, 2000, true, Executors.defaultThreadFactory()));
+        Assert.assertEquals(1, this.conditions.size());
+
+        List<WadlFile> wadlFiles = new ArrayList<WadlFile>();
+        sources.addFetchedWadlFiles(source, wadlFiles);
+        Assert.assertEquals(1, wadlFiles.size());
+        Assert.assertEquals(this.content, FileUtils.readFileToString(wadlFiles.get(0).getFile(), "UTF-8"));
+    }
+
+    private URL getUrl(String path) throws Exception {
+        return new URL("http://localhost:" + this.server.getAddress().getPort() + path);
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            Thread.sleep(this.delay);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        if (exchange.getRequestURI().getPath().equals("/missing")) {
+            exchange.sendResponseHeaders(404, -1);
+            exchange.close();
+            return;
+        }
+
+        String etagCondition = exchange.getRequestHeaders().getFirst("If-None-Match");
+        String lastModifiedCondition = exchange.getRequestHeaders().getFirst("If-Modified-Since");
+        this.conditions.add(etagCondition != null ? etagCondition : lastModifiedCondition);
+
+        if (this.etag != null && this.etag.equals(etagCondition) || this.etag == null
+                && this.lastModified.equals(lastModifiedCondition)) {
+            exchange.sendResponseHeaders(304, -1);
+            exchange.close();
+            return;
+        }
+
+        if (this.etag != null) {
+            exchange.getResponseHeaders().add("ETag", this.etag);
+        }
+        if (this.lastModified != null) {
+            exchange.getResponseHeaders().add("Last-Modified", this.lastModified);
+        }
+        byte[] body = this.content.getBytes("UTF-8");
+        exchange.sendResponseHeaders(200, body.length);
+        OutputStream outputStream = exchange.getResponseBody();
+        outputStream.write(body);
+        outputStream.close();
+    }
+
+    private WadlFetcher loadFetcher() throws IOException {
+        WadlFetcher fetcher = WadlFetcher.load(this.directory);
+        fetcher.setConnectTimeout(2000);
+        fetcher.setReadTimeout(2000);
+        return fetcher;
+    }
+}
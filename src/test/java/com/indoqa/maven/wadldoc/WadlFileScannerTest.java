@@ -0,0 +1,118 @@
+/*
+ * Licensed to Indoqa Software Design und Beratung GmbH (Indoqa) 
+ * under one or more contributor license agreements. See the NOTICE 
+ * file distributed with this work for additional information
+ * regarding copyright ownership. Indoqa licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.indoqa.maven.wadldoc;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import junit.framework.Assert;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.junit.Before;
+import org.junit.Test;
+
+public class WadlFileScannerTest {
+
+    private File directory;
+
+    @Before
+    public void createFiles() throws Exception {
+        this.directory = new File("target/wadl-file-scanner-test");
+        FileUtils.deleteDirectory(this.directory);
+
+        FileUtils.writeStringToFile(new File(this.directory, "api.wadl"), "<application/>");
+        FileUtils.writeStringToFile(new File(this.directory, "notes.txt"), "notes");
+        FileUtils.writeStringToFile(new File(this.directory, "orders/api.wadl"), "<application/>");
+        FileUtils.writeStringToFile(new File(this.directory, "orders/v2/types.xml"), "<application/>");
+        FileUtils.writeStringToFile(new File(this.directory, "drafts/new.wadl"), "<application/>");
+    }
+
+    @Test
+    public void archive() throws Exception {
+        File archive = new File(this.directory, "orders.jar");
+        ZipOutputStream zipOutputStream = new ZipOutputStream(new FileOutputStream(archive));
+        try {
+            zipOutputStream.putNextEntry(new ZipEntry("META-INF/MANIFEST.MF"));
+            zipOutputStream.putNextEntry(new ZipEntry("wadl/"));
+            zipOutputStream.putNextEntry(new ZipEntry("wadl/orders api.wadl"));
+            zipOutputStream.write("<application/>".getBytes("UTF-8"));
+        } finally {
+            zipOutputStream.close();
+        }
+
+        WadlFileScanner scanner = new WadlFileScanner(archive, new String[] {"**/*.wadl"}, null);
+        scanner.setPathPrefix("orders/");
+        List<WadlFile> wadlFiles = scanner.scan();
+
+        Assert.assertEquals(1, wadlFiles.size());
+        WadlFile wadlFile = wadlFiles.get(0);
+        Assert.assertEquals("orders/wadl/orders api.wadl", wadlFile.getPath());
+        Assert.assertNull(wadlFile.getFile());
+        Assert.assertEquals(archive, wadlFile.getArchive());
+        Assert.assertEquals(14, wadlFile.getLength());
+        Assert.assertEquals("<application/>", IOUtils.toString(wadlFile.getUrl().openStream(), "UTF-8"));
+    }
+
+    @Test
+    public void defaults() throws Exception {
+        List<WadlFile> wadlFiles = new WadlFileScanner(this.directory, null, null).scan();
+
+        Assert.assertEquals("[api.wadl, drafts/new.wadl, orders/api.wadl, orders/v2/types.xml]", wadlFiles
+                .toString());
+
+        WadlFile wadlFile = wadlFiles.get(2);
+        File file = new File(this.directory, "orders/api.wadl");
+        Assert.assertEquals(file, wadlFile.getFile());
+        Assert.assertEquals(file.length(), wadlFile.getLength());
+        Assert.assertEquals(file.lastModified(), wadlFile.getLastModified());
+    }
+
+    @Test
+    public void missingBase() throws Exception {
+        Assert.assertTrue(new WadlFileScanner(new File(this.directory, "missing"), null, null).scan().isEmpty());
+    }
+
+    @Test
+    public void excludes() throws Exception {
+        Assert.assertEquals("[api.wadl, orders/api.wadl, orders/v2/types.xml]", scan(null,
+                new String[] {"drafts/"}));
+        Assert.assertEquals("[api.wadl, orders/api.wadl]", scan(null, new String[] {"drafts/**", "**/types.xml"}));
+    }
+
+    @Test
+    public void includes() throws Exception {
+        Assert.assertEquals("[api.wadl, drafts/new.wadl, orders/api.wadl]", scan(new String[] {"**/*.wadl"},
+                null));
+        Assert.assertEquals("[orders/api.wadl, orders/v2/types.xml]", scan(new String[] {"orders/**"}, null));
+        Assert.assertEquals("[api.wadl]", scan(new String[] {"*.wadl"}, null));
+    }
+
+    private String scan(String[] includes, String[] excludes) throws Exception {
+        List<String> paths = new ArrayList<String>();
+        for (WadlFile wadlFile : new WadlFileScanner(this.directory, includes, excludes).scan()) {
+            paths.add(wadlFile.getPath());
+        }
+        return paths.toString();
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * Licensed to Indoqa Software Design und Beratung GmbH (Indoqa) 
+ * under one or more contributor license agreements. See the NOTICE 
+ * file distributed with this work for additional information
+ * regarding copyright ownership. Indoqa licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.indoqa.maven.wadldoc;
+
+import java.io.File;
+import java.net.URL;
+import java.util.List;
+
+import junit.framework.Assert;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Before;
+import org.junit.Test;
+import org.xml.sax.SAXParseException;
+
+public class WadlValidatorTest {
+
+    private static final String GRAMMAR = "<xs:schema xmlns:xs=\"http://www.w3.org/2001/XMLSchema\" "
+            + "targetNamespace=\"urn:example:items\" elementFormDefault=\"qualified\">\n"
+            + "  <xs:element name=\"item\"><xs:complexType>"
+            + "<xs:attribute name=\"count\" type=\"xs:int\"/></xs:complexType></xs:element>\n</xs:schema>";
+    private static final String WADL = "<application xmlns=\"http://research.sun.com/wadl/2006/10\" "
+            + "xmlns:it=\"urn:example:items\">\n"
+            + "  <grammars><include href=\"${grammar}\"/></grammars>\n"
+            + "  <resources base=\"http://localhost/\">\n"
+            + "    <resource path=\"items\">\n"
+            + "      <param name=\"q\" style=\"${style}\"/>\n"
+            + "      <method name=\"GET\"><doc>Returns <it:item count=\"${count}\"/></doc></method>\n"
+            + "    </resource>\n"
+            + "  </resources>\n</application>";
+
+    private File directory;
+
+    @Before
+    public void createDirectory() throws Exception {
+        this.directory = new File("target/wadl-validator-test");
+        FileUtils.deleteDirectory(this.directory);
+        FileUtils.writeStringToFile(new File(this.directory, "items.xsd"), GRAMMAR, "UTF-8");
+        WadlValidator.clear();
+    }
+
+    @Test
+    public void brokenGrammar() throws Exception {
+        FileUtils.writeStringToFile(new File(this.directory, "items.xsd"), GRAMMAR.replace("xs:int", "xs:nothing"),
+                "UTF-8");
+
+        List<SAXParseException> problems = WadlValidator.validate(this.writeWadl("items.xsd", "query", "1"));
+        Assert.assertFalse(problems.isEmpty());
+        Assert.assertTrue(problems.get(0).getSystemId().endsWith("items.xsd"));
+    }
+
+    @Test
+    public void invalid() throws Exception {
+        List<SAXParseException> problems = WadlValidator.validate(this.writeWadl("items.xsd", "headers", "1"));
+        Assert.assertFalse(problems.isEmpty());
+        Assert.assertEquals(5, problems.get(0).getLineNumber());
+        Assert.assertTrue(WadlValidator.format(problems.get(0)).startsWith(
+                new File(this.directory, "wadl.xml").getAbsolutePath() + ":5:"));
+
+        // the content of the grammar's namespace is validated against the grammar
+        problems = WadlValidator.validate(this.writeWadl("items.xsd", "query", "many"));
+        Assert.assertFalse(problems.isEmpty());
+        Assert.assertEquals(6, problems.get(0).getLineNumber());
+    }
+
+    @Test
+    public void malformed() throws Exception {
+        URL wadl = this.writeWadl("items.xsd", "query", "1");
+        String content = FileUtils.readFileToString(FileUtils.toFile(wadl), "UTF-8");
+        FileUtils.writeStringToFile(FileUtils.toFile(wadl), content.substring(0, content.indexOf("</resources>")),
+                "UTF-8");
+
+        Assert.assertEquals(1, WadlValidator.validate(wadl).size());
+    }
+
+    @Test
+    public void missingGrammar() throws Exception {
+        List<SAXParseException> problems = WadlValidator.validate(this.writeWadl("missing.xsd", "query", "1"));
+        Assert.assertEquals(1, problems.size());
+        Assert.assertEquals(2, problems.get(0).getLineNumber());
+        Assert.assertTrue(problems.get(0).getMessage().contains("missing.xsd"));
+    }
+
+    @Test
+    public void missingGrammarAndInvalid() throws Exception {
+        List<SAXParseException> problems = WadlValidator.validate(this.writeWadl("missing.xsd", "headers", "1"));
+        Assert.assertTrue(problems.size() > 1);
+        Assert.assertEquals(2, problems.get(0).getLineNumber());
+        Assert.assertTrue(problems.get(0).getMessage().contains("missing.xsd"));
+        // the document is validated, although one of its grammars is missing
+        for (SAXParseException problem : problems.subList(1, problems.size())) {
+            Assert.assertEquals(5, problem.getLineNumber());
+        }
+    }
+
+    @Test
+    public void valid() throws Exception {
+        Assert.assertTrue(WadlValidator.validate(this.writeWadl("items.xsd", "query", "1")).isEmpty());
+        Assert.assertTrue(WadlValidator.validate(this.getClass().getResource("transformation/rich-wadl.xml"))
+                .isEmpty());
+    }
+
+    private URL writeWadl(String grammar, String style, String count) throws Exception {
+        File wadlFile = new File(this.directory, "wadl.xml");
+        FileUtils.writeStringToFile(wadlFile, WADL.replace("${grammar}", grammar).replace("${style}", style)
+                .replace("${count}", count), "UTF-8");
+        return wadlFile.toURI().toURL();
+    }
+}
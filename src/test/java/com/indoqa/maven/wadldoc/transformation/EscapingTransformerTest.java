@@ -0,0 +1,70 @@
+/*
+ * Licensed to Indoqa Software Design und Beratung GmbH (Indoqa) 
+ * under one or more contributor license agreements. See the NOTICE 
+ * file distributed with this work for additional information
+ * regarding copyright ownership. Indoqa licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.indoqa.maven.wadldoc.transformation;
+
+import java.io.StringReader;
+
+import javax.xml.parsers.SAXParserFactory;
+
+import junit.framework.Assert;
+
+import org.apache.cocoon.pipeline.util.SaxBuffer;
+import org.junit.Test;
+import org.xml.sax.InputSource;
+import org.xml.sax.XMLReader;
+
+public class EscapingTransformerTest {
+
+    private static final String WADL_START = "<application xmlns='http://research.sun.com/wadl/2006/10'>"
+            + "<representation mediaType='text/html'><doc>";
+    private static final String WADL_END = "</doc></representation></application>";
+
+    @Test
+    public void attributeValues() throws Exception {
+        Assert.assertEquals("<a href=\"/x?a=1&amp;b=2\" title=\"&quot;1 &lt; 2&quot;\">link</a>",
+                escape("<a href='/x?a=1&amp;b=2' title='\"1 &lt; 2\"'>link</a>"));
+    }
+
+    @Test
+    public void namespaceDeclarations() throws Exception {
+        Assert.assertEquals(
+                "<html xmlns=\"http://www.w3.org/1999/xhtml\"><x:b xmlns:x=\"urn:a&amp;b\"></x:b></html>",
+                escape("<html xmlns='http://www.w3.org/1999/xhtml'><x:b xmlns:x='urn:a&amp;b'/></html>"));
+    }
+
+    private static String escape(String html) throws Exception {
+        SAXParserFactory parserFactory = SAXParserFactory.newInstance();
+        parserFactory.setNamespaceAware(true);
+        XMLReader xmlReader = parserFactory.newSAXParser().getXMLReader();
+
+        EscapingTransformer transformer = new EscapingTransformer();
+        final StringBuilder text = new StringBuilder();
+        transformer.setConsumer(new SaxBuffer() {
+
+            @Override
+            public void characters(char[] ch, int start, int length) {
+                text.append(ch, start, length);
+            }
+        });
+        xmlReader.setContentHandler(transformer);
+        xmlReader.parse(new InputSource(new StringReader(WADL_START + html + WADL_END)));
+
+        return text.toString();
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * Licensed to Indoqa Software Design und Beratung GmbH (Indoqa) 
+ * under one or more contributor license agreements. See the NOTICE 
+ * file distributed with this work for additional information
+ * regarding copyright ownership. Indoqa licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.indoqa.maven.wadldoc.transformation;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+import com.indoqa.maven.wadldoc.transformation.FileMetrics.Stage;
+
+public class FileMetricsTest {
+
+    @Test
+    public void stax() throws Exception {
+        FileMetrics metrics = render(new StaxWadlRenderer());
+
+        Assert.assertEquals("[WadlDocumentReader, WadlExpander, WadlHtmlGenerator, XMLSerializer]",
+                getStageNames(metrics).toString());
+        Assert.assertTrue(metrics.getStages().get(2).getEvents() > 0);
+    }
+
+    @Test
+    public void withoutMetrics() throws Exception {
+        URL url = FileMetricsTest.class.getResource("wadl.xml");
+        Wadl2HtmlPipeline pipeline = new Wadl2HtmlPipeline(url, null, true, new XsltWadlRenderer());
+        pipeline.execute(new ByteArrayOutputStream());
+
+        Assert.assertNull(FileMetrics.getCurrent());
+    }
+
+    @Test
+    public void xslt() throws Exception {
+        FileMetrics metrics = render(new XsltWadlRenderer());
+
+        Assert.assertEquals("[UrlGenerator, WadlMetadataTransformer, EscapingTransformer, CachedXSLTTransformer, "
+                + "XMLSerializer]", getStageNames(metrics).toString());
+        long stagesNanos = 0;
+        for (Stage stage : metrics.getStages()) {
+            Assert.assertTrue(stage.getNanos() >= 0);
+            stagesNanos += stage.getNanos();
+        }
+        Assert.assertTrue(stagesNanos <= metrics.getNanos());
+
+        // the events produced by the generator pass the metadata transformer unchanged
+        Assert.assertTrue(metrics.getStages().get(0).getEvents() > 0);
+        Assert.assertEquals(metrics.getStages().get(0).getEvents(), metrics.getStages().get(1).getEvents());
+        Assert.assertEquals(0, metrics.getStages().get(4).getEvents());
+    }
+
+    private static List<String> getStageNames(FileMetrics metrics) {
+        List<String> names = new ArrayList<String>();
+        for (Stage stage : metrics.getStages()) {
+            names.add(stage.getName());
+        }
+        return names;
+    }
+
+    private static FileMetrics render(WadlRenderer renderer) throws Exception {
+        URL url = FileMetricsTest.class.getResource("wadl.xml");
+        Wadl2HtmlPipeline pipeline = new Wadl2HtmlPipeline(url, null, true, renderer);
+        FileMetrics metrics = new FileMetrics("wadl.xml");
+        pipeline.setMetrics(metrics);
+
+        ByteArrayOutputStream os = new ByteArrayOutputStream();
+        pipeline.execute(os);
+
+        Assert.assertEquals(new File(url.toURI()).length(), metrics.getBytesIn());
+        Assert.assertEquals(os.size(), metrics.getBytesOut());
+        Assert.assertTrue(metrics.getNanos() > 0);
+        Assert.assertNull(FileMetrics.getCurrent());
+        return metrics;
+    }
+}
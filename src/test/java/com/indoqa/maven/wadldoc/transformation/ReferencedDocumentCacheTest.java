@@ -0,0 +1,252 @@
+/*
+ * Licensed to Indoqa Software Design und Beratung GmbH (Indoqa) 
+ * under one or more contributor license agreements. See the NOTICE 
+ * file distributed with this work for additional information
+ * regarding copyright ownership. Indoqa licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.indoqa.maven.wadldoc.transformation;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.net.URLStreamHandler;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import junit.framework.Assert;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.indoqa.maven.wadldoc.transformation.ReferencedDocumentCache.DocumentLoader;
+
+public class ReferencedDocumentCacheTest {
+
+    private final CountingLoader loader = new CountingLoader();
+
+    @Before
+    public void clearCache() {
+        ReferencedDocumentCache.clear();
+    }
+
+    @After
+    public void resetMemoryBudget() {
+        ReferencedDocumentCache.setMemoryBudget(ReferencedDocumentCache.DEFAULT_MEMORY_BUDGET);
+    }
+
+    @Test
+    public void checkUrlsOncePerBuild() throws Exception {
+        ConnectionCountingHandler handler = new ConnectionCountingHandler();
+        URL url = new URL(null, "test:types.xsd", handler);
+
+        ReferencedDocumentCache.getDocument(url, this.loader);
+        ReferencedDocumentCache.getDocument(url, this.loader);
+        Assert.assertEquals(1, handler.getConnections());
+
+        ReferencedDocumentCache.checkForUpdates();
+        ReferencedDocumentCache.getDocument(url, this.loader);
+        Assert.assertEquals(2, handler.getConnections());
+        Assert.assertEquals(1, this.loader.getLoads());
+    }
+
+    @Test
+    public void disabled() throws Exception {
+        ReferencedDocumentCache.setMemoryBudget(0);
+        URL types = this.getClass().getResource("rich-types.xsd");
+
+        ReferencedDocumentCache.getDocument(types, this.loader);
+        ReferencedDocumentCache.getDocument(types, this.loader);
+
+        Assert.assertEquals(2, this.loader.getLoads());
+        Assert.assertEquals(0, ReferencedDocumentCache.getSize());
+    }
+
+    @Test
+    public void evictLeastRecentlyUsed() throws Exception {
+        URL types = this.getClass().getResource("rich-types.xsd");
+        URL resourceTypes = this.getClass().getResource("rich-resource-types.wadl");
+        long typesSize = FileUtils.toFile(types).length() * 8;
+        long resourceTypesSize = FileUtils.toFile(resourceTypes).length() * 8;
+        ReferencedDocumentCache.setMemoryBudget(Math.max(typesSize, resourceTypesSize));
+
+        ReferencedDocumentCache.getDocument(types, this.loader);
+        ReferencedDocumentCache.getDocument(resourceTypes, this.loader);
+        ReferencedDocumentCache.getDocument(resourceTypes, this.loader);
+        ReferencedDocumentCache.getDocument(types, this.loader);
+
+        Assert.assertEquals(3, this.loader.getLoads());
+        Assert.assertEquals(2, ReferencedDocumentCache.getEvictions());
+        Assert.assertEquals(1, ReferencedDocumentCache.getSize());
+        Assert.assertEquals(typesSize, ReferencedDocumentCache.getMemoryUsage());
+    }
+
+    @Test
+    public void loadOnce() throws Exception {
+        URL types = this.getClass().getResource("rich-types.xsd");
+
+        String document1 = ReferencedDocumentCache.getDocument(types, this.loader);
+        String document2 = ReferencedDocumentCache.getDocument(types, this.loader);
+
+        Assert.assertSame(document1, document2);
+        Assert.assertEquals(1, this.loader.getLoads());
+        Assert.assertEquals(1, ReferencedDocumentCache.getHits());
+        Assert.assertEquals(1, ReferencedDocumentCache.getMisses());
+    }
+
+    @Test
+    public void loadWithoutBlockingOtherDocuments() throws Exception {
+        final URL types = this.getClass().getResource("rich-types.xsd");
+        final URL resourceTypes = this.getClass().getResource("rich-resource-types.wadl");
+        final BlockingLoader blockingLoader = new BlockingLoader();
+
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            Callable<String> load = new Callable<String>() {
+
+                public String call() throws Exception {
+                    return ReferencedDocumentCache.getDocument(types, blockingLoader);
+                }
+            };
+            Future<String> loading = executor.submit(load);
+            Assert.assertTrue(blockingLoader.started.await(10, TimeUnit.SECONDS));
+            // the second thread waits for the document that is still being loaded
+            Future<String> waiting = executor.submit(load);
+            while (ReferencedDocumentCache.getHits() == 0) {
+                Thread.sleep(10);
+            }
+
+            // other documents can be looked up in the meantime
+            Future<String> other = executor.submit(new Callable<String>() {
+
+                public String call() throws Exception {
+                    return ReferencedDocumentCache.getDocument(resourceTypes,
+                            ReferencedDocumentCacheTest.this.loader);
+                }
+            });
+            Assert.assertNotNull(other.get(10, TimeUnit.SECONDS));
+            Assert.assertFalse(loading.isDone());
+
+            blockingLoader.finish.countDown();
+            Assert.assertSame(loading.get(10, TimeUnit.SECONDS), waiting.get(10, TimeUnit.SECONDS));
+        } finally {
+            blockingLoader.finish.countDown();
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void reloadModifiedDocument() throws Exception {
+        File file = File.createTempFile("wadldoc", ".xsd");
+        try {
+            FileUtils.copyURLToFile(this.getClass().getResource("rich-types.xsd"), file);
+            URL url = file.toURI().toURL();
+
+            ReferencedDocumentCache.getDocument(url, this.loader);
+            file.setLastModified(file.lastModified() - 10000);
+            ReferencedDocumentCache.getDocument(url, this.loader);
+
+            Assert.assertEquals(2, this.loader.getLoads());
+            Assert.assertEquals(1, ReferencedDocumentCache.getSize());
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void sharedAcrossPipelines() throws Exception {
+        URL wadl = this.getClass().getResource("rich-wadl.xml");
+        for (WadlRenderer renderer : new WadlRenderer[] {new XsltWadlRenderer(), new StaxWadlRenderer()}) {
+            for (int i = 0; i < 3; i++) {
+                new Wadl2HtmlPipeline(wadl, null, true, renderer).execute(new ByteArrayOutputStream());
+            }
+        }
+
+        // two referenced documents, one entry for each renderer's document model
+        Assert.assertEquals(4, ReferencedDocumentCache.getMisses());
+        Assert.assertEquals(4, ReferencedDocumentCache.getSize());
+        String report = ReferencedDocumentCache.getReport();
+        Assert.assertTrue(report, report.contains("rich-types.xsd: resolved 6 time(s)"));
+        Assert.assertTrue(report, report.contains("rich-resource-types.wadl: resolved "));
+    }
+
+    private static class CountingLoader implements DocumentLoader<String> {
+
+        private final AtomicInteger loads = new AtomicInteger();
+
+        public int getLoads() {
+            return this.loads.get();
+        }
+
+        public Class<String> getType() {
+            return String.class;
+        }
+
+        public String load(URL url) throws Exception {
+            this.loads.incrementAndGet();
+            return new String(url.toExternalForm());
+        }
+    }
+
+    private static class BlockingLoader implements DocumentLoader<String> {
+
+        private final CountDownLatch started = new CountDownLatch(1);
+        private final CountDownLatch finish = new CountDownLatch(1);
+
+        public Class<String> getType() {
+            return String.class;
+        }
+
+        public String load(URL url) throws Exception {
+            this.started.countDown();
+            this.finish.await();
+            return new String(url.toExternalForm());
+        }
+    }
+
+    private static class ConnectionCountingHandler extends URLStreamHandler {
+
+        private final AtomicInteger connections = new AtomicInteger();
+
+        public int getConnections() {
+            return this.connections.get();
+        }
+
+        @Override
+        protected URLConnection openConnection(URL url) throws IOException {
+            this.connections.incrementAndGet();
+            return new URLConnection(url) {
+
+                @Override
+                public void connect() {
+                    // nothing to connect to
+                }
+
+                @Override
+                public long getLastModified() {
+                    return 1;
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * Licensed to Indoqa Software Design und Beratung GmbH (Indoqa) 
+ * under one or more contributor license agreements. See the NOTICE 
+ * file distributed with this work for additional information
+ * regarding copyright ownership. Indoqa licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.indoqa.maven.wadldoc.transformation;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+import com.indoqa.maven.wadldoc.transformation.ResourcePagesRenderer.PageHandler;
+
+public class ResourcePagesRendererTest {
+
+    private static final Pattern LINK = Pattern.compile("href=\"([^\"#]+)#([^\"]+)\"");
+
+    @Test
+    public void linksResolve() throws Exception {
+        ResourcePagesRenderer renderer = createRenderer();
+        ByteArrayOutputStream tableOfContents = new ByteArrayOutputStream();
+        renderer.renderTableOfContents(tableOfContents);
+        Map<String, String> pages = renderPages(renderer, 1);
+
+        Matcher matcher = LINK.matcher(tableOfContents.toString("UTF-8"));
+        int links = 0;
+        while (matcher.find()) {
+            String page = pages.get(matcher.group(1));
+            Assert.assertNotNull("Missing page " + matcher.group(1), page);
+            Assert.assertTrue("Missing anchor " + matcher.group(0), page.contains("id=\"" + matcher.group(2)
+                    + "\""));
+            links++;
+        }
+        Assert.assertEquals(6, links);
+    }
+
+    @Test
+    public void pages() throws Exception {
+        ResourcePagesRenderer renderer = createRenderer();
+        WadlMetadata metadata = renderer.renderTableOfContents(new ByteArrayOutputStream());
+
+        Assert.assertEquals("Bookstore", metadata.getTitle());
+        Assert.assertEquals(Arrays.asList("books.html", "authors.html", "stats.html"), renderer.getPageNames());
+
+        Map<String, String> pages = renderPages(renderer, 1);
+        Assert.assertEquals(renderer.getPageNames().size(), pages.size());
+        // a representation that is referenced from another resource is rendered on its page too
+        Assert.assertTrue(pages.get("stats.html").contains("id=\"http://localhost:8080/admin#authorList\""));
+        Assert.assertTrue(pages.get("authors.html").contains("id=\"http://localhost:8080/store#authorList\""));
+        Assert.assertTrue(pages.get("books.html").contains("href=\"index.html\""));
+    }
+
+    @Test
+    public void parts() throws Exception {
+        ResourcePagesRenderer renderer = createRenderer();
+        renderer.renderTableOfContents(new ByteArrayOutputStream());
+
+        Assert.assertEquals(renderPages(renderer, 1), renderPages(renderer, 2));
+    }
+
+    @Test
+    public void pageNames() {
+        ResourcePageNames names = new ResourcePageNames();
+
+        Assert.assertEquals("books.html", names.next(createResource("books")));
+        Assert.assertEquals("books-2.html", names.next(createResource("/books/")));
+        Assert.assertEquals("books-isbn.html", names.next(createResource("books/{isbn}")));
+        Assert.assertEquals("index-2.html", names.next(createResource("index")));
+        Assert.assertEquals("resource.html", names.next(createResource("/")));
+    }
+
+    private static WadlNode createResource(String path) {
+        WadlNode resource = WadlNode.element(WadlNode.NS_WADL, "resource", "", null);
+        resource.setAttribute("path", path);
+        return resource;
+    }
+
+    private static ResourcePagesRenderer createRenderer() {
+        return new ResourcePagesRenderer(ResourcePagesRendererTest.class.getResource("rich-wadl.xml"),
+                "../stylesheet.css", true);
+    }
+
+    private static Map<String, String> renderPages(ResourcePagesRenderer renderer, int parts) {
+        final Map<String, String> pages = new TreeMap<String, String>();
+        for (int i = 0; i < parts; i++) {
+            renderer.renderResourcePages(i, parts, new PageHandler() {
+
+                public void page(String name, byte[] content) throws IOException {
+                    Assert.assertNull(pages.put(name, new String(content, "UTF-8")));
+                }
+            });
+        }
+        return pages;
+    }
+}
@@ -0,0 +1,172 @@
+/*
+ * Licensed to Indoqa Software Design und Beratung GmbH (Indoqa) 
+ * under one or more contributor license agreements. See the NOTICE 
+ * file distributed with this work for additional information
+ * regarding copyright ownership. Indoqa licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.indoqa.maven.wadldoc.transformation;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.net.URL;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import junit.framework.Assert;
+
+import org.apache.commons.io.IOUtils;
+import org.custommonkey.xmlunit.Diff;
+import org.junit.Test;
+
+public class StaxWadlRendererTest {
+
+    private static final Pattern GENERATED_ID = Pattern.compile("(id=\"|href=\"#)(N[0-9A-F_]+)\"");
+
+    @Test
+    public void metadata() throws Exception {
+        WadlMetadata metadata = render("wadl.xml", null, true, new StaxWadlRenderer());
+        WadlMetadata xsltMetadata = render("wadl.xml", null, true, new XsltWadlRenderer());
+
+        Assert.assertEquals(xsltMetadata.getTitle(), metadata.getTitle());
+        Assert.assertEquals(xsltMetadata.getResourceCount(), metadata.getResourceCount());
+        Assert.assertEquals(xsltMetadata.getMethodCount(), metadata.getMethodCount());
+        Assert.assertEquals(xsltMetadata.getRepresentationCount(), metadata.getRepresentationCount());
+        Assert.assertEquals(xsltMetadata.getParamCount(), metadata.getParamCount());
+        Assert.assertEquals(xsltMetadata.getReferences(), metadata.getReferences());
+    }
+
+    @Test
+    public void parity() throws Exception {
+        assertSameOutput("rich-wadl.xml", null, true);
+        assertSameOutput("rich-wadl.xml", null, false);
+        assertSameOutput("rich-wadl.xml", "stylesheet.css", true);
+    }
+
+    @Test
+    public void largeFileMode() throws Exception {
+        URL url = StaxWadlRendererTest.class.getResource("rich-wadl.xml");
+        long size = new File(url.toURI()).length();
+
+        Wadl2HtmlPipeline pipeline = new Wadl2HtmlPipeline(url, null, true, new XsltWadlRenderer());
+        Assert.assertFalse(pipeline.isLargeFileMode());
+        pipeline.setLargeFileThreshold(size + 1);
+        Assert.assertFalse(pipeline.isLargeFileMode());
+        pipeline.setLargeFileThreshold(size);
+        Assert.assertTrue(pipeline.isLargeFileMode());
+
+        // the pipeline keeps the renderer it has been passed
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        render("rich-wadl.xml", null, true, new XsltWadlRenderer(), expected);
+        ByteArrayOutputStream actual = new ByteArrayOutputStream();
+        WadlMetadata metadata = pipeline.execute(actual);
+
+        Assert.assertEquals(expected.toString("UTF-8"), actual.toString("UTF-8"));
+        Assert.assertEquals("Bookstore", metadata.getTitle());
+    }
+
+    @Test
+    public void streamingParity() throws Exception {
+        assertSameOutput("rich-wadl.xml", null, true, new StaxWadlRenderer(true));
+        assertSameOutput("rich-wadl.xml", null, false, new StaxWadlRenderer(true));
+        assertSameOutput("rich-wadl.xml", "stylesheet.css", true, new StaxWadlRenderer(true));
+        assertSameOutput("wadl.xml", null, true, new StaxWadlRenderer(true));
+    }
+
+    @Test
+    public void rendererByName() {
+        Assert.assertTrue(Wadl2HtmlPipeline.createRenderer("stax") instanceof StaxWadlRenderer);
+        Assert.assertTrue(Wadl2HtmlPipeline.createRenderer("XSLT") instanceof XsltWadlRenderer);
+        Assert.assertTrue(((StaxWadlRenderer) Wadl2HtmlPipeline.createRenderer("streaming")).isStreaming());
+        WadlRenderer renderer = Wadl2HtmlPipeline.createRenderer(StaxWadlRenderer.class.getName());
+        Assert.assertTrue(renderer instanceof StaxWadlRenderer);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void unknownRenderer() {
+        Wadl2HtmlPipeline.createRenderer("java.lang.String");
+    }
+
+    @Test
+    public void simplePipeline() throws Exception {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        render("wadl.xml", null, true, new StaxWadlRenderer(), baos);
+
+        Diff diff = createDiff("test1-result.html", baos);
+        Assert.assertTrue("Pieces of XML are not identical. " + diff, diff.identical());
+    }
+
+    @Test
+    public void stylesheet() throws Exception {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        render("wadl.xml", "stylesheet.css", true, new StaxWadlRenderer(), baos);
+
+        Diff diff = createDiff("test2-result.html", baos);
+        Assert.assertTrue("Pieces of XML are not similar. " + diff, diff.similar());
+    }
+
+    private static void assertSameOutput(String wadl, String stylesheet, boolean escape) throws Exception {
+        assertSameOutput(wadl, stylesheet, escape, new StaxWadlRenderer());
+    }
+
+    private static void assertSameOutput(String wadl, String stylesheet, boolean escape, WadlRenderer renderer)
+            throws Exception {
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        render(wadl, stylesheet, escape, new XsltWadlRenderer(), expected);
+        ByteArrayOutputStream actual = new ByteArrayOutputStream();
+        render(wadl, stylesheet, escape, renderer, actual);
+
+        Diff diff = new Diff(normalizeIds(expected.toString("UTF-8")), normalizeIds(actual.toString("UTF-8")));
+        Assert.assertTrue("The renderers produced different output (escape=" + escape + ", stylesheet="
+                + stylesheet + "). " + diff, diff.identical());
+    }
+
+    private static Diff createDiff(String fileName, ByteArrayOutputStream actual) throws Exception {
+        String expected = IOUtils.toString(StaxWadlRendererTest.class.getResource(fileName).openStream());
+        return new Diff(normalizeIds(expected), normalizeIds(actual.toString()));
+    }
+
+    /**
+     * The renderers generate different ids for elements without an id, so they are replaced by the order of their
+     * first appearance.
+     */
+    private static String normalizeIds(String html) {
+        Map<String, String> ids = new HashMap<String, String>();
+        Matcher matcher = GENERATED_ID.matcher(html);
+        StringBuffer sb = new StringBuffer();
+        while (matcher.find()) {
+            String id = ids.get(matcher.group(2));
+            if (id == null) {
+                id = "generated-" + ids.size();
+                ids.put(matcher.group(2), id);
+            }
+            matcher.appendReplacement(sb, matcher.group(1) + id + "\"");
+        }
+        matcher.appendTail(sb);
+        return sb.toString();
+    }
+
+    private static WadlMetadata render(String wadl, String stylesheet, boolean escape, WadlRenderer renderer)
+            throws Exception {
+        return render(wadl, stylesheet, escape, renderer, new ByteArrayOutputStream());
+    }
+
+    private static WadlMetadata render(String wadl, String stylesheet, boolean escape, WadlRenderer renderer,
+            ByteArrayOutputStream os) throws Exception {
+        URL url = StaxWadlRendererTest.class.getResource(wadl);
+        return new Wadl2HtmlPipeline(url, stylesheet, escape, renderer).execute(os);
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * Licensed to Indoqa Software Design und Beratung GmbH (Indoqa) 
+ * under one or more contributor license agreements. See the NOTICE 
+ * file distributed with this work for additional information
+ * regarding copyright ownership. Indoqa licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.indoqa.maven.wadldoc.transformation;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.net.URL;
+
+import javax.xml.transform.Templates;
+
+import junit.framework.Assert;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TemplatesCacheTest {
+
+    private static final String STYLESHEET = "com/indoqa/maven/wadldoc/stylesheet/wadl_documentation.xsl";
+
+    @Before
+    public void clearCache() {
+        TemplatesCache.clear();
+    }
+
+    @Test
+    public void compileOnce() throws Exception {
+        URL stylesheet = this.getClass().getClassLoader().getResource(STYLESHEET);
+
+        Templates templates1 = TemplatesCache.getTemplates(stylesheet);
+        Templates templates2 = TemplatesCache.getTemplates(stylesheet);
+
+        Assert.assertSame(templates1, templates2);
+        Assert.assertEquals(1, TemplatesCache.getMisses());
+        Assert.assertEquals(1, TemplatesCache.getHits());
+    }
+
+    @Test
+    public void sharedAcrossPipelines() throws Exception {
+        URL wadl = this.getClass().getResource("wadl.xml");
+        for (int i = 0; i < 3; i++) {
+            new Wadl2HtmlPipeline(wadl, null, true).execute(new ByteArrayOutputStream());
+        }
+
+        Assert.assertEquals(1, TemplatesCache.getMisses());
+        Assert.assertEquals(2, TemplatesCache.getHits());
+    }
+
+    @Test
+    public void recompileChangedImport() throws Exception {
+        File directory = new File("target/templates-cache-test");
+        FileUtils.deleteDirectory(directory);
+        File imported = new File(directory, "imported.xsl");
+        FileUtils.writeStringToFile(imported, "<xsl:stylesheet version=\"1.0\" "
+                + "xmlns:xsl=\"http://www.w3.org/1999/XSL/Transform\"/>", "UTF-8");
+        File stylesheet = new File(directory, "stylesheet.xsl");
+        FileUtils.writeStringToFile(stylesheet, "<xsl:stylesheet version=\"1.0\" "
+                + "xmlns:xsl=\"http://www.w3.org/1999/XSL/Transform\"><xsl:import href=\"imported.xsl\"/>"
+                + "</xsl:stylesheet>", "UTF-8");
+        URL url = stylesheet.toURI().toURL();
+
+        Templates templates1 = TemplatesCache.getTemplates(url);
+        Templates templates2 = TemplatesCache.getTemplates(url);
+        Assert.assertSame(templates1, templates2);
+
+        imported.setLastModified(imported.lastModified() - 10000);
+        Templates templates3 = TemplatesCache.getTemplates(url);
+        Assert.assertNotSame(templates1, templates3);
+        Assert.assertEquals(2, TemplatesCache.getMisses());
+        Assert.assertEquals(1, TemplatesCache.getHits());
+    }
+}
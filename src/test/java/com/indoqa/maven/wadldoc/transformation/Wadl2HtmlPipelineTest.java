@@ -20,6 +20,7 @@ package com.indoqa.maven.wadldoc.transformation;
 
 import java.io.ByteArrayOutputStream;
 import java.net.URL;
+import java.util.List;
 
 import junit.framework.Assert;
 
@@ -27,6 +28,8 @@ import org.apache.commons.io.IOUtils;
 import org.custommonkey.xmlunit.Diff;
 import org.junit.Test;
 
+import com.indoqa.maven.wadldoc.transformation.Wadl2HtmlPipeline.PipelineException;
+
 public class Wadl2HtmlPipelineTest {
 
     @Test(expected = IllegalArgumentException.class)
@@ -34,6 +37,79 @@ public class Wadl2HtmlPipelineTest {
         new Wadl2HtmlPipeline((URL) null, null);
     }
 
+    @Test
+    public void metadata() throws Exception {
+        WadlMetadata metadata = new Wadl2HtmlPipeline(this.getClass().getResource("wadl.xml"), null, true)
+                .execute(new ByteArrayOutputStream());
+
+        Assert.assertEquals("Test REST documentation 1", metadata.getTitle());
+        Assert.assertEquals(1, metadata.getResourceCount());
+        Assert.assertEquals(1, metadata.getMethodCount());
+        Assert.assertEquals(1, metadata.getRepresentationCount());
+        Assert.assertEquals(2, metadata.getParamCount());
+        Assert.assertTrue(metadata.getReferences().isEmpty());
+    }
+
+    @Test
+    public void readMetadata() throws Exception {
+        URL url = this.getClass().getResource("rich-wadl.xml");
+        WadlMetadata metadata = new Wadl2HtmlPipeline(url, null, true).readMetadata();
+        WadlMetadata expected = new Wadl2HtmlPipeline(url, null, true).execute(new ByteArrayOutputStream());
+
+        Assert.assertEquals(expected.getTitle(), metadata.getTitle());
+        Assert.assertEquals(expected.getResourceCount(), metadata.getResourceCount());
+        Assert.assertEquals(expected.getMethodCount(), metadata.getMethodCount());
+        Assert.assertEquals(expected.getReferences(), metadata.getReferences());
+    }
+
+    @Test
+    public void reusedRenderer() throws Exception {
+        WadlRenderer renderer = new XsltWadlRenderer();
+        URL url = this.getClass().getResource("wadl.xml");
+        WadlMetadata expected = new Wadl2HtmlPipeline(url, null, true).execute(new ByteArrayOutputStream());
+
+        new Wadl2HtmlPipeline(this.getClass().getResource("rich-wadl.xml"), null, true, renderer).execute(
+                new ByteArrayOutputStream());
+        try {
+            new Wadl2HtmlPipeline(new URL(url, "missing.xml"), null, true, renderer).execute(
+                    new ByteArrayOutputStream());
+            Assert.fail("A missing WADL file has to fail.");
+        } catch (PipelineException e) {
+            // expected
+        }
+
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        WadlMetadata metadata = new Wadl2HtmlPipeline(url, null, true, renderer).execute(baos);
+        Assert.assertEquals(expected.toString(), metadata.toString());
+        Diff diff = createDiff("test1-result.html", baos);
+        Assert.assertTrue("Pieces of XML are not identical. " + diff, diff.identical());
+
+        baos = new ByteArrayOutputStream();
+        new Wadl2HtmlPipeline(url, "stylesheet.css", true, renderer).execute(baos);
+        diff = createDiff("test2-result.html", baos);
+        Assert.assertTrue("Pieces of XML are not identical. " + diff, diff.similar());
+    }
+
+    @Test
+    public void searchEntries() throws Exception {
+        URL url = this.getClass().getResource("rich-wadl.xml");
+        List<SearchEntry> entries = new Wadl2HtmlPipeline(url, null, true).execute(new ByteArrayOutputStream())
+                .getSearchEntries();
+
+        Assert.assertEquals("/books", entries.get(0).getPath());
+        Assert.assertTrue(entries.get(0).getMethods().contains("GET"));
+        Assert.assertTrue(entries.get(0).getMethods().contains("listBooks"));
+        Assert.assertTrue(entries.get(0).getParams().contains("lang"));
+        Assert.assertTrue(entries.get(0).getText().startsWith("List all books."));
+        Assert.assertEquals("/books/{isbn}", entries.get(1).getPath());
+
+        // the StAX renderer and the metadata-only parse collect the same entries
+        WadlRenderer staxRenderer = Wadl2HtmlPipeline.createRenderer(Wadl2HtmlPipeline.RENDERER_STAX);
+        assertEquals(entries, new Wadl2HtmlPipeline(url, null, true, staxRenderer).execute(
+                new ByteArrayOutputStream()).getSearchEntries());
+        assertEquals(entries, new Wadl2HtmlPipeline(url, null, true).readMetadata().getSearchEntries());
+    }
+
     @Test
     public void simplePipeline() throws Exception {
         ByteArrayOutputStream baos = new ByteArrayOutputStream();
@@ -54,6 +130,14 @@ public class Wadl2HtmlPipelineTest {
         Assert.assertTrue("Pieces of XML are not identical. " + diff, diff.similar());
     }
 
+    private static void assertEquals(List<SearchEntry> expected, List<SearchEntry> actual) {
+        Assert.assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            Assert.assertEquals(expected.get(i).toString(), actual.get(i).toString());
+            Assert.assertEquals(expected.get(i).getText(), actual.get(i).getText());
+        }
+    }
+
     private static Diff createDiff(String fileName, ByteArrayOutputStream actual) throws Exception {
         return createDiff(Wadl2HtmlPipelineTest.class.getResource(fileName), actual);
     }
@@ -0,0 +1,89 @@
+/*
+ * Licensed to Indoqa Software Design und Beratung GmbH (Indoqa) 
+ * under one or more contributor license agreements. See the NOTICE 
+ * file distributed with this work for additional information
+ * regarding copyright ownership. Indoqa licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.indoqa.maven.wadldoc.transformation;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.net.URL;
+
+import junit.framework.Assert;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Before;
+import org.junit.Test;
+import org.xml.sax.XMLReader;
+
+public class XmlParsersTest {
+
+    private static final String WADL = "<!DOCTYPE application SYSTEM \"http://wadl.invalid/wadl.dtd\" [\n"
+            + "  <!ENTITY title SYSTEM \"title.txt\">\n]>\n"
+            + "<application xmlns=\"http://research.sun.com/wadl/2006/10\">\n"
+            + "  <doc title=\"API\">&title;</doc>\n"
+            + "  <resources base=\"http://localhost/\"><resource path=\"items\"><method name=\"GET\"/></resource>"
+            + "</resources>\n</application>";
+
+    private File directory;
+
+    @Before
+    public void createDirectory() throws Exception {
+        this.directory = new File("target/xml-parsers-test");
+        FileUtils.deleteDirectory(this.directory);
+    }
+
+    @Test
+    public void offline() throws Exception {
+        File wadlFile = new File(this.directory, "wadl.xml");
+        FileUtils.writeStringToFile(wadlFile, WADL, "UTF-8");
+        FileUtils.writeStringToFile(new File(this.directory, "title.txt"), "The items", "UTF-8");
+        URL wadl = wadlFile.toURI().toURL();
+
+        // the remote DTD can't be loaded, the local entity is resolved
+        ByteArrayOutputStream xsltOutput = new ByteArrayOutputStream();
+        new Wadl2HtmlPipeline(wadl, null, true).execute(xsltOutput);
+        Assert.assertTrue(xsltOutput.toString("UTF-8").contains("The items"));
+
+        ByteArrayOutputStream staxOutput = new ByteArrayOutputStream();
+        new Wadl2HtmlPipeline(wadl, null, true, new StaxWadlRenderer()).execute(staxOutput);
+        Assert.assertTrue(staxOutput.toString("UTF-8").contains("The items"));
+
+        Assert.assertEquals("API", new Wadl2HtmlPipeline(wadl, null).readMetadata().getTitle());
+    }
+
+    @Test
+    public void reusedReaders() throws Exception {
+        XMLReader reader = XmlParsers.getReader();
+        XmlParsers.releaseReader(reader);
+        Assert.assertSame(reader, XmlParsers.getReader());
+
+        // a nested parse gets a reader of its own
+        XMLReader nestedReader = XmlParsers.getReader();
+        Assert.assertNotSame(reader, nestedReader);
+        XmlParsers.releaseReader(nestedReader);
+        XmlParsers.releaseReader(reader);
+        Assert.assertSame(reader, XmlParsers.getReader());
+    }
+
+    @Test
+    public void releasedThreadReader() throws Exception {
+        XMLReader reader = XmlParsers.getReader();
+        XmlParsers.releaseReader(reader);
+        XmlParsers.releaseThreadReader();
+        Assert.assertNotSame(reader, XmlParsers.getReader());
+    }
+}